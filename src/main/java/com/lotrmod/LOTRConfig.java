@@ -0,0 +1,62 @@
+package com.lotrmod;
+
+import com.lotrmod.worldgen.noise.NoiseEngine;
+import net.neoforged.neoforge.common.ModConfigSpec;
+
+/**
+ * Common (server-side) settings, stored in config/lotrmod-common.toml
+ */
+public class LOTRConfig {
+    private static final ModConfigSpec.Builder BUILDER = new ModConfigSpec.Builder();
+
+    public static final ModConfigSpec.IntValue MAP_TILE_CACHE_MEGABYTES = BUILDER
+            .comment("Memory for decoded tiles of each tiled map (landmask, region map), in megabytes.",
+                    "Tiles beyond this are evicted least recently used first and decoded again when needed.")
+            .defineInRange("worldgen.mapTileCacheMegabytes", 64, 1, 4096);
+
+    public static final ModConfigSpec.BooleanValue VECTOR_HEIGHT_KERNEL = BUILDER
+            .comment("Compose terrain heights with SIMD vector instructions when the JVM was started with",
+                    "--add-modules jdk.incubator.vector. Falls back to the scalar path otherwise.")
+            .define("worldgen.vectorHeightKernel", true);
+
+    public static final ModConfigSpec.EnumValue<NoiseEngine> NOISE_ENGINE = BUILDER
+            .comment("Terrain noise backend. VANILLA and COMPATIBLE give the same terrain, COMPATIBLE faster (it is",
+                    "checked against VANILLA at startup and falls back to it on any difference). SEEDED is as fast",
+                    "and seeds the terrain from the world seed, which changes it: only use it for new worlds.")
+            .defineEnum("worldgen.noiseEngine", NoiseEngine.VANILLA);
+
+    public static final ModConfigSpec.BooleanValue PARALLEL_URGENT_CHUNKS = BUILDER
+            .comment("Split the generation of chunks a player is waiting on (teleport destinations, login",
+                    "position) across all cores. Other chunks are generated one per thread either way.")
+            .define("worldgen.parallelUrgentChunks", true);
+
+    public static final ModConfigSpec.IntValue PREFETCH_LOOKAHEAD_SECONDS = BUILDER
+            .comment("How far ahead of players riding or flying through Middle-earth terrain heights are computed",
+                    "before the chunks generate, in seconds of travel. 0 turns prefetching off.")
+            .defineInRange("worldgen.prefetchLookaheadSeconds", 5, 0, 30);
+
+    public static final ModConfigSpec.IntValue PREFETCH_BUDGET_PERCENT = BUILDER
+            .comment("Share of one core the prefetch thread may use, in percent.")
+            .defineInRange("worldgen.prefetchBudgetPercent", 10, 1, 100);
+
+    public static final ModConfigSpec.BooleanValue LAZY_MAPS = BUILDER
+            .comment("Leave the landmask and region map unloaded until Middle-earth is first used (a chunk",
+                    "request, a teleport or a locate), for servers that rarely send anyone there.")
+            .define("worldgen.lazyMaps", false);
+
+    public static final ModConfigSpec.IntValue LAZY_MAPS_PRELOAD_SECONDS = BUILDER
+            .comment("With lazy maps, load them in the background once the server has been up this many seconds",
+                    "and its ticks are well within budget. 0 waits for the first use.")
+            .defineInRange("worldgen.lazyMapsPreloadSeconds", 0, 0, 86400);
+
+    public static final ModConfigSpec.IntValue UNLOAD_MAPS_AFTER_MINUTES = BUILDER
+            .comment("Release the maps and generation caches after this many minutes with no players and no loaded",
+                    "chunks in Middle-earth; they are loaded again on the next use. 0 keeps them loaded.")
+            .defineInRange("worldgen.unloadMapsAfterMinutes", 0, 0, 10080);
+
+    public static final ModConfigSpec SPEC = BUILDER.build();
+
+    public static long getMapTileCacheBytes() {
+        return MAP_TILE_CACHE_MEGABYTES.get() * 1024L * 1024L;
+    }
+}
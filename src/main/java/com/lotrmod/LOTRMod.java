@@ -1,22 +1,36 @@
 package com.lotrmod;
 
 import com.lotrmod.block.ModBlocks;
+import com.lotrmod.command.GenerationBenchmark;
 import com.lotrmod.command.MiddleEarthCommand;
+import com.lotrmod.command.MiddleEarthTeleporter;
 import com.lotrmod.item.ModItems;
+import com.lotrmod.worldgen.ColumnPrefetcher;
 import com.lotrmod.worldgen.LOTRWorldGen;
-import com.lotrmod.worldgen.LandmaskLoader;
-import com.lotrmod.worldgen.RegionMapLoader;
+import com.lotrmod.worldgen.MiddleEarthChunkGenerator;
+import com.lotrmod.worldgen.UrgentChunks;
+import com.lotrmod.worldgen.WorldGenManagement;
+import com.lotrmod.worldgen.WorldGenMaps;
+import com.lotrmod.worldgen.biome.RegionBiomeWeights;
+import com.lotrmod.worldgen.biome.SurfaceProfiles;
+import com.lotrmod.worldgen.biome.TerrainProfiles;
+import com.lotrmod.worldgen.structure.Landmarks;
+import com.lotrmod.worldgen.structure.TreeTemplates;
 import com.mojang.logging.LogUtils;
-import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.level.ServerLevel;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.ModContainer;
 import net.neoforged.fml.common.Mod;
+import net.neoforged.fml.config.ModConfig;
 import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.neoforged.neoforge.common.NeoForge;
 import net.neoforged.neoforge.event.AddReloadListenerEvent;
 import net.neoforged.neoforge.event.RegisterCommandsEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
 import net.neoforged.neoforge.event.server.ServerStartingEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
 import org.slf4j.Logger;
 
 @Mod(LOTRMod.MODID)
@@ -26,6 +40,7 @@ public class LOTRMod {
 
     public LOTRMod(IEventBus modEventBus, ModContainer modContainer) {
         modEventBus.addListener(this::commonSetup);
+        modContainer.registerConfig(ModConfig.Type.COMMON, LOTRConfig.SPEC);
 
         // Register blocks and items
         ModBlocks.register(modEventBus);
@@ -45,20 +60,61 @@ public class LOTRMod {
 
     @SubscribeEvent
     public void onServerStarting(ServerStartingEvent event) {
-        LOGGER.info("LOTR Mod: Server starting, loading world generation maps...");
-        ResourceManager resourceManager = event.getServer().getResourceManager();
-        LandmaskLoader.loadLandmask(resourceManager);
-        RegionMapLoader.loadRegionMap(resourceManager);
+        // The maps have been loading in the background since the server's resources were loaded
+        // (or wait for the first use of Middle-earth, with lazy maps)
+        ServerLevel middleEarth = event.getServer().getLevel(MiddleEarthCommand.MIDDLEEARTH_DIMENSION);
+        MiddleEarthChunkGenerator generator = middleEarth != null
+                && middleEarth.getChunkSource().getGenerator() instanceof MiddleEarthChunkGenerator source ? source : null;
+        WorldGenMaps.serverStarting(event.getServer().getResourceManager(), generator);
+        if (generator != null) {
+            WorldGenManagement.register(generator);
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerTick(ServerTickEvent.Post event) {
+        MiddleEarthTeleporter.tick(event.getServer());
+        GenerationBenchmark.tick(event.getServer());
+        ServerLevel middleEarth = event.getServer().getLevel(MiddleEarthCommand.MIDDLEEARTH_DIMENSION);
+        ColumnPrefetcher.tick(middleEarth);
+        WorldGenMaps.tick(middleEarth);
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        // A player logging in to Middle-earth waits on the chunks around them
+        if (event.getEntity().level().dimension() == MiddleEarthCommand.MIDDLEEARTH_DIMENSION) {
+            UrgentChunks.mark(event.getEntity().chunkPosition());
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerStopping(ServerStoppingEvent event) {
+        MiddleEarthTeleporter.clear();
+        GenerationBenchmark.clear();
+        UrgentChunks.clear();
+        ColumnPrefetcher.clear();
+        WorldGenMaps.clear();
+        WorldGenManagement.unregister();
     }
 
     @SubscribeEvent
     public void onAddReloadListener(AddReloadListenerEvent event) {
-        // Reload maps when resources are reloaded
+        // Per-biome surface rules from data/*/worldgen/surface_profile
+        event.addListener(new SurfaceProfiles());
+        // Per-biome terrain shape from data/*/worldgen/terrain_profile
+        event.addListener(new TerrainProfiles());
+        // Biome weights within each region from data/*/worldgen/region_biomes
+        event.addListener(new RegionBiomeWeights());
+        // Tree templates from data/lotrmod/structure, parsed once for the tree decorator
+        event.addListener(new TreeTemplates());
+        // Large landmarks from data/*/worldgen/landmark, preprocessed into chunk slices
+        event.addListener(new Landmarks());
+
+        // (Re)load the maps whenever resources are loaded; decoding continues in the background
+        // without holding up the reload, and chunk generation waits for it if it gets there first
         event.addListener((preparationBarrier, resourceManager, profilerFiller, profilerFiller2, executor, executor2) ->
-                preparationBarrier.wait(null).thenRunAsync(() -> {
-                    LandmaskLoader.loadLandmask(resourceManager);
-                    RegionMapLoader.loadRegionMap(resourceManager);
-                }, executor2));
+                preparationBarrier.wait(null).thenRun(() -> WorldGenMaps.load(resourceManager)));
     }
 
     @SubscribeEvent
@@ -0,0 +1,601 @@
+package com.lotrmod.command;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.AllocationBudgets;
+import com.lotrmod.worldgen.GenerationTimings;
+import com.lotrmod.worldgen.MiddleEarthChunkGenerator;
+import com.lotrmod.worldgen.Region;
+import com.lotrmod.worldgen.RegionIndex;
+import com.lotrmod.worldgen.RegionMapLoader;
+import com.lotrmod.worldgen.WorldGenMaps;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.util.GsonHelper;
+import net.minecraft.world.level.ChunkPos;
+import net.neoforged.fml.loading.FMLPaths;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Chunk generation throughput benchmark behind /middleearth benchmark.
+ *
+ * Generates a square window of chunks to full status around a few representative areas (open
+ * ocean, the Shire, the Misty Mountains, Mordor and the edge of the map), one area at a time,
+ * and reports chunks per second plus the time and memory per chunk of each generation stage
+ * from a {@link GenerationTimings.Window} over the area, so chunks generated elsewhere at the
+ * same time are not counted. Results are compared against the baseline recorded under the game
+ * directory's lotrmod/benchmark, or if there is none, the one checked in with the mod
+ * (data/lotrmod/benchmark/baseline.json), and any area slower than the baseline by more than its
+ * tolerance, or any stage allocating more per chunk, is reported as a regression. Only
+ * baselines written by '/middleearth benchmark record' (marked "measured", with a rate for
+ * every area and bytes for every stage) are compared against. Afterwards the per-column queries
+ * are checked against their {@link AllocationBudgets}. The {@link GenerationBenchmarkTests}
+ * game test runs it against the checked-in baseline, and fails straight away if that is not a
+ * measurement.
+ * Whatever the baseline, each stage's bytes per chunk are also checked against its fixed
+ * budget ({@link AllocationBudgets#chunkBudgetBytes}).
+ *
+ * The run starts by waiting, off the server thread, for the maps (with lazy maps, loading them)
+ * and the erosion field. Chunks are loaded through a ticket and polled on the server tick, like
+ * the teleporter, so the server keeps running while the windows generate. Windows that were already generated in an earlier session
+ * load from disk instead; they are reported but not compared, so benchmark on a fresh world.
+ *
+ * All methods must be called on the server thread.
+ */
+public class GenerationBenchmark {
+    private static final TicketType<ChunkPos> BENCHMARK_TICKET =
+            TicketType.create(LOTRMod.MODID + ":benchmark", Comparator.comparingLong(ChunkPos::toLong));
+
+    public static final int DEFAULT_RADIUS = 4;
+    public static final int MAX_RADIUS = 16;
+
+    // Give up on an area if its window is still not generated after this many ticks
+    private static final int TIMEOUT_TICKS = 20 * 300;
+
+    // Fraction of the baseline throughput an area may lose before it counts as a regression
+    private static final double DEFAULT_TOLERANCE = 0.2;
+
+    private static final ResourceLocation CHECKED_IN_BASELINE =
+            ResourceLocation.fromNamespaceAndPath(LOTRMod.MODID, "benchmark/baseline.json");
+
+    private static Run current;
+
+    private record Area(String name, ChunkPos centre) {
+    }
+
+    private record Result(Area area, int chunks, double seconds, GenerationTimings.Snapshot timings) {
+        double chunksPerSecond() {
+            return chunks / seconds;
+        }
+
+        // Fewer chunks went through the fill stage than the window holds, so some came from disk
+        boolean loadedFromDisk() {
+            return timings.count(GenerationTimings.Phase.FILL) < chunks;
+        }
+    }
+
+    private static final class Run {
+        final CommandSourceStack source;
+        final ServerLevel level;
+        final int radius;
+        final boolean record;
+        final boolean checkedInBaseline;
+        final List<Result> results = new ArrayList<>();
+        // Completes with the number of regressions
+        final CompletableFuture<Integer> outcome = new CompletableFuture<>();
+
+        // Null until the maps are loaded
+        List<Area> areas;
+        int areaIndex = -1;
+        long startNanos;
+        GenerationTimings.Window window;
+        int deadlineTick;
+
+        Run(CommandSourceStack source, ServerLevel level, int radius, boolean record, boolean checkedInBaseline) {
+            this.source = source;
+            this.level = level;
+            this.radius = radius;
+            this.record = record;
+            this.checkedInBaseline = checkedInBaseline;
+        }
+
+        Area area() {
+            return areas.get(areaIndex);
+        }
+    }
+
+    /**
+     * Start a benchmark run
+     *
+     * @param radius Window radius in chunks, so each area generates (2 * radius + 1)^2 chunks
+     * @param record Write the results as the new baseline instead of comparing against it
+     * @return true if the run was started
+     */
+    public static boolean start(CommandSourceStack source, ServerLevel level, int radius, boolean record) {
+        return start(source, level, radius, record, false) != null;
+    }
+
+    /**
+     * Start a benchmark run that compares against the baseline checked in with the mod, ignoring
+     * any recorded under the game directory
+     *
+     * @return Completes with the number of regressions once the run is over, or exceptionally if
+     * an area times out or the run is abandoned; null if another run is in progress
+     */
+    @Nullable
+    public static CompletableFuture<Integer> startAgainstCheckedInBaseline(CommandSourceStack source, ServerLevel level, int radius) {
+        return start(source, level, radius, false, true);
+    }
+
+    @Nullable
+    private static CompletableFuture<Integer> start(CommandSourceStack source, ServerLevel level, int radius,
+                                                    boolean record, boolean checkedInBaseline) {
+        if (current != null) {
+            source.sendFailure(Component.literal("A chunk generation benchmark is already running"));
+            return null;
+        }
+
+        Run run = new Run(source, level, radius, record, checkedInBaseline);
+        current = run;
+        // With lazy maps this may be the first use of Middle-earth; never decode them on the server thread
+        CompletableFuture<Void> maps = WorldGenMaps.whenTerrainReady();
+        if (!maps.isDone()) {
+            source.sendSuccess(() -> Component.literal("Loading the world generation maps and erosion before benchmarking..."), true);
+        }
+        maps.whenCompleteAsync((ready, error) -> begin(run, error), level.getServer());
+        return run.outcome;
+    }
+
+    private static void begin(Run run, @Nullable Throwable error) {
+        if (current != run) {
+            // Abandoned while the maps loaded
+            return;
+        }
+        if (error != null) {
+            current = null;
+            run.source.sendFailure(Component.literal("Could not prepare the terrain: " + error.getMessage()));
+            run.outcome.completeExceptionally(error);
+            return;
+        }
+        if (!RegionMapLoader.isLoaded()) {
+            current = null;
+            run.source.sendFailure(Component.literal("The region map is not loaded"));
+            run.outcome.completeExceptionally(new IllegalStateException("The region map is not loaded"));
+            return;
+        }
+
+        run.areas = createAreas();
+        if (run.checkedInBaseline) {
+            String problem = checkBaseline(readCheckedInBaseline(run.level.getServer()), run);
+            if (problem != null) {
+                current = null;
+                String message = "Cannot benchmark against " + CHECKED_IN_BASELINE + ": " + problem;
+                LOTRMod.LOGGER.error(message);
+                run.source.sendFailure(Component.literal(message));
+                run.outcome.completeExceptionally(new IllegalStateException(message));
+                return;
+            }
+        }
+        int side = 2 * run.radius + 1;
+        run.source.sendSuccess(() -> Component.literal("Benchmarking chunk generation: " + run.areas.size()
+                + " areas of " + side + "x" + side + " chunks"), true);
+        startNextArea(run.level.getServer().getTickCount());
+    }
+
+    private static List<Area> createAreas() {
+        List<Area> areas = new ArrayList<>();
+        addRegion(areas, "ocean", Region.OCEAN);
+        addRegion(areas, "the_shire", Region.THE_SHIRE);
+        addRegion(areas, "misty_mountains", Region.MISTY_MOUNTAINS);
+        addRegion(areas, "mordor", Region.MORDOR);
+        // Straddles the eastern edge of the map, where lookups leave the rasters
+        int edgeX = RegionMapLoader.pixelToWorldX(RegionMapLoader.getImageWidth() - 1);
+        areas.add(new Area("map_edge", new ChunkPos(edgeX >> 4, 0)));
+        return areas;
+    }
+
+    private static void addRegion(List<Area> areas, String name, Region region) {
+        RegionIndex.Entry entry = RegionIndex.get(region);
+        if (entry != null) {
+            areas.add(new Area(name, new ChunkPos(entry.interiorX() >> 4, entry.interiorZ() >> 4)));
+        }
+    }
+
+    private static void startNextArea(int currentTick) {
+        Run run = current;
+        run.areaIndex++;
+        if (run.areaIndex >= run.areas.size()) {
+            current = null;
+            try {
+                run.outcome.complete(finish(run));
+            } catch (RuntimeException e) {
+                run.outcome.completeExceptionally(e);
+                throw e;
+            }
+            return;
+        }
+
+        ChunkPos centre = run.area().centre();
+        run.window = GenerationTimings.openWindow(centre, run.radius);
+        run.startNanos = System.nanoTime();
+        run.deadlineTick = currentTick + TIMEOUT_TICKS;
+        run.level.getChunkSource().addRegionTicket(BENCHMARK_TICKET, centre, run.radius, centre);
+    }
+
+    /**
+     * Move on to the next area once the current window has fully generated
+     */
+    public static void tick(MinecraftServer server) {
+        Run run = current;
+        if (run == null || run.areas == null) {
+            return;
+        }
+
+        Area area = run.area();
+        int currentTick = server.getTickCount();
+        if (!isWindowLoaded(run.level, area.centre(), run.radius)) {
+            if (currentTick > run.deadlineTick) {
+                run.level.getChunkSource().removeRegionTicket(BENCHMARK_TICKET, area.centre(), run.radius, area.centre());
+                run.window.close();
+                run.source.sendFailure(Component.literal("Benchmark area " + area.name() + " timed out"));
+                current = null;
+                run.outcome.completeExceptionally(new IllegalStateException("Benchmark area " + area.name() + " timed out"));
+            }
+            return;
+        }
+
+        double seconds = (System.nanoTime() - run.startNanos) / 1.0e9;
+        GenerationTimings.Snapshot timings = run.window.snapshot();
+        run.window.close();
+        int side = 2 * run.radius + 1;
+        run.results.add(new Result(area, side * side, seconds, timings));
+        run.level.getChunkSource().removeRegionTicket(BENCHMARK_TICKET, area.centre(), run.radius, area.centre());
+        startNextArea(currentTick);
+    }
+
+    private static boolean isWindowLoaded(ServerLevel level, ChunkPos centre, int radius) {
+        for (int x = centre.x - radius; x <= centre.x + radius; x++) {
+            for (int z = centre.z - radius; z <= centre.z + radius; z++) {
+                // Non-blocking: only returns chunks that have reached full status
+                if (level.getChunkSource().getChunkNow(x, z) == null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of regressions
+     */
+    private static int finish(Run run) {
+        Path file = getBaselineFile();
+        if (run.record) {
+            writeBaseline(run, file);
+            return 0;
+        }
+
+        JsonObject baseline = run.checkedInBaseline ? null : readBaseline(file);
+        String baselineName = file.toString();
+        if (baseline == null) {
+            baseline = readCheckedInBaseline(run.level.getServer());
+            baselineName = CHECKED_IN_BASELINE.toString();
+        }
+        String problem = baseline != null ? checkBaseline(baseline, run) : null;
+        if (problem != null) {
+            run.source.sendFailure(Component.literal("Baseline " + baselineName + " " + problem + ", not comparing"));
+            baseline = null;
+        }
+        double tolerance = baseline != null ? GsonHelper.getAsDouble(baseline, "tolerance", DEFAULT_TOLERANCE) : DEFAULT_TOLERANCE;
+        JsonObject expected = baseline != null ? GsonHelper.getAsJsonObject(baseline, "chunks_per_second", new JsonObject()) : null;
+
+        int regressions = 0;
+        GenerationTimings.Snapshot total = null;
+        for (Result result : run.results) {
+            String line = describe(result);
+            if (result.loadedFromDisk()) {
+                line += " [already generated, not compared]";
+            } else if (expected != null && expected.has(result.area().name())) {
+                double baselineRate = GsonHelper.getAsDouble(expected, result.area().name());
+                double change = result.chunksPerSecond() / baselineRate - 1.0;
+                line += String.format(Locale.ROOT, " [baseline %.1f, %+.0f%%]", baselineRate, change * 100.0);
+                if (change < -tolerance) {
+                    regressions++;
+                    line += " REGRESSION";
+                    LOTRMod.LOGGER.error("Chunk generation regression: {}", line);
+                }
+            }
+
+            String message = line;
+            LOTRMod.LOGGER.info("Benchmark {}", message);
+            run.source.sendSuccess(() -> Component.literal(message), false);
+            if (!result.loadedFromDisk()) {
+                total = total == null ? result.timings() : add(total, result.timings());
+            }
+        }
+
+        JsonObject expectedBytes = baseline != null ? GsonHelper.getAsJsonObject(baseline, "bytes_per_chunk", new JsonObject()) : null;
+        if (total != null && expectedBytes != null) {
+            regressions += compareAllocation(run, total, expectedBytes, tolerance);
+        }
+        if (total != null) {
+            regressions += checkStageBudgets(run, total);
+        }
+        regressions += checkQueryBudgets(run);
+
+        if (regressions > 0) {
+            run.source.sendFailure(Component.literal(regressions + " regression(s) against the baseline and allocation budgets"));
+        } else if (expected == null) {
+            run.source.sendSuccess(() -> Component.literal("No baseline at " + file + ", use '/middleearth benchmark record' to create one"), false);
+        } else {
+            String compared = baselineName;
+            run.source.sendSuccess(() -> Component.literal("Chunk generation is within the baseline (" + compared + ")"), true);
+        }
+        return regressions;
+    }
+
+    private static String describe(Result result) {
+        GenerationTimings.Snapshot timings = result.timings();
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%s: %d chunks in %.2f s (%.1f chunks/s)",
+                result.area().name(), result.chunks(), result.seconds(), result.chunksPerSecond()));
+        for (GenerationTimings.Phase phase : GenerationTimings.Phase.values()) {
+            long count = timings.count(phase);
+            double millis = count == 0 ? 0.0 : timings.nanos(phase) / 1.0e6 / count;
+            double kilobytes = count == 0 ? 0.0 : timings.bytes(phase) / 1024.0 / count;
+            line.append(String.format(Locale.ROOT, ", %s %.2f ms %.1f KB", phase.name().toLowerCase(Locale.ROOT), millis, kilobytes));
+        }
+        return line.append(" per chunk").toString();
+    }
+
+    private static GenerationTimings.Snapshot add(GenerationTimings.Snapshot a, GenerationTimings.Snapshot b) {
+        long[] nanos = new long[a.nanos().length];
+        long[] bytes = new long[a.bytes().length];
+        long[] counts = new long[a.counts().length];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = a.nanos()[i] + b.nanos()[i];
+            bytes[i] = a.bytes()[i] + b.bytes()[i];
+            counts[i] = a.counts()[i] + b.counts()[i];
+        }
+        return new GenerationTimings.Snapshot(nanos, bytes, counts);
+    }
+
+    private static long bytesPerChunk(GenerationTimings.Snapshot timings, GenerationTimings.Phase phase) {
+        long count = timings.count(phase);
+        return count == 0 ? 0L : timings.bytes(phase) / count;
+    }
+
+    /**
+     * Compare each stage's bytes per chunk against the baseline, printing every stage when any
+     * of them is over
+     *
+     * @return 1 if any stage allocates more than the baseline allows, else 0
+     */
+    private static int compareAllocation(Run run, GenerationTimings.Snapshot total, JsonObject expected, double tolerance) {
+        boolean over = false;
+        StringBuilder breakdown = new StringBuilder("Bytes per chunk by stage:");
+        for (GenerationTimings.Phase phase : GenerationTimings.Phase.values()) {
+            String name = phase.name().toLowerCase(Locale.ROOT);
+            long bytes = bytesPerChunk(total, phase);
+            breakdown.append(' ').append(name).append(' ').append(bytes);
+            if (expected.has(name)) {
+                long budget = Math.round(GsonHelper.getAsLong(expected, name) * (1.0 + tolerance));
+                breakdown.append('/').append(budget);
+                if (bytes > budget) {
+                    over = true;
+                    breakdown.append(" OVER");
+                }
+            }
+        }
+
+        if (!over) {
+            return 0;
+        }
+        String message = breakdown.toString();
+        LOTRMod.LOGGER.error("Chunk generation allocation regression: {}", message);
+        run.source.sendFailure(Component.literal(message));
+        return 1;
+    }
+
+    /**
+     * Check each stage's bytes per chunk against its fixed budget, printing every stage when any
+     * of them is over
+     *
+     * @return 1 if any stage is over its budget, else 0
+     */
+    private static int checkStageBudgets(Run run, GenerationTimings.Snapshot total) {
+        if (!AllocationBudgets.isSupported()) {
+            run.source.sendSuccess(() -> Component.literal("This JVM cannot measure allocation, skipping stage budgets"), false);
+            return 0;
+        }
+
+        boolean over = false;
+        StringBuilder breakdown = new StringBuilder("Bytes per chunk by stage against the fixed budgets:");
+        for (GenerationTimings.Phase phase : GenerationTimings.Phase.values()) {
+            long bytes = bytesPerChunk(total, phase);
+            long budget = AllocationBudgets.chunkBudgetBytes(phase, run.level);
+            breakdown.append(' ').append(phase.name().toLowerCase(Locale.ROOT)).append(' ').append(bytes).append('/').append(budget);
+            if (bytes > budget) {
+                over = true;
+                breakdown.append(" OVER");
+            }
+        }
+
+        String message = breakdown.toString();
+        if (!over) {
+            run.source.sendSuccess(() -> Component.literal(message), false);
+            return 0;
+        }
+        LOTRMod.LOGGER.error("Chunk generation allocation budget: {}", message);
+        run.source.sendFailure(Component.literal(message));
+        return 1;
+    }
+
+    /**
+     * Measure the per-column queries around the first benchmark area, printing every call site
+     * when any of them is over its budget
+     *
+     * @return 1 if any call site is over budget, else 0
+     */
+    private static int checkQueryBudgets(Run run) {
+        if (!(run.level.getChunkSource().getGenerator() instanceof MiddleEarthChunkGenerator generator)
+                || run.areas.isEmpty()) {
+            return 0;
+        }
+        if (!AllocationBudgets.isSupported()) {
+            run.source.sendSuccess(() -> Component.literal("This JVM cannot measure allocation, skipping query budgets"), false);
+            return 0;
+        }
+
+        ChunkPos centre = run.areas.get(0).centre();
+        List<AllocationBudgets.Site> sites = AllocationBudgets.measure(run.level, generator,
+                centre.getMinBlockX(), centre.getMinBlockZ());
+        if (sites.stream().allMatch(AllocationBudgets.Site::isWithinBudget)) {
+            run.source.sendSuccess(() -> Component.literal("All " + sites.size() + " column queries are within their allocation budgets"), false);
+            return 0;
+        }
+
+        for (AllocationBudgets.Site site : sites) {
+            String line = String.format(Locale.ROOT, "%s: %.1f bytes per call (budget %d)%s", site.name(),
+                    site.bytesPerCall(), site.budgetBytes(), site.isWithinBudget() ? "" : " OVER");
+            LOTRMod.LOGGER.error("Allocation budget {}", line);
+            run.source.sendFailure(Component.literal(line));
+        }
+        return 1;
+    }
+
+    /**
+     * Check that a baseline is a measurement this run can be compared against, rather than
+     * hand-written or partial numbers
+     *
+     * @return What is wrong with the baseline, or null if it can be compared against
+     */
+    @Nullable
+    private static String checkBaseline(@Nullable JsonObject baseline, Run run) {
+        if (baseline == null) {
+            return "is missing";
+        }
+        if (!GsonHelper.getAsBoolean(baseline, "measured", false)) {
+            return "is not a measurement, record one with '/middleearth benchmark record'";
+        }
+        if (GsonHelper.getAsInt(baseline, "radius", DEFAULT_RADIUS) != run.radius) {
+            return "was recorded with a different radius";
+        }
+        JsonObject rates = GsonHelper.getAsJsonObject(baseline, "chunks_per_second", new JsonObject());
+        for (Area area : run.areas) {
+            if (!rates.has(area.name())) {
+                return "has no rate for " + area.name();
+            }
+        }
+        JsonObject bytes = GsonHelper.getAsJsonObject(baseline, "bytes_per_chunk", new JsonObject());
+        for (GenerationTimings.Phase phase : GenerationTimings.Phase.values()) {
+            if (!bytes.has(phase.name().toLowerCase(Locale.ROOT))) {
+                return "has no bytes per chunk for " + phase.name().toLowerCase(Locale.ROOT);
+            }
+        }
+        return null;
+    }
+
+    private static Path getBaselineFile() {
+        return FMLPaths.GAMEDIR.get().resolve(LOTRMod.MODID).resolve("benchmark").resolve("baseline.json");
+    }
+
+    private static JsonObject readBaseline(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (Exception e) {
+            LOTRMod.LOGGER.warn("Could not read benchmark baseline {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The baseline checked in with the mod, for machines that never recorded their own
+     */
+    @Nullable
+    private static JsonObject readCheckedInBaseline(MinecraftServer server) {
+        Optional<Resource> resource = server.getResourceManager().getResource(CHECKED_IN_BASELINE);
+        if (resource.isEmpty()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(resource.get().open(), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (Exception e) {
+            LOTRMod.LOGGER.warn("Could not read benchmark baseline {}: {}", CHECKED_IN_BASELINE, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeBaseline(Run run, Path file) {
+        JsonObject rates = new JsonObject();
+        GenerationTimings.Snapshot total = null;
+        boolean complete = true;
+        for (Result result : run.results) {
+            if (result.loadedFromDisk()) {
+                run.source.sendFailure(Component.literal(result.area().name() + " was already generated, leaving it out of the baseline"));
+                complete = false;
+                continue;
+            }
+            rates.addProperty(result.area().name(), Math.round(result.chunksPerSecond() * 10.0) / 10.0);
+            total = total == null ? result.timings() : add(total, result.timings());
+        }
+
+        JsonObject bytes = new JsonObject();
+        if (total != null) {
+            for (GenerationTimings.Phase phase : GenerationTimings.Phase.values()) {
+                bytes.addProperty(phase.name().toLowerCase(Locale.ROOT), bytesPerChunk(total, phase));
+            }
+        }
+
+        JsonObject baseline = new JsonObject();
+        // Only set here, for a run that measured every area, so placeholders and partial runs are never compared against
+        baseline.addProperty("measured", complete);
+        baseline.addProperty("radius", run.radius);
+        baseline.addProperty("tolerance", DEFAULT_TOLERANCE);
+        baseline.add("chunks_per_second", rates);
+        baseline.add("bytes_per_chunk", bytes);
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, new GsonBuilder().setPrettyPrinting().create().toJson(baseline));
+            run.source.sendSuccess(() -> Component.literal("Recorded benchmark baseline to " + file), true);
+        } catch (IOException e) {
+            run.source.sendFailure(Component.literal("Could not write benchmark baseline: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Abandon any running benchmark (e.g. when the server stops)
+     */
+    public static void clear() {
+        Run run = current;
+        current = null;
+        if (run != null) {
+            if (run.window != null) {
+                run.window.close();
+            }
+            run.outcome.cancel(false);
+        }
+    }
+}
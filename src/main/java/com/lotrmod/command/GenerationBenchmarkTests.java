@@ -0,0 +1,61 @@
+package com.lotrmod.command;
+
+import com.lotrmod.LOTRMod;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.neoforged.neoforge.gametest.GameTestHolder;
+import net.neoforged.neoforge.gametest.PrefixGameTestTemplate;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Game test for chunk generation throughput: runs the {@link GenerationBenchmark} over its
+ * areas of Middle-earth and fails on any regression against the baseline checked in under
+ * data/lotrmod/benchmark. Until that baseline is replaced by one recorded with '/middleearth
+ * benchmark record' on the reference machine (copied from the game directory's
+ * lotrmod/benchmark), the test fails rather than passing against made-up numbers. It has a batch of its own, so other tests do not compete with it for
+ * worldgen threads, and needs a fresh world, as the game test server always starts one.
+ */
+@GameTestHolder(LOTRMod.MODID)
+@PrefixGameTestTemplate(false)
+public class GenerationBenchmarkTests {
+    // Five areas, each of which the benchmark gives up on after five minutes
+    private static final int TIMEOUT_TICKS = 20 * 60 * 30;
+
+    @GameTest(template = "empty", batch = "generation_benchmark", timeoutTicks = TIMEOUT_TICKS)
+    public static void generationWithinBaseline(GameTestHelper helper) {
+        MinecraftServer server = helper.getLevel().getServer();
+        ServerLevel middleEarth = server.getLevel(MiddleEarthCommand.MIDDLEEARTH_DIMENSION);
+        if (middleEarth == null) {
+            helper.fail("Middle-earth dimension not found");
+            return;
+        }
+
+        CompletableFuture<Integer> run = GenerationBenchmark.startAgainstCheckedInBaseline(
+                server.createCommandSourceStack(), middleEarth, GenerationBenchmark.DEFAULT_RADIUS);
+        if (run == null) {
+            helper.fail("A chunk generation benchmark is already running");
+            return;
+        }
+
+        helper.onEachTick(() -> {
+            if (!run.isDone()) {
+                return;
+            }
+            int regressions;
+            try {
+                regressions = run.join();
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                helper.fail("Chunk generation benchmark did not finish: " + cause.getMessage());
+                return;
+            }
+            helper.assertTrue(regressions == 0, regressions + " chunk generation regression(s) against the baseline, see the log");
+            helper.succeed();
+        });
+    }
+}
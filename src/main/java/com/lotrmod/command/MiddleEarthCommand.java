@@ -1,9 +1,15 @@
 package com.lotrmod.command;
 
 import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.Region;
+import com.lotrmod.worldgen.RegionIndex;
+import com.lotrmod.worldgen.WorldGenMaps;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
+import net.minecraft.commands.SharedSuggestionProvider;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.network.chat.Component;
@@ -13,8 +19,18 @@ import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.Level;
 
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntSupplier;
+
 /**
  * Command to teleport players to Middle-earth dimension
+ *
+ * /middleearth              - teleport to the spawn point (0, 0)
+ * /middleearth <x> <z>      - teleport to the surface at the given column
+ * /middleearth goto <region> - teleport to the most interior land point of a region
+ * /middleearth benchmark [radius] [record] - time chunk generation over representative areas
  */
 public class MiddleEarthCommand {
     public static final ResourceKey<Level> MIDDLEEARTH_DIMENSION =
@@ -24,43 +40,125 @@ public class MiddleEarthCommand {
         dispatcher.register(
                 Commands.literal("middleearth")
                         .requires(source -> source.hasPermission(2))
-                        .executes(context -> {
-                            CommandSourceStack source = context.getSource();
-                            if (!(source.getEntity() instanceof ServerPlayer player)) {
-                                source.sendFailure(Component.literal("This command can only be used by players"));
-                                return 0;
-                            }
+                        .executes(context -> teleportTo(context.getSource(), 0, 0))
+                        .then(Commands.argument("x", IntegerArgumentType.integer())
+                                .then(Commands.argument("z", IntegerArgumentType.integer())
+                                        .executes(context -> teleportTo(context.getSource(),
+                                                IntegerArgumentType.getInteger(context, "x"),
+                                                IntegerArgumentType.getInteger(context, "z")))))
+                        .then(Commands.literal("goto")
+                                .then(Commands.argument("region", StringArgumentType.word())
+                                        .suggests((context, builder) -> SharedSuggestionProvider.suggest(
+                                                Arrays.stream(Region.values()).map(region -> region.name().toLowerCase(Locale.ROOT)),
+                                                builder))
+                                        .executes(context -> gotoRegion(context.getSource(),
+                                                StringArgumentType.getString(context, "region")))))
+                        .then(Commands.literal("benchmark")
+                                .executes(context -> benchmark(context.getSource(), GenerationBenchmark.DEFAULT_RADIUS, false))
+                                .then(Commands.argument("radius", IntegerArgumentType.integer(0, GenerationBenchmark.MAX_RADIUS))
+                                        .executes(context -> benchmark(context.getSource(),
+                                                IntegerArgumentType.getInteger(context, "radius"), false))
+                                        .then(Commands.literal("record")
+                                                .executes(context -> benchmark(context.getSource(),
+                                                        IntegerArgumentType.getInteger(context, "radius"), true))))
+                                .then(Commands.literal("record")
+                                        .executes(context -> benchmark(context.getSource(), GenerationBenchmark.DEFAULT_RADIUS, true))))
+        );
+    }
 
-                            ServerLevel middleEarth = source.getServer().getLevel(MIDDLEEARTH_DIMENSION);
-                            if (middleEarth == null) {
-                                source.sendFailure(Component.literal("Middle-earth dimension not found!"));
-                                return 0;
-                            }
+    private static int teleportTo(CommandSourceStack source, int x, int z) {
+        return whenMapsLoaded(source, () -> {
+            if (teleport(source, x, z)) {
+                source.sendSuccess(() -> Component.literal("Welcome to Middle-earth!"), true);
+                return 1;
+            }
+            return 0;
+        });
+    }
 
-                            // Teleport to spawn point in Middle-earth (0, highest block, 0)
-                            BlockPos spawnPos = new BlockPos(0, 100, 0);
+    private static int gotoRegion(CommandSourceStack source, String regionName) {
+        Region region;
+        try {
+            region = Region.valueOf(regionName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            source.sendFailure(Component.literal("Unknown region: " + regionName));
+            return 0;
+        }
+        return whenMapsLoaded(source, () -> gotoRegion(source, region));
+    }
 
-                            // Find the highest solid block at spawn
-                            for (int y = middleEarth.getMaxBuildHeight() - 1; y >= middleEarth.getMinBuildHeight(); y--) {
-                                BlockPos checkPos = new BlockPos(0, y, 0);
-                                if (!middleEarth.getBlockState(checkPos).isAir()) {
-                                    spawnPos = checkPos.above();
-                                    break;
-                                }
-                            }
+    private static int gotoRegion(CommandSourceStack source, Region region) {
+        RegionIndex.Entry entry = RegionIndex.get(region);
+        if (entry == null) {
+            source.sendFailure(Component.literal(region.getDisplayName() + " does not appear on the region map"));
+            return 0;
+        }
 
-                            // Teleport the player
-                            player.teleportTo(middleEarth,
-                                    spawnPos.getX() + 0.5,
-                                    spawnPos.getY(),
-                                    spawnPos.getZ() + 0.5,
-                                    player.getYRot(),
-                                    player.getXRot());
+        if (teleport(source, entry.interiorX(), entry.interiorZ())) {
+            source.sendSuccess(() -> Component.literal("Welcome to " + region.getDisplayName() + "!"), true);
+            return 1;
+        }
+        return 0;
+    }
 
-                            source.sendSuccess(() -> Component.literal("Welcome to Middle-earth!"), true);
+    /**
+     * Run a command once the world generation maps are loaded and the erosion field is built.
+     * With lazy maps this may be the first use of Middle-earth, which starts loading them; they
+     * are never decoded on the server thread, so the source is told to wait and the command
+     * finishes on a later tick.
+     *
+     * @return The command's result, or 1 if it was deferred
+     */
+    private static int whenMapsLoaded(CommandSourceStack source, IntSupplier command) {
+        CompletableFuture<Void> terrain = WorldGenMaps.whenTerrainReady();
+        if (terrain.isDone() && !terrain.isCompletedExceptionally()) {
+            return command.getAsInt();
+        }
 
-                            return 1;
-                        })
-        );
+        source.sendSuccess(() -> Component.literal("Loading the world generation maps, one moment..."), false);
+        terrain.thenRunAsync(command::getAsInt, source.getServer())
+                .exceptionally(error -> {
+                    LOTRMod.LOGGER.error("Middle-earth command failed after loading the maps", error);
+                    source.sendFailure(Component.literal("Command failed: " + error.getMessage()));
+                    return null;
+                });
+        return 1;
+    }
+
+    private static int benchmark(CommandSourceStack source, int radius, boolean record) {
+        ServerLevel middleEarth = source.getServer().getLevel(MIDDLEEARTH_DIMENSION);
+        if (middleEarth == null) {
+            source.sendFailure(Component.literal("Middle-earth dimension not found!"));
+            return 0;
+        }
+        return GenerationBenchmark.start(source, middleEarth, radius, record) ? 1 : 0;
+    }
+
+    /**
+     * Queue a teleport of the command source's player to the surface of Middle-earth at the given column.
+     * The destination is loaded asynchronously, so the player arrives a few ticks later.
+     *
+     * @return true if the teleport was queued
+     */
+    private static boolean teleport(CommandSourceStack source, int x, int z) {
+        if (!(source.getEntity() instanceof ServerPlayer player)) {
+            source.sendFailure(Component.literal("This command can only be used by players"));
+            return false;
+        }
+
+        ServerLevel middleEarth = source.getServer().getLevel(MIDDLEEARTH_DIMENSION);
+        if (middleEarth == null) {
+            source.sendFailure(Component.literal("Middle-earth dimension not found!"));
+            return false;
+        }
+
+        BlockPos landing = MiddleEarthTeleporter.findLanding(middleEarth, x, z);
+        if (landing == null) {
+            source.sendFailure(Component.literal("No safe place to land near " + x + ", " + z));
+            return false;
+        }
+
+        MiddleEarthTeleporter.schedule(player, middleEarth, landing);
+        return true;
     }
 }
@@ -0,0 +1,163 @@
+package com.lotrmod.command;
+
+import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.MiddleEarthChunkGenerator;
+import com.lotrmod.worldgen.UrgentChunks;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.levelgen.Heightmap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Teleports players into Middle-earth without blocking the server thread.
+ *
+ * The landing height comes from the chunk generator's analytic height function, the
+ * destination chunk is loaded (or generated) asynchronously through a chunk ticket, and
+ * the player is moved once the chunk is ready. Any number of players can be queued at once.
+ *
+ * All methods must be called on the server thread.
+ */
+public class MiddleEarthTeleporter {
+    // Keeps the destination loaded until the player's own ticket takes over
+    private static final TicketType<ChunkPos> TELEPORT_TICKET =
+            TicketType.create(LOTRMod.MODID + ":teleport", Comparator.comparingLong(ChunkPos::toLong), 20 * 30);
+
+    // Radius 1 makes the destination chunk ticking and its neighbours fully loaded
+    private static final int TICKET_RADIUS = 1;
+
+    // Give up on a teleport if the destination is still not ready after this many ticks
+    private static final int TIMEOUT_TICKS = 20 * 30;
+
+    // How far (in blocks) to search for dry land when the target column is lava
+    private static final int LANDING_SEARCH_RADIUS = 64;
+    private static final int LANDING_SEARCH_STEP = 8;
+
+    private static final List<PendingTeleport> PENDING = new ArrayList<>();
+
+    private record PendingTeleport(UUID playerId, ServerLevel level, BlockPos landing, int deadlineTick) {
+    }
+
+    /**
+     * Find a safe landing position at or near the given column without touching any chunk.
+     *
+     * @return The landing position, or null if no safe spot exists nearby
+     */
+    public static BlockPos findLanding(ServerLevel level, int x, int z) {
+        if (!(level.getChunkSource().getGenerator() instanceof MiddleEarthChunkGenerator generator)) {
+            // Unknown generator - no height to go by, so land on the heightmap once the chunk is loaded
+            return new BlockPos(x, level.getMinBuildHeight(), z);
+        }
+
+        int y = generator.getLandingY(x, z);
+        if (y != MiddleEarthChunkGenerator.NO_SAFE_LANDING) {
+            return new BlockPos(x, y, z);
+        }
+
+        // Walk outwards in square rings until we leave the lava
+        for (int radius = LANDING_SEARCH_STEP; radius <= LANDING_SEARCH_RADIUS; radius += LANDING_SEARCH_STEP) {
+            for (int dx = -radius; dx <= radius; dx += LANDING_SEARCH_STEP) {
+                for (int dz = -radius; dz <= radius; dz += LANDING_SEARCH_STEP) {
+                    if (Math.abs(dx) != radius && Math.abs(dz) != radius) {
+                        continue;
+                    }
+                    int ringY = generator.getLandingY(x + dx, z + dz);
+                    if (ringY != MiddleEarthChunkGenerator.NO_SAFE_LANDING) {
+                        return new BlockPos(x + dx, ringY, z + dz);
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Queue a teleport. The destination chunk starts loading immediately and the player
+     * is moved on a later tick, once it is ready. A teleport the player already had queued
+     * is replaced.
+     */
+    public static void schedule(ServerPlayer player, ServerLevel level, BlockPos landing) {
+        cancel(player.getUUID());
+
+        ChunkPos chunkPos = new ChunkPos(landing);
+        // The player waits on these chunks, so the generator splits each across cores
+        UrgentChunks.mark(chunkPos);
+        level.getChunkSource().addRegionTicket(TELEPORT_TICKET, chunkPos, TICKET_RADIUS, chunkPos);
+
+        int deadline = level.getServer().getTickCount() + TIMEOUT_TICKS;
+        PENDING.add(new PendingTeleport(player.getUUID(), level, landing, deadline));
+    }
+
+    private static void cancel(UUID playerId) {
+        Iterator<PendingTeleport> iterator = PENDING.iterator();
+        while (iterator.hasNext()) {
+            PendingTeleport pending = iterator.next();
+            if (pending.playerId().equals(playerId)) {
+                ChunkPos chunkPos = new ChunkPos(pending.landing());
+                pending.level().getChunkSource().removeRegionTicket(TELEPORT_TICKET, chunkPos, TICKET_RADIUS, chunkPos);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Move every queued player whose destination has finished loading
+     */
+    public static void tick(MinecraftServer server) {
+        if (PENDING.isEmpty()) {
+            return;
+        }
+
+        int currentTick = server.getTickCount();
+        Iterator<PendingTeleport> iterator = PENDING.iterator();
+        while (iterator.hasNext()) {
+            PendingTeleport pending = iterator.next();
+            ServerPlayer player = server.getPlayerList().getPlayer(pending.playerId());
+            if (player == null) {
+                // Player logged out; the ticket expires by itself
+                iterator.remove();
+                continue;
+            }
+
+            BlockPos landing = pending.landing();
+            // Non-blocking: only returns a chunk that is already fully loaded
+            if (pending.level().getChunkSource().getChunkNow(landing.getX() >> 4, landing.getZ() >> 4) == null) {
+                if (currentTick > pending.deadlineTick()) {
+                    player.sendSystemMessage(Component.literal("Teleport to Middle-earth timed out, please try again"));
+                    iterator.remove();
+                }
+                continue;
+            }
+
+            // The chunk is loaded now, so the heightmap is free to read and
+            // keeps us from landing inside a tree or structure
+            int surfaceY = pending.level().getHeight(Heightmap.Types.MOTION_BLOCKING, landing.getX(), landing.getZ());
+            int y = Math.max(landing.getY(), surfaceY);
+
+            player.teleportTo(pending.level(),
+                    landing.getX() + 0.5,
+                    y,
+                    landing.getZ() + 0.5,
+                    player.getYRot(),
+                    player.getXRot());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Drop all queued teleports (e.g. when the server stops)
+     */
+    public static void clear() {
+        PENDING.clear();
+    }
+}
@@ -0,0 +1,186 @@
+package com.lotrmod.worldgen;
+
+import net.minecraft.core.QuartPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.LevelHeightAccessor;
+import net.minecraft.world.level.biome.Climate;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.levelgen.RandomState;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Allocation budgets for the per-column queries of the terrain path.
+ *
+ * Structure placement, the biome stage and the teleporter call these queries thousands of times
+ * per chunk, so each has a budget of bytes per call (most of them zero). {@link #measure} runs
+ * every call site over a grid of columns on the calling thread and reads the thread's allocated
+ * bytes before and after, with the cost of an empty loop subtracted. Each call site is warmed up
+ * on one grid and measured on another that nothing has queried yet, so the measurement includes
+ * whatever the site's caches allocate for new columns. Per-chunk allocation of the
+ * generation stages is tracked separately in {@link GenerationTimings}, and has a fixed budget
+ * of bytes per chunk for each stage ({@link #chunkBudgetBytes}).
+ *
+ * Relies on the HotSpot extension of ThreadMXBean; on other JVMs nothing is measured.
+ */
+public final class AllocationBudgets {
+    private static final com.sun.management.ThreadMXBean THREADS = createThreadBean();
+
+    // Columns per measurement: a 64x64 grid to warm up and a fresh one measured
+    private static final int GRID = 64;
+    private static final int GRID_SPACING = 7;
+    // Grids are laid out side by side along x, each used once
+    private static final int GRID_STRIDE = GRID * GRID_SPACING;
+
+    // A section's block storage growing from a single state through 4 to 8 bits per block
+    // (2 + 2.7 + 3.2 + 3.6 + 4 KB), with its palettes
+    private static final long SECTION_STORAGE_BYTES = 24 * 1024;
+    // Scratch a stage keeps for the whole chunk: column heights, height planes, a few 256-entry arrays
+    private static final long CHUNK_SCRATCH_BYTES = 64 * 1024;
+    // Vanilla features and the tree decorator allocate per placement, so decoration only gets a ceiling
+    private static final long DECORATION_BYTES = 2 * 1024 * 1024;
+
+    private AllocationBudgets() {
+    }
+
+    /**
+     * Budget of bytes per chunk for a generation stage, averaged over the chunks of a
+     * {@link GenerationTimings.Window}. These are ceilings worked out from what each stage has
+     * to allocate, so they hold on any machine and catch a stage that starts allocating per
+     * block, with or without a recorded baseline.
+     */
+    public static long chunkBudgetBytes(GenerationTimings.Phase phase, LevelHeightAccessor level) {
+        long sections = level.getSectionsCount();
+        return switch (phase) {
+            // Every section written, plus an ore scratch array of one reference per block for each
+            case FILL -> CHUNK_SCRATCH_BYTES + sections * (SECTION_STORAGE_BYTES + 8L * 16 * 16 * 16);
+            // The noise lattice (at most 5x5 doubles per 8 blocks of height, and the lowest of
+            // each layer) and the sections the caves open
+            case CARVERS -> CHUNK_SCRATCH_BYTES + 8L * (5 * 5 + 2) * (level.getHeight() / 8 + 2)
+                    + sections * SECTION_STORAGE_BYTES;
+            case SURFACE -> CHUNK_SCRATCH_BYTES + sections * SECTION_STORAGE_BYTES;
+            case DECORATION -> DECORATION_BYTES + sections * SECTION_STORAGE_BYTES;
+        };
+    }
+
+    /**
+     * Bytes allocated per call by one call site, against its budget
+     */
+    public record Site(String name, long budgetBytes, double bytesPerCall) {
+        public boolean isWithinBudget() {
+            // Half a byte of slack absorbs one-off allocations (class loading, JIT) spread over the grid
+            return bytesPerCall <= budgetBytes + 0.5;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean createThreadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // Fall through, allocation is simply not measured
+        }
+        return null;
+    }
+
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * Bytes allocated by the calling thread so far, or 0 when this JVM cannot tell
+     */
+    static long allocatedBytes() {
+        return THREADS == null ? 0L : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Measure every call site around a column
+     *
+     * @return One entry per call site, empty when allocation cannot be measured
+     */
+    public static List<Site> measure(ServerLevel level, MiddleEarthChunkGenerator generator, int originX, int originZ) {
+        List<Site> sites = new ArrayList<>();
+        if (THREADS == null) {
+            return sites;
+        }
+
+        RandomState randomState = level.getChunkSource().randomState();
+        Climate.Sampler sampler = randomState.sampler();
+        int quartY = QuartPos.fromBlock(MiddleEarthChunkGenerator.SEA_LEVEL);
+        Grids grids = new Grids(originX, originZ);
+        double overhead = bytesPerCall(grids, (x, z) -> x ^ z);
+
+        sites.add(site("region lookup", 0, overhead, grids,
+                (x, z) -> RegionMapLoader.getRegion(x, z).ordinal()));
+        sites.add(site("region colour", 0, overhead, grids,
+                RegionMapLoader::getInterpolatedColor));
+        if (generator.getBiomeSource() instanceof MiddleEarthBiomeSource biomeSource) {
+            sites.add(site("biome query", 0, overhead, grids,
+                    (x, z) -> Objects.hashCode(biomeSource.getLOTRBiomeAt(x, z))));
+            sites.add(site("noise biome", 0, overhead, grids,
+                    (x, z) -> biomeSource.getNoiseBiome(QuartPos.fromBlock(x), quartY, QuartPos.fromBlock(z), sampler).hashCode()));
+        }
+        sites.add(site("terrain height", 0, overhead, grids,
+                (x, z) -> generator.getBaseHeight(x, z, Heightmap.Types.WORLD_SURFACE_WG, level, randomState)));
+        // The NoiseColumn wrapper and its own copy of the block array: a header plus at most
+        // 8 bytes per block
+        long columnBytes = 32 + 16 + 8L * level.getHeight();
+        sites.add(site("base column", columnBytes, overhead, grids,
+                (x, z) -> generator.getBaseColumn(x, z, level, randomState).getBlock(MiddleEarthChunkGenerator.SEA_LEVEL).hashCode()));
+        return sites;
+    }
+
+    /**
+     * Hands out grid origins that no call site has queried yet
+     */
+    private static final class Grids {
+        private final int originZ;
+        private int nextX;
+
+        Grids(int originX, int originZ) {
+            this.originZ = originZ;
+            this.nextX = originX;
+        }
+
+        int next() {
+            int x = nextX;
+            nextX += GRID_STRIDE;
+            return x;
+        }
+    }
+
+    private static Site site(String name, long budgetBytes, double overhead, Grids grids, IntBinaryOperator call) {
+        return new Site(name, budgetBytes, Math.max(0.0, bytesPerCall(grids, call) - overhead));
+    }
+
+    private static double bytesPerCall(Grids grids, IntBinaryOperator call) {
+        int sink = run(grids.next(), grids.originZ, call);
+        int measuredX = grids.next();
+        long startBytes = allocatedBytes();
+        sink += run(measuredX, grids.originZ, call);
+        long bytes = allocatedBytes() - startBytes;
+        // Keep the results alive so the calls cannot be optimised away
+        if (sink == Integer.MIN_VALUE) {
+            bytes++;
+        }
+        return bytes / (double) (GRID * GRID);
+    }
+
+    private static int run(int originX, int originZ, IntBinaryOperator call) {
+        int sink = 0;
+        for (int i = 0; i < GRID; i++) {
+            for (int j = 0; j < GRID; j++) {
+                sink += call.applyAsInt(originX + i * GRID_SPACING, originZ + j * GRID_SPACING);
+            }
+        }
+        return sink;
+    }
+}
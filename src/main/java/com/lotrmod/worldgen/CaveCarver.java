@@ -0,0 +1,198 @@
+package com.lotrmod.worldgen;
+
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.synth.ImprovedNoise;
+
+import static com.lotrmod.worldgen.MiddleEarthChunkGenerator.SEA_LEVEL;
+
+/**
+ * Carves winding tunnels into the stone of a filled chunk.
+ *
+ * Tunnels run where two 3D noise fields are both close to zero. The noise is only sampled on a
+ * coarse lattice of 4x8x4 block cells (5x5 points per layer, like vanilla's NoiseChunk cells) and
+ * trilinearly interpolated in between, so a chunk costs a few hundred noise samples however
+ * deep its terrain is. Sections where no lattice point comes near a tunnel are skipped without
+ * touching a block.
+ *
+ * How much of the stone is tunnel depends on the region, from a per-region lookup table: the
+ * dwarven mountains are riddled with caves, open plains have few.
+ */
+final class CaveCarver {
+    private static final int CELL_WIDTH = 4;
+    private static final int CELL_HEIGHT = 8;
+    private static final int LATTICE_WIDTH = 16 / CELL_WIDTH + 1;
+
+    // Tunnels are stretched horizontally, so they wind more than they climb
+    private static final double HORIZONTAL_FREQUENCY = 1.0 / 80.0;
+    private static final double VERTICAL_FREQUENCY = 1.0 / 40.0;
+
+    // Layers left alone at the bottom (bedrock) and top (surface blocks) of each column
+    private static final int BEDROCK_LAYERS = 5;
+    private static final int SURFACE_CRUST = 4;
+    // Tunnels this close to the bottom of the world fill with lava
+    private static final int LAVA_LAYERS = 10;
+
+    // Tunnel threshold per region: a column is carved where the summed squared noise is below it,
+    // so larger values mean wider and more frequent tunnels (0.004 carves about 3% of the stone)
+    private static final double DENSE = 0.008;
+    private static final double NORMAL = 0.004;
+    private static final double SPARSE = 0.0015;
+    private static final double[] DENSITY = createDensityTable();
+
+    private static final BlockState CAVE_AIR = Blocks.CAVE_AIR.defaultBlockState();
+    private static final BlockState LAVA = Blocks.LAVA.defaultBlockState();
+
+    private final ImprovedNoise tunnelNoiseA;
+    private final ImprovedNoise tunnelNoiseB;
+
+    CaveCarver(RandomSource random) {
+        this.tunnelNoiseA = new ImprovedNoise(random);
+        this.tunnelNoiseB = new ImprovedNoise(random);
+    }
+
+    private static double[] createDensityTable() {
+        double[] density = new double[Region.values().length];
+        for (Region region : Region.values()) {
+            density[region.ordinal()] = switch (region) {
+                // Dwarven delvings
+                case BLUE_MOUNTAINS, MISTY_MOUNTAINS, GREY_MOUNTAINS, EREBOR, IRON_HILLS -> DENSE;
+                case ROHAN, EASTERN_RHOVANIAN_PLAINS, VALE_OF_ANDUIN, THE_SHIRE, DEAD_LANDS, HARAD -> SPARSE;
+                case OCEAN, SEA_OF_RHUN, ANDUIN_RIVER, CELDUIN -> 0.0;
+                default -> NORMAL;
+            };
+        }
+        return density;
+    }
+
+    /**
+     * Carve a chunk that has been filled up to the given column heights
+     */
+    void carve(ChunkAccess chunk, ChunkColumnCache.ColumnData columns) {
+        // Entirely under water, so any tunnel would flood
+        if (columns.maxHeight < SEA_LEVEL) {
+            return;
+        }
+
+        int startX = chunk.getPos().getMinBlockX();
+        int startZ = chunk.getPos().getMinBlockZ();
+
+        // Tunnel threshold at the chunk's corners, interpolated across it so densities blend at region borders
+        double t00 = regionDensity(startX, startZ);
+        double t10 = regionDensity(startX + 16, startZ);
+        double t01 = regionDensity(startX, startZ + 16);
+        double t11 = regionDensity(startX + 16, startZ + 16);
+        double maxThreshold = Math.max(Math.max(t00, t10), Math.max(t01, t11));
+        if (maxThreshold <= 0.0) {
+            return;
+        }
+
+        int minY = chunk.getMinBuildHeight();
+        int bottomY = minY + BEDROCK_LAYERS;
+        int topY = Math.min(columns.maxHeight - SURFACE_CRUST, chunk.getMaxBuildHeight() - 1);
+        // Stay below the floor of any water in the chunk, so tunnels never open into it
+        if (columns.minHeight < SEA_LEVEL) {
+            topY = Math.min(topY, columns.minHeight - 1);
+        }
+        if (topY < bottomY) {
+            return;
+        }
+
+        // =====================================
+        // Noise on the lattice, with the lowest value of each layer for skipping
+        // =====================================
+        int layers = (topY - bottomY) / CELL_HEIGHT + 2;
+        double[] lattice = new double[layers * LATTICE_WIDTH * LATTICE_WIDTH];
+        double[] layerMin = new double[layers];
+        for (int layer = 0; layer < layers; layer++) {
+            double y = (bottomY + layer * CELL_HEIGHT) * VERTICAL_FREQUENCY;
+            double min = Double.MAX_VALUE;
+            for (int lz = 0; lz < LATTICE_WIDTH; lz++) {
+                double z = (startZ + lz * CELL_WIDTH) * HORIZONTAL_FREQUENCY;
+                for (int lx = 0; lx < LATTICE_WIDTH; lx++) {
+                    double x = (startX + lx * CELL_WIDTH) * HORIZONTAL_FREQUENCY;
+                    double a = tunnelNoiseA.noise(x, y, z);
+                    double b = tunnelNoiseB.noise(x, y, z);
+                    double value = a * a + b * b;
+                    lattice[(layer * LATTICE_WIDTH + lz) * LATTICE_WIDTH + lx] = value;
+                    min = Math.min(min, value);
+                }
+            }
+            layerMin[layer] = min;
+        }
+
+        // =====================================
+        // Carve section by section, skipping sections the tunnels cannot reach
+        // =====================================
+        double[] columnLayers = new double[layers];
+        for (int sectionIndex = chunk.getSectionIndex(bottomY); sectionIndex <= chunk.getSectionIndex(topY); sectionIndex++) {
+            int sectionMinY = SectionPos.sectionToBlockCoord(chunk.getSectionYFromSectionIndex(sectionIndex));
+            int lowY = Math.max(bottomY, sectionMinY);
+            int highY = Math.min(topY, sectionMinY + 15);
+            int lowLayer = (lowY - bottomY) / CELL_HEIGHT;
+            int highLayer = (highY - bottomY) / CELL_HEIGHT + 1;
+
+            // Interpolated values never go below the lowest lattice point around them
+            double sectionMin = Double.MAX_VALUE;
+            for (int layer = lowLayer; layer <= highLayer; layer++) {
+                sectionMin = Math.min(sectionMin, layerMin[layer]);
+            }
+            if (sectionMin >= maxThreshold) {
+                continue;
+            }
+
+            LevelChunkSection section = chunk.getSection(sectionIndex);
+            section.acquire();
+            try {
+                for (int x = 0; x < 16; x++) {
+                    int lx = x / CELL_WIDTH;
+                    double fx = (x % CELL_WIDTH) / (double) CELL_WIDTH;
+                    for (int z = 0; z < 16; z++) {
+                        int lz = z / CELL_WIDTH;
+                        double fz = (z % CELL_WIDTH) / (double) CELL_WIDTH;
+
+                        int columnTopY = Math.min(highY, columns.heights[ChunkColumnCache.ColumnData.index(x, z)] - SURFACE_CRUST);
+                        if (columnTopY < lowY) {
+                            continue;
+                        }
+                        double u = x / 16.0;
+                        double w = z / 16.0;
+                        double threshold = (t00 * (1.0 - u) + t10 * u) * (1.0 - w) + (t01 * (1.0 - u) + t11 * u) * w;
+                        if (threshold <= 0.0) {
+                            continue;
+                        }
+
+                        // Interpolate across the cell in x and z once per layer, then only along y per block
+                        for (int layer = lowLayer; layer <= highLayer; layer++) {
+                            int base = layer * LATTICE_WIDTH * LATTICE_WIDTH;
+                            double v00 = lattice[base + lz * LATTICE_WIDTH + lx];
+                            double v10 = lattice[base + lz * LATTICE_WIDTH + lx + 1];
+                            double v01 = lattice[base + (lz + 1) * LATTICE_WIDTH + lx];
+                            double v11 = lattice[base + (lz + 1) * LATTICE_WIDTH + lx + 1];
+                            columnLayers[layer] = (v00 * (1.0 - fx) + v10 * fx) * (1.0 - fz) + (v01 * (1.0 - fx) + v11 * fx) * fz;
+                        }
+
+                        for (int y = lowY; y <= columnTopY; y++) {
+                            int layer = (y - bottomY) / CELL_HEIGHT;
+                            double fy = ((y - bottomY) % CELL_HEIGHT) / (double) CELL_HEIGHT;
+                            double value = columnLayers[layer] * (1.0 - fy) + columnLayers[layer + 1] * fy;
+                            if (value < threshold) {
+                                section.setBlockState(x, y - sectionMinY, z, y < minY + LAVA_LAYERS ? LAVA : CAVE_AIR, false);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                section.release();
+            }
+        }
+    }
+
+    private static double regionDensity(int worldX, int worldZ) {
+        return DENSITY[RegionMapLoader.getRegion(worldX, worldZ).ordinal()];
+    }
+}
@@ -0,0 +1,148 @@
+package com.lotrmod.worldgen;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of per-chunk column data.
+ *
+ * The fill stage computes the terrain height of all 256 columns of a chunk; later stages
+ * (surface, decoration, ...) read them back from here instead of re-running the noise.
+ *
+ * Columns computed ahead of generation by the {@link ColumnPrefetcher} go into a separate, smaller
+ * LRU slice, so however far ahead it runs it can only evict its own entries, never those of
+ * chunks in the middle of generating. A prefetched entry moves to the main cache on its first hit.
+ */
+public class ChunkColumnCache {
+    // The prefetch slice holds up to this fraction of the main capacity
+    private static final int PREFETCH_SHARE = 4;
+
+    private final LinkedHashMap<Long, ColumnData> entries;
+    private final LinkedHashMap<Long, ColumnData> prefetched;
+    private int capacity;
+    private int prefetchCapacity;
+    private long hits;
+    private long misses;
+
+    public ChunkColumnCache(int capacity) {
+        this.capacity = capacity;
+        this.prefetchCapacity = Math.max(1, capacity / PREFETCH_SHARE);
+        this.entries = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ColumnData> eldest) {
+                return size() > ChunkColumnCache.this.capacity;
+            }
+        };
+        this.prefetched = new LinkedHashMap<>(prefetchCapacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ColumnData> eldest) {
+                return size() > ChunkColumnCache.this.prefetchCapacity;
+            }
+        };
+    }
+
+    /**
+     * Column data for one chunk. Columns are indexed by (localX << 4) | localZ.
+     */
+    public static final class ColumnData {
+        public final int[] heights = new int[256];
+        public int minHeight = Integer.MAX_VALUE;
+        public int maxHeight = Integer.MIN_VALUE;
+        // Computed by the prefetcher and not yet generated
+        public volatile boolean prefetched;
+
+        public static int index(int localX, int localZ) {
+            return (localX << 4) | localZ;
+        }
+
+        public void setHeight(int index, int height) {
+            heights[index] = height;
+            minHeight = Math.min(minHeight, height);
+            maxHeight = Math.max(maxHeight, height);
+        }
+    }
+
+    public synchronized ColumnData get(long chunkPos) {
+        ColumnData data = entries.get(chunkPos);
+        if (data == null) {
+            data = prefetched.remove(chunkPos);
+            if (data != null) {
+                entries.put(chunkPos, data);
+            }
+        }
+        if (data != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return data;
+    }
+
+    /**
+     * Check for a chunk without counting a hit or miss
+     */
+    public synchronized boolean contains(long chunkPos) {
+        return entries.containsKey(chunkPos) || prefetched.containsKey(chunkPos);
+    }
+
+    public synchronized void put(long chunkPos, ColumnData data) {
+        prefetched.remove(chunkPos);
+        entries.put(chunkPos, data);
+    }
+
+    /**
+     * Cache columns computed ahead of generation in the prefetch slice, unless the chunk is
+     * already cached
+     */
+    public synchronized void putPrefetched(long chunkPos, ColumnData data) {
+        if (!entries.containsKey(chunkPos)) {
+            prefetched.put(chunkPos, data);
+        }
+    }
+
+    /**
+     * Entries in the main cache, not counting the prefetch slice
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int prefetchedSize() {
+        return prefetched.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        prefetched.clear();
+    }
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Change the capacity, dropping the least recently used entries if it shrank
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.prefetchCapacity = Math.max(1, this.capacity / PREFETCH_SHARE);
+        trim(entries, this.capacity);
+        trim(prefetched, prefetchCapacity);
+    }
+
+    private static void trim(LinkedHashMap<Long, ColumnData> map, int capacity) {
+        var iterator = map.entrySet().iterator();
+        while (map.size() > capacity && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,201 @@
+package com.lotrmod.worldgen;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.lotrmod.LOTRConfig;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.Vec3;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms the column cache ahead of fast-moving players.
+ *
+ * Every half second the velocity of each player in Middle-earth is taken from how far they moved
+ * since the last sample. For anyone faster than a sprint (riding, flying with an elytra) the path
+ * is projected from the edge of their view distance, where the server starts generating, for
+ * {@code worldgen.prefetchLookaheadSeconds}, and the column heights of a three-chunk-wide strip
+ * along it are computed on a single low-priority thread. That also decodes the landmask and
+ * region map tiles the chunks will read. When generation reaches those chunks the fill stage
+ * finds its heights cached. Prefetched heights wait in a bounded slice of the column cache of
+ * their own, so prefetching far ahead never evicts the chunks that are generating now.
+ *
+ * The thread may use {@code worldgen.prefetchBudgetPercent} of one core; requests past the budget
+ * or past the queue are dropped and asked for again at the next sample if still ahead.
+ *
+ * {@link #tick} must be called on the server thread.
+ */
+public final class ColumnPrefetcher {
+    private static final int SAMPLE_INTERVAL_TICKS = 10;
+    // Blocks per tick: sprinting is about 0.28, so walking and sprinting players are left alone
+    private static final double MIN_SPEED = 0.3;
+    // Blocks per tick; anything faster is a teleport, not movement
+    private static final double MAX_SPEED = 8.0;
+    // Spacing of the points sampled along a path, in blocks
+    private static final int PATH_STEP = 8;
+    private static final int MAX_QUEUED = 128;
+    // Unused budget carries over for at most this long, so an idle prefetcher cannot burst
+    private static final long MAX_CREDIT_NANOS = 1_000_000_000L;
+
+    private static final ThreadPoolExecutor WORKER = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_QUEUED),
+            new ThreadFactoryBuilder().setNameFormat("LOTR Column Prefetch").setDaemon(true)
+                    .setPriority(Thread.MIN_PRIORITY).build(),
+            new ThreadPoolExecutor.DiscardPolicy());
+
+    private static final Map<UUID, Vec3> LAST_POSITIONS = new HashMap<>();
+    // Chunks queued on the worker, so a path sampled twice is not queued twice
+    private static final Set<Long> PENDING = ConcurrentHashMap.newKeySet();
+
+    private static final AtomicLong PREFETCHED = new AtomicLong();
+    private static final AtomicLong USED = new AtomicLong();
+    private static final AtomicLong SKIPPED = new AtomicLong();
+
+    // Budget bookkeeping, only touched by the worker thread
+    private static long creditNanos;
+    private static long lastRefill = System.nanoTime();
+
+    private static int ticks;
+
+    private ColumnPrefetcher() {
+    }
+
+    /**
+     * Sample player movement and queue the chunks ahead of fast players
+     *
+     * @param level The Middle-earth level, or null if it is not loaded
+     */
+    public static void tick(ServerLevel level) {
+        if (++ticks < SAMPLE_INTERVAL_TICKS) {
+            return;
+        }
+        ticks = 0;
+
+        int lookaheadSeconds = LOTRConfig.PREFETCH_LOOKAHEAD_SECONDS.get();
+        if (level == null || lookaheadSeconds == 0
+                || !(level.getChunkSource().getGenerator() instanceof MiddleEarthChunkGenerator generator)) {
+            LAST_POSITIONS.clear();
+            return;
+        }
+
+        int viewBlocks = level.getServer().getPlayerList().getViewDistance() * 16;
+        LongLinkedOpenHashSet chunks = new LongLinkedOpenHashSet();
+        LAST_POSITIONS.keySet().removeIf(uuid -> !(level.getPlayerByUUID(uuid) instanceof ServerPlayer));
+
+        for (ServerPlayer player : level.players()) {
+            Vec3 position = player.position();
+            Vec3 last = LAST_POSITIONS.put(player.getUUID(), position);
+            if (last == null || player.isSpectator()) {
+                continue;
+            }
+
+            double dx = (position.x - last.x) / SAMPLE_INTERVAL_TICKS;
+            double dz = (position.z - last.z) / SAMPLE_INTERVAL_TICKS;
+            double speed = Math.sqrt(dx * dx + dz * dz);
+            if (speed < MIN_SPEED || speed > MAX_SPEED) {
+                continue;
+            }
+
+            // From the edge of the view distance out to where the player will be in the lookahead
+            double dirX = dx / speed;
+            double dirZ = dz / speed;
+            double pathLength = speed * lookaheadSeconds * 20;
+            for (double distance = viewBlocks; distance <= viewBlocks + pathLength; distance += PATH_STEP) {
+                int chunkX = (int) Math.floor(position.x + dirX * distance) >> 4;
+                int chunkZ = (int) Math.floor(position.z + dirZ * distance) >> 4;
+                for (int offsetX = -1; offsetX <= 1; offsetX++) {
+                    for (int offsetZ = -1; offsetZ <= 1; offsetZ++) {
+                        chunks.add(ChunkPos.asLong(chunkX + offsetX, chunkZ + offsetZ));
+                    }
+                }
+            }
+        }
+
+        // Nearest first: the queue is bounded and drops what does not fit
+        for (LongIterator iterator = chunks.iterator(); iterator.hasNext(); ) {
+            if (WORKER.getQueue().remainingCapacity() == 0) {
+                break;
+            }
+            long chunk = iterator.nextLong();
+            int chunkX = ChunkPos.getX(chunk);
+            int chunkZ = ChunkPos.getZ(chunk);
+            if (level.getChunkSource().getChunkNow(chunkX, chunkZ) != null || !PENDING.add(chunk)) {
+                continue;
+            }
+            ChunkPos chunkPos = new ChunkPos(chunkX, chunkZ);
+            WORKER.execute(() -> prefetch(generator, chunkPos));
+        }
+    }
+
+    private static void prefetch(MiddleEarthChunkGenerator generator, ChunkPos chunkPos) {
+        try {
+            long now = System.nanoTime();
+            creditNanos = Math.min(MAX_CREDIT_NANOS, creditNanos + (now - lastRefill) * LOTRConfig.PREFETCH_BUDGET_PERCENT.get() / 100);
+            lastRefill = now;
+            if (creditNanos <= 0) {
+                SKIPPED.incrementAndGet();
+                return;
+            }
+
+            if (generator.prefetchColumns(chunkPos)) {
+                PREFETCHED.incrementAndGet();
+            }
+            creditNanos -= System.nanoTime() - now;
+        } finally {
+            PENDING.remove(chunkPos.toLong());
+        }
+    }
+
+    /**
+     * Count a chunk whose fill stage found prefetched columns
+     */
+    static void recordUsed() {
+        USED.incrementAndGet();
+    }
+
+    /**
+     * Chunks whose columns were computed ahead of generation
+     */
+    public static long getPrefetched() {
+        return PREFETCHED.get();
+    }
+
+    /**
+     * Prefetched chunks that were generated afterwards (the rest were evicted or not reached yet)
+     */
+    public static long getUsed() {
+        return USED.get();
+    }
+
+    /**
+     * Requests dropped because the prefetcher was over its CPU budget
+     */
+    public static long getSkipped() {
+        return SKIPPED.get();
+    }
+
+    public static int getQueued() {
+        return WORKER.getQueue().size();
+    }
+
+    /**
+     * Forget all players and queued requests (e.g. when the server stops)
+     */
+    public static void clear() {
+        WORKER.getQueue().clear();
+        PENDING.clear();
+        LAST_POSITIONS.clear();
+        ticks = 0;
+    }
+}
@@ -0,0 +1,172 @@
+package com.lotrmod.worldgen;
+
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of the time Middle-earth chunks spend in each generation stage, and of the
+ * memory they allocate there.
+ *
+ * Stages run on many worldgen threads at once, so the totals are LongAdders; recording costs two
+ * nanoTime and two allocated-bytes reads (see {@link AllocationBudgets#allocatedBytes()}) per
+ * stage per chunk. Callers take a {@link Snapshot} before and after a piece of work and diff
+ * them. The totals include every chunk generated meanwhile, by anyone; to time only the chunks of
+ * one area, e.g. for the /middleearth benchmark command, open a {@link Window} over it instead.
+ */
+public final class GenerationTimings {
+    public enum Phase {
+        FILL,
+        CARVERS,
+        SURFACE,
+        DECORATION
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final LongAdder[] NANOS = createAdders();
+    private static final LongAdder[] BYTES = createAdders();
+    private static final LongAdder[] COUNTS = createAdders();
+
+    // Replaced as a whole when a window opens or closes; almost always empty
+    private static volatile Window[] windows = new Window[0];
+
+    private GenerationTimings() {
+    }
+
+    private static LongAdder[] createAdders() {
+        LongAdder[] adders = new LongAdder[PHASES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Record one chunk's pass through a stage, which must have run on the calling thread
+     *
+     * @param chunk The chunk that went through the stage, for the windows over it
+     * @param startNanos System.nanoTime() taken when the stage started
+     * @param startBytes {@link AllocationBudgets#allocatedBytes()} taken when the stage started
+     */
+    static void record(Phase phase, ChunkPos chunk, long startNanos, long startBytes) {
+        long nanos = System.nanoTime() - startNanos;
+        long bytes = AllocationBudgets.allocatedBytes() - startBytes;
+        int index = phase.ordinal();
+        NANOS[index].add(nanos);
+        BYTES[index].add(bytes);
+        COUNTS[index].increment();
+
+        for (Window window : windows) {
+            if (window.contains(chunk)) {
+                window.nanos[index].add(nanos);
+                window.bytes[index].add(bytes);
+                window.counts[index].increment();
+            }
+        }
+    }
+
+    /**
+     * Start totalling the chunks within radius of a centre chunk separately, from now until the
+     * window is closed
+     */
+    public static synchronized Window openWindow(ChunkPos centre, int radius) {
+        Window window = new Window(centre, radius);
+        Window[] current = windows;
+        Window[] opened = Arrays.copyOf(current, current.length + 1);
+        opened[current.length] = window;
+        windows = opened;
+        return window;
+    }
+
+    private static synchronized void close(Window window) {
+        windows = Arrays.stream(windows).filter(open -> open != window).toArray(Window[]::new);
+    }
+
+    public static Snapshot snapshot() {
+        return snapshot(NANOS, BYTES, COUNTS);
+    }
+
+    private static Snapshot snapshot(LongAdder[] nanoAdders, LongAdder[] byteAdders, LongAdder[] countAdders) {
+        long[] nanos = new long[PHASES.length];
+        long[] bytes = new long[PHASES.length];
+        long[] counts = new long[PHASES.length];
+        for (int i = 0; i < PHASES.length; i++) {
+            nanos[i] = nanoAdders[i].sum();
+            bytes[i] = byteAdders[i].sum();
+            counts[i] = countAdders[i].sum();
+        }
+        return new Snapshot(nanos, bytes, counts);
+    }
+
+    /**
+     * Totals of the chunks in a square of chunks only, however many others generate at the same time
+     */
+    public static final class Window implements AutoCloseable {
+        private final int minX;
+        private final int minZ;
+        private final int maxX;
+        private final int maxZ;
+        private final LongAdder[] nanos = createAdders();
+        private final LongAdder[] bytes = createAdders();
+        private final LongAdder[] counts = createAdders();
+
+        private Window(ChunkPos centre, int radius) {
+            this.minX = centre.x - radius;
+            this.minZ = centre.z - radius;
+            this.maxX = centre.x + radius;
+            this.maxZ = centre.z + radius;
+        }
+
+        private boolean contains(ChunkPos chunk) {
+            return chunk.x >= minX && chunk.x <= maxX && chunk.z >= minZ && chunk.z <= maxZ;
+        }
+
+        /**
+         * Totals of the window's chunks since it was opened
+         */
+        public Snapshot snapshot() {
+            return GenerationTimings.snapshot(nanos, bytes, counts);
+        }
+
+        /**
+         * Stop totalling; safe to call more than once
+         */
+        @Override
+        public void close() {
+            GenerationTimings.close(this);
+        }
+    }
+
+    /**
+     * Totals at one moment, indexed by phase ordinal
+     */
+    public record Snapshot(long[] nanos, long[] bytes, long[] counts) {
+        public long nanos(Phase phase) {
+            return nanos[phase.ordinal()];
+        }
+
+        public long bytes(Phase phase) {
+            return bytes[phase.ordinal()];
+        }
+
+        public long count(Phase phase) {
+            return counts[phase.ordinal()];
+        }
+
+        /**
+         * Totals accumulated between an earlier snapshot and this one
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] nanosDelta = new long[PHASES.length];
+            long[] bytesDelta = new long[PHASES.length];
+            long[] countsDelta = new long[PHASES.length];
+            for (int i = 0; i < PHASES.length; i++) {
+                nanosDelta[i] = nanos[i] - earlier.nanos[i];
+                bytesDelta[i] = bytes[i] - earlier.bytes[i];
+                countsDelta[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(nanosDelta, bytesDelta, countsDelta);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.lotrmod.worldgen;
+
+/**
+ * Composes terrain heights from the sampled noise of a chunk: the height of each blend cell
+ * corner's biome, the bilinear blend between them, the landmask bias and the coastal transition.
+ *
+ * All implementations must produce bit-identical results to {@link ScalarHeightKernel}.
+ */
+interface HeightKernel {
+    /**
+     * Fill {@link HeightPlane#heights} for all 256 columns of a chunk plane
+     */
+    void compose(HeightPlane plane);
+}
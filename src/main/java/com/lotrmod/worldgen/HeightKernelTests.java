@@ -0,0 +1,133 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.LOTRMod;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.neoforged.neoforge.gametest.GameTestHolder;
+import net.neoforged.neoforge.gametest.PrefixGameTestTemplate;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static com.lotrmod.worldgen.MiddleEarthChunkGenerator.*;
+
+/**
+ * Game tests for the height kernels: the vector kernel's full parity suite against the scalar
+ * kernel, and its measured speedup. Both pass without running anything when the JVM has no
+ * incubator module (start the game test server with -Pvector_height_kernel=true to cover them).
+ */
+@GameTestHolder(LOTRMod.MODID)
+@PrefixGameTestTemplate(false)
+public class HeightKernelTests {
+    // Far more than the startup check, which has to stay cheap
+    private static final int PARITY_PLANES = 1 << 14;
+    private static final int BENCHMARK_PLANES = 1 << 13;
+    private static final int BENCHMARK_ROUNDS = 5;
+    // The vector kernel must at least keep up with the scalar one to be worth selecting
+    private static final double MIN_SPEEDUP = 1.0;
+
+    // Brightness on and either side of each coastal band edge, where the branches switch
+    private static final double[] BAND_EDGES = {
+            0.0, COAST_LAND_THRESHOLD, COAST_TRANSITION_START, OCEAN_BRIGHTNESS_THRESHOLD, 255.0
+    };
+
+    @GameTest(template = "empty")
+    public static void vectorMatchesScalar(GameTestHelper helper) {
+        HeightKernel vector = loadVector(helper);
+        if (vector == null) {
+            helper.succeed();
+            return;
+        }
+
+        HeightKernel scalar = new ScalarHeightKernel();
+        helper.assertTrue(HeightKernels.matchesScalar(vector, scalar, PARITY_PLANES),
+                "Vector height kernel differs from the scalar kernel on random planes");
+        helper.assertTrue(matchesOnBandEdges(vector, scalar),
+                "Vector height kernel differs from the scalar kernel at the coastal band edges");
+        helper.succeed();
+    }
+
+    @GameTest(template = "empty")
+    public static void vectorIsFaster(GameTestHelper helper) {
+        HeightKernel vector = loadVector(helper);
+        if (vector == null) {
+            helper.succeed();
+            return;
+        }
+
+        HeightPlane[] planes = new HeightPlane[64];
+        SplittableRandom random = new SplittableRandom(0x4C4F5452L);
+        for (int i = 0; i < planes.length; i++) {
+            planes[i] = new HeightPlane(HeightPlane.COLUMNS);
+            HeightKernels.fillRandom(planes[i], random, i);
+        }
+
+        HeightKernel scalar = new ScalarHeightKernel();
+        double scalarNanos = Double.MAX_VALUE;
+        double vectorNanos = Double.MAX_VALUE;
+        // Interleaved, best of each, so warm-up and background noise hit both alike
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            scalarNanos = Math.min(scalarNanos, nanosPerPlane(scalar, planes));
+            vectorNanos = Math.min(vectorNanos, nanosPerPlane(vector, planes));
+        }
+
+        double speedup = scalarNanos / vectorNanos;
+        String result = String.format(Locale.ROOT, "Height kernels: scalar %.0f ns, %s %.0f ns per chunk plane (%.2fx)",
+                scalarNanos, vector, vectorNanos, speedup);
+        LOTRMod.LOGGER.info(result);
+        helper.assertTrue(speedup >= MIN_SPEEDUP, result);
+        helper.succeed();
+    }
+
+    /**
+     * The vector kernel, or null if the JVM has no incubator module and the test should pass
+     */
+    @Nullable
+    private static HeightKernel loadVector(GameTestHelper helper) {
+        if (!HeightKernels.isVectorAvailable()) {
+            LOTRMod.LOGGER.info("Vector height kernel tests skipped, the JVM was started without jdk.incubator.vector");
+            return null;
+        }
+        HeightKernel vector = HeightKernels.loadVector();
+        if (vector == null) {
+            helper.fail("Vector height kernel failed to load");
+        }
+        return vector;
+    }
+
+    private static boolean matchesOnBandEdges(HeightKernel vector, HeightKernel scalar) {
+        SplittableRandom random = new SplittableRandom(0x45444745L);
+        HeightPlane plane = new HeightPlane(HeightPlane.COLUMNS);
+        double[] expected = new double[HeightPlane.COLUMNS];
+
+        for (int i = 0; i < 64; i++) {
+            HeightKernels.fillRandom(plane, random, i);
+            for (int column = 0; column < HeightPlane.COLUMNS; column++) {
+                double edge = BAND_EDGES[column % BAND_EDGES.length];
+                int side = (column / BAND_EDGES.length) % 3;
+                plane.brightness[column] = side == 0 ? Math.nextDown(edge) : side == 1 ? edge : Math.nextUp(edge);
+            }
+
+            scalar.compose(plane);
+            System.arraycopy(plane.heights, 0, expected, 0, HeightPlane.COLUMNS);
+            vector.compose(plane);
+            for (int column = 0; column < HeightPlane.COLUMNS; column++) {
+                if (Double.doubleToLongBits(plane.heights[column]) != Double.doubleToLongBits(expected[column])) {
+                    LOTRMod.LOGGER.warn("Height kernel mismatch at brightness {}: {} != {}",
+                            plane.brightness[column], plane.heights[column], expected[column]);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static double nanosPerPlane(HeightKernel kernel, HeightPlane[] planes) {
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_PLANES; i++) {
+            kernel.compose(planes[i % planes.length]);
+        }
+        return (System.nanoTime() - start) / (double) BENCHMARK_PLANES;
+    }
+}
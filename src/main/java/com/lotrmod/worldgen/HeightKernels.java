@@ -0,0 +1,161 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.LOTRConfig;
+import com.lotrmod.LOTRMod;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks the height kernel once, on first use: the vector kernel when it is enabled in the
+ * config, the JVM has the incubator module and it passes a parity check against the scalar
+ * kernel; otherwise the scalar kernel.
+ *
+ * The vector kernel is built in its own source set and loaded by name, so nothing else in the
+ * mod links against the incubator module. {@link HeightKernelTests} runs the full parity suite
+ * and measures the speedup.
+ */
+final class HeightKernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "com.lotrmod.worldgen.VectorHeightKernel";
+    private static final int PARITY_PLANES = 64;
+
+    private static volatile HeightKernel kernel;
+    // Set at runtime through the management bean; null means follow the config
+    private static volatile Boolean vectorOverride;
+
+    private HeightKernels() {
+    }
+
+    static HeightKernel get() {
+        HeightKernel selected = kernel;
+        if (selected == null) {
+            synchronized (HeightKernels.class) {
+                selected = kernel;
+                if (selected == null) {
+                    selected = select();
+                    kernel = selected;
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Turn the vector kernel on or off without a restart; the kernel is selected again on next use
+     */
+    static synchronized void setVectorEnabled(boolean enabled) {
+        vectorOverride = enabled;
+        kernel = null;
+    }
+
+    /**
+     * Name of the kernel in use, or null if none has been selected since the last switch
+     */
+    static String getSelectedName() {
+        HeightKernel selected = kernel;
+        return selected != null ? selected.getClass().getSimpleName() : null;
+    }
+
+    static boolean isVectorEnabled() {
+        Boolean override = vectorOverride;
+        return override != null ? override : LOTRConfig.VECTOR_HEIGHT_KERNEL.get();
+    }
+
+    private static HeightKernel select() {
+        ScalarHeightKernel scalar = new ScalarHeightKernel();
+
+        if (!isVectorEnabled()) {
+            LOTRMod.LOGGER.info("Vector height kernel disabled, using the scalar kernel");
+            return scalar;
+        }
+        if (!isVectorAvailable()) {
+            LOTRMod.LOGGER.info("Vector height kernel unavailable (start the JVM with --add-modules {} to enable it), using the scalar kernel",
+                    VECTOR_MODULE);
+            return scalar;
+        }
+
+        HeightKernel vector = loadVector();
+        if (vector == null) {
+            return scalar;
+        }
+        if (matchesScalar(vector, scalar, PARITY_PLANES)) {
+            LOTRMod.LOGGER.info("Using {}", vector);
+            return vector;
+        }
+        LOTRMod.LOGGER.warn("Vector height kernel does not match the scalar kernel, using the scalar kernel");
+        return scalar;
+    }
+
+    static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * Load the vector kernel by name, or return null if it is missing from the jar or fails to link.
+     * Only call this when {@link #isVectorAvailable()}.
+     */
+    @Nullable
+    static HeightKernel loadVector() {
+        try {
+            return (HeightKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOTRMod.LOGGER.warn("Vector height kernel failed to load, using the scalar kernel", e);
+            return null;
+        }
+    }
+
+    /**
+     * Run both kernels over random planes, with brightness spread across every coastal band,
+     * and require bit-identical heights
+     */
+    static boolean matchesScalar(HeightKernel candidate, HeightKernel scalar, int planes) {
+        SplittableRandom random = new SplittableRandom(0x4C4F5452L);
+        HeightPlane plane = new HeightPlane(HeightPlane.COLUMNS);
+        double[] expected = new double[HeightPlane.COLUMNS];
+
+        for (int i = 0; i < planes; i++) {
+            fillRandom(plane, random, i);
+
+            scalar.compose(plane);
+            System.arraycopy(plane.heights, 0, expected, 0, HeightPlane.COLUMNS);
+            candidate.compose(plane);
+
+            for (int column = 0; column < HeightPlane.COLUMNS; column++) {
+                if (Double.doubleToLongBits(plane.heights[column]) != Double.doubleToLongBits(expected[column])) {
+                    LOTRMod.LOGGER.warn("Height kernel mismatch at column {}: {} != {}",
+                            column, plane.heights[column], expected[column]);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fill a plane with random noise, weights and corner settings, covering flat and
+     * mountainous corners and, every eighth plane, a missing landmask
+     */
+    static void fillRandom(HeightPlane plane, SplittableRandom random, int index) {
+        for (int column = 0; column < HeightPlane.COLUMNS; column++) {
+            plane.large[column] = random.nextDouble(-1.0, 1.0);
+            plane.medium[column] = random.nextDouble(-1.0, 1.0);
+            plane.small[column] = random.nextDouble(-1.0, 1.0);
+            plane.detail[column] = random.nextDouble(-1.0, 1.0);
+            plane.mountain[column] = random.nextDouble();
+            plane.hill[column] = random.nextDouble(0.0, 25.0);
+            plane.brightness[column] = random.nextDouble(0.0, 255.0);
+        }
+        for (int offset = 0; offset < 16; offset++) {
+            plane.weightX[offset] = random.nextDouble();
+            plane.weightZ[offset] = random.nextDouble();
+        }
+        for (int corner = 0; corner < 4; corner++) {
+            plane.variationScale[corner] = random.nextDouble(0.0, 1.5);
+            plane.mountainHeight[corner] = random.nextInt(3) == 0 ? 0.0 : random.nextDouble(40.0, 100.0);
+            plane.hillFactor[corner] = random.nextInt(3) == 0 ? 0.0 : random.nextDouble();
+            plane.heightOffset[corner] = random.nextInt(4) == 0 ? -8.0 : 0.0;
+        }
+        plane.landmaskLoaded = index % 8 != 0;
+    }
+}
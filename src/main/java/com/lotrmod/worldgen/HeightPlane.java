@@ -0,0 +1,54 @@
+package com.lotrmod.worldgen;
+
+/**
+ * Inputs and output of the terrain height composition for the columns of one chunk.
+ *
+ * A chunk always lies inside a single 32-block biome blend cell, so the biome parameters of the
+ * four cell corners are shared by all its columns; everything else is per column. Columns are
+ * indexed like {@link ChunkColumnCache.ColumnData} ((localX << 4) | localZ).
+ */
+final class HeightPlane {
+    static final int COLUMNS = 256;
+
+    // Raw noise per column (-1 to 1), except mountain (0 to 1) and hill (blocks)
+    final double[] large;
+    final double[] medium;
+    final double[] small;
+    final double[] detail;
+    final double[] mountain;
+    final double[] hill;
+
+    // Landmask brightness per column after the coastline offset (0-255)
+    final double[] brightness;
+    boolean landmaskLoaded;
+
+    // Scratch per column for the noise components combined into mountain and brightness
+    final double[] noiseA;
+    final double[] noiseB;
+
+    // Smoothstep blend weights per local x and local z
+    final double[] weightX = new double[16];
+    final double[] weightZ = new double[16];
+
+    // Biome parameters of the cell corners, in the order 00, 10, 01, 11
+    final double[] variationScale = new double[4];
+    final double[] mountainHeight = new double[4];
+    final double[] hillFactor = new double[4];
+    final double[] heightOffset = new double[4];
+
+    // Composed heights per column
+    final double[] heights;
+
+    HeightPlane(int columns) {
+        this.large = new double[columns];
+        this.medium = new double[columns];
+        this.small = new double[columns];
+        this.detail = new double[columns];
+        this.mountain = new double[columns];
+        this.hill = new double[columns];
+        this.brightness = new double[columns];
+        this.noiseA = new double[columns];
+        this.noiseB = new double[columns];
+        this.heights = new double[columns];
+    }
+}
@@ -1,30 +1,96 @@
 package com.lotrmod.worldgen;
 
+import com.lotrmod.LOTRConfig;
 import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.raster.HeapRaster;
+import com.lotrmod.worldgen.raster.Raster;
+import com.lotrmod.worldgen.raster.RasterFiles;
+import com.lotrmod.worldgen.raster.TiledRaster;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.IoSupplier;
 import net.minecraft.server.packs.resources.Resource;
 import net.minecraft.server.packs.resources.ResourceManager;
+import org.jetbrains.annotations.Nullable;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.SplittableRandom;
 
 /**
  * Loads and provides access to the landmask texture that defines where land should generate
+ *
+ * The image is converted once into a memory-mapped raster of per-pixel brightness, so even very
+ * large landmasks take no heap and only the visited parts are paged in.
+ * The scale can be set per map in an optional sidecar JSON next to the image
+ * (middleearth_landmask.json: {"blocks_per_pixel": 4}).
+ * Maps too large for one image can instead be split into tiles that are decoded on demand.
  */
 public class LandmaskLoader {
-    private static BufferedImage landmaskImage;
-    private static int imageWidth;
-    private static int imageHeight;
-    private static boolean loaded = false;
+    // Null before the first load and after unloading
+    private static volatile Landmask landmask;
 
-    public static final int BLOCKS_PER_PIXEL = 16;
+    public static final int DEFAULT_BLOCKS_PER_PIXEL = 16;
+
+    /**
+     * Fraction bits of {@link #getInterpolatedBrightnessFixed}: a brightness of 1 is 1 << 8
+     */
+    public static final int BRIGHTNESS_FRACTION_BITS = 8;
+    private static final int WEIGHT_ONE = 1 << BRIGHTNESS_FRACTION_BITS;
+
+    // Largest difference allowed between the fixed-point and double interpolation, in 1/256ths
+    // of a brightness step. Measured: under 1 (the final truncation) for power-of-two scales up
+    // to 128 blocks per pixel, where the weights are exact; up to about 1.7 steps for other
+    // scales, where each weight is truncated to 1/256.
+    private static final double EXACT_WEIGHTS_TOLERANCE = 1.0;
+    private static final double TRUNCATED_WEIGHTS_TOLERANCE = 2.0 * WEIGHT_ONE;
+    private static final int PARITY_PIXELS = 8;
+    private static final int PARITY_POSITIONS = 256;
+
+    // Samples are r + g + b, so brightness keeps its fractional part
+    private static final RasterFiles.Format FORMAT = new RasterFiles.Format("rgbsum", 2,
+            rgb -> ((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF));
+
+    /**
+     * A landmask raster with its geometry. Published as a whole with one volatile write, so a
+     * lookup running during a reload never pairs one map's dimensions with another's samples.
+     *
+     * @param halfPixelShift Shift for half-pixel units (2 * blocksPerPixel) when the scale is a power of two, else -1
+     * @param loaded False for the all-ocean fallback map
+     * @param fixedPoint Whether the fixed-point interpolation was verified against the double one
+     */
+    record Landmask(Raster raster, int width, int height, int blocksPerPixel, int halfPixelShift, int halfPixelMask,
+                    boolean loaded, boolean fixedPoint) {
+        static Landmask of(Raster raster, int blocksPerPixel, boolean loaded) {
+            int halfPixel = 2 * blocksPerPixel;
+            int halfPixelShift = Integer.bitCount(halfPixel) == 1 ? Integer.numberOfTrailingZeros(halfPixel) : -1;
+            return new Landmask(raster, raster.getWidth(), raster.getHeight(), blocksPerPixel, halfPixelShift, halfPixel - 1,
+                    loaded, true);
+        }
+
+        Landmask withoutFixedPoint() {
+            return new Landmask(raster, width, height, blocksPerPixel, halfPixelShift, halfPixelMask, loaded, false);
+        }
+
+        boolean contains(int pixelX, int pixelZ) {
+            return pixelX >= 0 && pixelX < width && pixelZ >= 0 && pixelZ < height;
+        }
+
+        boolean isLand(int worldX, int worldZ) {
+            int pixelX = (worldX / blocksPerPixel) + (width / 2);
+            int pixelZ = (worldZ / blocksPerPixel) + (height / 2);
+            return contains(pixelX, pixelZ) && raster.get(pixelX, pixelZ) / 3 < 128;
+        }
+    }
 
     public static void loadLandmask(ResourceManager resourceManager) {
+        // Try method 0: A map split into tiles, decoded lazily
+        if (tryLoadTiles(resourceManager)) {
+            return;
+        }
+
         // Try method 1: Load from resource manager (production)
         if (tryLoadFromResourceManager(resourceManager)) {
             return;
@@ -40,6 +106,38 @@ public class LandmaskLoader {
         createFallbackImage();
     }
 
+    /**
+     * Load a landmask split into tiles (textures/landmask/middleearth_landmask_tiles/<x>_<z>.png
+     * plus a tiles.json). Tiles are only decoded when first sampled, so the map can be far larger
+     * than a single image; missing tiles are ocean.
+     */
+    private static boolean tryLoadTiles(ResourceManager resourceManager) {
+        ResourceLocation tilesLocation = ResourceLocation.fromNamespaceAndPath(
+                LOTRMod.MODID, "textures/landmask/middleearth_landmask_tiles/");
+        Optional<Resource> manifest = resourceManager.getResource(tilesLocation.withSuffix("tiles.json"));
+        if (manifest.isEmpty()) {
+            return false;
+        }
+
+        try {
+            TiledRaster.Layout layout = TiledRaster.readLayout(manifest.get()::open, DEFAULT_BLOCKS_PER_PIXEL);
+            TiledRaster raster = new TiledRaster("landmask", layout, FORMAT, 255 * 3,
+                    (tileX, tileZ) -> resourceManager.getResource(tilesLocation.withSuffix(tileX + "_" + tileZ + ".png"))
+                            .<IoSupplier<InputStream>>map(resource -> resource::open)
+                            .orElse(null),
+                    LOTRConfig.getMapTileCacheBytes());
+            Landmask map = setLandmask(raster, layout.blocksPerPixel());
+
+            LOTRMod.LOGGER.info("Loaded tiled landmask: {}x{} pixels in {}px tiles ({}x{} blocks)",
+                    map.width(), map.height(), layout.tileSize(),
+                    map.width() * map.blocksPerPixel(), map.height() * map.blocksPerPixel());
+            return true;
+        } catch (Exception e) {
+            LOTRMod.LOGGER.error("Failed to load tiled landmask", e);
+            return false;
+        }
+    }
+
     private static boolean tryLoadFromResourceManager(ResourceManager resourceManager) {
         try {
             ResourceLocation landmaskLocation = ResourceLocation.fromNamespaceAndPath(
@@ -57,26 +155,19 @@ public class LandmaskLoader {
             }
 
             Resource resource = resourceOpt.get();
-            
-            try (InputStream stream = resource.open()) {
-                landmaskImage = ImageIO.read(stream);
-            }
-
-            if (landmaskImage == null) {
-                LOTRMod.LOGGER.error("Failed to read landmask image from resource manager");
-                return false;
-            }
+            ResourceLocation settingsLocation = landmaskLocation.withPath(path -> path.replace(".png", ".json"));
+            int scale = resourceManager.getResource(settingsLocation)
+                    .map(settings -> RasterFiles.readBlocksPerPixel(settings::open, DEFAULT_BLOCKS_PER_PIXEL))
+                    .orElse(DEFAULT_BLOCKS_PER_PIXEL);
 
-            imageWidth = landmaskImage.getWidth();
-            imageHeight = landmaskImage.getHeight();
-            loaded = true;
+            Landmask map = setLandmask(RasterFiles.load("landmask", resource::open, FORMAT), scale);
 
             LOTRMod.LOGGER.info("========================================");
             LOTRMod.LOGGER.info("LANDMASK LOADED FROM RESOURCE MANAGER!");
-            LOTRMod.LOGGER.info("Image size: {}x{} pixels", imageWidth, imageHeight);
+            LOTRMod.LOGGER.info("Image size: {}x{} pixels", map.width(), map.height());
             LOTRMod.LOGGER.info("World size: {}x{} blocks", 
-                imageWidth * BLOCKS_PER_PIXEL, 
-                imageHeight * BLOCKS_PER_PIXEL);
+                map.width() * map.blocksPerPixel(),
+                map.height() * map.blocksPerPixel());
             LOTRMod.LOGGER.info("========================================");
             
             return true;
@@ -105,26 +196,22 @@ public class LandmaskLoader {
                 if (Files.exists(path)) {
                     LOTRMod.LOGGER.info("Found file at: {}", path.toAbsolutePath());
                     
-                    try (InputStream stream = Files.newInputStream(path)) {
-                        landmaskImage = ImageIO.read(stream);
-                    }
+                    Path settingsPath = path.resolveSibling("middleearth_landmask.json");
+                    int scale = Files.exists(settingsPath)
+                            ? RasterFiles.readBlocksPerPixel(() -> Files.newInputStream(settingsPath), DEFAULT_BLOCKS_PER_PIXEL)
+                            : DEFAULT_BLOCKS_PER_PIXEL;
+                    Landmask map = setLandmask(RasterFiles.load("landmask", () -> Files.newInputStream(path), FORMAT), scale);
+
+                    LOTRMod.LOGGER.info("========================================");
+                    LOTRMod.LOGGER.info("LANDMASK LOADED FROM FILESYSTEM!");
+                    LOTRMod.LOGGER.info("Path: {}", path.toAbsolutePath());
+                    LOTRMod.LOGGER.info("Image size: {}x{} pixels", map.width(), map.height());
+                    LOTRMod.LOGGER.info("World size: {}x{} blocks", 
+                        map.width() * map.blocksPerPixel(),
+                        map.height() * map.blocksPerPixel());
+                    LOTRMod.LOGGER.info("========================================");
                     
-                    if (landmaskImage != null) {
-                        imageWidth = landmaskImage.getWidth();
-                        imageHeight = landmaskImage.getHeight();
-                        loaded = true;
-
-                        LOTRMod.LOGGER.info("========================================");
-                        LOTRMod.LOGGER.info("LANDMASK LOADED FROM FILESYSTEM!");
-                        LOTRMod.LOGGER.info("Path: {}", path.toAbsolutePath());
-                        LOTRMod.LOGGER.info("Image size: {}x{} pixels", imageWidth, imageHeight);
-                        LOTRMod.LOGGER.info("World size: {}x{} blocks", 
-                            imageWidth * BLOCKS_PER_PIXEL, 
-                            imageHeight * BLOCKS_PER_PIXEL);
-                        LOTRMod.LOGGER.info("========================================");
-                        
-                        return true;
-                    }
+                    return true;
                 }
             }
             
@@ -143,56 +230,105 @@ public class LandmaskLoader {
         LOTRMod.LOGGER.warn("Dimension will generate as ocean only");
         LOTRMod.LOGGER.warn("========================================");
         
-        landmaskImage = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
-        for (int x = 0; x < 256; x++) {
-            for (int y = 0; y < 256; y++) {
-                landmaskImage.setRGB(x, y, 0xFFFFFF);
-            }
-        }
-        imageWidth = 256;
-        imageHeight = 256;
-        loaded = false;
+        landmask = Landmask.of(HeapRaster.filled(256, 256, FORMAT.sampleBytes(), 255 * 3), DEFAULT_BLOCKS_PER_PIXEL, false);
     }
 
-    public static boolean isLand(int worldX, int worldZ) {
-        if (!loaded || landmaskImage == null) {
-            return false;
+    private static Landmask setLandmask(Raster raster, int scale) {
+        Landmask map = Landmask.of(raster, scale, true);
+        if (!fixedPointMatches(map)) {
+            LOTRMod.LOGGER.warn("Fixed-point landmask interpolation does not match the double version at {} blocks per pixel, using the double version",
+                    scale);
+            map = map.withoutFixedPoint();
         }
+        landmask = map;
+        return map;
+    }
 
-        int pixelX = (worldX / BLOCKS_PER_PIXEL) + (imageWidth / 2);
-        int pixelZ = (worldZ / BLOCKS_PER_PIXEL) + (imageHeight / 2);
+    /**
+     * Compare the fixed-point interpolation against the double one over every sub-pixel position
+     * of a small random map with the loaded map's scale and size parity, within the measured
+     * tolerance. The arithmetic only depends on those, so the loaded map itself is not read.
+     */
+    private static boolean fixedPointMatches(Landmask map) {
+        return fixedPointMatches(map, 0x4C4F5452L);
+    }
 
-        if (pixelX < 0 || pixelX >= imageWidth || pixelZ < 0 || pixelZ >= imageHeight) {
-            return false;
+    /**
+     * {@link #fixedPointMatches(Landmask)} on a random map drawn from the given seed, so
+     * {@link LandmaskTests} can cover more maps than the load-time check
+     */
+    static boolean fixedPointMatches(Landmask map, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int width = PARITY_PIXELS + (map.width() & 1);
+        int height = PARITY_PIXELS + (map.height() & 1);
+        short[] samples = new short[width * height];
+        for (int i = 0; i < samples.length; i++) {
+            // Mostly the extremes, where a weight error shows the most
+            int choice = random.nextInt(3);
+            samples[i] = (short) (choice == 0 ? 0 : choice == 1 ? 255 * 3 : random.nextInt(255 * 3 + 1));
+        }
+        Landmask probe = Landmask.of(HeapRaster.ofShorts(width, height, samples), map.blocksPerPixel(), true);
+
+        int bpp = map.blocksPerPixel();
+        double tolerance = map.halfPixelShift() >= 0 && bpp <= 128 ? EXACT_WEIGHTS_TOLERANCE : TRUNCATED_WEIGHTS_TOLERANCE;
+        // Every block position for small scales, an even spread of them for large ones, and a
+        // pixel of margin so the image edges are covered
+        int spanX = (width + 2) * bpp;
+        int spanZ = (height + 2) * bpp;
+        int strideX = Math.max(1, spanX / PARITY_POSITIONS);
+        int strideZ = Math.max(1, spanZ / PARITY_POSITIONS);
+        for (int z = 0; z < spanZ; z += strideZ) {
+            int worldZ = z - (height / 2 + 1) * bpp;
+            for (int x = 0; x < spanX; x += strideX) {
+                int worldX = x - (width / 2 + 1) * bpp;
+                int fixed = interpolateFixed(probe, worldX, worldZ);
+                double expected = interpolate(probe, worldX, worldZ) * WEIGHT_ONE;
+                if (!(Math.abs(fixed - expected) < tolerance)) {
+                    LOTRMod.LOGGER.warn("Landmask interpolation mismatch at {}, {}: {} != {}",
+                            worldX, worldZ, fixed / (double) WEIGHT_ONE, expected / WEIGHT_ONE);
+                    return false;
+                }
+            }
         }
+        return true;
+    }
 
-        int rgb = landmaskImage.getRGB(pixelX, pixelZ);
-        int red = (rgb >> 16) & 0xFF;
-        int green = (rgb >> 8) & 0xFF;
-        int blue = rgb & 0xFF;
-        int brightness = (red + green + blue) / 3;
+    /**
+     * Release the landmask; lookups answer as if none was loaded until the next load
+     */
+    static void unload() {
+        landmask = null;
+    }
+
+    /**
+     * The current landmask and its geometry, or null if none is loaded. Read it once and use
+     * the same snapshot for a whole computation.
+     */
+    @Nullable
+    static Landmask current() {
+        Landmask map = landmask;
+        return map != null && map.loaded() ? map : null;
+    }
 
-        return brightness < 128;
+    public static boolean isLand(int worldX, int worldZ) {
+        Landmask map = current();
+        return map != null && map.isLand(worldX, worldZ);
     }
 
     public static int getBrightness(int worldX, int worldZ) {
-        if (!loaded || landmaskImage == null) {
+        Landmask map = current();
+        if (map == null) {
             return 255;
         }
 
-        int pixelX = (worldX / BLOCKS_PER_PIXEL) + (imageWidth / 2);
-        int pixelZ = (worldZ / BLOCKS_PER_PIXEL) + (imageHeight / 2);
+        int pixelX = (worldX / map.blocksPerPixel()) + (map.width() / 2);
+        int pixelZ = (worldZ / map.blocksPerPixel()) + (map.height() / 2);
 
-        if (pixelX < 0 || pixelX >= imageWidth || pixelZ < 0 || pixelZ >= imageHeight) {
+        if (!map.contains(pixelX, pixelZ)) {
             return 255;
         }
 
-        int rgb = landmaskImage.getRGB(pixelX, pixelZ);
-        int red = (rgb >> 16) & 0xFF;
-        int green = (rgb >> 8) & 0xFF;
-        int blue = rgb & 0xFF;
-
-        return (red + green + blue) / 3;
+        return map.raster().get(pixelX, pixelZ) / 3;
     }
 
     /**
@@ -204,18 +340,22 @@ public class LandmaskLoader {
      * @return Interpolated brightness value (0-255)
      */
     public static double getInterpolatedBrightness(int worldX, int worldZ) {
-        if (!loaded || landmaskImage == null) {
+        Landmask map = current();
+        if (map == null) {
             return 255.0;
         }
+        return interpolate(map, worldX, worldZ);
+    }
 
+    private static double interpolate(Landmask map, int worldX, int worldZ) {
         // CRITICAL: Use floating-point division for sub-pixel sampling
         // This allows us to sample BETWEEN pixels, not just at pixel centers
-        double exactPixelX = worldX / (double) BLOCKS_PER_PIXEL;
-        double exactPixelZ = worldZ / (double) BLOCKS_PER_PIXEL;
+        double exactPixelX = worldX / (double) map.blocksPerPixel();
+        double exactPixelZ = worldZ / (double) map.blocksPerPixel();
 
         // Convert to image coordinates (centered at 0,0)
-        exactPixelX += imageWidth / 2.0;
-        exactPixelZ += imageHeight / 2.0;
+        exactPixelX += map.width() / 2.0;
+        exactPixelZ += map.height() / 2.0;
 
         // Get the 4 surrounding pixel coordinates for bilinear interpolation
         int x0 = (int) Math.floor(exactPixelX);
@@ -229,10 +369,10 @@ public class LandmaskLoader {
         double fz = exactPixelZ - z0;
 
         // Sample 4 surrounding pixels (with bounds checking)
-        double b00 = getPixelBrightness(x0, z0); // top-left
-        double b10 = getPixelBrightness(x1, z0); // top-right
-        double b01 = getPixelBrightness(x0, z1); // bottom-left
-        double b11 = getPixelBrightness(x1, z1); // bottom-right
+        double b00 = getPixelBrightness(map, x0, z0); // top-left
+        double b10 = getPixelBrightness(map, x1, z0); // top-right
+        double b01 = getPixelBrightness(map, x0, z1); // bottom-left
+        double b11 = getPixelBrightness(map, x1, z1); // bottom-right
 
         // Bilinear interpolation:
         // 1. Interpolate along the top edge (between b00 and b10)
@@ -247,6 +387,84 @@ public class LandmaskLoader {
         return brightness;
     }
 
+    /**
+     * Integer version of {@link #getInterpolatedBrightness}, for the per-column terrain path.
+     *
+     * Positions are taken in half-pixel units (so images with odd sizes stay exact) and split into
+     * pixel and fraction with shifts when the scale is a power of two. For power-of-two scales up
+     * to 128 blocks per pixel the weights are exact, so the result is the double version
+     * truncated to 1/256 of a brightness step. For other scales each weight is truncated to
+     * 1/256, which can put the result up to about 2 brightness steps off the double version.
+     * Each loaded map is checked against the double version within those tolerances, and uses
+     * the double version if the check fails.
+     *
+     * @return Interpolated brightness in 1/256ths (0 to 255 << {@link #BRIGHTNESS_FRACTION_BITS})
+     */
+    public static int getInterpolatedBrightnessFixed(int worldX, int worldZ) {
+        Landmask map = current();
+        if (map == null) {
+            return 255 << BRIGHTNESS_FRACTION_BITS;
+        }
+        if (!map.fixedPoint()) {
+            return (int) (interpolate(map, worldX, worldZ) * WEIGHT_ONE);
+        }
+        return interpolateFixed(map, worldX, worldZ);
+    }
+
+    private static int interpolateFixed(Landmask map, int worldX, int worldZ) {
+        Raster raster = map.raster();
+        int halfPixelShift = map.halfPixelShift();
+
+        // worldX / blocksPerPixel + width / 2, times 2 * blocksPerPixel
+        int halfX = 2 * worldX + map.width() * map.blocksPerPixel();
+        int halfZ = 2 * worldZ + map.height() * map.blocksPerPixel();
+
+        int x0, z0, fx, fz;
+        if (halfPixelShift >= 0) {
+            x0 = halfX >> halfPixelShift;
+            z0 = halfZ >> halfPixelShift;
+            fx = ((halfX & map.halfPixelMask()) << BRIGHTNESS_FRACTION_BITS) >> halfPixelShift;
+            fz = ((halfZ & map.halfPixelMask()) << BRIGHTNESS_FRACTION_BITS) >> halfPixelShift;
+        } else {
+            int halfPixel = 2 * map.blocksPerPixel();
+            x0 = Math.floorDiv(halfX, halfPixel);
+            z0 = Math.floorDiv(halfZ, halfPixel);
+            fx = (Math.floorMod(halfX, halfPixel) << BRIGHTNESS_FRACTION_BITS) / halfPixel;
+            fz = (Math.floorMod(halfZ, halfPixel) << BRIGHTNESS_FRACTION_BITS) / halfPixel;
+        }
+
+        int s00, s10, s01, s11;
+        if (x0 >= 0 && z0 >= 0 && x0 + 1 < map.width() && z0 + 1 < map.height()) {
+            s00 = raster.get(x0, z0);
+            s10 = raster.get(x0 + 1, z0);
+            s01 = raster.get(x0, z0 + 1);
+            s11 = raster.get(x0 + 1, z0 + 1);
+        } else {
+            s00 = getPixelSample(map, x0, z0);
+            s10 = getPixelSample(map, x0 + 1, z0);
+            s01 = getPixelSample(map, x0, z0 + 1);
+            s11 = getPixelSample(map, x0 + 1, z0 + 1);
+        }
+
+        // Samples are r + g + b (at most 765), so the blend stays well inside an int
+        int top = s00 * (WEIGHT_ONE - fx) + s10 * fx;
+        int bottom = s01 * (WEIGHT_ONE - fx) + s11 * fx;
+        int blended = top * (WEIGHT_ONE - fz) + bottom * fz;
+
+        // Divide by 3 for brightness and drop one set of weight bits
+        return blended / (3 * WEIGHT_ONE);
+    }
+
+    /**
+     * Get the r + g + b sample of a pixel, white (ocean) outside the image
+     */
+    private static int getPixelSample(Landmask map, int pixelX, int pixelZ) {
+        if (!map.contains(pixelX, pixelZ)) {
+            return 255 * 3;
+        }
+        return map.raster().get(pixelX, pixelZ);
+    }
+
     /**
      * Get brightness at a specific pixel coordinate with bounds checking.
      * Returns 255 (white/ocean) for out-of-bounds pixels.
@@ -255,30 +473,42 @@ public class LandmaskLoader {
      * @param pixelZ The Z pixel coordinate
      * @return Brightness value (0-255)
      */
-    private static double getPixelBrightness(int pixelX, int pixelZ) {
+    private static double getPixelBrightness(Landmask map, int pixelX, int pixelZ) {
         // Bounds checking - return white (ocean) for pixels outside the image
-        if (pixelX < 0 || pixelX >= imageWidth || pixelZ < 0 || pixelZ >= imageHeight) {
+        if (!map.contains(pixelX, pixelZ)) {
             return 255.0;
         }
 
-        // Sample the pixel and calculate brightness
-        int rgb = landmaskImage.getRGB(pixelX, pixelZ);
-        int red = (rgb >> 16) & 0xFF;
-        int green = (rgb >> 8) & 0xFF;
-        int blue = rgb & 0xFF;
-
-        return (red + green + blue) / 3.0;
+        // Sample the pixel's r + g + b and calculate brightness
+        return map.raster().get(pixelX, pixelZ) / 3.0;
     }
 
     public static boolean isLoaded() {
-        return loaded;
+        return current() != null;
+    }
+
+    /**
+     * Get the raster backing the landmask (the fallback map if none was loaded), or null before
+     * the first load and after unloading
+     */
+    @Nullable
+    public static Raster getRaster() {
+        Landmask map = landmask;
+        return map != null ? map.raster() : null;
+    }
+
+    public static int getBlocksPerPixel() {
+        Landmask map = landmask;
+        return map != null ? map.blocksPerPixel() : DEFAULT_BLOCKS_PER_PIXEL;
     }
 
     public static int getWorldWidth() {
-        return imageWidth * BLOCKS_PER_PIXEL;
+        Landmask map = landmask;
+        return map != null ? map.width() * map.blocksPerPixel() : 0;
     }
 
     public static int getWorldHeight() {
-        return imageHeight * BLOCKS_PER_PIXEL;
+        Landmask map = landmask;
+        return map != null ? map.height() * map.blocksPerPixel() : 0;
     }
 }
@@ -0,0 +1,283 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.raster.Raster;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Classifies chunks as open ocean, beyond the map, coastal or inland from the landmask alone,
+ * so chunks that can only be flat ocean floor skip the terrain noise entirely.
+ *
+ * The tree is an implicit quadtree: a pyramid of the minimum and maximum landmask sample under
+ * each node, built once per map load. Its leaves are blocks of pixels, a single pixel unless the
+ * map is so large that the leaf grid would not fit in memory. A query walks down from the root
+ * and stops at any node that is uniform (all ocean or all land) or lies outside the query, so
+ * classifying a chunk touches a handful of nodes wherever it is.
+ *
+ * Chunks are widened by {@link #WARP_MARGIN} before the lookup, so the coastline warp and the
+ * bilinear interpolation of the landmask can never pull land into a chunk classified as ocean.
+ */
+public final class LandmaskQuadtree {
+    public enum ChunkClass {
+        // Entirely outside the landmask image, which counts as endless ocean
+        OUT_OF_BOUNDS,
+        // Every column is past the ocean threshold, so the terrain is the flat ocean floor
+        DEEP_OCEAN,
+        COASTAL,
+        // No column is bright enough for the coast to shape it
+        INLAND;
+
+        public boolean isOpenOcean() {
+            return this == OUT_OF_BOUNDS || this == DEEP_OCEAN;
+        }
+    }
+
+    public static final LandmaskQuadtree EMPTY = new LandmaskQuadtree(0, 0, 0, 1, new short[0][], new short[0][]);
+
+    // Blocks added around each query: the coastline warp moves lookups by up to 12 blocks
+    private static final int WARP_MARGIN = 24;
+
+    // Landmask samples are r + g + b, so thresholds in brightness are tripled
+    private static final int OCEAN_SAMPLE = (int) Math.ceil(MiddleEarthChunkGenerator.OCEAN_BRIGHTNESS_THRESHOLD * 3.0);
+    private static final int INLAND_SAMPLE = (int) Math.floor(MiddleEarthChunkGenerator.COAST_LAND_THRESHOLD * 3.0);
+
+    // Larger maps use leaves of several pixels, to bound the memory of the pyramid
+    private static final long MAX_LEAVES = 1L << 22;
+
+    private static volatile LandmaskQuadtree current = EMPTY;
+
+    private final int imageWidth;
+    private final int imageHeight;
+    private final int leafShift;
+    private final int blocksPerPixel;
+    // Per level (0 = leaves): minimum and maximum sample of each node, row by row
+    private final short[][] minimum;
+    private final short[][] maximum;
+
+    private LandmaskQuadtree(int imageWidth, int imageHeight, int leafShift, int blocksPerPixel,
+                             short[][] minimum, short[][] maximum) {
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.leafShift = leafShift;
+        this.blocksPerPixel = blocksPerPixel;
+        this.minimum = minimum;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Get the quadtree of the currently loaded landmask
+     */
+    public static LandmaskQuadtree get() {
+        return current;
+    }
+
+    /**
+     * Rebuild the tree from the currently loaded landmask. Must be called after the landmask has
+     * been (re)loaded.
+     */
+    public static void rebuild() {
+        LandmaskLoader.Landmask map = LandmaskLoader.current();
+        if (map == null) {
+            current = EMPTY;
+            return;
+        }
+        Raster raster = map.raster();
+
+        long startTime = System.nanoTime();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int leafShift = 0;
+        while ((long) leafCount(width, leafShift) * leafCount(height, leafShift) > MAX_LEAVES) {
+            leafShift++;
+        }
+
+        // Leaves, in parallel over rows of leaves
+        int levelWidth = leafCount(width, leafShift);
+        int levelHeight = leafCount(height, leafShift);
+        int leafSize = 1 << leafShift;
+        short[] leafMin = new short[levelWidth * levelHeight];
+        short[] leafMax = new short[levelWidth * levelHeight];
+        Arrays.fill(leafMin, Short.MAX_VALUE);
+        Arrays.fill(leafMax, Short.MIN_VALUE);
+        int leavesWide = levelWidth;
+        int shift = leafShift;
+        // A tile at a time, so a tiled landmask is decoded once and within its cache budget; each
+        // block folds into the leaves it overlaps, in parallel over rows of leaves
+        raster.forEachBlock(0, 0, width, height, (minX, minZ, maxX, maxZ) ->
+                IntStream.rangeClosed(minZ >> shift, (maxZ - 1) >> shift).parallel().forEach(leafZ -> {
+                    for (int leafX = minX >> shift; leafX <= (maxX - 1) >> shift; leafX++) {
+                        int min = leafMin[leafZ * leavesWide + leafX];
+                        int max = leafMax[leafZ * leavesWide + leafX];
+                        for (int z = Math.max(minZ, leafZ << shift); z < Math.min(maxZ, (leafZ + 1) << shift); z++) {
+                            for (int x = Math.max(minX, leafX << shift); x < Math.min(maxX, (leafX + 1) << shift); x++) {
+                                int sample = raster.get(x, z);
+                                min = Math.min(min, sample);
+                                max = Math.max(max, sample);
+                            }
+                        }
+                        leafMin[leafZ * leavesWide + leafX] = (short) min;
+                        leafMax[leafZ * leavesWide + leafX] = (short) max;
+                    }
+                }));
+
+        // Each level up halves the grid, down to a single root node
+        int levels = 1;
+        while (leafCount(levelWidth, levels - 1) > 1 || leafCount(levelHeight, levels - 1) > 1) {
+            levels++;
+        }
+        short[][] minimum = new short[levels][];
+        short[][] maximum = new short[levels][];
+        minimum[0] = leafMin;
+        maximum[0] = leafMax;
+        for (int level = 1; level < levels; level++) {
+            int childWidth = leafCount(levelWidth, level - 1);
+            int childHeight = leafCount(levelHeight, level - 1);
+            int nodeWidth = (childWidth + 1) >> 1;
+            int nodeHeight = (childHeight + 1) >> 1;
+            short[] childMin = minimum[level - 1];
+            short[] childMax = maximum[level - 1];
+            short[] nodeMin = new short[nodeWidth * nodeHeight];
+            short[] nodeMax = new short[nodeWidth * nodeHeight];
+            for (int z = 0; z < nodeHeight; z++) {
+                for (int x = 0; x < nodeWidth; x++) {
+                    int min = Integer.MAX_VALUE;
+                    int max = Integer.MIN_VALUE;
+                    for (int cz = 2 * z; cz < Math.min(childHeight, 2 * z + 2); cz++) {
+                        for (int cx = 2 * x; cx < Math.min(childWidth, 2 * x + 2); cx++) {
+                            min = Math.min(min, childMin[cz * childWidth + cx]);
+                            max = Math.max(max, childMax[cz * childWidth + cx]);
+                        }
+                    }
+                    nodeMin[z * nodeWidth + x] = (short) min;
+                    nodeMax[z * nodeWidth + x] = (short) max;
+                }
+            }
+            minimum[level] = nodeMin;
+            maximum[level] = nodeMax;
+        }
+
+        current = new LandmaskQuadtree(width, height, leafShift, map.blocksPerPixel(), minimum, maximum);
+        LOTRMod.LOGGER.info("Landmask quadtree built ({} levels, leaves of {} pixels) in {} ms",
+                levels, leafSize, (System.nanoTime() - startTime) / 1_000_000L);
+    }
+
+    /**
+     * Number of cells of 2^shift covering a length, rounding up
+     */
+    private static int leafCount(int pixels, int shift) {
+        return (pixels + (1 << shift) - 1) >> shift;
+    }
+
+    /**
+     * Classify a chunk; without a loaded landmask every chunk is coastal
+     */
+    public ChunkClass classify(int chunkX, int chunkZ) {
+        if (minimum.length == 0) {
+            return ChunkClass.COASTAL;
+        }
+
+        int minX = (chunkX << 4) - WARP_MARGIN;
+        int minZ = (chunkZ << 4) - WARP_MARGIN;
+        int maxX = (chunkX << 4) + 15 + WARP_MARGIN;
+        int maxZ = (chunkZ << 4) + 15 + WARP_MARGIN;
+
+        // Pixels read by the bilinear lookups of the widened chunk (see LandmaskLoader.getInterpolatedBrightnessFixed)
+        int halfPixel = 2 * blocksPerPixel;
+        int pixelMinX = Math.floorDiv(2 * minX + imageWidth * blocksPerPixel, halfPixel);
+        int pixelMinZ = Math.floorDiv(2 * minZ + imageHeight * blocksPerPixel, halfPixel);
+        int pixelMaxX = Math.floorDiv(2 * maxX + imageWidth * blocksPerPixel, halfPixel) + 1;
+        int pixelMaxZ = Math.floorDiv(2 * maxZ + imageHeight * blocksPerPixel, halfPixel) + 1;
+
+        if (pixelMaxX < 0 || pixelMaxZ < 0 || pixelMinX >= imageWidth || pixelMinZ >= imageHeight) {
+            return ChunkClass.OUT_OF_BOUNDS;
+        }
+        boolean partlyOutside = pixelMinX < 0 || pixelMinZ < 0 || pixelMaxX >= imageWidth || pixelMaxZ >= imageHeight;
+
+        // Clip to the image, in leaf units
+        int leafMinX = Math.max(0, pixelMinX) >> leafShift;
+        int leafMinZ = Math.max(0, pixelMinZ) >> leafShift;
+        int leafMaxX = Math.min(imageWidth - 1, pixelMaxX) >> leafShift;
+        int leafMaxZ = Math.min(imageHeight - 1, pixelMaxZ) >> leafShift;
+
+        int root = minimum.length - 1;
+        if (allAtLeast(root, 0, 0, leafMinX, leafMinZ, leafMaxX, leafMaxZ, OCEAN_SAMPLE)) {
+            return ChunkClass.DEEP_OCEAN;
+        }
+        if (!partlyOutside && allAtMost(root, 0, 0, leafMinX, leafMinZ, leafMaxX, leafMaxZ, INLAND_SAMPLE)) {
+            return ChunkClass.INLAND;
+        }
+        return ChunkClass.COASTAL;
+    }
+
+    /**
+     * Check that every leaf of a node that lies in the query has a minimum of at least the threshold
+     */
+    private boolean allAtLeast(int level, int nodeX, int nodeZ, int minX, int minZ, int maxX, int maxZ, int threshold) {
+        int nodeMinX = nodeX << level;
+        int nodeMinZ = nodeZ << level;
+        int nodeMaxX = nodeMinX + (1 << level) - 1;
+        int nodeMaxZ = nodeMinZ + (1 << level) - 1;
+        if (nodeMaxX < minX || nodeMaxZ < minZ || nodeMinX > maxX || nodeMinZ > maxZ) {
+            return true;
+        }
+
+        int nodeWidth = levelWidth(level);
+        if (nodeX >= nodeWidth || nodeZ >= levelHeight(level)) {
+            return true;
+        }
+        if (minimum[level][nodeZ * nodeWidth + nodeX] >= threshold) {
+            return true;
+        }
+        if (level == 0 || maximum[level][nodeZ * nodeWidth + nodeX] < threshold) {
+            return false;
+        }
+
+        for (int child = 0; child < 4; child++) {
+            if (!allAtLeast(level - 1, 2 * nodeX + (child & 1), 2 * nodeZ + (child >> 1), minX, minZ, maxX, maxZ, threshold)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that every leaf of a node that lies in the query has a maximum of at most the threshold
+     */
+    private boolean allAtMost(int level, int nodeX, int nodeZ, int minX, int minZ, int maxX, int maxZ, int threshold) {
+        int nodeMinX = nodeX << level;
+        int nodeMinZ = nodeZ << level;
+        int nodeMaxX = nodeMinX + (1 << level) - 1;
+        int nodeMaxZ = nodeMinZ + (1 << level) - 1;
+        if (nodeMaxX < minX || nodeMaxZ < minZ || nodeMinX > maxX || nodeMinZ > maxZ) {
+            return true;
+        }
+
+        int nodeWidth = levelWidth(level);
+        if (nodeX >= nodeWidth || nodeZ >= levelHeight(level)) {
+            return true;
+        }
+        if (maximum[level][nodeZ * nodeWidth + nodeX] <= threshold) {
+            return true;
+        }
+        if (level == 0 || minimum[level][nodeZ * nodeWidth + nodeX] > threshold) {
+            return false;
+        }
+
+        for (int child = 0; child < 4; child++) {
+            if (!allAtMost(level - 1, 2 * nodeX + (child & 1), 2 * nodeZ + (child >> 1), minX, minZ, maxX, maxZ, threshold)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int levelWidth(int level) {
+        return leafCount(leafCount(imageWidth, leafShift), level);
+    }
+
+    private int levelHeight(int level) {
+        return leafCount(leafCount(imageHeight, leafShift), level);
+    }
+}
@@ -0,0 +1,50 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.raster.HeapRaster;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.neoforged.neoforge.gametest.GameTestHolder;
+import net.neoforged.neoforge.gametest.PrefixGameTestTemplate;
+
+/**
+ * Game tests for the landmask's fixed-point interpolation: it must stay within its tolerance of
+ * the double interpolation at power-of-two scales (exact weights) and at a scale that is not a
+ * power of two (truncated weights), for both size parities. The load-time check only covers the
+ * loaded map's scale with one random map, and quietly falls back to the double version, so a
+ * drift there would otherwise go unnoticed.
+ */
+@GameTestHolder(LOTRMod.MODID)
+@PrefixGameTestTemplate(false)
+public class LandmaskTests {
+    // Random maps per scale and size parity, far more than the load-time check's one
+    private static final int PARITY_MAPS = 32;
+
+    @GameTest(template = "empty")
+    public static void fixedPointMatchesAt4BlocksPerPixel(GameTestHelper helper) {
+        assertFixedPointMatches(helper, 4);
+    }
+
+    @GameTest(template = "empty")
+    public static void fixedPointMatchesAt16BlocksPerPixel(GameTestHelper helper) {
+        assertFixedPointMatches(helper, LandmaskLoader.DEFAULT_BLOCKS_PER_PIXEL);
+    }
+
+    @GameTest(template = "empty")
+    public static void fixedPointMatchesAt24BlocksPerPixel(GameTestHelper helper) {
+        assertFixedPointMatches(helper, 24);
+    }
+
+    private static void assertFixedPointMatches(GameTestHelper helper, int blocksPerPixel) {
+        // Even and odd map sizes put the map centre on a pixel edge or a pixel centre
+        for (int size = 256; size <= 257; size++) {
+            LandmaskLoader.Landmask map = LandmaskLoader.Landmask.of(HeapRaster.filled(size, size, 2, 0), blocksPerPixel, true);
+            for (int seed = 0; seed < PARITY_MAPS; seed++) {
+                helper.assertTrue(LandmaskLoader.fixedPointMatches(map, seed),
+                        "Fixed-point landmask interpolation drifts past its tolerance at " + blocksPerPixel
+                                + " blocks per pixel on a " + size + "x" + size + " map (seed " + seed + "), see the log");
+            }
+        }
+        helper.succeed();
+    }
+}
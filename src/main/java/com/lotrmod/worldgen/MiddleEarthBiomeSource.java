@@ -17,6 +17,7 @@ import net.minecraft.world.level.biome.Climate;
 import net.minecraft.world.level.levelgen.synth.PerlinSimplexNoise;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -43,6 +44,9 @@ public class MiddleEarthBiomeSource extends BiomeSource {
     // Cache mapping LOTRBiome enum to holders from possible_biomes list
     private final Map<LOTRBiome, Holder<Biome>> biomeHolderCache;
 
+    // Reverse of biomeHolderCache, for reading LOTR biomes back out of chunk biome containers
+    private final Map<Holder<Biome>, LOTRBiome> holderBiomeCache;
+
     // Noise generator for biome selection within regions
     private final PerlinSimplexNoise biomeNoise;
     private final PerlinSimplexNoise largeBiomeNoise; // Large-scale biome zones
@@ -73,6 +77,9 @@ public class MiddleEarthBiomeSource extends BiomeSource {
             });
         }
 
+        this.holderBiomeCache = new IdentityHashMap<>();
+        biomeHolderCache.forEach((lotrBiome, holder) -> holderBiomeCache.put(holder, lotrBiome));
+
         System.out.println("MiddleEarthBiomeSource: Mapped " + biomeHolderCache.size() + " LOTR biomes from dimension JSON");
 
         // Initialize noise generators for smooth biome transitions
@@ -99,6 +106,9 @@ public class MiddleEarthBiomeSource extends BiomeSource {
 
     @Override
     public Holder<Biome> getNoiseBiome(int x, int y, int z, Climate.Sampler sampler) {
+        // The biome stage is the first to read the maps
+        WorldGenMaps.awaitLoaded();
+
         // Convert from biome coordinates to world coordinates
         // Biome coordinates are in 4x4x4 blocks (so << 2 = * 4)
         int worldX = x << 2;
@@ -107,8 +117,8 @@ public class MiddleEarthBiomeSource extends BiomeSource {
         // Step 0: Check if this is ocean based on landmask
         // Ocean areas (brightness > 200) should use vanilla ocean biome
         if (LandmaskLoader.isLoaded()) {
-            double brightness = LandmaskLoader.getInterpolatedBrightness(worldX, worldZ);
-            if (brightness > 200.0) {
+            int brightness = LandmaskLoader.getInterpolatedBrightnessFixed(worldX, worldZ);
+            if (brightness > 200 << LandmaskLoader.BRIGHTNESS_FRACTION_BITS) {
                 // This is ocean - return vanilla ocean biome
                 return oceanBiome;
             }
@@ -184,6 +194,15 @@ public class MiddleEarthBiomeSource extends BiomeSource {
         return holder != null ? holder : landBiome;
     }
 
+    /**
+     * Map a biome holder (e.g. read from a chunk's biome container) back to its LOTR biome
+     *
+     * @return The LOTR biome, or null for the vanilla fallback biomes
+     */
+    public LOTRBiome getLOTRBiome(Holder<Biome> holder) {
+        return holderBiomeCache.get(holder);
+    }
+
     /**
      * Helper method to get the LOTR biome enum at a position (for terrain generation)
      */
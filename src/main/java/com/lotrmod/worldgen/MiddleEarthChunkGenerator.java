@@ -1,14 +1,24 @@
 package com.lotrmod.worldgen;
 
+import com.lotrmod.LOTRConfig;
 import com.lotrmod.LOTRMod;
-import com.lotrmod.block.ModBlocks;
 import com.lotrmod.worldgen.biome.LOTRBiome;
+import com.lotrmod.worldgen.biome.SurfaceProfiles;
+import com.lotrmod.worldgen.biome.TerrainProfiles;
+import com.lotrmod.worldgen.erosion.ErosionField;
+import com.lotrmod.worldgen.noise.NoiseEngine;
+import com.lotrmod.worldgen.noise.TerrainNoise;
+import com.lotrmod.worldgen.structure.Landmarks;
+import com.lotrmod.worldgen.structure.TreeDecorator;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.Util;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Holder;
 import net.minecraft.core.HolderGetter;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.core.SectionPos;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.server.level.WorldGenRegion;
 import net.minecraft.util.KeyDispatchDataCodec;
@@ -16,22 +26,30 @@ import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.LevelHeightAccessor;
 import net.minecraft.world.level.NoiseColumn;
 import net.minecraft.world.level.StructureManager;
+import net.minecraft.world.level.WorldGenLevel;
 import net.minecraft.world.level.chunk.ChunkGeneratorStructureState;
-import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.biome.BiomeManager;
 import net.minecraft.world.level.biome.BiomeSource;
 import net.minecraft.world.level.biome.Biomes;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.chunk.ChunkGenerator;
+import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.level.levelgen.*;
 import net.minecraft.world.level.levelgen.blending.Blender;
-import net.minecraft.world.level.levelgen.synth.PerlinSimplexNoise;
+import net.minecraft.world.level.levelgen.structure.StructureSet;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
 
 /**
  * Custom chunk generator that creates terrain based on the Middle-earth landmask
@@ -48,55 +66,98 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
     );
 
     private final Holder<NoiseGeneratorSettings> settings;
-    private final PerlinSimplexNoise coastlineNoise;
-    private final PerlinSimplexNoise terrainNoise;
-    private final PerlinSimplexNoise detailNoise;
 
-    // Additional noise generators for multi-scale coastline generation
-    private final PerlinSimplexNoise largeScaleCoastNoise;   // Major coastal shapes
-    private final PerlinSimplexNoise mediumScaleCoastNoise;  // Bays and peninsulas
-    private final PerlinSimplexNoise smallScaleCoastNoise;   // Detailed coastline jaggedness
+    // Terrain noise for the configured engine, built on first use; the seeded engine is built
+    // again once the world seed is known
+    private volatile TerrainNoise noise;
+    private long worldSeed;
+
+    private final ChunkColumnCache columnCache = new ChunkColumnCache(COLUMN_CACHE_CAPACITY);
+
+    // Shared base column arrays, indexed by terrain height above the bottom of the level
+    private record BaseColumns(int minY, AtomicReferenceArray<BlockState[]> states) {
+    }
+    private volatile BaseColumns baseColumns;
+
+    private final CaveCarver caveCarver;
+
+    // Mountain erosion deltas, built in the background for the maps of the given region index generation; heights wait for them
+    private volatile CompletableFuture<ErosionField> erosion;
+    private volatile int erosionGeneration;
 
     // Sea level for the world
-    private static final int SEA_LEVEL = 63;
+    static final int SEA_LEVEL = 63;
+
+    // Returned by getLandingY for columns that have no safe landing spot
+    public static final int NO_SAFE_LANDING = Integer.MIN_VALUE;
+
+    // Surface layers (top-down) used when a column has no LOTR biome
+    private static final BlockState[] FALLBACK_LAND_LAYERS = surfaceLayers(Blocks.GRASS_BLOCK, Blocks.DIRT);
+    private static final BlockState[] FALLBACK_SHORE_LAYERS = surfaceLayers(Blocks.SAND, Blocks.DIRT);
+    private static final BlockState[] FALLBACK_SEABED_LAYERS = surfaceLayers(Blocks.GRAVEL, Blocks.STONE);
+
+    // Cached column heights shared between generation stages
+    private static final int COLUMN_CACHE_CAPACITY = 1024;
 
     // ========================================
     // TERRAIN GENERATION TUNING PARAMETERS
     // ========================================
 
-    private static final double LANDMASK_INFLUENCE_STRENGTH = 0.6;
-    private static final double LANDMASK_HEIGHT_BIAS = 15.0;
-    private static final double OCEAN_BRIGHTNESS_THRESHOLD = 220.0;
+    static final double LANDMASK_INFLUENCE_STRENGTH = 0.6;
+    static final double LANDMASK_HEIGHT_BIAS = 15.0;
+
+    // Coastal transition by landmask brightness: flatten high ground above the land threshold,
+    // blend down to the ocean floor from the transition start, flat ocean floor past the ocean threshold
+    static final double COAST_LAND_THRESHOLD = 120.0;
+    static final double COAST_TRANSITION_START = 140.0;
+    static final double OCEAN_BRIGHTNESS_THRESHOLD = 220.0;
+    static final double COAST_HEIGHT_CAP = SEA_LEVEL + 20;
+    static final double OCEAN_FLOOR_HEIGHT = SEA_LEVEL - 15;
+    static final int OCEAN_FLOOR_Y = (int) Math.round(OCEAN_FLOOR_HEIGHT);
+
+    // Biome heights are blended across a 32-block grid with smoothstep weights, tabled per offset
+    private static final int BLEND_GRID_SHIFT = 5;
+    private static final int BLEND_GRID_SIZE = 1 << BLEND_GRID_SHIFT;
+    private static final double[] BLEND_WEIGHTS = createBlendWeights();
+
+    // Scratch planes for chunk-wide and single-column height composition
+    private static final ThreadLocal<HeightPlane> CHUNK_PLANE = ThreadLocal.withInitial(() -> new HeightPlane(HeightPlane.COLUMNS));
+    private static final ThreadLocal<HeightPlane> COLUMN_PLANE = ThreadLocal.withInitial(() -> new HeightPlane(1));
 
     // ========================================
     // MULTI-SCALE NOISE PARAMETERS
     // ========================================
 
     private static final double LARGE_SCALE_WAVELENGTH = 1200.0;
-    private static final double LARGE_SCALE_AMPLITUDE = 25.0;
+    static final double LARGE_SCALE_AMPLITUDE = 25.0;
 
     private static final double MEDIUM_SCALE_WAVELENGTH = 300.0;
-    private static final double MEDIUM_SCALE_AMPLITUDE = 15.0;
+    static final double MEDIUM_SCALE_AMPLITUDE = 15.0;
 
     private static final double SMALL_SCALE_WAVELENGTH = 40.0;
-    private static final double SMALL_SCALE_AMPLITUDE = 8.0;
+    static final double SMALL_SCALE_AMPLITUDE = 8.0;
 
     private static final double DETAIL_SCALE_WAVELENGTH = 10.0;
-    private static final double DETAIL_SCALE_AMPLITUDE = 3.0;
+    static final double DETAIL_SCALE_AMPLITUDE = 3.0;
 
     public MiddleEarthChunkGenerator(BiomeSource biomeSource, Holder<NoiseGeneratorSettings> settings) {
         super(biomeSource);
         this.settings = settings;
+        this.caveCarver = new CaveCarver(RandomSource.create(67890));
+    }
 
-        RandomSource random = RandomSource.create(12345);
-        this.coastlineNoise = new PerlinSimplexNoise(random, List.of(0, 1, 2, 3));
-        this.terrainNoise = new PerlinSimplexNoise(random, List.of(0, 1, 2));
-        this.detailNoise = new PerlinSimplexNoise(random, List.of(0, 1));
+    private static double[] createBlendWeights() {
+        double[] weights = new double[BLEND_GRID_SIZE];
+        for (int offset = 0; offset < BLEND_GRID_SIZE; offset++) {
+            double f = (double) offset / BLEND_GRID_SIZE;
+            weights[offset] = f * f * (3.0 - 2.0 * f);
+        }
+        return weights;
+    }
 
-        RandomSource coastRandom = RandomSource.create(54321);
-        this.largeScaleCoastNoise = new PerlinSimplexNoise(coastRandom, List.of(0, 1, 2, 3, 4));
-        this.mediumScaleCoastNoise = new PerlinSimplexNoise(coastRandom, List.of(0, 1, 2, 3));
-        this.smallScaleCoastNoise = new PerlinSimplexNoise(coastRandom, List.of(0, 1, 2));
+    private static BlockState[] surfaceLayers(Block surface, Block under) {
+        BlockState underState = under.defaultBlockState();
+        return new BlockState[]{surface.defaultBlockState(), underState, underState, underState};
     }
 
     @Override
@@ -104,6 +165,42 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
         return CODEC;
     }
 
+    @Override
+    public ChunkGeneratorStructureState createState(HolderLookup<StructureSet> structureSets, RandomState randomState, long seed) {
+        // Called once when the level's chunk source is created, before anything generates
+        useWorldSeed(seed);
+        return super.createState(structureSets, randomState, seed);
+    }
+
+    /**
+     * Remember the seed of the world this generator belongs to, rebuilding the seeded noise (and
+     * dropping anything computed from it) if it was built for another seed
+     */
+    private synchronized void useWorldSeed(long seed) {
+        if (seed == worldSeed) {
+            return;
+        }
+        worldSeed = seed;
+        if (noise != null && LOTRConfig.NOISE_ENGINE.get() == NoiseEngine.SEEDED) {
+            noise = null;
+            releaseCaches();
+        }
+    }
+
+    private TerrainNoise getNoise() {
+        TerrainNoise current = noise;
+        if (current == null) {
+            synchronized (this) {
+                current = noise;
+                if (current == null) {
+                    current = TerrainNoise.create(LOTRConfig.NOISE_ENGINE.get(), worldSeed);
+                    noise = current;
+                }
+            }
+        }
+        return current;
+    }
+
     @Override
     public void createStructures(net.minecraft.core.RegistryAccess registryAccess, ChunkGeneratorStructureState chunkGeneratorStructureState, StructureManager structureManager, ChunkAccess chunk, net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplateManager structureTemplateManager) {
         // COMPLETELY DISABLE ALL VANILLA STRUCTURE GENERATION
@@ -112,101 +209,168 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
 
     @Override
     public void applyCarvers(WorldGenRegion level, long seed, RandomState random, BiomeManager biomeManager, StructureManager structureManager, ChunkAccess chunk, GenerationStep.Carving step) {
-        // Disabled - using custom terrain generation
+        // Vanilla carvers are replaced by our own cave carver, on the stone laid down by doFill
+        if (step == GenerationStep.Carving.AIR) {
+            long startNanos = System.nanoTime();
+            long startBytes = AllocationBudgets.allocatedBytes();
+            caveCarver.carve(chunk, getFilledColumns(chunk));
+            GenerationTimings.record(GenerationTimings.Phase.CARVERS, chunk.getPos(), startNanos, startBytes);
+        }
     }
 
     @Override
     public void buildSurface(WorldGenRegion level, StructureManager structureManager, RandomState random, ChunkAccess chunk) {
-        ChunkPos chunkPos = chunk.getPos();
-        int startX = chunkPos.getMinBlockX();
-        int startZ = chunkPos.getMinBlockZ();
+        long startNanos = System.nanoTime();
+        long startBytes = AllocationBudgets.allocatedBytes();
+        this.doSurface(chunk);
+        GenerationTimings.record(GenerationTimings.Phase.SURFACE, chunk.getPos(), startNanos, startBytes);
+    }
 
-        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+    /**
+     * Heights of the stone the fill stage wrote into a chunk: its column cache entry, or if that
+     * has been evicted (or the chunk was filled in an earlier session) the chunk's OCEAN_FLOOR_WG
+     * heightmap. Never recomputed, so later stages always see the terrain that is actually there.
+     */
+    private ChunkColumnCache.ColumnData getFilledColumns(ChunkAccess chunk) {
+        ChunkColumnCache.ColumnData columns = columnCache.get(chunk.getPos().toLong());
+        if (columns != null) {
+            return columns;
+        }
 
+        columns = new ChunkColumnCache.ColumnData();
         for (int x = 0; x < 16; x++) {
             for (int z = 0; z < 16; z++) {
-                int worldX = startX + x;
-                int worldZ = startZ + z;
-                int terrainHeight = getTerrainHeight(worldX, worldZ);
+                columns.setHeight(ChunkColumnCache.ColumnData.index(x, z), chunk.getHeight(Heightmap.Types.OCEAN_FLOOR_WG, x, z));
+            }
+        }
+        return columns;
+    }
 
-                LOTRBiome biome = getBiomeAt(worldX, worldZ);
+    private void doSurface(ChunkAccess chunk) {
+        ChunkPos chunkPos = chunk.getPos();
+        int minY = chunk.getMinBuildHeight();
+        int maxY = chunk.getMaxBuildHeight() - 1;
 
-                for (int y = chunk.getMaxBuildHeight() - 1; y >= chunk.getMinBuildHeight(); y--) {
-                    pos.set(startX + x, y, startZ + z);
-                    BlockState state = chunk.getBlockState(pos);
+        SurfaceProfiles.Tables surfaceTables = SurfaceProfiles.tables();
+        MiddleEarthBiomeSource middleEarthSource = this.getBiomeSource() instanceof MiddleEarthBiomeSource source ? source : null;
 
-                    if (state.is(Blocks.STONE)) {
-                        BlockState surfaceBlock = getSurfaceBlockForBiome(biome, terrainHeight);
-                        BlockState underBlock = getUnderBlockForBiome(biome, terrainHeight);
+        // Heights come from the fill stage, so there is no need to scan down from the build limit
+        ChunkColumnCache.ColumnData columns = getFilledColumns(chunk);
 
-                        chunk.setBlockState(pos, surfaceBlock, false);
-                        pos.setY(y - 1);
-                        chunk.setBlockState(pos, underBlock, false);
-                        pos.setY(y - 2);
-                        chunk.setBlockState(pos, underBlock, false);
-                        pos.setY(y - 3);
-                        chunk.setBlockState(pos, underBlock, false);
+        // Resolve the surface layers of every column up front: top Y, depth and states
+        int[] topY = new int[256];
+        int[] bottomY = new int[256];
+        BlockState[][] layers = new BlockState[256][];
+        int highestTop = Integer.MIN_VALUE;
+        int lowestBottom = Integer.MAX_VALUE;
 
-                        break;
-                    }
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                int column = ChunkColumnCache.ColumnData.index(x, z);
+                int terrainHeight = columns.heights[column];
+                int top = Math.min(terrainHeight, maxY);
+                if (top < minY) {
+                    continue;
                 }
+
+                // The region's LOTR biome, not the chunk's biome container: ocean quarts hold the
+                // vanilla ocean biome, but coasts and sea floors are surfaced by their region
+                LOTRBiome biome = middleEarthSource != null
+                        ? middleEarthSource.getLOTRBiomeAt(chunkPos.getMinBlockX() + x, chunkPos.getMinBlockZ() + z)
+                        : null;
+
+                BlockState[] columnLayers = getSurfaceLayers(biome, terrainHeight, surfaceTables);
+                layers[column] = columnLayers;
+                topY[column] = top;
+                bottomY[column] = Math.max(minY, top - columnLayers.length + 1);
+                highestTop = Math.max(highestTop, top);
+                lowestBottom = Math.min(lowestBottom, bottomY[column]);
             }
         }
-    }
 
-    private BlockState getSurfaceBlockForBiome(LOTRBiome biome, int terrainHeight) {
-        if (biome == null) {
-            return terrainHeight >= 68 ? Blocks.GRASS_BLOCK.defaultBlockState() :
-                   terrainHeight >= 60 ? Blocks.SAND.defaultBlockState() :
-                   Blocks.GRAVEL.defaultBlockState();
+        if (highestTop == Integer.MIN_VALUE) {
+            return;
         }
 
-        return switch (biome) {
-            case HARAD_DESERT -> Blocks.SAND.defaultBlockState();
-            case ROHAN_GRASSLAND, RHUN_GRASSLAND, EASTERN_RHOVANIAN_GRASSLAND,
-                 HARAD_SAVANNA, LINDON_MEADOW -> Blocks.GRASS_BLOCK.defaultBlockState();
-            case ARNOR_MARSH, VALE_OF_ANDUIN_FLOODPLAINS -> Blocks.MUD.defaultBlockState();
-            case ANDUIN_RIVER, CELDUIN_RIVER -> ModBlocks.SILT.get().defaultBlockState();
-            case BLUE_MOUNTAINS, MISTY_MOUNTAINS, GREY_MOUNTAINS,
-                 WHITE_MOUNTAINS, EREBOR, FORODWAITH_ICY_MOUNTAINS -> Blocks.STONE.defaultBlockState();
-            case MOUNTAINS_OF_SHADOW -> ModBlocks.STONE_TYPES.get("volcanic_stone").stone.get().defaultBlockState();
-            case IRON_HILLS -> Blocks.GRAVEL.defaultBlockState();
-            case MORDOR_VOLCANIC_WASTE -> ModBlocks.VOLCANIC_ASH_BLOCK.get().defaultBlockState();
-            case MIRKWOOD -> Blocks.COARSE_DIRT.defaultBlockState();
-            case DEAD_LANDS_EMPTY -> ModBlocks.CRACKED_MUD.get().defaultBlockState();
-            case FORODWAITH_TUNDRA, FORODWAITH_ROCKY_BARRENS -> ModBlocks.FROZEN_DIRT.get().defaultBlockState();
-            case RHUN_SHRUBLANDS, EASTERN_RHOVANIAN_SHRUBLANDS -> ModBlocks.CRACKED_MUD.get().defaultBlockState();
-            default -> Blocks.GRASS_BLOCK.defaultBlockState();
-        };
+        // Write section by section so each section is locked once
+        forEachSection(chunk.getSectionIndex(lowestBottom), chunk.getSectionIndex(highestTop), UrgentChunks.isUrgent(chunkPos), sectionIndex -> {
+            LevelChunkSection section = chunk.getSection(sectionIndex);
+            int sectionMinY = SectionPos.sectionToBlockCoord(chunk.getSectionYFromSectionIndex(sectionIndex));
+            int sectionMaxY = sectionMinY + 15;
+
+            section.acquire();
+            try {
+                for (int x = 0; x < 16; x++) {
+                    for (int z = 0; z < 16; z++) {
+                        int column = ChunkColumnCache.ColumnData.index(x, z);
+                        BlockState[] columnLayers = layers[column];
+                        if (columnLayers == null) {
+                            continue;
+                        }
+
+                        int from = Math.min(topY[column], sectionMaxY);
+                        int to = Math.max(bottomY[column], sectionMinY);
+                        for (int y = from; y >= to; y--) {
+                            section.setBlockState(x, y - sectionMinY, z, columnLayers[topY[column] - y], false);
+                        }
+                    }
+                }
+            } finally {
+                section.release();
+            }
+        });
+    }
+
+    /**
+     * Run a task for each section index in a range: as fork-join subtasks for a chunk a player is
+     * waiting on, otherwise in order on the calling thread. Sections lock independently, so the
+     * tasks never contend.
+     */
+    private static void forEachSection(int fromIndex, int toIndex, boolean parallel, IntConsumer task) {
+        if (parallel) {
+            IntStream.rangeClosed(fromIndex, toIndex).parallel().forEach(task);
+        } else {
+            for (int sectionIndex = fromIndex; sectionIndex <= toIndex; sectionIndex++) {
+                task.accept(sectionIndex);
+            }
+        }
     }
 
-    private BlockState getLiquidForBiome(LOTRBiome biome) {
-        if (biome == null) {
-            return Blocks.WATER.defaultBlockState();
+    /**
+     * Get the surface block followed by the sub-surface layers for a column, top-down.
+     * The returned arrays are shared and must not be modified.
+     */
+    private BlockState[] getSurfaceLayers(LOTRBiome biome, int terrainHeight, SurfaceProfiles.Tables surfaceTables) {
+        if (biome != null) {
+            // Compiled tables: a single array read
+            return surfaceTables.columnLayers[biome.ordinal()];
         }
 
-        return switch (biome) {
-            case MORDOR_VOLCANIC_WASTE, MOUNTAINS_OF_SHADOW -> Blocks.LAVA.defaultBlockState();
-            case FORODWAITH_TUNDRA, FORODWAITH_ICY_MOUNTAINS, FORODWAITH_ROCKY_BARRENS -> Blocks.ICE.defaultBlockState();
-            default -> Blocks.WATER.defaultBlockState();
-        };
+        // No LOTR biome (vanilla fallback biome): pick by height like a beach/ocean floor
+        return terrainHeight >= 68 ? FALLBACK_LAND_LAYERS :
+               terrainHeight >= 60 ? FALLBACK_SHORE_LAYERS :
+               FALLBACK_SEABED_LAYERS;
     }
 
-    private BlockState getUnderBlockForBiome(LOTRBiome biome, int terrainHeight) {
-        if (biome == null) {
-            return terrainHeight >= 60 ? Blocks.DIRT.defaultBlockState() : Blocks.STONE.defaultBlockState();
-        }
+    private BlockState getLiquidForBiome(LOTRBiome biome, SurfaceProfiles.Tables surfaceTables) {
+        return biome == null ? Blocks.WATER.defaultBlockState() : surfaceTables.liquid[biome.ordinal()];
+    }
 
-        return switch (biome) {
-            case HARAD_DESERT -> Blocks.SAND.defaultBlockState();
-            case ARNOR_MARSH, VALE_OF_ANDUIN_FLOODPLAINS -> Blocks.MUD.defaultBlockState();
-            case ANDUIN_RIVER, CELDUIN_RIVER -> ModBlocks.SILT.get().defaultBlockState();
-            case MOUNTAINS_OF_SHADOW -> ModBlocks.STONE_TYPES.get("volcanic_stone").stone.get().defaultBlockState();
-            case BLUE_MOUNTAINS, MISTY_MOUNTAINS, GREY_MOUNTAINS, WHITE_MOUNTAINS,
-                 EREBOR, FORODWAITH_ICY_MOUNTAINS, IRON_HILLS -> Blocks.STONE.defaultBlockState();
-            case MORDOR_VOLCANIC_WASTE -> ModBlocks.VOLCANIC_ASH_BLOCK.get().defaultBlockState();
-            default -> Blocks.DIRT.defaultBlockState();
-        };
+    @Override
+    public void applyBiomeDecoration(WorldGenLevel level, ChunkAccess chunk, StructureManager structureManager) {
+        long startNanos = System.nanoTime();
+        long startBytes = AllocationBudgets.allocatedBytes();
+        super.applyBiomeDecoration(level, chunk, structureManager);
+
+        // Landmarks write only their slice for this chunk
+        Landmarks.place(chunk, this::getLandmarkSeatHeight);
+
+        // Keep trees (and their canopies) out of landmarks
+        if (this.getBiomeSource() instanceof MiddleEarthBiomeSource middleEarthSource
+                && !Landmarks.isNearLandmark(chunk.getPos(), 1, this::getLandmarkSeatHeight)) {
+            TreeDecorator.decorate(level, chunk, columnCache.get(chunk.getPos().toLong()), middleEarthSource);
+        }
+        GenerationTimings.record(GenerationTimings.Phase.DECORATION, chunk.getPos(), startNanos, startBytes);
     }
 
     @Override
@@ -221,7 +385,11 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
     @Override
     public CompletableFuture<ChunkAccess> fillFromNoise(Blender blender, RandomState random, StructureManager structureManager, ChunkAccess chunk) {
         return CompletableFuture.supplyAsync(() -> {
+            WorldGenMaps.awaitLoaded();
+            long startNanos = System.nanoTime();
+            long startBytes = AllocationBudgets.allocatedBytes();
             this.doFill(chunk);
+            GenerationTimings.record(GenerationTimings.Phase.FILL, chunk.getPos(), startNanos, startBytes);
             return chunk;
         });
     }
@@ -230,41 +398,299 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
         ChunkPos chunkPos = chunk.getPos();
         int startX = chunkPos.getMinBlockX();
         int startZ = chunkPos.getMinBlockZ();
+        int minY = chunk.getMinBuildHeight();
+        int maxY = chunk.getMaxBuildHeight() - 1;
 
-        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        // A player waiting on this chunk gets its work split across cores
+        boolean urgent = UrgentChunks.isUrgent(chunkPos);
 
+        // Heights for all 256 columns, shared with the later stages through the column cache
+        ChunkColumnCache.ColumnData columns = getOrComputeColumns(chunkPos, urgent);
+        if (columns.prefetched) {
+            columns.prefetched = false;
+            ColumnPrefetcher.recordUsed();
+        }
+
+        SurfaceProfiles.Tables surfaceTables = SurfaceProfiles.tables();
+        BlockState[] liquids = new BlockState[256];
+        // Strata and ores are chosen while the stone is written, not in a later feature pass
+        StrataPalette palette = StrataPalette.forChunk(chunkPos);
+        BlockState oceanLiquid = columns.minHeight == OCEAN_FLOOR_Y && columns.maxHeight == OCEAN_FLOOR_Y
+                && !palette.hasStrata() && isOpenOcean(chunkPos) ? getUniformLiquid(startX, startZ, surfaceTables) : null;
+
+        if (oceanLiquid != null) {
+            // Open ocean: stamp the prebuilt sections instead of writing block by block
+            Arrays.fill(liquids, oceanLiquid);
+            OceanTemplate.get(chunk, oceanLiquid).stamp(chunk);
+            placeBedrockAndOres(chunk, palette, OCEAN_FLOOR_Y);
+        } else {
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    int column = ChunkColumnCache.ColumnData.index(x, z);
+                    if (columns.heights[column] < SEA_LEVEL) {
+                        LOTRBiome biome = getBiomeAt(startX + x, startZ + z);
+                        liquids[column] = getLiquidForBiome(biome, surfaceTables);
+                    }
+                }
+            }
+            fillSections(chunk, columns, liquids, palette, urgent);
+        }
+
+        // Section writes bypass the chunk, so keep the worldgen heightmaps in step ourselves
+        BlockState stone = Blocks.STONE.defaultBlockState();
+        Heightmap oceanFloor = chunk.getOrCreateHeightmapUnprimed(Heightmap.Types.OCEAN_FLOOR_WG);
+        Heightmap worldSurface = chunk.getOrCreateHeightmapUnprimed(Heightmap.Types.WORLD_SURFACE_WG);
         for (int x = 0; x < 16; x++) {
             for (int z = 0; z < 16; z++) {
-                int worldX = startX + x;
-                int worldZ = startZ + z;
-
-                int height = getTerrainHeight(worldX, worldZ);
+                int column = ChunkColumnCache.ColumnData.index(x, z);
+                int height = Math.min(columns.heights[column], maxY);
+                if (height >= minY) {
+                    oceanFloor.update(x, height, z, stone);
+                    worldSurface.update(x, height, z, stone);
+                }
+                if (liquids[column] != null) {
+                    oceanFloor.update(x, SEA_LEVEL, z, liquids[column]);
+                    worldSurface.update(x, SEA_LEVEL, z, liquids[column]);
+                }
+            }
+        }
+    }
 
-                for (int y = chunk.getMinBuildHeight(); y <= Math.min(height, chunk.getMaxBuildHeight() - 1); y++) {
-                    pos.set(startX + x, y, startZ + z);
+    /**
+     * Write stone, strata, ores and liquids into the sections of a chunk up to the given column heights
+     */
+    private static void fillSections(ChunkAccess chunk, ChunkColumnCache.ColumnData columns, BlockState[] liquids,
+                                     StrataPalette palette, boolean parallel) {
+        int topY = Math.min(Math.max(columns.maxHeight, SEA_LEVEL), chunk.getMaxBuildHeight() - 1);
+        int topIndex = chunk.getSectionIndex(topY);
+
+        // Write section by section so each section is locked once
+        if (parallel) {
+            // Each subtask lays out its ores in its own scratch array
+            IntStream.rangeClosed(0, topIndex).parallel().forEach(sectionIndex ->
+                    fillSection(chunk, sectionIndex, columns, liquids, palette, new BlockState[16 * 16 * 16]));
+        } else {
+            BlockState[] ores = new BlockState[16 * 16 * 16];
+            for (int sectionIndex = 0; sectionIndex <= topIndex; sectionIndex++) {
+                fillSection(chunk, sectionIndex, columns, liquids, palette, ores);
+            }
+        }
+    }
 
-                    if (y <= chunk.getMinBuildHeight() + 5) {
-                        if (y == chunk.getMinBuildHeight() || (y <= chunk.getMinBuildHeight() + 4 && Math.random() < 0.8)) {
-                            chunk.setBlockState(pos, Blocks.BEDROCK.defaultBlockState(), false);
+    /**
+     * Fill one section; the ore scratch array is left cleared for the next section
+     */
+    private static void fillSection(ChunkAccess chunk, int sectionIndex, ChunkColumnCache.ColumnData columns,
+                                    BlockState[] liquids, StrataPalette palette, BlockState[] ores) {
+        int minY = chunk.getMinBuildHeight();
+        int maxY = chunk.getMaxBuildHeight() - 1;
+        BlockState bedrock = Blocks.BEDROCK.defaultBlockState();
+
+        LevelChunkSection section = chunk.getSection(sectionIndex);
+        int sectionY = chunk.getSectionYFromSectionIndex(sectionIndex);
+        int sectionMinY = SectionPos.sectionToBlockCoord(sectionY);
+        boolean hasOres = sectionMinY <= columns.maxHeight && palette.placeOres(sectionY, ores);
+
+        section.acquire();
+        try {
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    int column = ChunkColumnCache.ColumnData.index(x, z);
+                    int height = Math.min(columns.heights[column], maxY);
+                    BlockState liquid = liquids[column];
+
+                    for (int localY = 0; localY < 16; localY++) {
+                        int y = sectionMinY + localY;
+                        BlockState state;
+                        if (y <= height) {
+                            boolean isBedrock = y == minY || (y <= minY + 4 && palette.isBedrock(x, y, z));
+                            if (isBedrock) {
+                                state = bedrock;
+                            } else {
+                                BlockState ore = hasOres ? ores[(localY << 8) | (z << 4) | x] : null;
+                                state = ore != null ? ore : palette.stoneAt(x, y, z);
+                            }
+                        } else if (liquid != null && y <= SEA_LEVEL) {
+                            state = liquid;
                         } else {
-                            chunk.setBlockState(pos, Blocks.STONE.defaultBlockState(), false);
+                            break;
                         }
-                    } else {
-                        chunk.setBlockState(pos, Blocks.STONE.defaultBlockState(), false);
+                        section.setBlockState(x, localY, z, state, false);
                     }
                 }
+            }
+        } finally {
+            section.release();
+        }
+        if (hasOres) {
+            StrataPalette.clear(ores);
+        }
+    }
 
-                if (height < SEA_LEVEL) {
-                    LOTRBiome biome = getBiomeAt(worldX, worldZ);
-                    BlockState liquidState = getLiquidForBiome(biome);
+    /**
+     * Write a chunk's own bedrock pattern and ore veins over stamped stone that reaches up to floorY,
+     * matching what {@link #fillSections} would have placed
+     */
+    private static void placeBedrockAndOres(ChunkAccess chunk, StrataPalette palette, int floorY) {
+        int minY = chunk.getMinBuildHeight();
+        BlockState bedrock = Blocks.BEDROCK.defaultBlockState();
+        BlockState[] ores = new BlockState[16 * 16 * 16];
+
+        for (int sectionIndex = 0; sectionIndex <= chunk.getSectionIndex(floorY); sectionIndex++) {
+            int sectionY = chunk.getSectionYFromSectionIndex(sectionIndex);
+            int sectionMinY = SectionPos.sectionToBlockCoord(sectionY);
+            boolean hasOres = palette.placeOres(sectionY, ores);
+            boolean hasBedrock = sectionMinY <= minY + 4;
+            if (!hasOres && !hasBedrock) {
+                continue;
+            }
 
-                    for (int y = height + 1; y <= SEA_LEVEL; y++) {
-                        pos.set(startX + x, y, startZ + z);
-                        chunk.setBlockState(pos, liquidState, false);
+            LevelChunkSection section = chunk.getSection(sectionIndex);
+            int topLocalY = Math.min(15, floorY - sectionMinY);
+            section.acquire();
+            try {
+                for (int localY = 0; localY <= topLocalY; localY++) {
+                    int y = sectionMinY + localY;
+                    if (y == minY) {
+                        // Already bedrock in the template
+                        continue;
+                    }
+                    for (int z = 0; z < 16; z++) {
+                        for (int x = 0; x < 16; x++) {
+                            if (y <= minY + 4 && palette.isBedrock(x, y, z)) {
+                                section.setBlockState(x, localY, z, bedrock, false);
+                            } else if (hasOres && ores[(localY << 8) | (z << 4) | x] != null) {
+                                section.setBlockState(x, localY, z, ores[(localY << 8) | (z << 4) | x], false);
+                            }
+                        }
                     }
                 }
+            } finally {
+                section.release();
+            }
+            if (hasOres) {
+                StrataPalette.clear(ores);
+            }
+        }
+    }
+
+    /**
+     * Check whether a chunk can only be flat ocean floor: open ocean on the landmask quadtree,
+     * with no eroded mountain or river valley reaching into it
+     */
+    private boolean isOpenOcean(ChunkPos chunkPos) {
+        if (!LandmaskQuadtree.get().classify(chunkPos.x, chunkPos.z).isOpenOcean()) {
+            return false;
+        }
+        int startX = chunkPos.getMinBlockX();
+        int startZ = chunkPos.getMinBlockZ();
+        return !getErosion().overlaps(startX, startZ, startX + 15, startZ + 15)
+                && !RiverNetwork.get().overlaps(startX, startZ, startX + 15, startZ + 15);
+    }
+
+    /**
+     * Get the liquid of a chunk's biomes if its corners and centre all agree, else null.
+     * Biomes change over hundreds of blocks, so a chunk whose corners agree is taken to be uniform.
+     */
+    private BlockState getUniformLiquid(int startX, int startZ, SurfaceProfiles.Tables surfaceTables) {
+        BlockState liquid = getLiquidForBiome(getBiomeAt(startX + 8, startZ + 8), surfaceTables);
+        for (int corner = 0; corner < 4; corner++) {
+            LOTRBiome biome = getBiomeAt(startX + (corner & 1) * 15, startZ + (corner >> 1) * 15);
+            if (getLiquidForBiome(biome, surfaceTables) != liquid) {
+                return null;
             }
         }
+        return liquid;
+    }
+
+    /**
+     * Compute and cache the column heights of a chunk ahead of its generation, decoding the map
+     * tiles it reads on the way
+     *
+     * @return Whether anything was computed, false if the chunk's columns were already cached
+     */
+    boolean prefetchColumns(ChunkPos chunkPos) {
+        WorldGenMaps.awaitLoaded();
+        long key = chunkPos.toLong();
+        if (columnCache.contains(key)) {
+            return false;
+        }
+        // Into the cache's prefetch slice, so it cannot evict chunks being generated
+        ChunkColumnCache.ColumnData columns = computeColumns(chunkPos, false);
+        columns.prefetched = true;
+        columnCache.putPrefetched(key, columns);
+        // Region map tiles are only read by the biome lookups
+        getBiomeAt(chunkPos.getMiddleBlockX(), chunkPos.getMiddleBlockZ());
+        return true;
+    }
+
+    /**
+     * Get the terrain heights of all columns in a chunk, from the column cache if the prefetcher
+     * already computed them, sampling the noise in parallel strips of columns if they still have
+     * to be computed and parallel is set
+     */
+    private ChunkColumnCache.ColumnData getOrComputeColumns(ChunkPos chunkPos, boolean parallel) {
+        long key = chunkPos.toLong();
+        ChunkColumnCache.ColumnData columns = columnCache.get(key);
+        if (columns == null) {
+            columns = computeColumns(chunkPos, parallel);
+            columnCache.put(key, columns);
+        }
+        return columns;
+    }
+
+    /**
+     * Compute the terrain heights of all columns in a chunk, without caching them
+     */
+    private ChunkColumnCache.ColumnData computeColumns(ChunkPos chunkPos, boolean parallel) {
+        ChunkColumnCache.ColumnData columns = new ChunkColumnCache.ColumnData();
+        if (isOpenOcean(chunkPos)) {
+            // Nothing but ocean floor, whatever the noise says
+            for (int column = 0; column < HeightPlane.COLUMNS; column++) {
+                columns.setHeight(column, OCEAN_FLOOR_Y);
+            }
+            return columns;
+        }
+
+        int startX = chunkPos.getMinBlockX();
+        int startZ = chunkPos.getMinBlockZ();
+        // A thread joining parallel subtasks may run another chunk's work meanwhile, so the
+        // parallel path never borrows the thread's plane
+        HeightPlane plane = parallel ? new HeightPlane(HeightPlane.COLUMNS) : CHUNK_PLANE.get();
+
+        // Sample the noise of every column, then compose all heights in one pass
+        if (parallel) {
+            // One strip of 16 columns per subtask; strips write disjoint entries of the plane
+            IntStream.range(0, 16).parallel().forEach(x ->
+                    sampleColumns(plane, ChunkColumnCache.ColumnData.index(x, 0), startX + x, startZ, 1, 16));
+        } else {
+            sampleColumns(plane, 0, startX, startZ, 16, 16);
+        }
+        // A chunk never straddles a blend cell, so the corners are looked up once per chunk
+        sampleCorners(plane, startX & -BLEND_GRID_SIZE, startZ & -BLEND_GRID_SIZE);
+        for (int offset = 0; offset < 16; offset++) {
+            plane.weightX[offset] = BLEND_WEIGHTS[(startX + offset) & (BLEND_GRID_SIZE - 1)];
+            plane.weightZ[offset] = BLEND_WEIGHTS[(startZ + offset) & (BLEND_GRID_SIZE - 1)];
+        }
+
+        HeightKernels.get().compose(plane);
+
+        ErosionField erosionField = getErosion();
+        boolean eroded = erosionField.overlaps(startX, startZ, startX + 15, startZ + 15);
+        RiverNetwork rivers = RiverNetwork.get();
+        boolean nearRiver = rivers.overlaps(startX, startZ, startX + 15, startZ + 15);
+
+        for (int column = 0; column < HeightPlane.COLUMNS; column++) {
+            double height = plane.heights[column];
+            if (eroded) {
+                height += erosionField.sample(startX + (column >> 4), startZ + (column & 15));
+            }
+            if (nearRiver) {
+                height = rivers.carve(height, startX + (column >> 4), startZ + (column & 15));
+            }
+            columns.setHeight(column, (int) Math.round(height));
+        }
+        return columns;
     }
 
     /**
@@ -275,6 +701,15 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
         return (int) Math.round(height);
     }
 
+    /**
+     * Height landmarks are seated on: the base terrain, before erosion and river valleys. Landmark
+     * placements are only cached in memory, so the seat must come out the same in every session
+     * that generates a slice of the landmark, whatever else has been generated or loaded first.
+     */
+    private int getLandmarkSeatHeight(int worldX, int worldZ) {
+        return (int) Math.round(getBaseTerrainHeight(worldX, worldZ));
+    }
+
     /**
      * ⚠️ CRITICAL FIX: Calculate terrain height by blending ACTUAL HEIGHTS, not just modifiers
      * 
@@ -287,259 +722,233 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
      * 3. Bilinearly interpolate those HEIGHTS
      * 
      * This ensures smooth transitions because we're blending the END RESULT, not the multipliers.
+     * Whole chunks go through {@link HeightKernel}; this single-column path uses the same scalar
+     * composition, so both always agree.
      */
     private double getTerrainHeightAtBiome(int worldX, int worldZ) {
-        // =====================================
-        // STEP 1: Generate base noise values (ONCE, at query position)
-        // =====================================
-        // Generate all noise values ONCE and store them
-        // We'll apply different biome interpretations to these SAME noise values
-
-        double largeScale = 1.0 / LARGE_SCALE_WAVELENGTH;
-        double largeNoiseRaw = this.largeScaleCoastNoise.getValue(
-            worldX * largeScale,
-            worldZ * largeScale,
-            false
-        );
-
-        double mediumScale = 1.0 / MEDIUM_SCALE_WAVELENGTH;
-        double mediumNoiseRaw = this.mediumScaleCoastNoise.getValue(
-            worldX * mediumScale,
-            worldZ * mediumScale,
-            false
-        );
-
-        double smallScale = 1.0 / SMALL_SCALE_WAVELENGTH;
-        double smallNoiseRaw = this.smallScaleCoastNoise.getValue(
-            worldX * smallScale,
-            worldZ * smallScale,
-            false
-        );
-
-        double detailScale = 1.0 / DETAIL_SCALE_WAVELENGTH;
-        double detailNoiseRaw = this.detailNoise.getValue(
-            worldX * detailScale,
-            worldZ * detailScale,
-            false
-        );
+        double height = getBaseTerrainHeight(worldX, worldZ) + getErosion().sample(worldX, worldZ);
+        return RiverNetwork.get().carve(height, worldX, worldZ);
+    }
 
-        // Mountain-specific noise (normalized 0-1)
-        double mountainNoiseRaw = generateMountainVariationNoiseRaw(worldX, worldZ);
-
-        // Hill-specific noise (returns height in blocks directly)
-        double hillNoiseRaw = generateHillVariationNoiseRaw(worldX, worldZ);
-
-        // =====================================
-        // STEP 2: Get grid cell for biome blending
-        // =====================================
-        final int GRID_SIZE = 32;
-        int x0 = Math.floorDiv(worldX, GRID_SIZE) * GRID_SIZE;
-        int z0 = Math.floorDiv(worldZ, GRID_SIZE) * GRID_SIZE;
-        int x1 = x0 + GRID_SIZE;
-        int z1 = z0 + GRID_SIZE;
-
-        double fx = (double)(worldX - x0) / GRID_SIZE;
-        double fz = (double)(worldZ - z0) / GRID_SIZE;
-
-        // Smoothstep for extra smoothness
-        fx = fx * fx * (3.0 - 2.0 * fx);
-        fz = fz * fz * (3.0 - 2.0 * fz);
-
-        // =====================================
-        // STEP 3: Calculate HEIGHT at each corner using SAME noise
-        // =====================================
-        // ⚠️ KEY FIX: We apply each corner's biome properties to the SAME noise values
-        // This means the underlying terrain features are continuous, only the
-        // interpretation changes smoothly between biomes
-
-        double height00 = calculateHeightForBiome(worldX, worldZ, x0, z0,
-            largeNoiseRaw, mediumNoiseRaw, smallNoiseRaw, detailNoiseRaw,
-            mountainNoiseRaw, hillNoiseRaw);
-
-        double height10 = calculateHeightForBiome(worldX, worldZ, x1, z0,
-            largeNoiseRaw, mediumNoiseRaw, smallNoiseRaw, detailNoiseRaw,
-            mountainNoiseRaw, hillNoiseRaw);
-
-        double height01 = calculateHeightForBiome(worldX, worldZ, x0, z1,
-            largeNoiseRaw, mediumNoiseRaw, smallNoiseRaw, detailNoiseRaw,
-            mountainNoiseRaw, hillNoiseRaw);
-
-        double height11 = calculateHeightForBiome(worldX, worldZ, x1, z1,
-            largeNoiseRaw, mediumNoiseRaw, smallNoiseRaw, detailNoiseRaw,
-            mountainNoiseRaw, hillNoiseRaw);
-
-        // =====================================
-        // STEP 4: Bilinearly interpolate the HEIGHTS (not the modifiers!)
-        // =====================================
-        double baseTerrainHeight = bilinearInterp(height00, height10, height01, height11, fx, fz);
-
-        // =====================================
-        // STEP 5: Add landmask influence
-        // =====================================
-        double landmaskBias = getLandmaskHeightBias(worldX, worldZ);
-        double finalHeight = baseTerrainHeight + (landmaskBias * LANDMASK_INFLUENCE_STRENGTH);
-
-        // =====================================
-        // STEP 6: Apply ocean transition
-        // =====================================
-        if (LandmaskLoader.isLoaded()) {
-            final double COASTAL_NOISE_SCALE = 1.0 / 80.0;
-            final double COASTAL_NOISE_STRENGTH = 12.0;
-
-            double offsetX = this.coastlineNoise.getValue(
-                worldX * COASTAL_NOISE_SCALE,
-                worldZ * COASTAL_NOISE_SCALE,
-                false
-            ) * COASTAL_NOISE_STRENGTH;
-
-            double offsetZ = this.coastlineNoise.getValue(
-                (worldX + 10000) * COASTAL_NOISE_SCALE,
-                (worldZ + 10000) * COASTAL_NOISE_SCALE,
-                false
-            ) * COASTAL_NOISE_STRENGTH;
-
-            double brightness = LandmaskLoader.getInterpolatedBrightness(
-                worldX + (int)offsetX,
-                worldZ + (int)offsetZ
-            );
-
-            final double LAND_THRESHOLD = 120.0;
-            final double TRANSITION_START = 140.0;
-            final double OCEAN_THRESHOLD = 220.0;
-            final int OCEAN_FLOOR_DEPTH = SEA_LEVEL - 15;
-
-            if (brightness > LAND_THRESHOLD) {
-                if (brightness >= OCEAN_THRESHOLD) {
-                    finalHeight = OCEAN_FLOOR_DEPTH;
-                } else if (brightness >= TRANSITION_START) {
-                    double blendFactor = (brightness - TRANSITION_START) / (OCEAN_THRESHOLD - TRANSITION_START);
-                    blendFactor = blendFactor * blendFactor * (3.0 - 2.0 * blendFactor);
-                    finalHeight = finalHeight * (1.0 - blendFactor) + OCEAN_FLOOR_DEPTH * blendFactor;
-                } else {
-                    double gentleFactor = (brightness - LAND_THRESHOLD) / (TRANSITION_START - LAND_THRESHOLD);
-                    gentleFactor = gentleFactor * gentleFactor;
+    /**
+     * Terrain height before mountain erosion and river valleys; the erosion field itself is computed from this
+     */
+    private double getBaseTerrainHeight(int worldX, int worldZ) {
+        HeightPlane plane = COLUMN_PLANE.get();
+        sampleColumns(plane, 0, worldX, worldZ, 1, 1);
+        sampleCorners(plane, worldX & -BLEND_GRID_SIZE, worldZ & -BLEND_GRID_SIZE);
+
+        double fx = BLEND_WEIGHTS[worldX & (BLEND_GRID_SIZE - 1)];
+        double fz = BLEND_WEIGHTS[worldZ & (BLEND_GRID_SIZE - 1)];
+        return ScalarHeightKernel.composeColumn(plane, 0, fx, fz);
+    }
 
-                    if (finalHeight > SEA_LEVEL + 20) {
-                        double excessHeight = finalHeight - (SEA_LEVEL + 20);
-                        double reducedHeight = (SEA_LEVEL + 20) + excessHeight * (1.0 - gentleFactor * 0.5);
-                        finalHeight = reducedHeight;
-                    }
+    /**
+     * Get the erosion field for the currently loaded maps, waiting for it if it is still being
+     * built. Every height goes through the field, so terrain never depends on whether the build
+     * had finished: a chunk filled during the build waits for it rather than coming out un-eroded
+     * next to eroded neighbours. The build runs off-thread and, once cached on disk, only takes
+     * as long as mapping the cached patches.
+     *
+     * @throws java.util.concurrent.CompletionException If the build failed; the next call retries it
+     */
+    private ErosionField getErosion() {
+        return getErosionFuture().join();
+    }
+
+    /**
+     * The erosion field for the currently loaded maps, starting its build in the background on
+     * first use and again after the maps are reloaded
+     */
+    private CompletableFuture<ErosionField> getErosionFuture() {
+        int generation = RegionIndex.getGeneration();
+        CompletableFuture<ErosionField> future = erosion;
+        if (future == null || erosionGeneration != generation) {
+            CompletableFuture<ErosionField> created = null;
+            synchronized (this) {
+                if (erosion == null || erosionGeneration != generation) {
+                    created = new CompletableFuture<>();
+                    erosion = created;
+                    erosionGeneration = generation;
                 }
+                future = erosion;
+            }
+
+            if (created != null) {
+                CompletableFuture<ErosionField> building = created;
+                long settings = getErosionSettings();
+                Util.backgroundExecutor().execute(() -> buildErosion(building, settings));
             }
         }
+        return future;
+    }
 
-        return finalHeight;
+    private void buildErosion(CompletableFuture<ErosionField> future, long settings) {
+        try {
+            future.complete(ErosionField.build(this::getBaseTerrainHeight, settings));
+        } catch (Throwable e) {
+            LOTRMod.LOGGER.error("Failed to build the erosion field", e);
+            // Un-eroded terrain would not match what a later successful build produces, so
+            // waiters fail instead, and the next height query starts the build over
+            synchronized (this) {
+                if (erosion == future) {
+                    erosion = null;
+                }
+            }
+            future.completeExceptionally(e);
+        }
     }
 
     /**
-     * ⚠️ NEW METHOD: Calculate the terrain height for a specific biome location
-     * using pre-generated noise values.
-     * 
-     * This applies the biome-specific interpretation (mountain scale, hill factor, etc.)
-     * to the SAME noise values that are used everywhere. This ensures terrain continuity.
-     * 
-     * @param queryX, queryZ - The position we're calculating height for (for landmask/region lookup)
-     * @param biomeX, biomeZ - The grid position to sample biome properties from
-     * @param largeNoiseRaw, mediumNoiseRaw, smallNoiseRaw, detailNoiseRaw - Raw noise values (-1 to 1)
-     * @param mountainNoiseRaw - Normalized mountain noise (0 to 1)
-     * @param hillNoiseRaw - Hill noise in blocks
-     * @return The terrain height at this location
+     * Completes once the maps are loaded and the erosion field for them is built, starting both if
+     * needed. The server thread continues from this instead of waiting in a height query.
      */
-    private double calculateHeightForBiome(
-        int queryX, int queryZ,  // Where we're calculating
-        int biomeX, int biomeZ,   // Where we sample biome from
-        double largeNoiseRaw,
-        double mediumNoiseRaw,
-        double smallNoiseRaw,
-        double detailNoiseRaw,
-        double mountainNoiseRaw,
-        double hillNoiseRaw
-    ) {
-        // Get biome modifiers at the biome sample position
-        BiomeModifiers modifiers = getBiomeModifiersAt(biomeX, biomeZ);
-
-        // Apply amplitude scaling to raw noise based on biome type
-        double largeNoise = largeNoiseRaw * LARGE_SCALE_AMPLITUDE;
-        double mediumNoise = mediumNoiseRaw * MEDIUM_SCALE_AMPLITUDE;
-        double smallNoise = smallNoiseRaw * SMALL_SCALE_AMPLITUDE;
-        double detailNoise = detailNoiseRaw * DETAIL_SCALE_AMPLITUDE;
-
-        // Calculate base height from multi-scale noise
-        double baseHeight = SEA_LEVEL +
-                           (largeNoise * modifiers.terrainVariationScale) +
-                           (mediumNoise * modifiers.terrainVariationScale) +
-                           (smallNoise * modifiers.terrainVariationScale * 0.8) +
-                           (detailNoise * modifiers.terrainVariationScale * 0.6);
-
-        // Add mountain variation (if this biome has mountains)
-        double mountainVariation = mountainNoiseRaw * modifiers.mountainBaseHeight;
-
-        // Add hill variation (if this biome has hills)
-        double hillVariation = hillNoiseRaw * modifiers.hillFactor;
-
-        // Add base height offset (e.g., rivers are lower)
-        double heightOffset = modifiers.baseHeightOffset;
-
-        // Combine all components
-        return baseHeight + mountainVariation + hillVariation + heightOffset;
+    public CompletableFuture<Void> whenTerrainReady() {
+        return WorldGenMaps.whenLoaded().thenCompose(loaded -> getErosionFuture()).thenApply(field -> null);
     }
 
     /**
-     * Generate raw mountain noise (returns 0-1, NOT scaled by amplitude yet)
+     * Checksum of the generator settings the un-eroded terrain depends on besides the maps: the
+     * terrain profiles and the noise seeds. Vanilla and compatible noise are the same terrain.
      */
-    private double generateMountainVariationNoiseRaw(int worldX, int worldZ) {
-        double mountainScale1 = 1.0 / 400.0;
-        double mountainScale2 = 1.0 / 150.0;
-        double mountainScale3 = 1.0 / 50.0;
+    private long getErosionSettings() {
+        CRC32 crc = new CRC32();
+        ByteBuffer settings = ByteBuffer.allocate(Long.BYTES + 1 + Long.BYTES);
+        boolean seeded = LOTRConfig.NOISE_ENGINE.get() == NoiseEngine.SEEDED;
+        settings.putLong(TerrainProfiles.tables().checksum()).put((byte) (seeded ? 1 : 0)).putLong(seeded ? worldSeed : 0L);
+        crc.update(settings.flip());
+        return crc.getValue();
+    }
 
-        double noise1 = this.terrainNoise.getValue(worldX * mountainScale1, worldZ * mountainScale1, false);
-        double noise2 = this.terrainNoise.getValue(worldX * mountainScale2, worldZ * mountainScale2, false);
-        double noise3 = this.detailNoise.getValue(worldX * mountainScale3, worldZ * mountainScale3, false);
+    /**
+     * Drop the column cache and erosion field along with the maps they came from; both are
+     * rebuilt on demand
+     */
+    void releaseCaches() {
+        columnCache.clear();
+        synchronized (this) {
+            erosion = null;
+        }
+    }
 
-        double combinedNoise = noise1 * 0.5 + noise2 * 0.3 + noise3 * 0.2;
-        double normalizedNoise = (combinedNoise + 1.0) / 2.0;
+    ChunkColumnCache getColumnCache() {
+        return columnCache;
+    }
 
-        return normalizedNoise * normalizedNoise;  // Square for dramatic peaks
+    /**
+     * Start building the erosion field now, so it is ready before the first chunks need it
+     */
+    public void prepareErosion() {
+        getErosionFuture();
     }
 
     /**
-     * Generate raw hill noise (returns height in blocks)
+     * Sample all the noise the heights of a block of columns are composed from, plus their coastal
+     * landmask brightness. Columns are written to the plane from offset on, countZ per x, which
+     * is the plane's own layout for a row of 16 or a whole chunk.
      */
-    private double generateHillVariationNoiseRaw(int worldX, int worldZ) {
-        double hillScale = 1.0 / 250.0;
-        double hillNoise = this.terrainNoise.getValue(worldX * hillScale, worldZ * hillScale, false);
+    private void sampleColumns(HeightPlane plane, int offset, int worldX, int worldZ, int countX, int countZ) {
+        TerrainNoise noise = getNoise();
+        int end = offset + countX * countZ;
 
-        double normalized = (hillNoise + 1.0) / 2.0;
-        return Math.sin(normalized * Math.PI) * 25.0;  // Smooth rolling hills
+        noise.largeCoast().fill(plane.large, offset, worldX, worldZ, countX, countZ, 1.0 / LARGE_SCALE_WAVELENGTH);
+        noise.mediumCoast().fill(plane.medium, offset, worldX, worldZ, countX, countZ, 1.0 / MEDIUM_SCALE_WAVELENGTH);
+        noise.smallCoast().fill(plane.small, offset, worldX, worldZ, countX, countZ, 1.0 / SMALL_SCALE_WAVELENGTH);
+        noise.detail().fill(plane.detail, offset, worldX, worldZ, countX, countZ, 1.0 / DETAIL_SCALE_WAVELENGTH);
+
+        // Mountain-specific noise (normalized 0-1)
+        noise.terrain().fill(plane.mountain, offset, worldX, worldZ, countX, countZ, 1.0 / 400.0);
+        noise.terrain().fill(plane.noiseA, offset, worldX, worldZ, countX, countZ, 1.0 / 150.0);
+        noise.detail().fill(plane.noiseB, offset, worldX, worldZ, countX, countZ, 1.0 / 50.0);
+        for (int column = offset; column < end; column++) {
+            double combinedNoise = plane.mountain[column] * 0.5 + plane.noiseA[column] * 0.3 + plane.noiseB[column] * 0.2;
+            double normalizedNoise = (combinedNoise + 1.0) / 2.0;
+            plane.mountain[column] = normalizedNoise * normalizedNoise;  // Square for dramatic peaks
+        }
+
+        // Hill-specific noise (height in blocks directly)
+        noise.terrain().fill(plane.hill, offset, worldX, worldZ, countX, countZ, 1.0 / 250.0);
+        for (int column = offset; column < end; column++) {
+            double normalized = (plane.hill[column] + 1.0) / 2.0;
+            plane.hill[column] = Math.sin(normalized * Math.PI) * 25.0;  // Smooth rolling hills
+        }
+
+        // The same coastline-offset brightness drives the landmask bias and the ocean transition
+        plane.landmaskLoaded = LandmaskLoader.isLoaded();
+        if (plane.landmaskLoaded) {
+            sampleCoastalBrightness(noise, plane, offset, worldX, worldZ, countX, countZ);
+        } else {
+            Arrays.fill(plane.brightness, offset, end, 255.0);
+        }
     }
 
-    private double getLandmaskHeightBias(int worldX, int worldZ) {
-        if (!LandmaskLoader.isLoaded()) {
-            return 0.0;
+    /**
+     * Look up the biome parameters at the four corners of the blend cell starting at x0, z0
+     */
+    private void sampleCorners(HeightPlane plane, int x0, int z0) {
+        TerrainProfiles.Tables profiles = TerrainProfiles.tables();
+        for (int corner = 0; corner < 4; corner++) {
+            int profile = TerrainProfiles.index(getBiomeAt(
+                x0 + (corner & 1) * BLEND_GRID_SIZE,
+                z0 + (corner >> 1) * BLEND_GRID_SIZE
+            ));
+            plane.variationScale[corner] = profiles.variationScale[profile];
+            plane.mountainHeight[corner] = profiles.mountainHeight[profile];
+            plane.hillFactor[corner] = profiles.hillFactor[profile];
+            plane.heightOffset[corner] = profiles.baseOffset[profile];
         }
+    }
 
+    /**
+     * Get the landmask brightness of a block of columns at positions shifted by the coastline
+     * noise, so the coast does not follow the map's pixels exactly
+     */
+    private static void sampleCoastalBrightness(TerrainNoise noise, HeightPlane plane, int offset,
+                                                int worldX, int worldZ, int countX, int countZ) {
         final double COASTAL_NOISE_SCALE = 1.0 / 80.0;
         final double COASTAL_NOISE_STRENGTH = 12.0;
 
-        double offsetX = this.coastlineNoise.getValue(
-            worldX * COASTAL_NOISE_SCALE,
-            worldZ * COASTAL_NOISE_SCALE,
-            false
-        ) * COASTAL_NOISE_STRENGTH;
+        noise.coastline().fill(plane.noiseA, offset, worldX, worldZ, countX, countZ, COASTAL_NOISE_SCALE);
+        noise.coastline().fill(plane.noiseB, offset, worldX + 10000, worldZ + 10000, countX, countZ, COASTAL_NOISE_SCALE);
 
-        double offsetZ = this.coastlineNoise.getValue(
-            (worldX + 10000) * COASTAL_NOISE_SCALE,
-            (worldZ + 10000) * COASTAL_NOISE_SCALE,
-            false
-        ) * COASTAL_NOISE_STRENGTH;
+        for (int x = 0; x < countX; x++) {
+            for (int z = 0; z < countZ; z++) {
+                int column = offset + x * countZ + z;
+                double offsetX = plane.noiseA[column] * COASTAL_NOISE_STRENGTH;
+                double offsetZ = plane.noiseB[column] * COASTAL_NOISE_STRENGTH;
 
-        double brightness = LandmaskLoader.getInterpolatedBrightness(
-            worldX + (int)offsetX,
-            worldZ + (int)offsetZ
-        );
+                int brightness = LandmaskLoader.getInterpolatedBrightnessFixed(
+                    worldX + x + (int)offsetX,
+                    worldZ + z + (int)offsetZ
+                );
+                plane.brightness[column] = brightness / (double) (1 << LandmaskLoader.BRIGHTNESS_FRACTION_BITS);
+            }
+        }
+    }
+
+    /**
+     * Get the Y a player can land at in the given column, computed from the analytic height
+     * function so that nothing has to be generated or loaded to answer it.
+     * Columns below sea level land on top of the water (or ice).
+     *
+     * Teleporting in may be the first use of Middle-earth, so this loads the maps and builds the
+     * erosion field if they are not ready yet, waiting for them; on the server thread, wait for
+     * {@link #whenTerrainReady} first, as /middleearth does.
+     *
+     * @return The landing Y, or {@link #NO_SAFE_LANDING} if the column is flooded with lava
+     */
+    public int getLandingY(int worldX, int worldZ) {
+        WorldGenMaps.awaitLoaded();
+        int height = getTerrainHeight(worldX, worldZ);
+        if (height >= SEA_LEVEL) {
+            return height + 1;
+        }
 
-        double normalized = 1.0 - (brightness / 127.5);
-        return normalized * LANDMASK_HEIGHT_BIAS;
+        BlockState liquid = getLiquidForBiome(getBiomeAt(worldX, worldZ), SurfaceProfiles.tables());
+        if (liquid.is(Blocks.LAVA)) {
+            return NO_SAFE_LANDING;
+        }
+        return SEA_LEVEL + 1;
     }
 
     private boolean isLandAt(int worldX, int worldZ) {
@@ -554,78 +963,6 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
         return middleEarthSource.getLOTRBiomeAt(worldX, worldZ);
     }
 
-    private static class BiomeModifiers {
-        double flatFactor = 0.0;
-        double hillFactor = 0.0;
-        double mountainFactor = 0.0;
-        double riverFactor = 0.0;
-
-        double baseHeightOffset = 0.0;
-        double terrainVariationScale = 0.0;
-        double mountainBaseHeight = 0.0;
-    }
-
-    private double bilinearInterp(double v00, double v10, double v01, double v11, double fx, double fz) {
-        double v0 = v00 * (1.0 - fx) + v10 * fx;
-        double v1 = v01 * (1.0 - fx) + v11 * fx;
-        return v0 * (1.0 - fz) + v1 * fz;
-    }
-
-    private BiomeModifiers getBiomeModifiersAt(int worldX, int worldZ) {
-        BiomeModifiers result = new BiomeModifiers();
-
-        LOTRBiome biome = getBiomeAt(worldX, worldZ);
-        if (biome == null) {
-            result.flatFactor = 1.0;
-            result.terrainVariationScale = 1.0;
-            return result;
-        }
-
-        if (biome.isRiver()) {
-            result.riverFactor = 1.0;
-            result.baseHeightOffset = -8.0;
-            result.terrainVariationScale = 0.2;
-        } else if (biome.isMountain()) {
-            result.mountainFactor = 1.0;
-
-            double mountainScale = switch (biome) {
-                case BLUE_MOUNTAINS, MISTY_MOUNTAINS, MOUNTAINS_OF_SHADOW -> 100.0;
-                case WHITE_MOUNTAINS, GREY_MOUNTAINS -> 80.0;
-                case IRON_HILLS, EREBOR, FORODWAITH_ICY_MOUNTAINS -> 60.0;
-                default -> 40.0;
-            };
-
-            result.mountainBaseHeight = mountainScale;
-            result.baseHeightOffset = 0.0;
-            result.terrainVariationScale = 1.5;
-        } else if (biome.isHilly()) {
-            result.hillFactor = 1.0;
-            result.baseHeightOffset = 0.0;
-            result.terrainVariationScale = 1.0;
-        } else if (isFlatBiome(biome)) {
-            result.flatFactor = 1.0;
-            result.baseHeightOffset = 0.0;
-            result.terrainVariationScale = 0.3;
-        } else {
-            result.hillFactor = 0.5;
-            result.flatFactor = 0.5;
-            result.terrainVariationScale = 0.7;
-        }
-
-        return result;
-    }
-
-    private boolean isFlatBiome(LOTRBiome biome) {
-        return switch (biome) {
-            case ERIADOR_PLAINS, ARNOR_PLAINS, GONDOR_PLAINS, DALE_PLAINS,
-                 ROHAN_GRASSLAND, RHUN_GRASSLAND, EASTERN_RHOVANIAN_GRASSLAND,
-                 HARAD_DESERT, LINDON_MEADOW, HARAD_SAVANNA,
-                 VALE_OF_ANDUIN_FLOODPLAINS, ARNOR_MARSH,
-                 DEAD_LANDS_EMPTY, THE_SHIRE -> true;
-            default -> false;
-        };
-    }
-
     @Override
     public int getSeaLevel() {
         return SEA_LEVEL;
@@ -638,26 +975,48 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
 
     @Override
     public int getBaseHeight(int x, int z, Heightmap.Types heightmapType, LevelHeightAccessor level, RandomState random) {
+        WorldGenMaps.awaitLoaded();
         return getTerrainHeight(x, z);
     }
 
     @Override
     public NoiseColumn getBaseColumn(int x, int z, LevelHeightAccessor level, RandomState random) {
-        int height = getTerrainHeight(x, z);
-        BlockState[] states = new BlockState[level.getHeight()];
-
-        for (int i = 0; i < states.length; i++) {
-            int y = level.getMinBuildHeight() + i;
-            if (y <= height) {
-                states[i] = Blocks.STONE.defaultBlockState();
-            } else if (y <= SEA_LEVEL) {
-                states[i] = Blocks.WATER.defaultBlockState();
-            } else {
-                states[i] = Blocks.AIR.defaultBlockState();
-            }
+        WorldGenMaps.awaitLoaded();
+        int minY = level.getMinBuildHeight();
+        int height = Math.max(minY - 1, Math.min(getTerrainHeight(x, z), level.getMaxBuildHeight() - 1));
+        // NoiseColumn.setBlock writes through to its array, so every caller gets its own copy
+        return new NoiseColumn(minY, getBaseColumnStates(minY, level.getHeight(), height).clone());
+    }
+
+    /**
+     * Blocks of a base column with the given terrain height. Base columns only differ by their
+     * height, so one array per height is built on first use and kept as a template. It must never
+     * be handed out itself: callers copy it.
+     */
+    private BlockState[] getBaseColumnStates(int minY, int levelHeight, int terrainHeight) {
+        BaseColumns columns = this.baseColumns;
+        if (columns == null || columns.minY() != minY || columns.states().length() != levelHeight + 1) {
+            columns = new BaseColumns(minY, new AtomicReferenceArray<>(levelHeight + 1));
+            this.baseColumns = columns;
         }
 
-        return new NoiseColumn(level.getMinBuildHeight(), states);
+        int index = terrainHeight - minY + 1;
+        BlockState[] states = columns.states().get(index);
+        if (states == null) {
+            states = new BlockState[levelHeight];
+            for (int i = 0; i < states.length; i++) {
+                int y = minY + i;
+                if (y <= terrainHeight) {
+                    states[i] = Blocks.STONE.defaultBlockState();
+                } else if (y <= SEA_LEVEL) {
+                    states[i] = Blocks.WATER.defaultBlockState();
+                } else {
+                    states[i] = Blocks.AIR.defaultBlockState();
+                }
+            }
+            columns.states().compareAndSet(index, null, states);
+        }
+        return states;
     }
 
     @Override
@@ -690,6 +1049,12 @@ public class MiddleEarthChunkGenerator extends ChunkGenerator {
             info.add(String.format("Landmask: %.1f", brightness));
         }
 
+        double riverDistance = RiverNetwork.get().getDistance(pos.getX(), pos.getZ());
+        if (riverDistance != Double.POSITIVE_INFINITY) {
+            info.add(String.format("River distance: %.1f", riverDistance));
+        }
+        info.add("Chunk class: " + LandmaskQuadtree.get().classify(pos.getX() >> 4, pos.getZ() >> 4));
+
         int terrainHeight = getTerrainHeight(pos.getX(), pos.getZ());
         info.add("Terrain height: " + terrainHeight);
         info.add("Is land: " + isLandAt(pos.getX(), pos.getZ()));
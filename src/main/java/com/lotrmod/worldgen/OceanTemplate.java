@@ -0,0 +1,95 @@
+package com.lotrmod.worldgen;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.lotrmod.worldgen.MiddleEarthChunkGenerator.OCEAN_FLOOR_Y;
+import static com.lotrmod.worldgen.MiddleEarthChunkGenerator.SEA_LEVEL;
+
+/**
+ * The sections of an open-ocean chunk, prebuilt once per level shape and liquid: bedrock at the
+ * bottom of the world, stone up to the ocean floor and liquid up to sea level.
+ *
+ * Each section's block container is kept in its network form and read straight into the chunk's
+ * section, so stamping a chunk copies a few packed arrays (and nothing at all for the uniform
+ * stone and liquid sections, which have a single-value palette) instead of writing every block.
+ * The chunk's own bedrock pattern and ores are written over it afterwards.
+ */
+final class OceanTemplate {
+    private static final Map<Key, OceanTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    private record Key(int minY, int sectionCount, BlockState liquid) {
+    }
+
+    // Serialized block containers by section index; null for sections that stay air
+    private final byte[][] sections;
+
+    private OceanTemplate(Key key) {
+        BlockState stone = Blocks.STONE.defaultBlockState();
+        BlockState bedrock = Blocks.BEDROCK.defaultBlockState();
+        sections = new byte[key.sectionCount()][];
+
+        for (int sectionIndex = 0; sectionIndex < key.sectionCount(); sectionIndex++) {
+            int sectionMinY = key.minY() + (sectionIndex << 4);
+            if (sectionMinY > SEA_LEVEL) {
+                break;
+            }
+
+            PalettedContainer<BlockState> states = new PalettedContainer<>(
+                    Block.BLOCK_STATE_REGISTRY, Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
+            for (int localY = 0; localY < 16; localY++) {
+                int y = sectionMinY + localY;
+                BlockState state = y == key.minY() ? bedrock
+                        : y <= OCEAN_FLOOR_Y ? stone
+                        : y <= SEA_LEVEL ? key.liquid()
+                        : null;
+                if (state == null) {
+                    break;
+                }
+                for (int x = 0; x < 16; x++) {
+                    for (int z = 0; z < 16; z++) {
+                        states.getAndSetUnchecked(x, localY, z, state);
+                    }
+                }
+            }
+
+            FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer(states.getSerializedSize()));
+            states.write(buffer);
+            byte[] data = new byte[buffer.readableBytes()];
+            buffer.readBytes(data);
+            sections[sectionIndex] = data;
+        }
+    }
+
+    /**
+     * Get the template for a chunk's height range and the given liquid
+     */
+    static OceanTemplate get(ChunkAccess chunk, BlockState liquid) {
+        return TEMPLATES.computeIfAbsent(new Key(chunk.getMinBuildHeight(), chunk.getSectionsCount(), liquid), OceanTemplate::new);
+    }
+
+    /**
+     * Replace the blocks of a freshly created chunk with the template
+     */
+    void stamp(ChunkAccess chunk) {
+        for (int sectionIndex = 0; sectionIndex < sections.length; sectionIndex++) {
+            byte[] data = sections[sectionIndex];
+            if (data == null) {
+                continue;
+            }
+            LevelChunkSection section = chunk.getSection(sectionIndex);
+            // Reading takes the container's lock itself
+            section.getStates().read(new FriendlyByteBuf(Unpooled.wrappedBuffer(data)));
+            section.recalcBlockCounts();
+        }
+    }
+}
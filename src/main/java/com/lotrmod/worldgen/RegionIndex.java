@@ -0,0 +1,356 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.LOTRMod;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed per-region statistics for the loaded region map.
+ *
+ * The index is built once per map load, in parallel over the region raster (a tile at a time,
+ * for tiled maps), and holds each region's pixel count, centroid, bounding box and "most
+ * interior" land point.
+ * After that, looking up where a region is costs a single array read.
+ *
+ * All coordinates stored in an {@link Entry} are world block coordinates.
+ */
+public class RegionIndex {
+    private static final Region[] REGIONS = Region.values();
+
+    // Pixel class used for region-map land that the landmask says is water,
+    // so the interior search never picks a point in a lake or bay
+    private static final int WATER_CLASS = REGIONS.length;
+
+    // Large finite value for "no feature" in the distance transform
+    private static final double EDT_INFINITY = 1e20;
+
+    // Maps with more pixels than this are indexed on a subsampled grid, to bound memory use
+    private static final long MAX_INDEX_PIXELS = 1L << 23;
+
+    private static volatile RegionIndex current = new RegionIndex(new Entry[REGIONS.length]);
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    private final Entry[] entries;
+
+    private RegionIndex(Entry[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Summary of one region on the map
+     *
+     * @param pixelCount Number of region map pixels belonging to the region
+     * @param centroidX, centroidZ Mean position of all region pixels (may lie outside the region)
+     * @param minX, minZ, maxX, maxZ Bounding box of the region
+     * @param interiorX, interiorZ Land point furthest from any region border or coastline
+     */
+    public record Entry(Region region, int pixelCount,
+                        int centroidX, int centroidZ,
+                        int minX, int minZ, int maxX, int maxZ,
+                        int interiorX, int interiorZ) {
+    }
+
+    /**
+     * Get the index entry for a region, or null if the region does not appear on the loaded map
+     */
+    public static Entry get(Region region) {
+        return current.entries[region.ordinal()];
+    }
+
+    /**
+     * Get a counter that goes up every time the index is rebuilt, so data derived from the maps
+     * can tell when it is stale
+     */
+    public static int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Empty the index, e.g. when the maps are released
+     */
+    static void clear() {
+        current = new RegionIndex(new Entry[REGIONS.length]);
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Rebuild the index from the currently loaded region map and landmask.
+     * Must be called after both maps have been (re)loaded.
+     */
+    public static void rebuild() {
+        RegionMapLoader.RegionMap map = RegionMapLoader.current();
+        LandmaskLoader.Landmask landmask = LandmaskLoader.current();
+        if (map == null) {
+            current = new RegionIndex(new Entry[REGIONS.length]);
+            generation.incrementAndGet();
+            LOTRMod.LOGGER.warn("Region map not loaded - region index is empty");
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        int mapWidth = map.width();
+        int mapHeight = map.height();
+
+        // Grid cells are step x step map pixels; step is 1 unless the map is very large
+        int step = Math.max(1, (int) Math.ceil(Math.sqrt((double) mapWidth * mapHeight / MAX_INDEX_PIXELS)));
+        int width = (mapWidth + step - 1) / step;
+        int height = (mapHeight + step - 1) / step;
+
+        // =====================================
+        // STEP 1: Classify every pixel once (region ordinal, or WATER_CLASS)
+        // =====================================
+        byte[] regions = new byte[width * height];
+        byte[] classes = new byte[width * height];
+
+        // A tile at a time, so a tiled map is decoded once and within its cache budget
+        map.raster().forEachBlock(0, 0, mapWidth, mapHeight, (minX, minZ, maxX, maxZ) -> {
+            int fromX = Math.ceilDiv(minX, step);
+            int toX = Math.ceilDiv(maxX, step);
+            IntStream.range(Math.ceilDiv(minZ, step), Math.ceilDiv(maxZ, step)).parallel().forEach(pixelZ -> {
+                int worldZ = map.pixelToWorldZ(pixelZ * step);
+                int row = pixelZ * width;
+                for (int pixelX = fromX; pixelX < toX; pixelX++) {
+                    Region region = map.getRegionAtPixel(pixelX * step, pixelZ * step);
+                    int pixelClass = region.ordinal();
+                    if (!region.isOcean() && landmask != null
+                            && !landmask.isLand(map.pixelToWorldX(pixelX * step), worldZ)) {
+                        pixelClass = WATER_CLASS;
+                    }
+                    regions[row + pixelX] = (byte) region.ordinal();
+                    classes[row + pixelX] = (byte) pixelClass;
+                }
+            });
+        });
+
+        // =====================================
+        // STEP 2: Pixel counts, centroids and bounding boxes
+        // =====================================
+        RegionStats stats = IntStream.range(0, height).parallel().collect(
+                RegionStats::new,
+                (acc, pixelZ) -> acc.addRow(regions, width, pixelZ),
+                RegionStats::merge
+        );
+
+        // =====================================
+        // STEP 3: Distance from every pixel to the nearest class border
+        // =====================================
+        double[] distance = distanceToBorders(classes, width, height);
+
+        // =====================================
+        // STEP 4: Most interior land pixel of each region
+        // =====================================
+        InteriorPoints interior = IntStream.range(0, height).parallel().collect(
+                InteriorPoints::new,
+                (acc, pixelZ) -> acc.addRow(classes, distance, width, pixelZ),
+                InteriorPoints::merge
+        );
+
+        Entry[] entries = new Entry[REGIONS.length];
+        for (Region region : REGIONS) {
+            int i = region.ordinal();
+            int count = stats.count[i];
+            if (count == 0) {
+                continue;
+            }
+
+            int centroidPixelX = (int) Math.round((double) stats.sumX[i] / count);
+            int centroidPixelZ = (int) Math.round((double) stats.sumZ[i] / count);
+
+            // Fall back to the centroid if the region has no land pixels at all
+            int interiorPixel = interior.bestPixel[i];
+            int interiorPixelX = interiorPixel >= 0 ? interiorPixel % width : centroidPixelX;
+            int interiorPixelZ = interiorPixel >= 0 ? interiorPixel / width : centroidPixelZ;
+
+            // Grid cells back to map pixels
+            entries[i] = new Entry(region, count * step * step,
+                    map.pixelToWorldX(centroidPixelX * step), map.pixelToWorldZ(centroidPixelZ * step),
+                    map.pixelToWorldX(stats.minX[i] * step), map.pixelToWorldZ(stats.minZ[i] * step),
+                    map.pixelToWorldX(stats.maxX[i] * step), map.pixelToWorldZ(stats.maxZ[i] * step),
+                    map.pixelToWorldX(interiorPixelX * step), map.pixelToWorldZ(interiorPixelZ * step));
+        }
+
+        current = new RegionIndex(entries);
+        generation.incrementAndGet();
+
+        long elapsedMs = (System.nanoTime() - startTime) / 1_000_000L;
+        long presentRegions = Arrays.stream(entries).filter(entry -> entry != null).count();
+        LOTRMod.LOGGER.info("Built region index for {} regions in {} ms", presentRegions, elapsedMs);
+    }
+
+    /**
+     * Squared Euclidean distance from each pixel to the nearest border pixel,
+     * using the separable exact transform of Felzenszwalb and Huttenlocher.
+     * A border pixel is one with a 4-neighbour of a different class, or on the image edge.
+     */
+    private static double[] distanceToBorders(byte[] classes, int width, int height) {
+        double[] distance = new double[width * height];
+
+        IntStream.range(0, height).parallel().forEach(pixelZ -> {
+            int row = pixelZ * width;
+            for (int pixelX = 0; pixelX < width; pixelX++) {
+                int i = row + pixelX;
+                byte c = classes[i];
+                boolean border = pixelX == 0 || pixelZ == 0 || pixelX == width - 1 || pixelZ == height - 1
+                        || classes[i - 1] != c || classes[i + 1] != c
+                        || classes[i - width] != c || classes[i + width] != c;
+                distance[i] = border ? 0.0 : EDT_INFINITY;
+            }
+        });
+
+        // Columns first, then rows - each line is independent
+        IntStream.range(0, width).parallel().forEach(pixelX -> {
+            double[] line = new double[height];
+            EdtScratch scratch = new EdtScratch(height);
+            for (int z = 0; z < height; z++) {
+                line[z] = distance[z * width + pixelX];
+            }
+            transformLine(line, height, scratch);
+            for (int z = 0; z < height; z++) {
+                distance[z * width + pixelX] = scratch.out[z];
+            }
+        });
+
+        IntStream.range(0, height).parallel().forEach(pixelZ -> {
+            double[] line = new double[width];
+            EdtScratch scratch = new EdtScratch(width);
+            System.arraycopy(distance, pixelZ * width, line, 0, width);
+            transformLine(line, width, scratch);
+            System.arraycopy(scratch.out, 0, distance, pixelZ * width, width);
+        });
+
+        return distance;
+    }
+
+    /**
+     * One-dimensional squared distance transform (lower envelope of parabolas)
+     */
+    private static void transformLine(double[] f, int n, EdtScratch scratch) {
+        int[] v = scratch.v;
+        double[] z = scratch.z;
+        int k = 0;
+        v[0] = 0;
+        z[0] = -EDT_INFINITY;
+        z[1] = EDT_INFINITY;
+
+        for (int q = 1; q < n; q++) {
+            double s = intersect(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersect(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = EDT_INFINITY;
+        }
+
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            double dq = q - v[k];
+            scratch.out[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    private static double intersect(double[] f, int q, int p) {
+        return ((f[q] + (double) q * q) - (f[p] + (double) p * p)) / (2.0 * q - 2.0 * p);
+    }
+
+    private static class EdtScratch {
+        final int[] v;
+        final double[] z;
+        final double[] out;
+
+        EdtScratch(int n) {
+            this.v = new int[n];
+            this.z = new double[n + 1];
+            this.out = new double[n];
+        }
+    }
+
+    /**
+     * Per-thread accumulator for counts, coordinate sums and bounding boxes
+     */
+    private static class RegionStats {
+        final int[] count = new int[REGIONS.length];
+        final long[] sumX = new long[REGIONS.length];
+        final long[] sumZ = new long[REGIONS.length];
+        final int[] minX = filled(Integer.MAX_VALUE);
+        final int[] minZ = filled(Integer.MAX_VALUE);
+        final int[] maxX = filled(Integer.MIN_VALUE);
+        final int[] maxZ = filled(Integer.MIN_VALUE);
+
+        void addRow(byte[] regions, int width, int pixelZ) {
+            int row = pixelZ * width;
+            for (int pixelX = 0; pixelX < width; pixelX++) {
+                int r = regions[row + pixelX];
+                count[r]++;
+                sumX[r] += pixelX;
+                sumZ[r] += pixelZ;
+                if (pixelX < minX[r]) minX[r] = pixelX;
+                if (pixelX > maxX[r]) maxX[r] = pixelX;
+                if (pixelZ < minZ[r]) minZ[r] = pixelZ;
+                if (pixelZ > maxZ[r]) maxZ[r] = pixelZ;
+            }
+        }
+
+        void merge(RegionStats other) {
+            for (int r = 0; r < REGIONS.length; r++) {
+                count[r] += other.count[r];
+                sumX[r] += other.sumX[r];
+                sumZ[r] += other.sumZ[r];
+                minX[r] = Math.min(minX[r], other.minX[r]);
+                minZ[r] = Math.min(minZ[r], other.minZ[r]);
+                maxX[r] = Math.max(maxX[r], other.maxX[r]);
+                maxZ[r] = Math.max(maxZ[r], other.maxZ[r]);
+            }
+        }
+
+        private static int[] filled(int value) {
+            int[] array = new int[REGIONS.length];
+            Arrays.fill(array, value);
+            return array;
+        }
+    }
+
+    /**
+     * Per-thread accumulator for the furthest-from-border pixel of each region
+     */
+    private static class InteriorPoints {
+        final double[] bestDistance = new double[REGIONS.length];
+        final int[] bestPixel = new int[REGIONS.length];
+
+        InteriorPoints() {
+            Arrays.fill(bestDistance, -1.0);
+            Arrays.fill(bestPixel, -1);
+        }
+
+        void addRow(byte[] classes, double[] distance, int width, int pixelZ) {
+            int row = pixelZ * width;
+            for (int pixelX = 0; pixelX < width; pixelX++) {
+                int i = row + pixelX;
+                int c = classes[i];
+                // Only land pixels (class == own region) are candidates
+                if (c != WATER_CLASS && distance[i] > bestDistance[c]) {
+                    bestDistance[c] = distance[i];
+                    bestPixel[c] = i;
+                }
+            }
+        }
+
+        void merge(InteriorPoints other) {
+            for (int r = 0; r < REGIONS.length; r++) {
+                if (other.bestDistance[r] > bestDistance[r]
+                        || (other.bestDistance[r] == bestDistance[r] && other.bestPixel[r] >= 0
+                            && (bestPixel[r] < 0 || other.bestPixel[r] < bestPixel[r]))) {
+                    bestDistance[r] = other.bestDistance[r];
+                    bestPixel[r] = other.bestPixel[r];
+                }
+            }
+        }
+    }
+}
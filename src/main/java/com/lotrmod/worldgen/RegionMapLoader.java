@@ -1,30 +1,87 @@
 package com.lotrmod.worldgen;
 
+import com.lotrmod.LOTRConfig;
 import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.raster.HeapRaster;
+import com.lotrmod.worldgen.raster.Raster;
+import com.lotrmod.worldgen.raster.RasterFiles;
+import com.lotrmod.worldgen.raster.TiledRaster;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.IoSupplier;
 import net.minecraft.server.packs.resources.Resource;
 import net.minecraft.server.packs.resources.ResourceManager;
+import org.jetbrains.annotations.Nullable;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Loads and provides access to the region map that defines where each region is located
+ *
+ * The image is converted once into a memory-mapped raster of region ordinals (colour matching
+ * happens during conversion, not per lookup). The scale can be set per map in an optional
+ * sidecar JSON next to the image (middleearth_regions.json: {"blocks_per_pixel": 4}).
+ * Maps too large for one image can instead be split into tiles that are decoded on demand.
  */
 public class RegionMapLoader {
-    private static BufferedImage regionMapImage;
-    private static int imageWidth;
-    private static int imageHeight;
-    private static boolean loaded = false;
+    private static final Region[] REGIONS = Region.values();
 
-    public static final int BLOCKS_PER_PIXEL = 16; // Same scale as landmask
+    // Null before the first load and after unloading
+    private static volatile RegionMap regionMap;
+
+    public static final int DEFAULT_BLOCKS_PER_PIXEL = 16; // Same scale as landmask
+
+    /**
+     * A region raster with its geometry. Published as a whole with one volatile write, so a
+     * lookup running during a reload never pairs one map's dimensions with another's samples.
+     *
+     * @param loaded False for the all-ocean fallback map
+     */
+    record RegionMap(Raster raster, int width, int height, int blocksPerPixel, boolean loaded) {
+        static RegionMap of(Raster raster, int blocksPerPixel, boolean loaded) {
+            return new RegionMap(raster, raster.getWidth(), raster.getHeight(), blocksPerPixel, loaded);
+        }
+
+        boolean contains(int pixelX, int pixelZ) {
+            return pixelX >= 0 && pixelX < width && pixelZ >= 0 && pixelZ < height;
+        }
+
+        /**
+         * Get the region at a pixel, or OCEAN if out of bounds
+         */
+        Region getRegionAtPixel(int pixelX, int pixelZ) {
+            if (!contains(pixelX, pixelZ)) {
+                return Region.OCEAN;
+            }
+            return REGIONS[raster.get(pixelX, pixelZ)];
+        }
+
+        /**
+         * Convert a pixel column to the world X coordinate at the centre of that pixel
+         */
+        int pixelToWorldX(int pixelX) {
+            return (int) Math.round((pixelX - width / 2.0) * blocksPerPixel);
+        }
+
+        /**
+         * Convert a pixel row to the world Z coordinate at the centre of that pixel
+         */
+        int pixelToWorldZ(int pixelZ) {
+            return (int) Math.round((pixelZ - height / 2.0) * blocksPerPixel);
+        }
+    }
 
     public static void loadRegionMap(ResourceManager resourceManager) {
+        // Try method 0: A map split into tiles, decoded lazily
+        if (tryLoadTiles(resourceManager)) {
+            return;
+        }
+
         // Try method 1: Load from resource manager (production)
         if (tryLoadFromResourceManager(resourceManager)) {
             return;
@@ -40,6 +97,37 @@ public class RegionMapLoader {
         createFallbackImage();
     }
 
+    /**
+     * Load a region map split into tiles (textures/regions/middleearth_regions_tiles/<x>_<z>.png
+     * plus a tiles.json). Tiles are only decoded when first sampled; missing tiles are ocean.
+     */
+    private static boolean tryLoadTiles(ResourceManager resourceManager) {
+        ResourceLocation tilesLocation = ResourceLocation.fromNamespaceAndPath(
+                LOTRMod.MODID, "textures/regions/middleearth_regions_tiles/");
+        Optional<Resource> manifest = resourceManager.getResource(tilesLocation.withSuffix("tiles.json"));
+        if (manifest.isEmpty()) {
+            return false;
+        }
+
+        try {
+            TiledRaster.Layout layout = TiledRaster.readLayout(manifest.get()::open, DEFAULT_BLOCKS_PER_PIXEL);
+            TiledRaster raster = new TiledRaster("regions", layout, createFormat(), Region.OCEAN.ordinal(),
+                    (tileX, tileZ) -> resourceManager.getResource(tilesLocation.withSuffix(tileX + "_" + tileZ + ".png"))
+                            .<IoSupplier<InputStream>>map(resource -> resource::open)
+                            .orElse(null),
+                    LOTRConfig.getMapTileCacheBytes());
+            RegionMap map = setRegionMap(raster, layout.blocksPerPixel());
+
+            LOTRMod.LOGGER.info("Loaded tiled region map: {}x{} pixels in {}px tiles ({}x{} blocks)",
+                    map.width(), map.height(), layout.tileSize(),
+                    map.width() * map.blocksPerPixel(), map.height() * map.blocksPerPixel());
+            return true;
+        } catch (Exception e) {
+            LOTRMod.LOGGER.error("Failed to load tiled region map", e);
+            return false;
+        }
+    }
+
     private static boolean tryLoadFromResourceManager(ResourceManager resourceManager) {
         try {
             ResourceLocation regionMapLocation = ResourceLocation.fromNamespaceAndPath(
@@ -57,26 +145,19 @@ public class RegionMapLoader {
             }
 
             Resource resource = resourceOpt.get();
+            ResourceLocation settingsLocation = regionMapLocation.withPath(path -> path.replace(".png", ".json"));
+            int scale = resourceManager.getResource(settingsLocation)
+                    .map(settings -> RasterFiles.readBlocksPerPixel(settings::open, DEFAULT_BLOCKS_PER_PIXEL))
+                    .orElse(DEFAULT_BLOCKS_PER_PIXEL);
 
-            try (InputStream stream = resource.open()) {
-                regionMapImage = ImageIO.read(stream);
-            }
-
-            if (regionMapImage == null) {
-                LOTRMod.LOGGER.error("Failed to read region map image from resource manager");
-                return false;
-            }
-
-            imageWidth = regionMapImage.getWidth();
-            imageHeight = regionMapImage.getHeight();
-            loaded = true;
+            RegionMap map = setRegionMap(RasterFiles.load("regions", resource::open, createFormat()), scale);
 
             LOTRMod.LOGGER.info("========================================");
             LOTRMod.LOGGER.info("REGION MAP LOADED FROM RESOURCE MANAGER!");
-            LOTRMod.LOGGER.info("Image size: {}x{} pixels", imageWidth, imageHeight);
+            LOTRMod.LOGGER.info("Image size: {}x{} pixels", map.width(), map.height());
             LOTRMod.LOGGER.info("World size: {}x{} blocks",
-                    imageWidth * BLOCKS_PER_PIXEL,
-                    imageHeight * BLOCKS_PER_PIXEL);
+                    map.width() * map.blocksPerPixel(),
+                    map.height() * map.blocksPerPixel());
             LOTRMod.LOGGER.info("========================================");
 
             return true;
@@ -105,26 +186,22 @@ public class RegionMapLoader {
                 if (Files.exists(path)) {
                     LOTRMod.LOGGER.info("Found file at: {}", path.toAbsolutePath());
 
-                    try (InputStream stream = Files.newInputStream(path)) {
-                        regionMapImage = ImageIO.read(stream);
-                    }
-
-                    if (regionMapImage != null) {
-                        imageWidth = regionMapImage.getWidth();
-                        imageHeight = regionMapImage.getHeight();
-                        loaded = true;
-
-                        LOTRMod.LOGGER.info("========================================");
-                        LOTRMod.LOGGER.info("REGION MAP LOADED FROM FILESYSTEM!");
-                        LOTRMod.LOGGER.info("Path: {}", path.toAbsolutePath());
-                        LOTRMod.LOGGER.info("Image size: {}x{} pixels", imageWidth, imageHeight);
-                        LOTRMod.LOGGER.info("World size: {}x{} blocks",
-                                imageWidth * BLOCKS_PER_PIXEL,
-                                imageHeight * BLOCKS_PER_PIXEL);
-                        LOTRMod.LOGGER.info("========================================");
-
-                        return true;
-                    }
+                    Path settingsPath = path.resolveSibling("middleearth_regions.json");
+                    int scale = Files.exists(settingsPath)
+                            ? RasterFiles.readBlocksPerPixel(() -> Files.newInputStream(settingsPath), DEFAULT_BLOCKS_PER_PIXEL)
+                            : DEFAULT_BLOCKS_PER_PIXEL;
+                    RegionMap map = setRegionMap(RasterFiles.load("regions", () -> Files.newInputStream(path), createFormat()), scale);
+
+                    LOTRMod.LOGGER.info("========================================");
+                    LOTRMod.LOGGER.info("REGION MAP LOADED FROM FILESYSTEM!");
+                    LOTRMod.LOGGER.info("Path: {}", path.toAbsolutePath());
+                    LOTRMod.LOGGER.info("Image size: {}x{} pixels", map.width(), map.height());
+                    LOTRMod.LOGGER.info("World size: {}x{} blocks",
+                            map.width() * map.blocksPerPixel(),
+                            map.height() * map.blocksPerPixel());
+                    LOTRMod.LOGGER.info("========================================");
+
+                    return true;
                 }
             }
 
@@ -143,15 +220,47 @@ public class RegionMapLoader {
         LOTRMod.LOGGER.warn("All regions will default to OCEAN");
         LOTRMod.LOGGER.warn("========================================");
 
-        regionMapImage = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
-        for (int x = 0; x < 256; x++) {
-            for (int y = 0; y < 256; y++) {
-                regionMapImage.setRGB(x, y, 0xFFFFFF); // White = Ocean
-            }
+        regionMap = RegionMap.of(HeapRaster.filled(256, 256, 1, Region.OCEAN.ordinal()), DEFAULT_BLOCKS_PER_PIXEL, false);
+    }
+
+    private static RegionMap setRegionMap(Raster raster, int scale) {
+        RegionMap map = RegionMap.of(raster, scale, true);
+        regionMap = map;
+        return map;
+    }
+
+    /**
+     * Release the region map; lookups answer as if none was loaded until the next load
+     */
+    static void unload() {
+        regionMap = null;
+    }
+
+    /**
+     * The current region map and its geometry, or null if none is loaded. Read it once and use
+     * the same snapshot for a whole computation.
+     */
+    @Nullable
+    static RegionMap current() {
+        RegionMap map = regionMap;
+        return map != null && map.loaded() ? map : null;
+    }
+
+    /**
+     * Raster format storing the matched region ordinal of each pixel.
+     * Maps use few distinct colours, so matches are memoized per colour (concurrently, as tiles
+     * decode on several threads). The format name includes
+     * the region colours, so cached rasters are rebuilt when the colours change.
+     */
+    private static RasterFiles.Format createFormat() {
+        int colorHash = 1;
+        for (Region region : REGIONS) {
+            colorHash = 31 * colorHash + region.getColor().getRGB();
         }
-        imageWidth = 256;
-        imageHeight = 256;
-        loaded = false;
+
+        Map<Integer, Integer> matches = new ConcurrentHashMap<>();
+        return new RasterFiles.Format("region" + Integer.toHexString(colorHash), 1, rgb -> matches.computeIfAbsent(rgb,
+                color -> Region.fromRGB((color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF).ordinal()));
     }
 
     /**
@@ -163,17 +272,18 @@ public class RegionMapLoader {
      * @return The region at this position
      */
     public static Region getRegion(int worldX, int worldZ) {
-        if (!loaded || regionMapImage == null) {
+        RegionMap map = current();
+        if (map == null) {
             return Region.OCEAN;
         }
 
         // Use floating-point division for sub-pixel sampling
-        double exactPixelX = worldX / (double) BLOCKS_PER_PIXEL;
-        double exactPixelZ = worldZ / (double) BLOCKS_PER_PIXEL;
+        double exactPixelX = worldX / (double) map.blocksPerPixel();
+        double exactPixelZ = worldZ / (double) map.blocksPerPixel();
 
         // Convert to image coordinates (centered at 0,0)
-        exactPixelX += imageWidth / 2.0;
-        exactPixelZ += imageHeight / 2.0;
+        exactPixelX += map.width() / 2.0;
+        exactPixelZ += map.height() / 2.0;
 
         // Get the 4 surrounding pixel coordinates for bilinear interpolation
         int x0 = (int) Math.floor(exactPixelX);
@@ -186,10 +296,10 @@ public class RegionMapLoader {
         double fz = exactPixelZ - z0;
 
         // Sample 4 surrounding pixels and get their regions
-        Region r00 = getRegionAtPixel(x0, z0); // top-left
-        Region r10 = getRegionAtPixel(x1, z0); // top-right
-        Region r01 = getRegionAtPixel(x0, z1); // bottom-left
-        Region r11 = getRegionAtPixel(x1, z1); // bottom-right
+        Region r00 = map.getRegionAtPixel(x0, z0); // top-left
+        Region r10 = map.getRegionAtPixel(x1, z0); // top-right
+        Region r01 = map.getRegionAtPixel(x0, z1); // bottom-left
+        Region r11 = map.getRegionAtPixel(x1, z1); // bottom-right
 
         // For region selection, we use the closest pixel (nearest neighbor)
         // instead of color interpolation, to avoid creating intermediate regions
@@ -209,17 +319,18 @@ public class RegionMapLoader {
      * @return The interpolated RGB color as a packed int (0xRRGGBB)
      */
     public static int getInterpolatedColor(int worldX, int worldZ) {
-        if (!loaded || regionMapImage == null) {
+        RegionMap map = current();
+        if (map == null) {
             return 0xFFFFFF; // White for ocean
         }
 
         // Use floating-point division for sub-pixel sampling
-        double exactPixelX = worldX / (double) BLOCKS_PER_PIXEL;
-        double exactPixelZ = worldZ / (double) BLOCKS_PER_PIXEL;
+        double exactPixelX = worldX / (double) map.blocksPerPixel();
+        double exactPixelZ = worldZ / (double) map.blocksPerPixel();
 
         // Convert to image coordinates (centered at 0,0)
-        exactPixelX += imageWidth / 2.0;
-        exactPixelZ += imageHeight / 2.0;
+        exactPixelX += map.width() / 2.0;
+        exactPixelZ += map.height() / 2.0;
 
         // Get the 4 surrounding pixel coordinates
         int x0 = (int) Math.floor(exactPixelX);
@@ -231,87 +342,100 @@ public class RegionMapLoader {
         double fx = exactPixelX - x0;
         double fz = exactPixelZ - z0;
 
-        // Sample 4 surrounding pixels
-        int[] c00 = getPixelRGB(x0, z0); // top-left
-        int[] c10 = getPixelRGB(x1, z0); // top-right
-        int[] c01 = getPixelRGB(x0, z1); // bottom-left
-        int[] c11 = getPixelRGB(x1, z1); // bottom-right
+        // Sample 4 surrounding pixels as packed RGB
+        int c00 = getPixelColor(map, x0, z0); // top-left
+        int c10 = getPixelColor(map, x1, z0); // top-right
+        int c01 = getPixelColor(map, x0, z1); // bottom-left
+        int c11 = getPixelColor(map, x1, z1); // bottom-right
 
         // Bilinear interpolation for each color channel
-        int r = (int) (
-                c00[0] * (1 - fx) * (1 - fz) +
-                        c10[0] * fx * (1 - fz) +
-                        c01[0] * (1 - fx) * fz +
-                        c11[0] * fx * fz
-        );
-
-        int g = (int) (
-                c00[1] * (1 - fx) * (1 - fz) +
-                        c10[1] * fx * (1 - fz) +
-                        c01[1] * (1 - fx) * fz +
-                        c11[1] * fx * fz
-        );
-
-        int b = (int) (
-                c00[2] * (1 - fx) * (1 - fz) +
-                        c10[2] * fx * (1 - fz) +
-                        c01[2] * (1 - fx) * fz +
-                        c11[2] * fx * fz
-        );
+        double w00 = (1 - fx) * (1 - fz);
+        double w10 = fx * (1 - fz);
+        double w01 = (1 - fx) * fz;
+        double w11 = fx * fz;
+        int r = interpolateChannel(c00, c10, c01, c11, 16, w00, w10, w01, w11);
+        int g = interpolateChannel(c00, c10, c01, c11, 8, w00, w10, w01, w11);
+        int b = interpolateChannel(c00, c10, c01, c11, 0, w00, w10, w01, w11);
 
         // Pack RGB into single int
         return (r << 16) | (g << 8) | b;
     }
 
+    private static int interpolateChannel(int c00, int c10, int c01, int c11, int shift,
+                                          double w00, double w10, double w01, double w11) {
+        return (int) (((c00 >> shift) & 0xFF) * w00 + ((c10 >> shift) & 0xFF) * w10
+                + ((c01 >> shift) & 0xFF) * w01 + ((c11 >> shift) & 0xFF) * w11);
+    }
+
     /**
-     * Get region at a specific pixel coordinate with bounds checking
+     * Get the region colour at a specific pixel coordinate with bounds checking
      *
      * @param pixelX The X pixel coordinate
      * @param pixelZ The Z pixel coordinate
-     * @return The region at this pixel, or OCEAN if out of bounds
+     * @return Packed 0xRRGGBB colour, or white if out of bounds
      */
-    private static Region getRegionAtPixel(int pixelX, int pixelZ) {
-        if (pixelX < 0 || pixelX >= imageWidth || pixelZ < 0 || pixelZ >= imageHeight) {
-            return Region.OCEAN;
+    private static int getPixelColor(RegionMap map, int pixelX, int pixelZ) {
+        if (!map.contains(pixelX, pixelZ)) {
+            return 0xFFFFFF; // White for out of bounds
         }
 
-        int rgb = regionMapImage.getRGB(pixelX, pixelZ);
-        int r = (rgb >> 16) & 0xFF;
-        int g = (rgb >> 8) & 0xFF;
-        int b = rgb & 0xFF;
+        Region region = map.getRegionAtPixel(pixelX, pixelZ);
+        return (region.getRed() << 16) | (region.getGreen() << 8) | region.getBlue();
+    }
 
-        return Region.fromRGB(r, g, b);
+    /**
+     * Convert a pixel column to the world X coordinate at the centre of that pixel.
+     * Inverse of the nearest-pixel mapping used by {@link #getRegion(int, int)}.
+     */
+    public static int pixelToWorldX(int pixelX) {
+        RegionMap map = regionMap;
+        return map != null ? map.pixelToWorldX(pixelX) : 0;
     }
 
     /**
-     * Get RGB components at a specific pixel coordinate with bounds checking
-     *
-     * @param pixelX The X pixel coordinate
-     * @param pixelZ The Z pixel coordinate
-     * @return Array of [r, g, b] values (0-255), or white if out of bounds
+     * Convert a pixel row to the world Z coordinate at the centre of that pixel.
      */
-    private static int[] getPixelRGB(int pixelX, int pixelZ) {
-        if (pixelX < 0 || pixelX >= imageWidth || pixelZ < 0 || pixelZ >= imageHeight) {
-            return new int[]{255, 255, 255}; // White for out of bounds
-        }
+    public static int pixelToWorldZ(int pixelZ) {
+        RegionMap map = regionMap;
+        return map != null ? map.pixelToWorldZ(pixelZ) : 0;
+    }
 
-        int rgb = regionMapImage.getRGB(pixelX, pixelZ);
-        int r = (rgb >> 16) & 0xFF;
-        int g = (rgb >> 8) & 0xFF;
-        int b = rgb & 0xFF;
+    public static int getImageWidth() {
+        RegionMap map = regionMap;
+        return map != null ? map.width() : 0;
+    }
 
-        return new int[]{r, g, b};
+    public static int getImageHeight() {
+        RegionMap map = regionMap;
+        return map != null ? map.height() : 0;
     }
 
     public static boolean isLoaded() {
-        return loaded;
+        return current() != null;
+    }
+
+    /**
+     * Get the raster backing the region map (the fallback map if none was loaded), or null before
+     * the first load and after unloading
+     */
+    @Nullable
+    public static Raster getRaster() {
+        RegionMap map = regionMap;
+        return map != null ? map.raster() : null;
+    }
+
+    public static int getBlocksPerPixel() {
+        RegionMap map = regionMap;
+        return map != null ? map.blocksPerPixel() : DEFAULT_BLOCKS_PER_PIXEL;
     }
 
     public static int getWorldWidth() {
-        return imageWidth * BLOCKS_PER_PIXEL;
+        RegionMap map = regionMap;
+        return map != null ? map.width() * map.blocksPerPixel() : 0;
     }
 
     public static int getWorldHeight() {
-        return imageHeight * BLOCKS_PER_PIXEL;
+        RegionMap map = regionMap;
+        return map != null ? map.height() * map.blocksPerPixel() : 0;
     }
 }
@@ -0,0 +1,771 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.LOTRMod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * River centrelines extracted from the river regions of the loaded region map, used to carve
+ * smooth, continuous valleys instead of the map's pixel-shaped channels.
+ *
+ * On every map load the river pixels are thinned to a one-pixel skeleton, traced into polylines,
+ * simplified and smoothed. Each vertex keeps the river's half-width there, measured from the
+ * distance to the river's banks on the map; the depth follows from the width.
+ *
+ * Segments are stored in a uniform grid of 64-block cells, each listing the segments whose valley
+ * reaches into it, so a column only looks at the few segments of its own cell.
+ */
+public final class RiverNetwork {
+    public static final RiverNetwork EMPTY = new RiverNetwork(new float[0], new float[0], new float[0], new float[0],
+            new float[0], new float[0], 0, 0, 0, 0, new int[1], new int[0]);
+
+    private static final int CELL_SHIFT = 6;
+
+    // Maps with more river pixels than this (in the rivers' bounding box) are traced on a coarser grid,
+    // each cell of which is river if any of the pixels it covers is
+    private static final long MAX_MASK_PIXELS = 1L << 22;
+
+    // Channel shape, in blocks
+    private static final double MIN_HALF_WIDTH = 4.0;
+    private static final double MIN_DEPTH = 3.0;
+    private static final double MAX_DEPTH = 12.0;
+    private static final double DEPTH_PER_HALF_WIDTH = 0.3;
+    // Valley sides rising from the banks back to the surrounding terrain
+    private static final double MIN_BANK_WIDTH = 16.0;
+    private static final double BANK_PER_HALF_WIDTH = 1.5;
+
+    // Polyline cleanup, in skeleton pixels
+    private static final double SIMPLIFY_TOLERANCE = 0.5;
+    private static final int SMOOTHING_PASSES = 2;
+    private static final int WIDTH_AVERAGE_RADIUS = 3;
+    // Side branches shorter than this many half-widths are thinning artifacts, not tributaries
+    private static final double SPUR_HALF_WIDTHS = 2.0;
+
+    // Chamfer distance steps (3 for orthogonal neighbours, 4 for diagonals)
+    private static final int CHAMFER_ORTHOGONAL = 3;
+    private static final int CHAMFER_DIAGONAL = 4;
+
+    private static volatile RiverNetwork current = EMPTY;
+
+    // Segment endpoints and half-widths, in world blocks
+    private final float[] startX;
+    private final float[] startZ;
+    private final float[] endX;
+    private final float[] endZ;
+    private final float[] startHalfWidth;
+    private final float[] endHalfWidth;
+
+    // Grid of cells listing segments, compressed row storage
+    private final int gridMinX;
+    private final int gridMinZ;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int[] cellStart;
+    private final int[] cellSegments;
+
+    private RiverNetwork(float[] startX, float[] startZ, float[] endX, float[] endZ,
+                         float[] startHalfWidth, float[] endHalfWidth,
+                         int gridMinX, int gridMinZ, int gridWidth, int gridHeight,
+                         int[] cellStart, int[] cellSegments) {
+        this.startX = startX;
+        this.startZ = startZ;
+        this.endX = endX;
+        this.endZ = endZ;
+        this.startHalfWidth = startHalfWidth;
+        this.endHalfWidth = endHalfWidth;
+        this.gridMinX = gridMinX;
+        this.gridMinZ = gridMinZ;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.cellStart = cellStart;
+        this.cellSegments = cellSegments;
+    }
+
+    /**
+     * Get the river network of the currently loaded region map
+     */
+    public static RiverNetwork get() {
+        return current;
+    }
+
+    public boolean isEmpty() {
+        return startX.length == 0;
+    }
+
+    public int getSegmentCount() {
+        return startX.length;
+    }
+
+    /**
+     * Check whether any river valley touches a block range, so callers can skip lookups entirely
+     */
+    public boolean overlaps(int minX, int minZ, int maxX, int maxZ) {
+        int cellMinX = Math.max(0, (minX - gridMinX) >> CELL_SHIFT);
+        int cellMinZ = Math.max(0, (minZ - gridMinZ) >> CELL_SHIFT);
+        int cellMaxX = Math.min(gridWidth - 1, (maxX - gridMinX) >> CELL_SHIFT);
+        int cellMaxZ = Math.min(gridHeight - 1, (maxZ - gridMinZ) >> CELL_SHIFT);
+        for (int cellZ = cellMinZ; cellZ <= cellMaxZ; cellZ++) {
+            for (int cellX = cellMinX; cellX <= cellMaxX; cellX++) {
+                int cell = cellZ * gridWidth + cellX;
+                if (cellStart[cell + 1] > cellStart[cell]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Distance from a column to the nearest river centreline, in blocks, or positive infinity if
+     * the column is outside every river valley
+     */
+    public double getDistance(int worldX, int worldZ) {
+        int cell = cellIndex(worldX, worldZ);
+        if (cell < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            int segment = cellSegments[i];
+            double t = project(segment, worldX, worldZ);
+            nearest = Math.min(nearest, distance(segment, t, worldX, worldZ));
+        }
+        return nearest;
+    }
+
+    /**
+     * Carve the river valleys into a column's terrain height: a rounded channel below sea level
+     * across the river's width, and banks that rise smoothly back to the terrain on either side.
+     * Terrain already below the valley is left alone.
+     */
+    public double carve(double height, int worldX, int worldZ) {
+        int cell = cellIndex(worldX, worldZ);
+        if (cell < 0) {
+            return height;
+        }
+
+        double result = height;
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            int segment = cellSegments[i];
+            double t = project(segment, worldX, worldZ);
+            double halfWidth = startHalfWidth[segment] + (endHalfWidth[segment] - startHalfWidth[segment]) * t;
+            double bankWidth = bankWidth(halfWidth);
+            double distance = distance(segment, t, worldX, worldZ);
+            if (distance >= halfWidth + bankWidth) {
+                continue;
+            }
+
+            double carved;
+            if (distance < halfWidth) {
+                double r = distance / halfWidth;
+                carved = Math.min(height, MiddleEarthChunkGenerator.SEA_LEVEL - depth(halfWidth) * (1.0 - r * r));
+            } else {
+                double f = (distance - halfWidth) / bankWidth;
+                f = f * f * (3.0 - 2.0 * f);
+                double floor = Math.min(height, MiddleEarthChunkGenerator.SEA_LEVEL);
+                carved = floor + (height - floor) * f;
+            }
+            result = Math.min(result, carved);
+        }
+        return result;
+    }
+
+    private int cellIndex(int worldX, int worldZ) {
+        int cellX = (worldX - gridMinX) >> CELL_SHIFT;
+        int cellZ = (worldZ - gridMinZ) >> CELL_SHIFT;
+        if (worldX < gridMinX || worldZ < gridMinZ || cellX >= gridWidth || cellZ >= gridHeight) {
+            return -1;
+        }
+        return cellZ * gridWidth + cellX;
+    }
+
+    /**
+     * Position of the closest point on a segment, from 0 at its start to 1 at its end
+     */
+    private double project(int segment, int worldX, int worldZ) {
+        double dx = endX[segment] - startX[segment];
+        double dz = endZ[segment] - startZ[segment];
+        double lengthSquared = dx * dx + dz * dz;
+        if (lengthSquared == 0.0) {
+            return 0.0;
+        }
+        double t = ((worldX - startX[segment]) * dx + (worldZ - startZ[segment]) * dz) / lengthSquared;
+        return Math.max(0.0, Math.min(1.0, t));
+    }
+
+    private double distance(int segment, double t, int worldX, int worldZ) {
+        double x = startX[segment] + (endX[segment] - startX[segment]) * t;
+        double z = startZ[segment] + (endZ[segment] - startZ[segment]) * t;
+        double dx = worldX - x;
+        double dz = worldZ - z;
+        return Math.sqrt(dx * dx + dz * dz);
+    }
+
+    private static double depth(double halfWidth) {
+        return Math.max(MIN_DEPTH, Math.min(MAX_DEPTH, halfWidth * DEPTH_PER_HALF_WIDTH));
+    }
+
+    private static double bankWidth(double halfWidth) {
+        return Math.max(MIN_BANK_WIDTH, halfWidth * BANK_PER_HALF_WIDTH);
+    }
+
+    /**
+     * Rebuild the network from the currently loaded region map.
+     * Must be called after the region map and {@link RegionIndex} have been (re)loaded.
+     */
+    public static void rebuild() {
+        RegionMapLoader.RegionMap map = RegionMapLoader.current();
+        if (map == null) {
+            current = EMPTY;
+            return;
+        }
+
+        long startTime = System.nanoTime();
+
+        // Bounding box of all river regions, in map pixels
+        int mapWidth = map.width();
+        int mapHeight = map.height();
+        int blocksPerPixel = map.blocksPerPixel();
+        int minPixelX = Integer.MAX_VALUE;
+        int minPixelZ = Integer.MAX_VALUE;
+        int maxPixelX = Integer.MIN_VALUE;
+        int maxPixelZ = Integer.MIN_VALUE;
+        for (Region region : Region.values()) {
+            RegionIndex.Entry entry = region.isRiver() ? RegionIndex.get(region) : null;
+            if (entry == null) {
+                continue;
+            }
+            minPixelX = Math.min(minPixelX, worldToPixel(entry.minX(), blocksPerPixel, mapWidth));
+            minPixelZ = Math.min(minPixelZ, worldToPixel(entry.minZ(), blocksPerPixel, mapHeight));
+            maxPixelX = Math.max(maxPixelX, worldToPixel(entry.maxX(), blocksPerPixel, mapWidth));
+            maxPixelZ = Math.max(maxPixelZ, worldToPixel(entry.maxZ(), blocksPerPixel, mapHeight));
+        }
+        if (minPixelX > maxPixelX) {
+            current = EMPTY;
+            LOTRMod.LOGGER.info("No river regions on the region map - river network is empty");
+            return;
+        }
+
+        // =====================================
+        // STEP 1: River mask, with a one pixel empty border
+        // =====================================
+        int spanX = maxPixelX - minPixelX + 1;
+        int spanZ = maxPixelZ - minPixelZ + 1;
+        int step = Math.max(1, (int) Math.ceil(Math.sqrt((double) spanX * spanZ / MAX_MASK_PIXELS)));
+        int width = (spanX + step - 1) / step + 2;
+        int height = (spanZ + step - 1) / step + 2;
+        int originPixelX = minPixelX;
+        int originPixelZ = minPixelZ;
+
+        byte[] mask = new byte[width * height];
+        // A tile at a time, so a tiled map is decoded once and within its cache budget. When the
+        // mask is coarser than the map, a cell is river if any pixel it covers is, so narrow
+        // rivers cannot fall between the samples; a cell straddling two tiles is filled from both.
+        map.raster().forEachBlock(originPixelX, originPixelZ, maxPixelX + 1, maxPixelZ + 1, (minX, minZ, maxX, maxZ) -> {
+            int fromZ = (minZ - originPixelZ) / step + 1;
+            int toZ = (maxZ - 1 - originPixelZ) / step + 2;
+            // One mask row per subtask, so no two threads write the same cell
+            IntStream.range(fromZ, toZ).parallel().forEach(z -> {
+                int pixelFromZ = Math.max(minZ, originPixelZ + (z - 1) * step);
+                int pixelToZ = Math.min(maxZ, originPixelZ + z * step);
+                for (int pixelZ = pixelFromZ; pixelZ < pixelToZ; pixelZ++) {
+                    for (int pixelX = minX; pixelX < maxX; pixelX++) {
+                        int cell = z * width + (pixelX - originPixelX) / step + 1;
+                        if (mask[cell] == 0 && map.getRegionAtPixel(pixelX, pixelZ).isRiver()) {
+                            mask[cell] = 1;
+                        }
+                    }
+                }
+            });
+        });
+
+        // =====================================
+        // STEP 2: Distance to the banks, then thin the mask to its centreline
+        // =====================================
+        int[] bankDistance = chamferDistance(mask, width, height);
+        thin(mask, width, height);
+
+        // =====================================
+        // STEP 3: Trace the skeleton into polylines, simplify and smooth them
+        // =====================================
+        double blocksPerCell = (double) step * blocksPerPixel;
+        List<double[]> polylines = new ArrayList<>();
+        for (int[] chain : trace(mask, bankDistance, width, height)) {
+            double[] points = new double[chain.length * 3];
+            for (int i = 0; i < chain.length; i++) {
+                int pixel = chain[i];
+                points[i * 3] = pixel % width;
+                points[i * 3 + 1] = pixel / width;
+                // Distance is to the nearest bank pixel's centre, so the bank itself is half a pixel closer
+                points[i * 3 + 2] = localMax(bankDistance, width, pixel) / (double) CHAMFER_ORTHOGONAL - 0.5;
+            }
+            points = smooth(simplify(averageWidths(points)), SMOOTHING_PASSES);
+
+            // Skeleton cells back to world blocks, at the centre of the pixels each cell covers
+            double cellCentre = (step - 1) / 2.0;
+            for (int i = 0; i < points.length; i += 3) {
+                points[i] = (originPixelX + (points[i] - 1) * step + cellCentre - mapWidth / 2.0) * blocksPerPixel;
+                points[i + 1] = (originPixelZ + (points[i + 1] - 1) * step + cellCentre - mapHeight / 2.0) * blocksPerPixel;
+                points[i + 2] = Math.max(MIN_HALF_WIDTH, points[i + 2] * blocksPerCell);
+            }
+            polylines.add(points);
+        }
+
+        // =====================================
+        // STEP 4: Segments and the grid index
+        // =====================================
+        current = index(polylines);
+
+        long elapsedMs = (System.nanoTime() - startTime) / 1_000_000L;
+        LOTRMod.LOGGER.info("Built river network: {} polylines, {} segments in {} ms",
+                polylines.size(), current.getSegmentCount(), elapsedMs);
+    }
+
+    private static int worldToPixel(int world, int blocksPerPixel, int imageSize) {
+        return (int) Math.round(world / (double) blocksPerPixel + imageSize / 2.0);
+    }
+
+    /**
+     * Two-pass 3-4 chamfer distance from every mask pixel to the nearest empty pixel, in thirds
+     * of a pixel (close enough to Euclidean for a width estimate)
+     */
+    private static int[] chamferDistance(byte[] mask, int width, int height) {
+        int[] distance = new int[width * height];
+        for (int i = 0; i < distance.length; i++) {
+            distance[i] = mask[i] == 0 ? 0 : Integer.MAX_VALUE / 2;
+        }
+
+        for (int z = 1; z < height - 1; z++) {
+            for (int x = 1; x < width - 1; x++) {
+                int i = z * width + x;
+                if (distance[i] == 0) {
+                    continue;
+                }
+                int d = distance[i];
+                d = Math.min(d, distance[i - 1] + CHAMFER_ORTHOGONAL);
+                d = Math.min(d, distance[i - width] + CHAMFER_ORTHOGONAL);
+                d = Math.min(d, distance[i - width - 1] + CHAMFER_DIAGONAL);
+                d = Math.min(d, distance[i - width + 1] + CHAMFER_DIAGONAL);
+                distance[i] = d;
+            }
+        }
+        for (int z = height - 2; z >= 1; z--) {
+            for (int x = width - 2; x >= 1; x--) {
+                int i = z * width + x;
+                if (distance[i] == 0) {
+                    continue;
+                }
+                int d = distance[i];
+                d = Math.min(d, distance[i + 1] + CHAMFER_ORTHOGONAL);
+                d = Math.min(d, distance[i + width] + CHAMFER_ORTHOGONAL);
+                d = Math.min(d, distance[i + width + 1] + CHAMFER_DIAGONAL);
+                d = Math.min(d, distance[i + width - 1] + CHAMFER_DIAGONAL);
+                distance[i] = d;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Largest distance around a skeleton pixel. Thinning can leave the skeleton a pixel off the true
+     * centre (on even widths and diagonals), where the distance to the banks reads too small.
+     */
+    private static int localMax(int[] distance, int width, int pixel) {
+        int max = 0;
+        for (int dz = -width; dz <= width; dz += width) {
+            for (int dx = -1; dx <= 1; dx++) {
+                max = Math.max(max, distance[pixel + dz + dx]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Moving average of the half-widths along a polyline of (x, z, halfWidth) triples, so the
+     * channel does not pulse in width from pixel to pixel
+     */
+    private static double[] averageWidths(double[] points) {
+        int count = points.length / 3;
+        double[] result = points.clone();
+        for (int i = 0; i < count; i++) {
+            double sum = 0.0;
+            int samples = 0;
+            for (int j = Math.max(0, i - WIDTH_AVERAGE_RADIUS); j <= Math.min(count - 1, i + WIDTH_AVERAGE_RADIUS); j++) {
+                sum += points[j * 3 + 2];
+                samples++;
+            }
+            result[i * 3 + 2] = sum / samples;
+        }
+        return result;
+    }
+
+    /**
+     * Zhang-Suen thinning, in place: peel the mask down to one-pixel-wide lines that keep its
+     * connectivity. The mask must have an empty border.
+     */
+    private static void thin(byte[] mask, int width, int height) {
+        int[] removals = new int[width * height];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int pass = 0; pass < 2; pass++) {
+                int count = 0;
+                for (int z = 1; z < height - 1; z++) {
+                    for (int x = 1; x < width - 1; x++) {
+                        int i = z * width + x;
+                        if (mask[i] == 0) {
+                            continue;
+                        }
+
+                        // Neighbours clockwise from north
+                        int p2 = mask[i - width];
+                        int p3 = mask[i - width + 1];
+                        int p4 = mask[i + 1];
+                        int p5 = mask[i + width + 1];
+                        int p6 = mask[i + width];
+                        int p7 = mask[i + width - 1];
+                        int p8 = mask[i - 1];
+                        int p9 = mask[i - width - 1];
+
+                        int neighbours = p2 + p3 + p4 + p5 + p6 + p7 + p8 + p9;
+                        if (neighbours < 2 || neighbours > 6) {
+                            continue;
+                        }
+                        int transitions = (p2 < p3 ? 1 : 0) + (p3 < p4 ? 1 : 0) + (p4 < p5 ? 1 : 0) + (p5 < p6 ? 1 : 0)
+                                + (p6 < p7 ? 1 : 0) + (p7 < p8 ? 1 : 0) + (p8 < p9 ? 1 : 0) + (p9 < p2 ? 1 : 0);
+                        if (transitions != 1) {
+                            continue;
+                        }
+                        boolean removable = pass == 0
+                                ? p2 * p4 * p6 == 0 && p4 * p6 * p8 == 0
+                                : p2 * p4 * p8 == 0 && p2 * p6 * p8 == 0;
+                        if (removable) {
+                            removals[count++] = i;
+                        }
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    mask[removals[i]] = 0;
+                }
+                changed |= count > 0;
+            }
+        }
+    }
+
+    /**
+     * Skeleton neighbours of a pixel. Diagonal steps are skipped where the skeleton also turns the
+     * corner through an orthogonal pixel, so staircases read as one line rather than junctions.
+     */
+    private static int links(byte[] skeleton, int width, int pixel, int[] out) {
+        int count = 0;
+        int[] orthogonal = {-width, 1, width, -1};
+        for (int offset : orthogonal) {
+            if (skeleton[pixel + offset] != 0) {
+                out[count++] = pixel + offset;
+            }
+        }
+        for (int d = 0; d < 4; d++) {
+            int a = orthogonal[d];
+            int b = orthogonal[(d + 1) & 3];
+            if (skeleton[pixel + a + b] != 0 && skeleton[pixel + a] == 0 && skeleton[pixel + b] == 0) {
+                out[count++] = pixel + a + b;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Split the skeleton into chains of pixels running between end points and junctions (or round
+     * a loop), dropping short spurs off junctions
+     */
+    private static List<int[]> trace(byte[] skeleton, int[] bankDistance, int width, int height) {
+        int[] degree = new int[width * height];
+        int[] neighbours = new int[8];
+        for (int i = 0; i < skeleton.length; i++) {
+            if (skeleton[i] != 0) {
+                degree[i] = links(skeleton, width, i, neighbours);
+            }
+        }
+
+        List<int[]> chains = new ArrayList<>();
+        boolean[] visited = new boolean[width * height];
+        int[] chain = new int[16];
+
+        for (int start = 0; start < skeleton.length; start++) {
+            if (skeleton[start] == 0 || degree[start] == 2) {
+                continue;
+            }
+            if (degree[start] == 0) {
+                // A blob too small to have a direction
+                chains.add(new int[] {start});
+                continue;
+            }
+
+            int[] startLinks = new int[8];
+            int startCount = links(skeleton, width, start, startLinks);
+            for (int l = 0; l < startCount; l++) {
+                int next = startLinks[l];
+                if (visited[next] || (degree[next] != 2 && next < start)) {
+                    // Already traced from the other end
+                    continue;
+                }
+
+                int length = 0;
+                chain[length++] = start;
+                int previous = start;
+                int pixel = next;
+                while (degree[pixel] == 2 && !visited[pixel]) {
+                    visited[pixel] = true;
+                    if (length == chain.length) {
+                        chain = Arrays.copyOf(chain, length * 2);
+                    }
+                    chain[length++] = pixel;
+                    links(skeleton, width, pixel, neighbours);
+                    int following = neighbours[0] == previous ? neighbours[1] : neighbours[0];
+                    previous = pixel;
+                    pixel = following;
+                }
+                if (degree[pixel] == 2) {
+                    // Ran into a chain traced from its other end
+                    continue;
+                }
+                if (length == chain.length) {
+                    chain = Arrays.copyOf(chain, length * 2);
+                }
+                chain[length++] = pixel;
+
+                if (!isSpur(degree, bankDistance, chain, length)) {
+                    chains.add(Arrays.copyOf(chain, length));
+                }
+            }
+        }
+
+        // Whatever is left are closed loops with no junctions
+        for (int start = 0; start < skeleton.length; start++) {
+            if (skeleton[start] == 0 || degree[start] != 2 || visited[start]) {
+                continue;
+            }
+            int length = 0;
+            int previous = -1;
+            int pixel = start;
+            while (!visited[pixel]) {
+                visited[pixel] = true;
+                if (length == chain.length) {
+                    chain = Arrays.copyOf(chain, length * 2);
+                }
+                chain[length++] = pixel;
+                links(skeleton, width, pixel, neighbours);
+                int following = neighbours[0] == previous ? neighbours[1] : neighbours[0];
+                previous = pixel;
+                pixel = following;
+            }
+            if (length == chain.length) {
+                chain = Arrays.copyOf(chain, length + 1);
+            }
+            chain[length++] = start;
+            chains.add(Arrays.copyOf(chain, length));
+        }
+        return chains;
+    }
+
+    private static boolean isSpur(int[] degree, int[] bankDistance, int[] chain, int length) {
+        int first = chain[0];
+        int last = chain[length - 1];
+        int junction;
+        if (degree[first] == 1 && degree[last] >= 3) {
+            junction = last;
+        } else if (degree[last] == 1 && degree[first] >= 3) {
+            junction = first;
+        } else {
+            return false;
+        }
+        double halfWidth = bankDistance[junction] / (double) CHAMFER_ORTHOGONAL;
+        return length < SPUR_HALF_WIDTHS * halfWidth + 1;
+    }
+
+    /**
+     * Douglas-Peucker simplification of a polyline of (x, z, halfWidth) triples
+     */
+    private static double[] simplify(double[] points) {
+        int count = points.length / 3;
+        if (count <= 2) {
+            return points;
+        }
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        int[] stack = new int[count * 2];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double ax = points[first * 3];
+            double az = points[first * 3 + 1];
+            double dx = points[last * 3] - ax;
+            double dz = points[last * 3 + 1] - az;
+            double length = Math.sqrt(dx * dx + dz * dz);
+
+            int farthest = -1;
+            double farthestDistance = SIMPLIFY_TOLERANCE;
+            for (int i = first + 1; i < last; i++) {
+                double px = points[i * 3] - ax;
+                double pz = points[i * 3 + 1] - az;
+                double distance = length == 0.0 ? Math.sqrt(px * px + pz * pz) : Math.abs(px * dz - pz * dx) / length;
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest >= 0) {
+                keep[farthest] = true;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        double[] result = new double[points.length];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                System.arraycopy(points, i * 3, result, kept * 3, 3);
+                kept++;
+            }
+        }
+        return Arrays.copyOf(result, kept * 3);
+    }
+
+    /**
+     * Chaikin corner cutting on a polyline of (x, z, halfWidth) triples; the end points stay put,
+     * so chains still meet at their junctions
+     */
+    private static double[] smooth(double[] points, int passes) {
+        for (int pass = 0; pass < passes; pass++) {
+            int count = points.length / 3;
+            if (count <= 2) {
+                return points;
+            }
+
+            // Each inner edge gives two points, the first and last edges one each, plus the end points
+            double[] result = new double[2 * (count - 1) * 3];
+            System.arraycopy(points, 0, result, 0, 3);
+            int out = 3;
+            for (int i = 0; i < count - 1; i++) {
+                if (i > 0) {
+                    for (int c = 0; c < 3; c++) {
+                        result[out++] = points[i * 3 + c] * 0.75 + points[(i + 1) * 3 + c] * 0.25;
+                    }
+                }
+                if (i < count - 2) {
+                    for (int c = 0; c < 3; c++) {
+                        result[out++] = points[i * 3 + c] * 0.25 + points[(i + 1) * 3 + c] * 0.75;
+                    }
+                }
+            }
+            System.arraycopy(points, (count - 1) * 3, result, out, 3);
+            points = result;
+        }
+        return points;
+    }
+
+    /**
+     * Turn polylines of (x, z, halfWidth) triples in world blocks into segments, and list every
+     * segment in each grid cell its valley reaches
+     */
+    private static RiverNetwork index(List<double[]> polylines) {
+        int segments = 0;
+        for (double[] points : polylines) {
+            segments += Math.max(1, points.length / 3 - 1);
+        }
+        if (segments == 0) {
+            return EMPTY;
+        }
+
+        float[] startX = new float[segments];
+        float[] startZ = new float[segments];
+        float[] endX = new float[segments];
+        float[] endZ = new float[segments];
+        float[] startHalfWidth = new float[segments];
+        float[] endHalfWidth = new float[segments];
+        int segment = 0;
+        for (double[] points : polylines) {
+            int count = points.length / 3;
+            for (int i = 0; i < Math.max(1, count - 1); i++) {
+                int next = Math.min(i + 1, count - 1);
+                startX[segment] = (float) points[i * 3];
+                startZ[segment] = (float) points[i * 3 + 1];
+                startHalfWidth[segment] = (float) points[i * 3 + 2];
+                endX[segment] = (float) points[next * 3];
+                endZ[segment] = (float) points[next * 3 + 1];
+                endHalfWidth[segment] = (float) points[next * 3 + 2];
+                segment++;
+            }
+        }
+
+        // Block bounds of every segment's valley
+        int[] bounds = new int[segments * 4];
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (int s = 0; s < segments; s++) {
+            double halfWidth = Math.max(startHalfWidth[s], endHalfWidth[s]);
+            double reach = halfWidth + bankWidth(halfWidth);
+            bounds[s * 4] = (int) Math.floor(Math.min(startX[s], endX[s]) - reach);
+            bounds[s * 4 + 1] = (int) Math.floor(Math.min(startZ[s], endZ[s]) - reach);
+            bounds[s * 4 + 2] = (int) Math.ceil(Math.max(startX[s], endX[s]) + reach);
+            bounds[s * 4 + 3] = (int) Math.ceil(Math.max(startZ[s], endZ[s]) + reach);
+            minX = Math.min(minX, bounds[s * 4]);
+            minZ = Math.min(minZ, bounds[s * 4 + 1]);
+            maxX = Math.max(maxX, bounds[s * 4 + 2]);
+            maxZ = Math.max(maxZ, bounds[s * 4 + 3]);
+        }
+
+        int cellSize = 1 << CELL_SHIFT;
+        int gridMinX = minX & -cellSize;
+        int gridMinZ = minZ & -cellSize;
+        int gridWidth = ((maxX - gridMinX) >> CELL_SHIFT) + 1;
+        int gridHeight = ((maxZ - gridMinZ) >> CELL_SHIFT) + 1;
+
+        // Count the segments of each cell, then fill them in
+        int[] cellStart = new int[gridWidth * gridHeight + 1];
+        for (int s = 0; s < segments; s++) {
+            forEachCell(bounds, s, gridMinX, gridMinZ, gridWidth, cell -> cellStart[cell + 1]++);
+        }
+        for (int cell = 0; cell < gridWidth * gridHeight; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+
+        int[] fill = Arrays.copyOf(cellStart, gridWidth * gridHeight);
+        int[] cellSegments = new int[cellStart[gridWidth * gridHeight]];
+        for (int s = 0; s < segments; s++) {
+            int listed = s;
+            forEachCell(bounds, s, gridMinX, gridMinZ, gridWidth, cell -> cellSegments[fill[cell]++] = listed);
+        }
+
+        return new RiverNetwork(startX, startZ, endX, endZ, startHalfWidth, endHalfWidth,
+                gridMinX, gridMinZ, gridWidth, gridHeight, cellStart, cellSegments);
+    }
+
+    private static void forEachCell(int[] bounds, int segment, int gridMinX, int gridMinZ, int gridWidth,
+                                    IntConsumer action) {
+        int cellMinX = (bounds[segment * 4] - gridMinX) >> CELL_SHIFT;
+        int cellMinZ = (bounds[segment * 4 + 1] - gridMinZ) >> CELL_SHIFT;
+        int cellMaxX = (bounds[segment * 4 + 2] - gridMinX) >> CELL_SHIFT;
+        int cellMaxZ = (bounds[segment * 4 + 3] - gridMinZ) >> CELL_SHIFT;
+        for (int cellZ = cellMinZ; cellZ <= cellMaxZ; cellZ++) {
+            for (int cellX = cellMinX; cellX <= cellMaxX; cellX++) {
+                action.accept(cellZ * gridWidth + cellX);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lotrmod.worldgen;
+
+import static com.lotrmod.worldgen.MiddleEarthChunkGenerator.*;
+
+/**
+ * Reference height composition, one column at a time. Also used directly for single-column
+ * queries (landing heights, base heights), so those always agree with generated chunks.
+ */
+final class ScalarHeightKernel implements HeightKernel {
+    @Override
+    public void compose(HeightPlane plane) {
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                int column = ChunkColumnCache.ColumnData.index(x, z);
+                plane.heights[column] = composeColumn(plane, column, plane.weightX[x], plane.weightZ[z]);
+            }
+        }
+    }
+
+    /**
+     * Compose the height of one column
+     *
+     * @param fx, fz Blend weights of the column within its blend cell
+     */
+    static double composeColumn(HeightPlane plane, int column, double fx, double fz) {
+        // Apply each corner's biome to the SAME noise values, then blend the resulting HEIGHTS
+        // (not the modifiers), so features stay continuous across biome borders
+        double height00 = cornerHeight(plane, 0, column);
+        double height10 = cornerHeight(plane, 1, column);
+        double height01 = cornerHeight(plane, 2, column);
+        double height11 = cornerHeight(plane, 3, column);
+
+        double v0 = height00 * (1.0 - fx) + height10 * fx;
+        double v1 = height01 * (1.0 - fx) + height11 * fx;
+        double baseTerrainHeight = v0 * (1.0 - fz) + v1 * fz;
+
+        return applyLandmask(baseTerrainHeight, plane.brightness[column], plane.landmaskLoaded);
+    }
+
+    private static double cornerHeight(HeightPlane plane, int corner, int column) {
+        double variationScale = plane.variationScale[corner];
+
+        // Multi-scale noise, scaled by how rough this biome is
+        double baseHeight = SEA_LEVEL +
+                (plane.large[column] * LARGE_SCALE_AMPLITUDE * variationScale) +
+                (plane.medium[column] * MEDIUM_SCALE_AMPLITUDE * variationScale) +
+                (plane.small[column] * SMALL_SCALE_AMPLITUDE * variationScale * 0.8) +
+                (plane.detail[column] * DETAIL_SCALE_AMPLITUDE * variationScale * 0.6);
+
+        return baseHeight
+                + plane.mountain[column] * plane.mountainHeight[corner]
+                + plane.hill[column] * plane.hillFactor[corner]
+                + plane.heightOffset[corner];
+    }
+
+    /**
+     * Bias the height towards the landmask, then sink it into the ocean where the landmask is
+     * bright: gently flatten high ground near the coast, smoothstep down to the ocean floor across
+     * the transition band, and use the flat ocean floor beyond it
+     */
+    static double applyLandmask(double height, double brightness, boolean landmaskLoaded) {
+        double landmaskBias = landmaskLoaded ? (1.0 - (brightness / 127.5)) * LANDMASK_HEIGHT_BIAS : 0.0;
+        double finalHeight = height + (landmaskBias * LANDMASK_INFLUENCE_STRENGTH);
+
+        if (!landmaskLoaded || brightness <= COAST_LAND_THRESHOLD) {
+            return finalHeight;
+        }
+
+        if (brightness >= OCEAN_BRIGHTNESS_THRESHOLD) {
+            return OCEAN_FLOOR_HEIGHT;
+        }
+
+        if (brightness >= COAST_TRANSITION_START) {
+            double blendFactor = (brightness - COAST_TRANSITION_START) / (OCEAN_BRIGHTNESS_THRESHOLD - COAST_TRANSITION_START);
+            blendFactor = blendFactor * blendFactor * (3.0 - 2.0 * blendFactor);
+            return finalHeight * (1.0 - blendFactor) + OCEAN_FLOOR_HEIGHT * blendFactor;
+        }
+
+        double gentleFactor = (brightness - COAST_LAND_THRESHOLD) / (COAST_TRANSITION_START - COAST_LAND_THRESHOLD);
+        gentleFactor = gentleFactor * gentleFactor;
+
+        if (finalHeight > COAST_HEIGHT_CAP) {
+            double excessHeight = finalHeight - COAST_HEIGHT_CAP;
+            return COAST_HEIGHT_CAP + excessHeight * (1.0 - gentleFactor * 0.5);
+        }
+        return finalHeight;
+    }
+}
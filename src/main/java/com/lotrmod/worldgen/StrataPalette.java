@@ -0,0 +1,313 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.block.ModBlocks;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Chooses the stone of a chunk as it is filled: bands of the region's strata stone (limestone,
+ * calcite, volcanic stone) through the plain stone, and ore veins from the region's ore table.
+ *
+ * Everything is decided by hashing block, section and band coordinates, so the fill stage places
+ * ores in the same pass that lays down the stone, without a random source or a later feature
+ * pass, and a chunk always comes out the same.
+ *
+ * The strata stone is resolved per column from the region raster, so it follows region borders
+ * through a chunk; the ore table comes from the region at the chunk's centre, since veins are
+ * placed per section.
+ */
+final class StrataPalette {
+    private static final long SEED = 0x5354524154414cL;
+
+    // Strata bands are this many blocks thick, with boundaries wandering up to STRATA_WAVE blocks
+    // up or down over a grid of 64-block cells
+    private static final int STRATA_THICKNESS = 6;
+    private static final int STRATA_WAVE = 4;
+    private static final int STRATA_WAVE_SHIFT = 6;
+    // Share of bands made of the strata stone
+    private static final double STRATA_SHARE = 0.35;
+
+    // Chance that one of the four layers above the bottom of the world is bedrock
+    private static final double BEDROCK_CHANCE = 0.8;
+
+    /**
+     * One kind of ore: how many veins per 16x16x16 section on average, between which heights,
+     * and roughly how many blocks a vein has
+     */
+    private record Ore(BlockState state, int minY, int maxY, double veinsPerSection, int size) {
+    }
+
+    private static final Ore[] COMMON_ORES = {
+            new Ore(Blocks.COAL_ORE.defaultBlockState(), 0, 192, 1.5, 12),
+            new Ore(Blocks.IRON_ORE.defaultBlockState(), -64, 72, 1.0, 8),
+            new Ore(Blocks.COPPER_ORE.defaultBlockState(), -16, 96, 0.8, 10),
+            new Ore(Blocks.GOLD_ORE.defaultBlockState(), -64, 32, 0.25, 7),
+            new Ore(Blocks.REDSTONE_ORE.defaultBlockState(), -64, 16, 0.5, 6),
+            new Ore(Blocks.LAPIS_ORE.defaultBlockState(), -64, 32, 0.15, 6),
+            new Ore(Blocks.DIAMOND_ORE.defaultBlockState(), -64, -48, 0.35, 5)
+    };
+
+    // The dwarves' mountains: rich in iron and gold, with emeralds high up
+    private static final Ore[] DWARVEN_ORES = {
+            new Ore(Blocks.COAL_ORE.defaultBlockState(), 0, 192, 1.5, 12),
+            new Ore(Blocks.IRON_ORE.defaultBlockState(), -64, 128, 2.0, 10),
+            new Ore(Blocks.COPPER_ORE.defaultBlockState(), -16, 112, 1.0, 10),
+            new Ore(Blocks.GOLD_ORE.defaultBlockState(), -64, 64, 0.6, 8),
+            new Ore(Blocks.EMERALD_ORE.defaultBlockState(), -16, 192, 0.3, 3),
+            new Ore(Blocks.REDSTONE_ORE.defaultBlockState(), -64, 16, 0.5, 6),
+            new Ore(Blocks.LAPIS_ORE.defaultBlockState(), -64, 32, 0.15, 6),
+            new Ore(Blocks.DIAMOND_ORE.defaultBlockState(), -64, -32, 0.5, 6)
+    };
+
+    // Mordor and the lands around it: iron and coal, little else
+    private static final Ore[] MORDOR_ORES = {
+            new Ore(Blocks.COAL_ORE.defaultBlockState(), 0, 192, 2.0, 14),
+            new Ore(Blocks.IRON_ORE.defaultBlockState(), -64, 96, 1.5, 9),
+            new Ore(Blocks.GOLD_ORE.defaultBlockState(), -64, 32, 0.2, 7),
+            new Ore(Blocks.REDSTONE_ORE.defaultBlockState(), -64, 32, 0.8, 8),
+            new Ore(Blocks.DIAMOND_ORE.defaultBlockState(), -64, -48, 0.3, 5)
+    };
+
+    // Harad: gold nearer the surface
+    private static final Ore[] HARAD_ORES = {
+            new Ore(Blocks.COAL_ORE.defaultBlockState(), 0, 192, 1.0, 12),
+            new Ore(Blocks.IRON_ORE.defaultBlockState(), -64, 72, 0.8, 8),
+            new Ore(Blocks.COPPER_ORE.defaultBlockState(), -16, 96, 1.0, 10),
+            new Ore(Blocks.GOLD_ORE.defaultBlockState(), -64, 64, 0.6, 8),
+            new Ore(Blocks.REDSTONE_ORE.defaultBlockState(), -64, 16, 0.5, 6),
+            new Ore(Blocks.LAPIS_ORE.defaultBlockState(), -64, 32, 0.2, 6),
+            new Ore(Blocks.DIAMOND_ORE.defaultBlockState(), -64, -48, 0.35, 5)
+    };
+
+    private static final Map<Region, Ore[]> ORES = createOreTable();
+
+    /**
+     * The strata stones, looked up on first use (after block registration)
+     */
+    private static final class Stones {
+        static final BlockState STONE = Blocks.STONE.defaultBlockState();
+        static final BlockState LIMESTONE = strataStone("limestone");
+        static final BlockState CALCITE = strataStone("calcite");
+        static final BlockState VOLCANIC_STONE = strataStone("volcanic_stone");
+
+        private static BlockState strataStone(String name) {
+            return ModBlocks.STONE_TYPES.get(name).stone.get().defaultBlockState();
+        }
+    }
+
+    private final int chunkX;
+    private final int chunkZ;
+    private final Ore[] ores;
+    // Per column, null for plain stone; the whole array is null if no column has strata
+    private final BlockState[] strataStones;
+    private final int[] strataOffsets;
+
+    private StrataPalette(int chunkX, int chunkZ, Ore[] ores, BlockState[] strataStones, int[] strataOffsets) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.ores = ores;
+        this.strataStones = strataStones;
+        this.strataOffsets = strataOffsets;
+    }
+
+    private static Map<Region, Ore[]> createOreTable() {
+        Map<Region, Ore[]> table = new EnumMap<>(Region.class);
+        for (Region region : Region.values()) {
+            table.put(region, switch (region) {
+                case BLUE_MOUNTAINS, MISTY_MOUNTAINS, GREY_MOUNTAINS, EREBOR, IRON_HILLS -> DWARVEN_ORES;
+                case MORDOR, MOUNTAINS_OF_SHADOW, DEAD_LANDS -> MORDOR_ORES;
+                case HARAD -> HARAD_ORES;
+                default -> COMMON_ORES;
+            });
+        }
+        return table;
+    }
+
+    private static BlockState strataStoneFor(Region region) {
+        return switch (region) {
+            case LINDON, GONDOR, HARAD, THE_SHIRE -> Stones.LIMESTONE;
+            case WHITE_MOUNTAINS, FORODWAITH -> Stones.CALCITE;
+            case MORDOR, MOUNTAINS_OF_SHADOW, DEAD_LANDS -> Stones.VOLCANIC_STONE;
+            default -> null;
+        };
+    }
+
+    /**
+     * Get the palette for a chunk
+     */
+    static StrataPalette forChunk(ChunkPos chunkPos) {
+        int startX = chunkPos.getMinBlockX();
+        int startZ = chunkPos.getMinBlockZ();
+        Region region = RegionMapLoader.getRegion(startX + 8, startZ + 8);
+
+        BlockState[] stones = null;
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                BlockState strataStone = strataStoneFor(RegionMapLoader.getRegion(startX + x, startZ + z));
+                if (strataStone != null) {
+                    if (stones == null) {
+                        stones = new BlockState[256];
+                    }
+                    stones[ChunkColumnCache.ColumnData.index(x, z)] = strataStone;
+                }
+            }
+        }
+
+        int[] offsets = null;
+        if (stones != null) {
+            // Band boundaries wander smoothly, interpolated between hashed heights on a coarse grid
+            offsets = new int[256];
+            int cellSize = 1 << STRATA_WAVE_SHIFT;
+            int cellX = startX >> STRATA_WAVE_SHIFT;
+            int cellZ = startZ >> STRATA_WAVE_SHIFT;
+            double o00 = waveOffset(cellX, cellZ);
+            double o10 = waveOffset(cellX + 1, cellZ);
+            double o01 = waveOffset(cellX, cellZ + 1);
+            double o11 = waveOffset(cellX + 1, cellZ + 1);
+            for (int x = 0; x < 16; x++) {
+                double fx = ((startX + x) & (cellSize - 1)) / (double) cellSize;
+                for (int z = 0; z < 16; z++) {
+                    double fz = ((startZ + z) & (cellSize - 1)) / (double) cellSize;
+                    double offset = (o00 * (1.0 - fx) + o10 * fx) * (1.0 - fz) + (o01 * (1.0 - fx) + o11 * fx) * fz;
+                    offsets[ChunkColumnCache.ColumnData.index(x, z)] = (int) Math.round(offset);
+                }
+            }
+        }
+        return new StrataPalette(chunkPos.x, chunkPos.z, ORES.get(region), stones, offsets);
+    }
+
+    /**
+     * Whether any of the chunk's stone is a strata stone rather than plain stone
+     */
+    boolean hasStrata() {
+        return strataStones != null;
+    }
+
+    /**
+     * Get the stone (without ores) at a position in the chunk
+     */
+    BlockState stoneAt(int localX, int y, int localZ) {
+        if (strataStones == null) {
+            return Stones.STONE;
+        }
+        int column = ChunkColumnCache.ColumnData.index(localX, localZ);
+        BlockState strataStone = strataStones[column];
+        if (strataStone == null) {
+            return Stones.STONE;
+        }
+        int band = Math.floorDiv(y + strataOffsets[column], STRATA_THICKNESS);
+        return unit(hash(SEED ^ 0x42, band, 0, 0)) < STRATA_SHARE ? strataStone : Stones.STONE;
+    }
+
+    /**
+     * Whether a block in the bottom layers of the world is bedrock
+     */
+    boolean isBedrock(int localX, int y, int localZ) {
+        long h = hash(SEED ^ 0xBED, (chunkX << 4) + localX, y, (chunkZ << 4) + localZ);
+        return unit(h) < BEDROCK_CHANCE;
+    }
+
+    /**
+     * Place the ore veins of one section into a 16x16x16 array (indexed y, z, x), which must be
+     * all null on entry. Veins are kept inside the section.
+     *
+     * @return Whether any ore was placed
+     */
+    boolean placeOres(int sectionY, BlockState[] out) {
+        int sectionMinY = sectionY << 4;
+        boolean placed = false;
+
+        for (int i = 0; i < ores.length; i++) {
+            Ore ore = ores[i];
+            int minY = Math.max(ore.minY(), sectionMinY);
+            int maxY = Math.min(ore.maxY(), sectionMinY + 15);
+            if (minY > maxY) {
+                continue;
+            }
+
+            long sectionSeed = hash(SEED + i, chunkX, sectionY, chunkZ);
+            int veins = (int) ore.veinsPerSection();
+            if (unit(sectionSeed) < ore.veinsPerSection() - veins) {
+                veins++;
+            }
+
+            for (int vein = 0; vein < veins; vein++) {
+                long veinSeed = mix(sectionSeed + vein + 1);
+                int centerX = (int) (veinSeed & 15);
+                int centerZ = (int) ((veinSeed >>> 4) & 15);
+                int centerY = minY + (int) Math.floorMod(veinSeed >>> 8, (long) (maxY - minY + 1)) - sectionMinY;
+                placed |= placeVein(ore, veinSeed, centerX, centerY, centerZ, out);
+            }
+        }
+        return placed;
+    }
+
+    /**
+     * A rough blob of about ore.size blocks around a centre: blocks within the blob's radius are
+     * kept by a hash, so veins are ragged rather than spheres
+     */
+    private static boolean placeVein(Ore ore, long veinSeed, int centerX, int centerY, int centerZ, BlockState[] out) {
+        int radius = ore.size() <= 4 ? 1 : 2;
+        double radiusSquared = Math.cbrt(ore.size()) * 0.75;
+        radiusSquared *= radiusSquared;
+        double keep = Math.min(1.0, ore.size() / (4.19 * Math.pow(Math.sqrt(radiusSquared), 3)));
+
+        boolean placed = false;
+        for (int dy = -radius; dy <= radius; dy++) {
+            int y = centerY + dy;
+            if (y < 0 || y > 15) {
+                continue;
+            }
+            for (int dz = -radius; dz <= radius; dz++) {
+                int z = centerZ + dz;
+                if (z < 0 || z > 15) {
+                    continue;
+                }
+                for (int dx = -radius; dx <= radius; dx++) {
+                    int x = centerX + dx;
+                    if (x < 0 || x > 15 || dx * dx + dy * dy + dz * dz > radiusSquared) {
+                        continue;
+                    }
+                    if (unit(hash(veinSeed, dx, dy, dz)) < keep) {
+                        out[(y << 8) | (z << 4) | x] = ore.state();
+                        placed = true;
+                    }
+                }
+            }
+        }
+        return placed;
+    }
+
+    static void clear(BlockState[] ores) {
+        Arrays.fill(ores, null);
+    }
+
+    private static double waveOffset(int cellX, int cellZ) {
+        return (unit(hash(SEED ^ 0x57, cellX, 0, cellZ)) * 2.0 - 1.0) * STRATA_WAVE;
+    }
+
+    private static long hash(long seed, int x, int y, int z) {
+        return mix(seed ^ mix(x * 0x9E3779B97F4A7C15L ^ y * 0xC2B2AE3D27D4EB4FL ^ z * 0x165667B19E3779F9L));
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * Map a hash to [0, 1)
+     */
+    private static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+}
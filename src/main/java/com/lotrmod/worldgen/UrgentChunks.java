@@ -0,0 +1,74 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.LOTRConfig;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongMaps;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * Chunks a player is waiting on right now: the destination of a teleport, or where a player
+ * just logged in.
+ *
+ * The chunk generator spreads the fill and surface stages of these chunks over the fork-join
+ * pool (column strips and section ranges), so the player waits on one chunk's work split across
+ * cores rather than on one thread. Every other chunk, including batch pregeneration, keeps the
+ * cheaper one-chunk-per-thread model. Marks expire on their own once the chunks had ample time
+ * to generate.
+ *
+ * Marks are rare and every chunk checks for one, so the marks are an immutable map replaced as a
+ * whole on each change, and the check never takes a lock.
+ */
+public final class UrgentChunks {
+    // Chunks marked around the centre: the chunk itself and the neighbours its features need
+    private static final int RADIUS = 2;
+    private static final long LIFETIME_NANOS = 30_000_000_000L;
+
+    // Chunk position to the System.nanoTime() after which the mark expires; never modified once published
+    private static volatile Long2LongMap deadlines = Long2LongMaps.EMPTY_MAP;
+
+    private UrgentChunks() {
+    }
+
+    /**
+     * Mark the chunks around a position that a player is about to wait on
+     */
+    public static void mark(ChunkPos centre) {
+        if (!LOTRConfig.PARALLEL_URGENT_CHUNKS.get()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        synchronized (UrgentChunks.class) {
+            Long2LongOpenHashMap updated = new Long2LongOpenHashMap(deadlines);
+            updated.long2LongEntrySet().removeIf(entry -> entry.getLongValue() - now < 0);
+            for (int x = centre.x - RADIUS; x <= centre.x + RADIUS; x++) {
+                for (int z = centre.z - RADIUS; z <= centre.z + RADIUS; z++) {
+                    updated.put(ChunkPos.asLong(x, z), now + LIFETIME_NANOS);
+                }
+            }
+            deadlines = updated;
+        }
+    }
+
+    /**
+     * Check whether a player is waiting on a chunk
+     */
+    static boolean isUrgent(ChunkPos chunkPos) {
+        Long2LongMap current = deadlines;
+        if (current.isEmpty()) {
+            return false;
+        }
+        long deadline = current.getOrDefault(chunkPos.toLong(), Long.MIN_VALUE);
+        return deadline != Long.MIN_VALUE && deadline - System.nanoTime() > 0;
+    }
+
+    /**
+     * Drop all marks (e.g. when the server stops)
+     */
+    public static void clear() {
+        synchronized (UrgentChunks.class) {
+            deadlines = Long2LongMaps.EMPTY_MAP;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.lotrmod.worldgen;
+
+/**
+ * Management interface for Middle-earth generation, registered as com.lotrmod:type=WorldGen while
+ * a server is running. See {@link WorldGenManagement}.
+ */
+public interface WorldGenMXBean {
+    // ==================== COLUMN CACHE ====================
+
+    int getColumnCacheSize();
+
+    int getColumnCacheCapacity();
+
+    void setColumnCacheCapacity(int capacity);
+
+    long getColumnCacheHits();
+
+    long getColumnCacheMisses();
+
+    /**
+     * Share of column lookups answered from the cache since the server started, 0 to 1
+     */
+    double getColumnCacheHitRatio();
+
+    void dropColumnCache();
+
+    // ==================== MAPS ====================
+
+    long getLandmaskBytes();
+
+    long getRegionMapBytes();
+
+    /**
+     * Decoded tile budget of each tiled map, in bytes (0 if neither map is tiled)
+     */
+    long getMapTileCacheBudgetBytes();
+
+    void resizeMapTileCache(int megabytes);
+
+    void dropMapTiles();
+
+    // ==================== WORKER POOLS ====================
+
+    int getTileLoaderThreads();
+
+    int getTileLoaderActiveThreads();
+
+    int getTileLoaderQueuedTasks();
+
+    /**
+     * Busy share of the common fork-join pool, which runs the parallel map index, river and erosion builds
+     */
+    double getCommonPoolUtilization();
+
+    long getCommonPoolQueuedTasks();
+
+    // ==================== PREFETCH ====================
+
+    long getPrefetchedChunks();
+
+    long getPrefetchedChunksUsed();
+
+    /**
+     * Share of prefetched chunks whose columns the fill stage used, 0 to 1
+     */
+    double getPrefetchUseRatio();
+
+    long getPrefetchSkippedForBudget();
+
+    int getPrefetchQueuedChunks();
+
+    /**
+     * Prefetched chunks waiting in the column cache's prefetch slice
+     */
+    int getPrefetchCachedChunks();
+
+    // ==================== FAST PATHS ====================
+
+    /**
+     * Height kernel in use, or "unselected" until the next chunk picks one
+     */
+    String getHeightKernel();
+
+    boolean isVectorHeightKernelEnabled();
+
+    void setVectorHeightKernelEnabled(boolean enabled);
+}
@@ -0,0 +1,233 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.raster.Raster;
+import com.lotrmod.worldgen.raster.TiledRaster;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * JMX view of Middle-earth generation: cache sizes and hit ratios, memory held by the maps,
+ * worker pool load, and switches for the optional fast paths, so a live server can be inspected
+ * and tuned from any JMX console without a restart.
+ *
+ * Only runtime state is exposed. The terrain shape constants stay fixed, since changing them on a
+ * live server would leave seams against the chunks already generated.
+ */
+public final class WorldGenManagement implements WorldGenMXBean {
+    private static final String OBJECT_NAME = "com.lotrmod:type=WorldGen";
+
+    private final MiddleEarthChunkGenerator generator;
+
+    private WorldGenManagement(MiddleEarthChunkGenerator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Register the bean for the Middle-earth generator of the running server, replacing any
+     * bean left from an earlier server in the same JVM
+     */
+    public static void register(MiddleEarthChunkGenerator generator) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new WorldGenManagement(generator), name);
+        } catch (JMException | RuntimeException e) {
+            // JMX is optional, generation works the same without it
+            LOTRMod.LOGGER.warn("Could not register the worldgen management bean: {}", e.getMessage());
+        }
+    }
+
+    public static void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException | RuntimeException e) {
+            LOTRMod.LOGGER.warn("Could not unregister the worldgen management bean: {}", e.getMessage());
+        }
+    }
+
+    // ==================== COLUMN CACHE ====================
+
+    @Override
+    public int getColumnCacheSize() {
+        return generator.getColumnCache().size();
+    }
+
+    @Override
+    public int getColumnCacheCapacity() {
+        return generator.getColumnCache().getCapacity();
+    }
+
+    @Override
+    public void setColumnCacheCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+        }
+        generator.getColumnCache().setCapacity(capacity);
+        LOTRMod.LOGGER.info("Column cache capacity set to {} chunks", capacity);
+    }
+
+    @Override
+    public long getColumnCacheHits() {
+        return generator.getColumnCache().getHits();
+    }
+
+    @Override
+    public long getColumnCacheMisses() {
+        return generator.getColumnCache().getMisses();
+    }
+
+    @Override
+    public double getColumnCacheHitRatio() {
+        ChunkColumnCache cache = generator.getColumnCache();
+        long hits = cache.getHits();
+        long total = hits + cache.getMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public void dropColumnCache() {
+        generator.getColumnCache().clear();
+        LOTRMod.LOGGER.info("Column cache dropped");
+    }
+
+    // ==================== MAPS ====================
+
+    @Override
+    public long getLandmaskBytes() {
+        return residentBytes(LandmaskLoader.getRaster());
+    }
+
+    @Override
+    public long getRegionMapBytes() {
+        return residentBytes(RegionMapLoader.getRaster());
+    }
+
+    @Override
+    public long getMapTileCacheBudgetBytes() {
+        for (Raster raster : new Raster[] {LandmaskLoader.getRaster(), RegionMapLoader.getRaster()}) {
+            if (raster instanceof TiledRaster tiled) {
+                return tiled.getBudgetBytes();
+            }
+        }
+        return 0L;
+    }
+
+    @Override
+    public void resizeMapTileCache(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Budget must be at least 1 MB, got " + megabytes);
+        }
+        for (Raster raster : new Raster[] {LandmaskLoader.getRaster(), RegionMapLoader.getRaster()}) {
+            if (raster instanceof TiledRaster tiled) {
+                tiled.setBudgetBytes(megabytes * 1024L * 1024L);
+            }
+        }
+        LOTRMod.LOGGER.info("Map tile cache budget set to {} MB per map until the maps are reloaded", megabytes);
+    }
+
+    @Override
+    public void dropMapTiles() {
+        for (Raster raster : new Raster[] {LandmaskLoader.getRaster(), RegionMapLoader.getRaster()}) {
+            if (raster instanceof TiledRaster tiled) {
+                tiled.evictAll();
+            }
+        }
+        LOTRMod.LOGGER.info("Decoded map tiles dropped");
+    }
+
+    private static long residentBytes(Raster raster) {
+        return raster != null ? raster.getResidentBytes() : 0L;
+    }
+
+    // ==================== WORKER POOLS ====================
+
+    @Override
+    public int getTileLoaderThreads() {
+        return TiledRaster.getLoaderThreads();
+    }
+
+    @Override
+    public int getTileLoaderActiveThreads() {
+        return TiledRaster.getLoaderActiveThreads();
+    }
+
+    @Override
+    public int getTileLoaderQueuedTasks() {
+        return TiledRaster.getLoaderQueuedTasks();
+    }
+
+    @Override
+    public double getCommonPoolUtilization() {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        return (double) pool.getActiveThreadCount() / pool.getParallelism();
+    }
+
+    @Override
+    public long getCommonPoolQueuedTasks() {
+        return ForkJoinPool.commonPool().getQueuedTaskCount();
+    }
+
+    // ==================== PREFETCH ====================
+
+    @Override
+    public long getPrefetchedChunks() {
+        return ColumnPrefetcher.getPrefetched();
+    }
+
+    @Override
+    public long getPrefetchedChunksUsed() {
+        return ColumnPrefetcher.getUsed();
+    }
+
+    @Override
+    public double getPrefetchUseRatio() {
+        long prefetched = ColumnPrefetcher.getPrefetched();
+        return prefetched == 0 ? 0.0 : (double) ColumnPrefetcher.getUsed() / prefetched;
+    }
+
+    @Override
+    public long getPrefetchSkippedForBudget() {
+        return ColumnPrefetcher.getSkipped();
+    }
+
+    @Override
+    public int getPrefetchQueuedChunks() {
+        return ColumnPrefetcher.getQueued();
+    }
+
+    @Override
+    public int getPrefetchCachedChunks() {
+        return generator.getColumnCache().prefetchedSize();
+    }
+
+    // ==================== FAST PATHS ====================
+
+    @Override
+    public String getHeightKernel() {
+        String name = HeightKernels.getSelectedName();
+        return name != null ? name : "unselected";
+    }
+
+    @Override
+    public boolean isVectorHeightKernelEnabled() {
+        return HeightKernels.isVectorEnabled();
+    }
+
+    @Override
+    public void setVectorHeightKernelEnabled(boolean enabled) {
+        HeightKernels.setVectorEnabled(enabled);
+        LOTRMod.LOGGER.info("Vector height kernel {} through JMX", enabled ? "enabled" : "disabled");
+    }
+}
@@ -0,0 +1,234 @@
+package com.lotrmod.worldgen;
+
+import com.lotrmod.LOTRConfig;
+import com.lotrmod.LOTRMod;
+import net.minecraft.Util;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.packs.resources.ResourceManager;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads the landmask and region map, and rebuilds everything derived from them, off the server
+ * thread.
+ *
+ * Loading starts from the reload listener, as soon as the server's resources are available, with
+ * the two maps decoded at the same time on the background executor. Nothing waits for it up
+ * front: the first Middle-earth chunk or height query blocks in {@link #awaitLoaded} only if the
+ * maps are not ready by then.
+ *
+ * With {@code worldgen.lazyMaps} the reload listener only remembers the resources, and the maps
+ * are loaded on the first use of Middle-earth instead (or in the background once the server has
+ * settled, with {@code worldgen.lazyMapsPreloadSeconds}). Independently of that,
+ * {@code worldgen.unloadMapsAfterMinutes} releases the maps and the generator's caches once
+ * Middle-earth has been empty that long, to be loaded again on the next use.
+ */
+public final class WorldGenMaps {
+    private static final int CHECK_INTERVAL_TICKS = 20;
+    // Preloading waits for ticks to average under half the 50 ms budget
+    private static final long IDLE_TICK_NANOS = 25_000_000L;
+
+    // The most recent load; null until one starts, and again once the maps are released
+    private static volatile CompletableFuture<Void> loading;
+    // Resources of the last reload, for loading on first use
+    private static volatile ResourceManager resources;
+    private static volatile MiddleEarthChunkGenerator generator;
+
+    // Server thread only
+    private static int emptyTicks;
+    private static boolean preloadChecked;
+
+    private WorldGenMaps() {
+    }
+
+    /**
+     * Take the resources of a (re)load: load the maps from them now, or only remember them if
+     * lazy maps are on and the maps are not loaded anyway
+     */
+    public static synchronized void load(ResourceManager resourceManager) {
+        resources = resourceManager;
+        if (loading == null && LOTRConfig.LAZY_MAPS.get()) {
+            LOTRMod.LOGGER.info("Lazy maps: the world generation maps load on the first use of Middle-earth");
+            return;
+        }
+        startLoad(resourceManager);
+    }
+
+    /**
+     * Hook up the Middle-earth generator of a starting server, so its erosion field is prepared
+     * after each load and its caches are released with the maps
+     */
+    public static synchronized void serverStarting(ResourceManager resourceManager, MiddleEarthChunkGenerator middleEarthGenerator) {
+        generator = middleEarthGenerator;
+        if (resources == null) {
+            // The reload listener never ran for this server
+            load(resourceManager);
+        }
+        if (loading != null) {
+            prepareErosionAfter(loading);
+        }
+    }
+
+    private static CompletableFuture<Void> startLoad(ResourceManager resourceManager) {
+        long startTime = System.nanoTime();
+
+        CompletableFuture<Void> landmask = CompletableFuture.runAsync(() -> {
+            timed("Landmask", () -> LandmaskLoader.loadLandmask(resourceManager));
+            LandmaskQuadtree.rebuild();
+        }, Util.backgroundExecutor());
+        CompletableFuture<Void> regions = CompletableFuture.runAsync(() -> {
+            timed("Region map", () -> RegionMapLoader.loadRegionMap(resourceManager));
+            RegionIndex.rebuild();
+        }, Util.backgroundExecutor());
+
+        // Rivers are traced through both maps
+        CompletableFuture<Void> future = CompletableFuture.allOf(landmask, regions)
+                .thenRun(RiverNetwork::rebuild)
+                .handle((result, error) -> {
+                    if (error != null) {
+                        LOTRMod.LOGGER.error("Failed to load the world generation maps", error);
+                    } else {
+                        LOTRMod.LOGGER.info("World generation maps ready in {} ms", (System.nanoTime() - startTime) / 1_000_000L);
+                    }
+                    return null;
+                });
+        loading = future;
+        prepareErosionAfter(future);
+        return future;
+    }
+
+    /**
+     * Erode the mountains in the background once the maps are in, so the first chunks do not wait for it
+     */
+    private static void prepareErosionAfter(CompletableFuture<Void> future) {
+        MiddleEarthChunkGenerator current = generator;
+        if (current != null) {
+            future.thenRunAsync(current::prepareErosion, Util.backgroundExecutor());
+        }
+    }
+
+    /**
+     * Block until the maps are loaded, starting the load if they were left unloaded; returns at
+     * once when the maps are ready
+     */
+    public static void awaitLoaded() {
+        CompletableFuture<Void> future = whenLoaded();
+        if (future.isDone()) {
+            return;
+        }
+        LOTRMod.LOGGER.info("Waiting for the world generation maps to finish loading...");
+        future.join();
+    }
+
+    /**
+     * Start loading the maps if they were left unloaded, without waiting for them. The server
+     * thread uses this instead of {@link #awaitLoaded}, continuing from the future once it is done.
+     *
+     * @return Completes once the maps are loaded; already complete if they are
+     */
+    public static CompletableFuture<Void> whenLoaded() {
+        CompletableFuture<Void> future = loading;
+        if (future == null) {
+            future = loadOnFirstUse();
+        }
+        return future != null ? future : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Like {@link #whenLoaded}, but also waits for the server's generator to build its erosion
+     * field for the maps, so that height queries answer without waiting afterwards
+     */
+    public static CompletableFuture<Void> whenTerrainReady() {
+        MiddleEarthChunkGenerator current = generator;
+        return current != null ? current.whenTerrainReady() : whenLoaded();
+    }
+
+    private static synchronized CompletableFuture<Void> loadOnFirstUse() {
+        if (loading != null || resources == null) {
+            return loading;
+        }
+        LOTRMod.LOGGER.info("Middle-earth is in use, loading the world generation maps");
+        return startLoad(resources);
+    }
+
+    /**
+     * Preload lazy maps once the server is idle, and release the maps once Middle-earth has been
+     * empty for long enough. Must be called on the server thread every tick.
+     *
+     * @param level The Middle-earth level, or null if it is not loaded
+     */
+    public static void tick(ServerLevel level) {
+        if (level == null || level.getServer().getTickCount() % CHECK_INTERVAL_TICKS != 0) {
+            return;
+        }
+
+        CompletableFuture<Void> future = loading;
+        if (future == null) {
+            int preloadSeconds = LOTRConfig.LAZY_MAPS_PRELOAD_SECONDS.get();
+            if (!preloadChecked && preloadSeconds > 0 && level.getServer().getTickCount() >= preloadSeconds * 20
+                    && level.getServer().getAverageTickTimeNanos() < IDLE_TICK_NANOS) {
+                // Only once per server, so released maps are not loaded straight back
+                preloadChecked = true;
+                LOTRMod.LOGGER.info("Server is idle, preloading the world generation maps");
+                loadOnFirstUse();
+            }
+            return;
+        }
+
+        int unloadMinutes = LOTRConfig.UNLOAD_MAPS_AFTER_MINUTES.get();
+        if (unloadMinutes == 0 || !future.isDone()) {
+            return;
+        }
+        // No loaded chunks means nothing is generating either (chunks in generation hold a ticket)
+        if (!level.players().isEmpty() || level.getChunkSource().getLoadedChunksCount() > 0) {
+            emptyTicks = 0;
+            return;
+        }
+        emptyTicks += CHECK_INTERVAL_TICKS;
+        if (emptyTicks >= unloadMinutes * 60 * 20) {
+            unload(unloadMinutes);
+        }
+    }
+
+    private static synchronized void unload(int unloadMinutes) {
+        if (loading == null || !loading.isDone()) {
+            return;
+        }
+        loading = null;
+        emptyTicks = 0;
+        preloadChecked = true;
+
+        LandmaskLoader.unload();
+        RegionMapLoader.unload();
+        LandmaskQuadtree.rebuild();
+        RegionIndex.clear();
+        RiverNetwork.rebuild();
+        MiddleEarthChunkGenerator current = generator;
+        if (current != null) {
+            current.releaseCaches();
+        }
+        LOTRMod.LOGGER.info("Middle-earth has been empty for {} minutes, released the world generation maps", unloadMinutes);
+    }
+
+    /**
+     * Forget the server's generator and idle state (e.g. when the server stops). The maps stay
+     * as they are; the next server's reload replaces them.
+     */
+    public static synchronized void clear() {
+        generator = null;
+        emptyTicks = 0;
+        preloadChecked = false;
+        if (LOTRConfig.LAZY_MAPS.get()) {
+            // So the next server in this JVM starts lazy again
+            loading = null;
+            resources = null;
+        }
+    }
+
+    private static void timed(String name, Runnable load) {
+        long startTime = System.nanoTime();
+        load.run();
+        LOTRMod.LOGGER.info("{} loaded in {} ms on {}", name, (System.nanoTime() - startTime) / 1_000_000L,
+                Thread.currentThread().getName());
+    }
+}
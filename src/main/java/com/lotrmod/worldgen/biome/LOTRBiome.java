@@ -112,7 +112,7 @@ public enum LOTRBiome {
 
     private final Region region;
     private final String name;
-    private final int weight; // Spawn weight (higher = more common)
+    private final int weight; // Built-in spawn weight (higher = more common), overridden by data/lotrmod/worldgen/region_biomes
 
     LOTRBiome(Region region, String name, int weight) {
         this.region = region;
@@ -12,10 +12,9 @@ import java.util.*;
 /**
  * Registry for LOTR biome ResourceKeys
  * Actual biomes are defined in data/lotrmod/worldgen/biome/ JSON files
+ * Region biome weights are defined in data/lotrmod/worldgen/region_biomes/ JSON files
  */
 public class ModBiomes {
-    private static final Map<Region, List<WeightedBiomeEntry>> REGION_BIOMES = new HashMap<>();
-
     // Biome ResourceKeys - actual biomes defined in JSON datapacks
     public static final ResourceKey<Biome> LINDON_BEECH_FOREST = create("lindon_beech_forest");
     public static final ResourceKey<Biome> LINDON_MEADOW = create("lindon_meadow");
@@ -65,13 +64,6 @@ public class ModBiomes {
     public static final ResourceKey<Biome> THE_SHIRE = create("the_shire");
     public static final ResourceKey<Biome> RIVENDELL = create("rivendell");
 
-    static {
-        for (LOTRBiome lotrBiome : LOTRBiome.values()) {
-            REGION_BIOMES.computeIfAbsent(lotrBiome.getRegion(), k -> new ArrayList<>())
-                    .add(new WeightedBiomeEntry(lotrBiome, lotrBiome.getWeight()));
-        }
-    }
-
     private static ResourceKey<Biome> create(String name) {
         return ResourceKey.create(Registries.BIOME, ResourceLocation.fromNamespaceAndPath(LOTRMod.MODID, name));
     }
@@ -81,23 +73,24 @@ public class ModBiomes {
     }
 
     public static List<WeightedBiomeEntry> getBiomesForRegion(Region region) {
-        return REGION_BIOMES.getOrDefault(region, Collections.emptyList());
-    }
+        RegionBiomeWeights.Tables tables = RegionBiomeWeights.tables();
+        LOTRBiome[] biomes = tables.biomes[region.ordinal()];
+        int[] cumulative = tables.cumulativeWeights[region.ordinal()];
 
-    public static LOTRBiome selectBiomeInRegion(Region region, double noiseValue) {
-        List<WeightedBiomeEntry> biomes = getBiomesForRegion(region);
-        if (biomes.isEmpty()) return LOTRBiome.ERIADOR_PLAINS;
-
-        int totalWeight = biomes.stream().mapToInt(WeightedBiomeEntry::weight).sum();
-        int targetWeight = (int) (noiseValue * totalWeight);
-        int currentWeight = 0;
-
-        for (WeightedBiomeEntry entry : biomes) {
-            currentWeight += entry.weight();
-            if (currentWeight >= targetWeight) return entry.biome();
+        List<WeightedBiomeEntry> entries = new ArrayList<>(biomes.length);
+        for (int i = 0; i < biomes.length; i++) {
+            entries.add(new WeightedBiomeEntry(biomes[i], cumulative[i] - (i == 0 ? 0 : cumulative[i - 1])));
         }
+        return entries;
+    }
 
-        return biomes.get(biomes.size() - 1).biome();
+    /**
+     * Select a biome within a region from the compiled weight tables (a single array read)
+     *
+     * @param noiseValue Selection noise in 0.0 - 1.0
+     */
+    public static LOTRBiome selectBiomeInRegion(Region region, double noiseValue) {
+        return RegionBiomeWeights.tables().select(region, noiseValue);
     }
 
     public record WeightedBiomeEntry(LOTRBiome biome, int weight) {}
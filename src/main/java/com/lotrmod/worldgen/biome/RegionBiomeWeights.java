@@ -0,0 +1,213 @@
+package com.lotrmod.worldgen.biome;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.Region;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.DataResult;
+import com.mojang.serialization.JsonOps;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.SimpleJsonResourceReloadListener;
+import net.minecraft.util.profiling.ProfilerFiller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Weights of the biomes within each region, loaded from
+ * data/<namespace>/worldgen/region_biomes/<region>.json and compiled into per-region
+ * cumulative weight arrays plus a lookup table over the quantized selection noise.
+ *
+ * Regions without a file use the weights built into {@link LOTRBiome}.
+ *
+ * Example:
+ * <pre>
+ * {
+ *   "biomes": [
+ *     { "biome": "lotrmod:lindon_beech_forest", "weight": 70 },
+ *     { "biome": "lotrmod:lindon_meadow", "weight": 20 }
+ *   ]
+ * }
+ * </pre>
+ */
+public class RegionBiomeWeights extends SimpleJsonResourceReloadListener {
+    public static final String DIRECTORY = "worldgen/region_biomes";
+
+    // Number of quantization steps of the selection noise (0.0 - 1.0)
+    public static final int NOISE_STEPS = 1024;
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private static final Codec<LOTRBiome> BIOME_CODEC = ResourceLocation.CODEC.comapFlatMap(id -> {
+        LOTRBiome biome = findBiome(id);
+        return biome != null ? DataResult.success(biome) : DataResult.error(() -> "Unknown LOTR biome: " + id);
+    }, biome -> ResourceLocation.fromNamespaceAndPath(LOTRMod.MODID, biome.getName()));
+
+    private static volatile Tables tables;
+
+    public RegionBiomeWeights() {
+        super(GSON, DIRECTORY);
+    }
+
+    public record WeightedBiome(LOTRBiome biome, int weight) {
+        public static final Codec<WeightedBiome> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+                BIOME_CODEC.fieldOf("biome").forGetter(WeightedBiome::biome),
+                Codec.intRange(0, Integer.MAX_VALUE).fieldOf("weight").forGetter(WeightedBiome::weight)
+        ).apply(instance, WeightedBiome::new));
+    }
+
+    public record RegionBiomes(List<WeightedBiome> biomes) {
+        public static final Codec<RegionBiomes> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+                WeightedBiome.CODEC.listOf().fieldOf("biomes").forGetter(RegionBiomes::biomes)
+        ).apply(instance, RegionBiomes::new));
+    }
+
+    /**
+     * Compiled, immutable selection tables. Replaced as a whole on reload.
+     */
+    public static final class Tables {
+        // Indexed by Region ordinal; biomes and their running weight totals in file order
+        public final LOTRBiome[][] biomes;
+        public final int[][] cumulativeWeights;
+        // Indexed by Region ordinal, then quantized noise
+        private final LOTRBiome[][] lookup;
+
+        private Tables(RegionBiomes[] regions) {
+            int count = regions.length;
+            this.biomes = new LOTRBiome[count][];
+            this.cumulativeWeights = new int[count][];
+            this.lookup = new LOTRBiome[count][];
+
+            for (int region = 0; region < count; region++) {
+                List<WeightedBiome> entries = regions[region].biomes().stream()
+                        .filter(entry -> entry.weight() > 0)
+                        .toList();
+
+                biomes[region] = new LOTRBiome[entries.size()];
+                cumulativeWeights[region] = new int[entries.size()];
+                int total = 0;
+                for (int i = 0; i < entries.size(); i++) {
+                    total += entries.get(i).weight();
+                    biomes[region][i] = entries.get(i).biome();
+                    cumulativeWeights[region][i] = total;
+                }
+
+                lookup[region] = new LOTRBiome[NOISE_STEPS];
+                for (int step = 0; step < NOISE_STEPS; step++) {
+                    lookup[region][step] = walk(biomes[region], cumulativeWeights[region], (double) step / (NOISE_STEPS - 1));
+                }
+            }
+        }
+
+        /**
+         * Same rule as the original weighted walk: the first biome whose running total reaches
+         * noise * total weight
+         */
+        private static LOTRBiome walk(LOTRBiome[] biomes, int[] cumulative, double noiseValue) {
+            if (biomes.length == 0) {
+                return LOTRBiome.ERIADOR_PLAINS;
+            }
+            int target = (int) (noiseValue * cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (cumulative[i] >= target) {
+                    return biomes[i];
+                }
+            }
+            return biomes[biomes.length - 1];
+        }
+
+        /**
+         * Select a biome within a region
+         *
+         * @param noiseValue Selection noise in 0.0 - 1.0
+         */
+        public LOTRBiome select(Region region, double noiseValue) {
+            return lookup[region.ordinal()][(int) (noiseValue * (NOISE_STEPS - 1) + 0.5)];
+        }
+    }
+
+    /**
+     * Get the current compiled tables. Falls back to the built-in weights if no datapack has loaded yet.
+     */
+    public static Tables tables() {
+        Tables current = tables;
+        if (current == null) {
+            current = compile(new RegionBiomes[Region.values().length]);
+            tables = current;
+        }
+        return current;
+    }
+
+    @Override
+    protected void apply(Map<ResourceLocation, JsonElement> entries, ResourceManager resourceManager, ProfilerFiller profiler) {
+        RegionBiomes[] regions = new RegionBiomes[Region.values().length];
+
+        for (Map.Entry<ResourceLocation, JsonElement> entry : entries.entrySet()) {
+            ResourceLocation id = entry.getKey();
+            Region region = findRegion(id);
+            if (region == null) {
+                LOTRMod.LOGGER.warn("Region biome weights {} do not match any region, ignoring", id);
+                continue;
+            }
+
+            RegionBiomes.CODEC.parse(JsonOps.INSTANCE, entry.getValue())
+                    .resultOrPartial(error -> LOTRMod.LOGGER.error("Invalid region biome weights {}: {}", id, error))
+                    .ifPresent(biomes -> regions[region.ordinal()] = biomes);
+        }
+
+        tables = compile(regions);
+    }
+
+    private static Tables compile(RegionBiomes[] regions) {
+        int missing = 0;
+        for (Region region : Region.values()) {
+            if (regions[region.ordinal()] == null) {
+                regions[region.ordinal()] = builtInWeights(region);
+                missing++;
+            }
+        }
+
+        LOTRMod.LOGGER.info("Compiled biome weights for {} regions ({} using built-in weights)",
+                Region.values().length, missing);
+        return new Tables(regions);
+    }
+
+    private static RegionBiomes builtInWeights(Region region) {
+        List<WeightedBiome> biomes = new ArrayList<>();
+        for (LOTRBiome biome : LOTRBiome.values()) {
+            if (biome.getRegion() == region) {
+                biomes.add(new WeightedBiome(biome, biome.getWeight()));
+            }
+        }
+        return new RegionBiomes(biomes);
+    }
+
+    private static Region findRegion(ResourceLocation id) {
+        if (!id.getNamespace().equals(LOTRMod.MODID)) {
+            return null;
+        }
+        try {
+            return Region.valueOf(id.getPath().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static LOTRBiome findBiome(ResourceLocation id) {
+        if (!id.getNamespace().equals(LOTRMod.MODID)) {
+            return null;
+        }
+        for (LOTRBiome biome : LOTRBiome.values()) {
+            if (biome.getName().equals(id.getPath())) {
+                return biome;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,162 @@
+package com.lotrmod.worldgen.biome;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.lotrmod.LOTRMod;
+import com.mojang.datafixers.util.Either;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.JsonOps;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.SimpleJsonResourceReloadListener;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-biome surface rules (top block, sub-surface depth profile and liquid), loaded from
+ * data/<namespace>/worldgen/surface_profile/<biome>.json and compiled into flat
+ * {@link BlockState} arrays indexed by {@link LOTRBiome} ordinal.
+ *
+ * Compiling happens once per datapack (re)load, after the block registry is frozen,
+ * so the chunk generator's per-column work is plain array reads.
+ *
+ * Example:
+ * <pre>
+ * {
+ *   "surface": "minecraft:grass_block",
+ *   "under": ["minecraft:dirt", "minecraft:dirt", "minecraft:dirt"],
+ *   "liquid": "minecraft:water"
+ * }
+ * </pre>
+ */
+public class SurfaceProfiles extends SimpleJsonResourceReloadListener {
+    public static final String DIRECTORY = "worldgen/surface_profile";
+
+    // Maximum number of sub-surface layers a profile may define
+    public static final int MAX_UNDER_DEPTH = 8;
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    /**
+     * Accepts either a plain block id ("minecraft:stone") or a full block state object
+     */
+    private static final Codec<BlockState> BLOCK_STATE_CODEC = Codec.either(BuiltInRegistries.BLOCK.byNameCodec(), BlockState.CODEC)
+            .xmap(either -> either.map(Block::defaultBlockState, state -> state), Either::right);
+
+    private static volatile Tables tables;
+
+    public SurfaceProfiles() {
+        super(GSON, DIRECTORY);
+    }
+
+    public record SurfaceProfile(BlockState surface, List<BlockState> under, BlockState liquid) {
+        public static final Codec<SurfaceProfile> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+                BLOCK_STATE_CODEC.fieldOf("surface").forGetter(SurfaceProfile::surface),
+                BLOCK_STATE_CODEC.listOf().fieldOf("under").forGetter(SurfaceProfile::under),
+                BLOCK_STATE_CODEC.optionalFieldOf("liquid", Blocks.WATER.defaultBlockState()).forGetter(SurfaceProfile::liquid)
+        ).apply(instance, SurfaceProfile::new));
+
+        static SurfaceProfile defaultProfile() {
+            BlockState dirt = Blocks.DIRT.defaultBlockState();
+            return new SurfaceProfile(Blocks.GRASS_BLOCK.defaultBlockState(), List.of(dirt, dirt, dirt), Blocks.WATER.defaultBlockState());
+        }
+    }
+
+    /**
+     * Compiled, immutable surface tables. Replaced as a whole on reload.
+     */
+    public static final class Tables {
+        // Indexed by LOTRBiome ordinal
+        public final BlockState[] liquid;
+        // Indexed by LOTRBiome ordinal: the surface block followed by the under layers, top-down
+        public final BlockState[][] columnLayers;
+
+        private Tables(SurfaceProfile[] profiles) {
+            int count = profiles.length;
+            this.liquid = new BlockState[count];
+            this.columnLayers = new BlockState[count][];
+
+            for (int i = 0; i < count; i++) {
+                SurfaceProfile profile = profiles[i];
+                liquid[i] = profile.liquid();
+                columnLayers[i] = new BlockState[profile.under().size() + 1];
+                columnLayers[i][0] = profile.surface();
+                for (int layer = 0; layer < profile.under().size(); layer++) {
+                    columnLayers[i][layer + 1] = profile.under().get(layer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the current compiled tables. Falls back to default profiles if no datapack has loaded yet.
+     */
+    public static Tables tables() {
+        Tables current = tables;
+        if (current == null) {
+            current = compile(new SurfaceProfile[LOTRBiome.values().length]);
+            tables = current;
+        }
+        return current;
+    }
+
+    @Override
+    protected void apply(Map<ResourceLocation, JsonElement> entries, ResourceManager resourceManager, ProfilerFiller profiler) {
+        SurfaceProfile[] profiles = new SurfaceProfile[LOTRBiome.values().length];
+
+        for (Map.Entry<ResourceLocation, JsonElement> entry : entries.entrySet()) {
+            ResourceLocation id = entry.getKey();
+            LOTRBiome biome = findBiome(id);
+            if (biome == null) {
+                LOTRMod.LOGGER.warn("Surface profile {} does not match any LOTR biome, ignoring", id);
+                continue;
+            }
+
+            SurfaceProfile.CODEC.parse(JsonOps.INSTANCE, entry.getValue())
+                    .resultOrPartial(error -> LOTRMod.LOGGER.error("Invalid surface profile {}: {}", id, error))
+                    .ifPresent(profile -> profiles[biome.ordinal()] = profile);
+        }
+
+        tables = compile(profiles);
+    }
+
+    private static Tables compile(SurfaceProfile[] profiles) {
+        int missing = 0;
+        for (LOTRBiome biome : LOTRBiome.values()) {
+            SurfaceProfile profile = profiles[biome.ordinal()];
+            if (profile == null) {
+                profiles[biome.ordinal()] = SurfaceProfile.defaultProfile();
+                missing++;
+            } else if (profile.under().size() > MAX_UNDER_DEPTH) {
+                LOTRMod.LOGGER.warn("Surface profile for {} has {} under layers, only the first {} are used",
+                        biome.getName(), profile.under().size(), MAX_UNDER_DEPTH);
+                profiles[biome.ordinal()] = new SurfaceProfile(profile.surface(),
+                        profile.under().subList(0, MAX_UNDER_DEPTH), profile.liquid());
+            }
+        }
+
+        LOTRMod.LOGGER.info("Compiled surface profiles for {} biomes ({} using defaults)",
+                LOTRBiome.values().length, missing);
+        return new Tables(profiles);
+    }
+
+    private static LOTRBiome findBiome(ResourceLocation id) {
+        if (!id.getNamespace().equals(LOTRMod.MODID)) {
+            return null;
+        }
+        for (LOTRBiome biome : LOTRBiome.values()) {
+            if (biome.getName().equals(id.getPath())) {
+                return biome;
+            }
+        }
+        return null;
+    }
+}
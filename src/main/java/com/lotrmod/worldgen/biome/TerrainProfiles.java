@@ -0,0 +1,175 @@
+package com.lotrmod.worldgen.biome;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.lotrmod.LOTRMod;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.JsonOps;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.SimpleJsonResourceReloadListener;
+import net.minecraft.util.profiling.ProfilerFiller;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Per-biome terrain shape (height offset, noise variation, mountain and hill amplitude), loaded
+ * from data/<namespace>/worldgen/terrain_profile/<biome>.json and compiled into flat double
+ * arrays indexed by {@link LOTRBiome} ordinal, plus one slot for columns without a LOTR biome.
+ *
+ * The chunk generator blends the profiles at the corners of each blend cell with plain array
+ * reads. Surface depth is part of the surface profile ({@link SurfaceProfiles}), not of this.
+ *
+ * Example:
+ * <pre>
+ * {
+ *   "base_offset": 0.0,
+ *   "variation_scale": 1.5,
+ *   "mountain_height": 100.0,
+ *   "hill_factor": 0.0
+ * }
+ * </pre>
+ */
+public class TerrainProfiles extends SimpleJsonResourceReloadListener {
+    public static final String DIRECTORY = "worldgen/terrain_profile";
+
+    // Table slot for columns that have no LOTR biome (vanilla fallback biome)
+    public static final int FALLBACK = LOTRBiome.values().length;
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private static final TerrainProfile DEFAULT_PROFILE = new TerrainProfile(0.0, 0.7, 0.0, 0.5);
+    private static final TerrainProfile FALLBACK_PROFILE = new TerrainProfile(0.0, 1.0, 0.0, 0.0);
+
+    private static volatile Tables tables;
+
+    public TerrainProfiles() {
+        super(GSON, DIRECTORY);
+    }
+
+    /**
+     * @param baseOffset     Blocks added to the terrain height
+     * @param variationScale Multiplier of the regional noise
+     * @param mountainHeight Peak height of the mountain noise, in blocks (0 for no mountains)
+     * @param hillFactor     Share of the rolling hill noise, 0 to 1
+     */
+    public record TerrainProfile(double baseOffset, double variationScale, double mountainHeight, double hillFactor) {
+        public static final Codec<TerrainProfile> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+                Codec.DOUBLE.optionalFieldOf("base_offset", 0.0).forGetter(TerrainProfile::baseOffset),
+                Codec.doubleRange(0.0, 16.0).fieldOf("variation_scale").forGetter(TerrainProfile::variationScale),
+                Codec.doubleRange(0.0, 256.0).optionalFieldOf("mountain_height", 0.0).forGetter(TerrainProfile::mountainHeight),
+                Codec.doubleRange(0.0, 1.0).optionalFieldOf("hill_factor", 0.0).forGetter(TerrainProfile::hillFactor)
+        ).apply(instance, TerrainProfile::new));
+    }
+
+    /**
+     * Compiled, immutable terrain tables. Replaced as a whole on reload.
+     */
+    public static final class Tables {
+        // Indexed by LOTRBiome ordinal, or FALLBACK
+        public final double[] baseOffset;
+        public final double[] variationScale;
+        public final double[] mountainHeight;
+        public final double[] hillFactor;
+        private final long checksum;
+
+        private Tables(TerrainProfile[] profiles) {
+            int count = profiles.length;
+            this.baseOffset = new double[count];
+            this.variationScale = new double[count];
+            this.mountainHeight = new double[count];
+            this.hillFactor = new double[count];
+
+            for (int i = 0; i < count; i++) {
+                TerrainProfile profile = profiles[i];
+                baseOffset[i] = profile.baseOffset();
+                variationScale[i] = profile.variationScale();
+                mountainHeight[i] = profile.mountainHeight();
+                hillFactor[i] = profile.hillFactor();
+            }
+
+            CRC32 crc = new CRC32();
+            ByteBuffer values = ByteBuffer.allocate(4 * count * Double.BYTES);
+            values.asDoubleBuffer().put(baseOffset).put(variationScale).put(mountainHeight).put(hillFactor);
+            crc.update(values);
+            this.checksum = crc.getValue();
+        }
+
+        /**
+         * Checksum of every profile value, for naming caches of terrain computed from them
+         */
+        public long checksum() {
+            return checksum;
+        }
+    }
+
+    /**
+     * Table slot of a biome, {@link #FALLBACK} for null
+     */
+    public static int index(LOTRBiome biome) {
+        return biome == null ? FALLBACK : biome.ordinal();
+    }
+
+    /**
+     * Get the current compiled tables. Falls back to default profiles if no datapack has loaded yet.
+     */
+    public static Tables tables() {
+        Tables current = tables;
+        if (current == null) {
+            current = compile(new TerrainProfile[FALLBACK + 1]);
+            tables = current;
+        }
+        return current;
+    }
+
+    @Override
+    protected void apply(Map<ResourceLocation, JsonElement> entries, ResourceManager resourceManager, ProfilerFiller profiler) {
+        TerrainProfile[] profiles = new TerrainProfile[FALLBACK + 1];
+
+        for (Map.Entry<ResourceLocation, JsonElement> entry : entries.entrySet()) {
+            ResourceLocation id = entry.getKey();
+            LOTRBiome biome = findBiome(id);
+            if (biome == null) {
+                LOTRMod.LOGGER.warn("Terrain profile {} does not match any LOTR biome, ignoring", id);
+                continue;
+            }
+
+            TerrainProfile.CODEC.parse(JsonOps.INSTANCE, entry.getValue())
+                    .resultOrPartial(error -> LOTRMod.LOGGER.error("Invalid terrain profile {}: {}", id, error))
+                    .ifPresent(profile -> profiles[biome.ordinal()] = profile);
+        }
+
+        tables = compile(profiles);
+    }
+
+    private static Tables compile(TerrainProfile[] profiles) {
+        int missing = 0;
+        for (LOTRBiome biome : LOTRBiome.values()) {
+            if (profiles[biome.ordinal()] == null) {
+                profiles[biome.ordinal()] = DEFAULT_PROFILE;
+                missing++;
+            }
+        }
+        profiles[FALLBACK] = FALLBACK_PROFILE;
+
+        LOTRMod.LOGGER.info("Compiled terrain profiles for {} biomes ({} using defaults)",
+                LOTRBiome.values().length, missing);
+        return new Tables(profiles);
+    }
+
+    private static LOTRBiome findBiome(ResourceLocation id) {
+        if (!id.getNamespace().equals(LOTRMod.MODID)) {
+            return null;
+        }
+        for (LOTRBiome biome : LOTRBiome.values()) {
+            if (biome.getName().equals(id.getPath())) {
+                return biome;
+            }
+        }
+        return null;
+    }
+}
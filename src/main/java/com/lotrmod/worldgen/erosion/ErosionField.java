@@ -0,0 +1,297 @@
+package com.lotrmod.worldgen.erosion;
+
+import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.LandmaskLoader;
+import com.lotrmod.worldgen.Region;
+import com.lotrmod.worldgen.RegionIndex;
+import com.lotrmod.worldgen.RegionMapLoader;
+import com.lotrmod.worldgen.raster.HeapRaster;
+import com.lotrmod.worldgen.raster.MappedRaster;
+import com.lotrmod.worldgen.raster.Raster;
+import com.lotrmod.worldgen.raster.RasterFiles;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Height offsets from a hydraulic erosion pass over the mountain regions, applied to the terrain
+ * with one bilinear lookup per column.
+ *
+ * Erosion runs once on a coarse grid (4 blocks per cell, coarser for huge regions) covering each
+ * mountain region's bounding box. The result is stored as a raster of height deltas under the game
+ * directory's lotrmod/cache/erosion, named after a checksum of what the un-eroded heights are
+ * computed from: the map files, the generator's terrain settings and the patch geometry. A cached
+ * field is found without sampling the terrain at all, and the simulation only re-runs when one
+ * of those changes.
+ *
+ * Deltas fade out towards region borders, so eroded mountains meet the surrounding land without
+ * a seam.
+ */
+public final class ErosionField {
+    public static final ErosionField EMPTY = new ErosionField(List.of());
+
+    private static final Set<Region> MOUNTAIN_REGIONS = EnumSet.of(
+            Region.BLUE_MOUNTAINS, Region.MISTY_MOUNTAINS, Region.GREY_MOUNTAINS, Region.WHITE_MOUNTAINS,
+            Region.MOUNTAINS_OF_SHADOW, Region.EREBOR, Region.IRON_HILLS);
+
+    // Bump when the simulation or its parameters change, so cached fields are rebuilt
+    private static final int VERSION = 2;
+
+    private static final int MIN_CELL_SHIFT = 2;
+    private static final long MAX_PATCH_CELLS = 1L << 22;
+    // Cells of un-masked land simulated around each region, so water can drain out of it
+    private static final int MARGIN_CELLS = 16;
+    // Cells over which the delta fades in from the region border
+    private static final int FADE_CELLS = 6;
+    private static final double MAX_DELTA = 24.0;
+
+    // Deltas are stored as unsigned 16-bit samples in 1/16 block steps around this bias
+    private static final int DELTA_BIAS = 32768;
+    private static final double DELTA_STEPS = 16.0;
+
+    /**
+     * Terrain height of a world column
+     */
+    @FunctionalInterface
+    public interface ColumnHeight {
+        double get(int worldX, int worldZ);
+    }
+
+    private record Patch(Region region, int originX, int originZ, int cellShift, int width, int height, Raster delta) {
+        int maxX() {
+            return originX + ((width - 1) << cellShift);
+        }
+
+        int maxZ() {
+            return originZ + ((height - 1) << cellShift);
+        }
+    }
+
+    private final List<Patch> patches;
+
+    private ErosionField(List<Patch> patches) {
+        this.patches = patches;
+    }
+
+    public boolean isEmpty() {
+        return patches.isEmpty();
+    }
+
+    /**
+     * Check whether any eroded area touches a block range, so callers can skip lookups entirely
+     */
+    public boolean overlaps(int minX, int minZ, int maxX, int maxZ) {
+        for (Patch patch : patches) {
+            if (maxX >= patch.originX() && minX < patch.maxX() && maxZ >= patch.originZ() && minZ < patch.maxZ()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the erosion height delta at a column, in blocks
+     */
+    public double sample(int worldX, int worldZ) {
+        double delta = 0.0;
+        for (Patch patch : patches) {
+            int localX = worldX - patch.originX();
+            int localZ = worldZ - patch.originZ();
+            int cellX = localX >> patch.cellShift();
+            int cellZ = localZ >> patch.cellShift();
+            if (localX < 0 || localZ < 0 || cellX >= patch.width() - 1 || cellZ >= patch.height() - 1) {
+                continue;
+            }
+
+            int cellSize = 1 << patch.cellShift();
+            double fx = (localX & (cellSize - 1)) / (double) cellSize;
+            double fz = (localZ & (cellSize - 1)) / (double) cellSize;
+            Raster raster = patch.delta();
+            double d0 = raster.get(cellX, cellZ) * (1.0 - fx) + raster.get(cellX + 1, cellZ) * fx;
+            double d1 = raster.get(cellX, cellZ + 1) * (1.0 - fx) + raster.get(cellX + 1, cellZ + 1) * fx;
+            delta += (d0 * (1.0 - fz) + d1 * fz - DELTA_BIAS) / DELTA_STEPS;
+        }
+        return delta;
+    }
+
+    /**
+     * Erode every mountain region on the loaded region map, reusing cached results where the
+     * terrain is unchanged. Reads the map files through once to checksum them, so call it off the
+     * server thread.
+     *
+     * @param baseHeight Un-eroded terrain height at a world column; called from several threads
+     * @param settings Checksum of every generator setting the un-eroded heights depend on besides the maps
+     * @throws IOException If a cached patch cannot be read. A region is never left un-eroded on its
+     * own, as its terrain would then change once it is eroded after all.
+     */
+    public static ErosionField build(ColumnHeight baseHeight, long settings) throws IOException {
+        if (!RegionMapLoader.isLoaded()) {
+            return EMPTY;
+        }
+
+        long startTime = System.nanoTime();
+        long maps = mapChecksum(settings);
+        Path cacheDir = RasterFiles.getCacheDirectory("erosion");
+        List<Patch> patches = new ArrayList<>();
+
+        for (Region region : MOUNTAIN_REGIONS) {
+            RegionIndex.Entry entry = RegionIndex.get(region);
+            if (entry == null) {
+                continue;
+            }
+            patches.add(buildPatch(region, entry, baseHeight, maps, cacheDir));
+        }
+
+        LOTRMod.LOGGER.info("Erosion field ready for {} mountain regions in {} ms",
+                patches.size(), (System.nanoTime() - startTime) / 1_000_000L);
+        return patches.isEmpty() ? EMPTY : new ErosionField(List.copyOf(patches));
+    }
+
+    private static Patch buildPatch(Region region, RegionIndex.Entry entry, ColumnHeight baseHeight,
+                                    long maps, Path cacheDir) throws IOException {
+        int spanX = entry.maxX() - entry.minX();
+        int spanZ = entry.maxZ() - entry.minZ();
+        int cellShift = MIN_CELL_SHIFT;
+        while ((long) ((spanX >> cellShift) + 2 * MARGIN_CELLS + 1) * ((spanZ >> cellShift) + 2 * MARGIN_CELLS + 1) > MAX_PATCH_CELLS) {
+            cellShift++;
+        }
+
+        int cellSize = 1 << cellShift;
+        int originX = (entry.minX() & -cellSize) - MARGIN_CELLS * cellSize;
+        int originZ = (entry.minZ() & -cellSize) - MARGIN_CELLS * cellSize;
+        int width = ((entry.maxX() - originX) >> cellShift) + MARGIN_CELLS + 2;
+        int height = ((entry.maxZ() - originZ) >> cellShift) + MARGIN_CELLS + 2;
+
+        long checksum = checksum(maps, originX, originZ, cellShift, width, height);
+        String prefix = region.name().toLowerCase(Locale.ROOT) + "-";
+        Path file = cacheDir.resolve(prefix + Long.toHexString(checksum) + ".raster");
+
+        if (Files.isRegularFile(file)) {
+            MappedRaster cached = MappedRaster.open(file, 2);
+            if (cached != null && cached.getWidth() == width && cached.getHeight() == height) {
+                return new Patch(region, originX, originZ, cellShift, width, height, cached);
+            }
+        }
+
+        // Un-eroded heights (in cell units) and region membership of every cell
+        float[] heights = new float[width * height];
+        byte[] inRegion = new byte[width * height];
+        IntStream.range(0, height).parallel().forEach(z -> {
+            int worldZ = originZ + (z << cellShift);
+            for (int x = 0; x < width; x++) {
+                int worldX = originX + (x << cellShift);
+                heights[z * width + x] = (float) (baseHeight.get(worldX, worldZ) / cellSize);
+                inRegion[z * width + x] = (byte) (RegionMapLoader.getRegion(worldX, worldZ) == region ? 1 : 0);
+            }
+        });
+
+        long startTime = System.nanoTime();
+        float[] eroded = heights.clone();
+        HydraulicErosion.erode(eroded, width, height, checksum);
+
+        float[] fade = fadeWeights(inRegion, width, height);
+        short[] samples = new short[width * height];
+        for (int i = 0; i < samples.length; i++) {
+            double delta = (eroded[i] - heights[i]) * cellSize * fade[i];
+            delta = Math.max(-MAX_DELTA, Math.min(MAX_DELTA, delta));
+            samples[i] = (short) (DELTA_BIAS + (int) Math.round(delta * DELTA_STEPS));
+        }
+        LOTRMod.LOGGER.info("Eroded {} ({}x{} cells of {} blocks) in {} ms", region.getDisplayName(),
+                width, height, cellSize, (System.nanoTime() - startTime) / 1_000_000L);
+
+        Raster delta;
+        try {
+            Files.createDirectories(cacheDir);
+            RasterFiles.deleteStale(cacheDir, prefix);
+            delta = RasterFiles.writeShorts(file, width, height, samples);
+        } catch (IOException e) {
+            // Not fatal, the field just is not cached for next time
+            LOTRMod.LOGGER.warn("Could not cache erosion field {}: {}", file, e.getMessage());
+            delta = HeapRaster.ofShorts(width, height, samples);
+        }
+        return new Patch(region, originX, originZ, cellShift, width, height, delta);
+    }
+
+    /**
+     * Weight of the delta per cell: 0 outside the region, rising to 1 about FADE_CELLS inside it
+     * (a blurred region mask, shifted so the border itself gets 0)
+     */
+    private static float[] fadeWeights(byte[] inRegion, int width, int height) {
+        float[] mask = new float[width * height];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = inRegion[i];
+        }
+        float[] blurred = boxBlur(boxBlur(mask, width, height), width, height);
+
+        float[] weights = new float[width * height];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = inRegion[i] == 0 ? 0.0f : Math.max(0.0f, Math.min(1.0f, (blurred[i] - 0.5f) * 2.0f));
+        }
+        return weights;
+    }
+
+    /**
+     * Separable box blur with radius FADE_CELLS / 2; cells outside the grid count as 0
+     */
+    private static float[] boxBlur(float[] values, int width, int height) {
+        int radius = FADE_CELLS / 2;
+        float scale = 1.0f / (2 * radius + 1);
+        float[] rows = new float[values.length];
+        IntStream.range(0, height).parallel().forEach(z -> {
+            for (int x = 0; x < width; x++) {
+                float sum = 0.0f;
+                for (int dx = Math.max(0, x - radius); dx <= Math.min(width - 1, x + radius); dx++) {
+                    sum += values[z * width + dx];
+                }
+                rows[z * width + x] = sum * scale;
+            }
+        });
+
+        float[] result = new float[values.length];
+        IntStream.range(0, height).parallel().forEach(z -> {
+            for (int x = 0; x < width; x++) {
+                float sum = 0.0f;
+                for (int dz = Math.max(0, z - radius); dz <= Math.min(height - 1, z + radius); dz++) {
+                    sum += rows[dz * width + x];
+                }
+                result[z * width + x] = sum * scale;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Checksum of the format version, the settings, and the files and scales of both maps
+     */
+    private static long mapChecksum(long settings) {
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 3 * Long.BYTES + 2 * Integer.BYTES);
+        header.putInt(VERSION).putLong(settings)
+                .putLong(sourceHash(LandmaskLoader.getRaster())).putInt(LandmaskLoader.getBlocksPerPixel())
+                .putLong(sourceHash(RegionMapLoader.getRaster())).putInt(RegionMapLoader.getBlocksPerPixel());
+        crc.update(header.flip());
+        return crc.getValue();
+    }
+
+    private static long sourceHash(@Nullable Raster raster) {
+        return raster != null ? raster.getSourceHash() : 0L;
+    }
+
+    private static long checksum(long maps, int originX, int originZ, int cellShift, int width, int height) {
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(Long.BYTES + 5 * Integer.BYTES);
+        header.putLong(maps).putInt(originX).putInt(originZ).putInt(cellShift).putInt(width).putInt(height);
+        crc.update(header.flip());
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,160 @@
+package com.lotrmod.worldgen.erosion;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Particle-based hydraulic erosion on a heightfield: water droplets run downhill, picking up
+ * sediment where they speed up and dropping it where they slow down or flow uphill.
+ *
+ * The grid is split into tiles that are processed in four phases (by tile x/z parity). A droplet
+ * can travel at most {@link #MAX_LIFETIME} cells, less than a tile, so tiles of the same phase
+ * never touch the same cells and can run in parallel. Each tile has its own random seed, so the
+ * result does not depend on thread scheduling.
+ */
+final class HydraulicErosion {
+    private static final int TILE = 64;
+    private static final int ROUNDS = 4;
+    private static final double DROPLETS_PER_CELL = 2.0;
+
+    private static final int MAX_LIFETIME = 30;
+    private static final double INERTIA = 0.05;
+    private static final double SEDIMENT_CAPACITY = 4.0;
+    private static final double MIN_SLOPE = 0.01;
+    private static final double ERODE_SPEED = 0.3;
+    private static final double DEPOSIT_SPEED = 0.3;
+    private static final double EVAPORATE_SPEED = 0.01;
+    private static final double GRAVITY = 4.0;
+
+    // 3x3 erosion brush, so droplets carve channels rather than single-cell pits
+    private static final double[] BRUSH = {
+            1 / 16.0, 2 / 16.0, 1 / 16.0,
+            2 / 16.0, 4 / 16.0, 2 / 16.0,
+            1 / 16.0, 2 / 16.0, 1 / 16.0
+    };
+
+    private HydraulicErosion() {
+    }
+
+    /**
+     * Erode a heightfield in place
+     *
+     * @param heights Heights row by row, in cell units (a slope of 1 is one cell up per cell across)
+     */
+    static void erode(float[] heights, int width, int height, long seed) {
+        if (width < 4 || height < 4) {
+            return;
+        }
+
+        int tilesX = (width + TILE - 1) / TILE;
+        int tilesZ = (height + TILE - 1) / TILE;
+        int dropletsPerTile = (int) (TILE * TILE * DROPLETS_PER_CELL / ROUNDS);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int phase = 0; phase < 4; phase++) {
+                int parityX = phase & 1;
+                int parityZ = phase >> 1;
+                long roundSeed = seed + round * 0x9E3779B97F4A7C15L;
+
+                IntStream.range(0, tilesX * tilesZ)
+                        .filter(tile -> (tile % tilesX & 1) == parityX && (tile / tilesX & 1) == parityZ)
+                        .parallel()
+                        .forEach(tile -> {
+                            SplittableRandom random = new SplittableRandom(roundSeed ^ (tile * 0xBF58476D1CE4E5B9L));
+                            int minX = Math.max(1, (tile % tilesX) * TILE);
+                            int minZ = Math.max(1, (tile / tilesX) * TILE);
+                            int maxX = Math.min(width - 2, (tile % tilesX + 1) * TILE);
+                            int maxZ = Math.min(height - 2, (tile / tilesX + 1) * TILE);
+                            if (minX >= maxX || minZ >= maxZ) {
+                                return;
+                            }
+
+                            for (int i = 0; i < dropletsPerTile; i++) {
+                                runDroplet(heights, width, height,
+                                        random.nextDouble(minX, maxX), random.nextDouble(minZ, maxZ));
+                            }
+                        });
+            }
+        }
+    }
+
+    private static void runDroplet(float[] map, int width, int height, double posX, double posZ) {
+        double dirX = 0.0;
+        double dirZ = 0.0;
+        double speed = 1.0;
+        double water = 1.0;
+        double sediment = 0.0;
+
+        for (int lifetime = 0; lifetime < MAX_LIFETIME; lifetime++) {
+            int cellX = (int) posX;
+            int cellZ = (int) posZ;
+            int cell = cellZ * width + cellX;
+            double offsetX = posX - cellX;
+            double offsetZ = posZ - cellZ;
+
+            double h00 = map[cell];
+            double h10 = map[cell + 1];
+            double h01 = map[cell + width];
+            double h11 = map[cell + width + 1];
+            double gradientX = (h10 - h00) * (1.0 - offsetZ) + (h11 - h01) * offsetZ;
+            double gradientZ = (h01 - h00) * (1.0 - offsetX) + (h11 - h10) * offsetX;
+            double currentHeight = h00 * (1.0 - offsetX) * (1.0 - offsetZ) + h10 * offsetX * (1.0 - offsetZ)
+                    + h01 * (1.0 - offsetX) * offsetZ + h11 * offsetX * offsetZ;
+
+            // Follow the slope, keeping a little of the previous direction
+            dirX = dirX * INERTIA - gradientX * (1.0 - INERTIA);
+            dirZ = dirZ * INERTIA - gradientZ * (1.0 - INERTIA);
+            double length = Math.sqrt(dirX * dirX + dirZ * dirZ);
+            if (length < 1.0e-9) {
+                break;
+            }
+            dirX /= length;
+            dirZ /= length;
+            posX += dirX;
+            posZ += dirZ;
+
+            // Stay one cell inside the grid so the brush never leaves it
+            if (posX < 1.0 || posZ < 1.0 || posX >= width - 2 || posZ >= height - 2) {
+                break;
+            }
+
+            double deltaHeight = heightAt(map, width, posX, posZ) - currentHeight;
+            double capacity = Math.max(-deltaHeight, MIN_SLOPE) * speed * water * SEDIMENT_CAPACITY;
+
+            if (sediment > capacity || deltaHeight > 0.0) {
+                // Uphill: fill the dip behind us; otherwise drop what we cannot carry
+                double deposit = deltaHeight > 0.0
+                        ? Math.min(deltaHeight, sediment)
+                        : (sediment - capacity) * DEPOSIT_SPEED;
+                sediment -= deposit;
+                map[cell] += (float) (deposit * (1.0 - offsetX) * (1.0 - offsetZ));
+                map[cell + 1] += (float) (deposit * offsetX * (1.0 - offsetZ));
+                map[cell + width] += (float) (deposit * (1.0 - offsetX) * offsetZ);
+                map[cell + width + 1] += (float) (deposit * offsetX * offsetZ);
+            } else {
+                // Never dig deeper than the drop, or we would carve pits
+                double erode = Math.min((capacity - sediment) * ERODE_SPEED, -deltaHeight);
+                int brush = 0;
+                for (int dz = -1; dz <= 1; dz++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        map[cell + dz * width + dx] -= (float) (erode * BRUSH[brush++]);
+                    }
+                }
+                sediment += erode;
+            }
+
+            speed = Math.sqrt(Math.max(0.0, speed * speed - deltaHeight * GRAVITY));
+            water *= 1.0 - EVAPORATE_SPEED;
+        }
+    }
+
+    private static double heightAt(float[] map, int width, double posX, double posZ) {
+        int cellX = (int) posX;
+        int cellZ = (int) posZ;
+        int cell = cellZ * width + cellX;
+        double offsetX = posX - cellX;
+        double offsetZ = posZ - cellZ;
+        return map[cell] * (1.0 - offsetX) * (1.0 - offsetZ) + map[cell + 1] * offsetX * (1.0 - offsetZ)
+                + map[cell + width] * (1.0 - offsetX) * offsetZ + map[cell + width + 1] * offsetX * offsetZ;
+    }
+}
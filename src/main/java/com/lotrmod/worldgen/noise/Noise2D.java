@@ -0,0 +1,37 @@
+package com.lotrmod.worldgen.noise;
+
+import net.minecraft.world.level.levelgen.synth.PerlinSimplexNoise;
+
+/**
+ * Two-dimensional octave noise, sampled one point at a time or a block-aligned grid at a time.
+ *
+ * Implementations must be safe to sample from several worldgen threads at once.
+ */
+public interface Noise2D {
+    double getValue(double x, double z);
+
+    /**
+     * Sample a grid of block positions, scaled by the given factor. The sample of block
+     * (worldX + x, worldZ + z) is written to {@code out[offset + x * countZ + z]}, which is the
+     * column layout of a chunk when countZ is 16.
+     *
+     * Coordinates are computed as {@code (worldX + x) * scale}, exactly as a caller scaling a
+     * block position itself would, so both ways of sampling give identical values.
+     */
+    default void fill(double[] out, int offset, int worldX, int worldZ, int countX, int countZ, double scale) {
+        for (int x = 0; x < countX; x++) {
+            double sampleX = (worldX + x) * scale;
+            int row = offset + x * countZ;
+            for (int z = 0; z < countZ; z++) {
+                out[row + z] = getValue(sampleX, (worldZ + z) * scale);
+            }
+        }
+    }
+
+    /**
+     * Adapt vanilla octave noise, sampled without its per-octave offsets as the generator always has
+     */
+    static Noise2D vanilla(PerlinSimplexNoise noise) {
+        return (x, z) -> noise.getValue(x, z, false);
+    }
+}
@@ -0,0 +1,13 @@
+package com.lotrmod.worldgen.noise;
+
+/**
+ * Backends for the Middle-earth terrain noise
+ */
+public enum NoiseEngine {
+    /** Vanilla octave noise with the fixed seeds */
+    VANILLA,
+    /** The table-driven engine with the fixed seeds: the same terrain as vanilla, verified at startup */
+    COMPATIBLE,
+    /** The table-driven engine seeded from the world seed: different terrain, for new worlds only */
+    SEEDED
+}
@@ -0,0 +1,288 @@
+package com.lotrmod.worldgen.noise;
+
+import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import net.minecraft.util.Mth;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.levelgen.LegacyRandomSource;
+import net.minecraft.world.level.levelgen.WorldgenRandom;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Octave simplex noise with the same construction and the same arithmetic as vanilla
+ * {@code PerlinSimplexNoise} sampled without offsets, so for the same random source it returns
+ * bit-identical values.
+ *
+ * The octaves are flattened into one table each instead of an object per octave: the doubled
+ * permutation, the gradient index of every permutation entry (vanilla takes it modulo 12 on
+ * every lookup), and the input and value factor of every octave present. {@link #fill} samples
+ * a whole grid one octave at a time, so an octave's tables stay hot in cache for the grid.
+ */
+public final class SimplexOctaves implements Noise2D {
+    private static final double SQRT_3 = Math.sqrt(3.0);
+    private static final double F2 = 0.5 * (SQRT_3 - 1.0);
+    private static final double G2 = (3.0 - SQRT_3) / 6.0;
+
+    // Permutation entries per octave: 256, doubled so lookups never wrap
+    private static final int TABLE_SIZE = 512;
+    // Random values vanilla consumes for an octave that is not in the set
+    private static final int SKIPPED_OCTAVE_DRAWS = 262;
+
+    // The 12 gradients vanilla simplex noise picks from
+    private static final double[] GRADIENT_X = {1, -1, 1, -1, 1, -1, 1, -1, 0, 0, 0, 0};
+    private static final double[] GRADIENT_Y = {1, 1, -1, -1, 0, 0, 0, 0, 1, -1, 1, -1};
+    private static final double[] GRADIENT_Z = {0, 0, 0, 0, 1, 1, -1, -1, 1, 1, -1, -1};
+    // The z term of a 2D dot product (gradient z times 0.0): a signed zero, which decides the
+    // sign of zero results
+    private static final double[] GRADIENT_Z_ZERO = new double[12];
+
+    static {
+        for (int gradient = 0; gradient < 12; gradient++) {
+            GRADIENT_Z_ZERO[gradient] = GRADIENT_Z[gradient] * 0.0;
+        }
+    }
+
+    // TABLE_SIZE entries per octave present, highest frequency first
+    private final int[] permutation;
+    private final byte[] gradients;
+    private final double[] inputFactors;
+    private final double[] valueFactors;
+
+    // One octave as drawn from the random source
+    private record Octave(int[] p, double xo, double yo, double zo) {
+    }
+
+    /**
+     * Build the octaves from a random source, consuming it exactly as vanilla does
+     *
+     * @param octaves Octave numbers, as passed to {@code PerlinSimplexNoise}
+     */
+    public SimplexOctaves(RandomSource random, List<Integer> octaves) {
+        IntSortedSet set = new IntRBTreeSet(octaves);
+        if (set.isEmpty()) {
+            throw new IllegalArgumentException("Need some octaves!");
+        }
+
+        int lowest = -set.firstInt();
+        int highest = set.lastInt();
+        int count = lowest + highest + 1;
+        if (count < 1) {
+            throw new IllegalArgumentException("Total number of octaves needs to be >= 1");
+        }
+
+        Octave[] levels = new Octave[count];
+        Octave first = readOctave(random);
+        if (highest >= 0 && highest < count && set.contains(0)) {
+            levels[highest] = first;
+        }
+        for (int level = highest + 1; level < count; level++) {
+            if (level >= 0 && set.contains(highest - level)) {
+                levels[level] = readOctave(random);
+            } else {
+                random.consumeCount(SKIPPED_OCTAVE_DRAWS);
+            }
+        }
+        if (highest > 0) {
+            long seed = (long) (sample3D(flatten(first.p()), first.xo(), first.yo(), first.zo()) * 9.223372E18F);
+            RandomSource octaveRandom = new WorldgenRandom(new LegacyRandomSource(seed));
+            for (int level = highest - 1; level >= 0; level--) {
+                if (level < count && set.contains(highest - level)) {
+                    levels[level] = readOctave(octaveRandom);
+                } else {
+                    octaveRandom.consumeCount(SKIPPED_OCTAVE_DRAWS);
+                }
+            }
+        }
+
+        int present = (int) Arrays.stream(levels).filter(level -> level != null).count();
+        this.permutation = new int[present * TABLE_SIZE];
+        this.gradients = new byte[present * TABLE_SIZE];
+        this.inputFactors = new double[present];
+        this.valueFactors = new double[present];
+
+        // Halved and doubled per octave, present or not, as vanilla does while sampling
+        double inputFactor = Math.pow(2.0, highest);
+        double valueFactor = 1.0 / (Math.pow(2.0, count) - 1.0);
+        int index = 0;
+        for (Octave level : levels) {
+            if (level != null) {
+                int[] table = flatten(level.p());
+                int base = index * TABLE_SIZE;
+                for (int i = 0; i < TABLE_SIZE; i++) {
+                    permutation[base + i] = table[i];
+                    gradients[base + i] = (byte) (table[i] % 12);
+                }
+                inputFactors[index] = inputFactor;
+                valueFactors[index] = valueFactor;
+                index++;
+            }
+            inputFactor /= 2.0;
+            valueFactor *= 2.0;
+        }
+    }
+
+    private static Octave readOctave(RandomSource random) {
+        double xo = random.nextDouble() * 256.0;
+        double yo = random.nextDouble() * 256.0;
+        double zo = random.nextDouble() * 256.0;
+        int[] p = new int[256];
+        for (int i = 0; i < 256; i++) {
+            p[i] = i;
+        }
+        for (int i = 0; i < 256; i++) {
+            int swap = i + random.nextInt(256 - i);
+            int value = p[i];
+            p[i] = p[swap];
+            p[swap] = value;
+        }
+        return new Octave(p, xo, yo, zo);
+    }
+
+    private static int[] flatten(int[] p) {
+        int[] table = new int[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = p[i & 255];
+        }
+        return table;
+    }
+
+    @Override
+    public double getValue(double x, double z) {
+        double value = 0.0;
+        for (int level = 0; level < inputFactors.length; level++) {
+            double inputFactor = inputFactors[level];
+            // Vanilla adds a zero offset; it turns -0.0 into 0.0
+            value += sample2D(level * TABLE_SIZE, x * inputFactor + 0.0, z * inputFactor + 0.0) * valueFactors[level];
+        }
+        return value;
+    }
+
+    @Override
+    public void fill(double[] out, int offset, int worldX, int worldZ, int countX, int countZ, double scale) {
+        Arrays.fill(out, offset, offset + countX * countZ, 0.0);
+        for (int level = 0; level < inputFactors.length; level++) {
+            int base = level * TABLE_SIZE;
+            double inputFactor = inputFactors[level];
+            double valueFactor = valueFactors[level];
+            for (int x = 0; x < countX; x++) {
+                double sampleX = (worldX + x) * scale * inputFactor + 0.0;
+                int row = offset + x * countZ;
+                for (int z = 0; z < countZ; z++) {
+                    out[row + z] += sample2D(base, sampleX, (worldZ + z) * scale * inputFactor + 0.0) * valueFactor;
+                }
+            }
+        }
+    }
+
+    private double sample2D(int base, double x, double y) {
+        double skew = (x + y) * F2;
+        int cellX = Mth.floor(x + skew);
+        int cellY = Mth.floor(y + skew);
+        double unskew = (double) (cellX + cellY) * G2;
+        double x0 = x - ((double) cellX - unskew);
+        double y0 = y - ((double) cellY - unskew);
+
+        int stepX;
+        int stepY;
+        if (x0 > y0) {
+            stepX = 1;
+            stepY = 0;
+        } else {
+            stepX = 0;
+            stepY = 1;
+        }
+
+        double x1 = x0 - (double) stepX + G2;
+        double y1 = y0 - (double) stepY + G2;
+        double x2 = x0 - 1.0 + 2.0 * G2;
+        double y2 = y0 - 1.0 + 2.0 * G2;
+
+        int i = base + (cellX & 255);
+        int j = base + (cellY & 255);
+        int[] p = permutation;
+        byte[] g = gradients;
+        int gradient0 = g[i + p[j]];
+        int gradient1 = g[i + stepX + p[j + stepY]];
+        int gradient2 = g[i + 1 + p[j + 1]];
+
+        return 70.0 * (corner2D(gradient0, x0, y0) + corner2D(gradient1, x1, y1) + corner2D(gradient2, x2, y2));
+    }
+
+    private static double corner2D(int gradient, double x, double y) {
+        double falloff = 0.5 - x * x - y * y;
+        if (falloff < 0.0) {
+            return 0.0;
+        }
+        falloff *= falloff;
+        return falloff * falloff * (GRADIENT_X[gradient] * x + GRADIENT_Y[gradient] * y + GRADIENT_Z_ZERO[gradient]);
+    }
+
+    /**
+     * Vanilla's 3D simplex noise, needed once per construction: the first octave's value at its
+     * own offset seeds the random source of the lower octaves
+     */
+    private static double sample3D(int[] p, double x, double y, double z) {
+        double skew = (x + y + z) * 0.3333333333333333;
+        int cellX = Mth.floor(x + skew);
+        int cellY = Mth.floor(y + skew);
+        int cellZ = Mth.floor(z + skew);
+        double unskew = (double) (cellX + cellY + cellZ) * 0.16666666666666666;
+        double x0 = x - ((double) cellX - unskew);
+        double y0 = y - ((double) cellY - unskew);
+        double z0 = z - ((double) cellZ - unskew);
+
+        int x1Step;
+        int y1Step;
+        int z1Step;
+        int x2Step;
+        int y2Step;
+        int z2Step;
+        if (x0 >= y0) {
+            if (y0 >= z0) {
+                x1Step = 1; y1Step = 0; z1Step = 0; x2Step = 1; y2Step = 1; z2Step = 0;
+            } else if (x0 >= z0) {
+                x1Step = 1; y1Step = 0; z1Step = 0; x2Step = 1; y2Step = 0; z2Step = 1;
+            } else {
+                x1Step = 0; y1Step = 0; z1Step = 1; x2Step = 1; y2Step = 0; z2Step = 1;
+            }
+        } else if (y0 < z0) {
+            x1Step = 0; y1Step = 0; z1Step = 1; x2Step = 0; y2Step = 1; z2Step = 1;
+        } else if (x0 < z0) {
+            x1Step = 0; y1Step = 1; z1Step = 0; x2Step = 0; y2Step = 1; z2Step = 1;
+        } else {
+            x1Step = 0; y1Step = 1; z1Step = 0; x2Step = 1; y2Step = 1; z2Step = 0;
+        }
+
+        double x1 = x0 - (double) x1Step + 0.16666666666666666;
+        double y1 = y0 - (double) y1Step + 0.16666666666666666;
+        double z1 = z0 - (double) z1Step + 0.16666666666666666;
+        double x2 = x0 - (double) x2Step + 0.3333333333333333;
+        double y2 = y0 - (double) y2Step + 0.3333333333333333;
+        double z2 = z0 - (double) z2Step + 0.3333333333333333;
+        double x3 = x0 - 1.0 + 0.5;
+        double y3 = y0 - 1.0 + 0.5;
+        double z3 = z0 - 1.0 + 0.5;
+
+        int i = cellX & 255;
+        int j = cellY & 255;
+        int k = cellZ & 255;
+        int gradient0 = p[i + p[j + p[k]]] % 12;
+        int gradient1 = p[i + x1Step + p[j + y1Step + p[k + z1Step]]] % 12;
+        int gradient2 = p[i + x2Step + p[j + y2Step + p[k + z2Step]]] % 12;
+        int gradient3 = p[i + 1 + p[j + 1 + p[k + 1]]] % 12;
+
+        return 32.0 * (corner3D(gradient0, x0, y0, z0) + corner3D(gradient1, x1, y1, z1)
+                + corner3D(gradient2, x2, y2, z2) + corner3D(gradient3, x3, y3, z3));
+    }
+
+    private static double corner3D(int gradient, double x, double y, double z) {
+        double falloff = 0.6 - x * x - y * y - z * z;
+        if (falloff < 0.0) {
+            return 0.0;
+        }
+        falloff *= falloff;
+        return falloff * falloff * (GRADIENT_X[gradient] * x + GRADIENT_Y[gradient] * y + GRADIENT_Z[gradient] * z);
+    }
+}
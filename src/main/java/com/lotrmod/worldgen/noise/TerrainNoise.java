@@ -0,0 +1,110 @@
+package com.lotrmod.worldgen.noise;
+
+import com.lotrmod.LOTRMod;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.levelgen.synth.PerlinSimplexNoise;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.BiFunction;
+
+/**
+ * The noise fields the Middle-earth terrain height is composed from.
+ *
+ * Each field draws from one of two random sources, in a fixed order, exactly as the generator
+ * has always built them: coastline, terrain and detail from the first, the three coastline
+ * scales from the second. Seeds 12345 and 54321 give the terrain of existing worlds.
+ */
+public record TerrainNoise(Noise2D coastline, Noise2D terrain, Noise2D detail,
+                           Noise2D largeCoast, Noise2D mediumCoast, Noise2D smallCoast) {
+    private static final long TERRAIN_SEED = 12345L;
+    private static final long COAST_SEED = 54321L;
+
+    private static final int PARITY_GRIDS = 16;
+    private static final double[] PARITY_SCALES = {1.0 / 1200.0, 1.0 / 300.0, 1.0 / 80.0, 1.0 / 10.0};
+
+    /**
+     * Vanilla noise with the fixed seeds
+     */
+    public static TerrainNoise vanilla() {
+        return build(TERRAIN_SEED, COAST_SEED, (random, octaves) -> Noise2D.vanilla(new PerlinSimplexNoise(random, octaves)));
+    }
+
+    /**
+     * The engine for the given backend, falling back to vanilla if the table-driven engine does
+     * not reproduce it
+     *
+     * @param worldSeed Seed of the world the terrain is for; only used by {@link NoiseEngine#SEEDED}
+     */
+    public static TerrainNoise create(NoiseEngine engine, long worldSeed) {
+        switch (engine) {
+            case COMPATIBLE -> {
+                TerrainNoise compatible = build(TERRAIN_SEED, COAST_SEED, SimplexOctaves::new);
+                TerrainNoise vanilla = vanilla();
+                if (matches(compatible, vanilla)) {
+                    LOTRMod.LOGGER.info("Using the table-driven terrain noise (compatible with existing worlds)");
+                    return compatible;
+                }
+                LOTRMod.LOGGER.warn("Table-driven terrain noise does not match vanilla noise, using vanilla noise");
+                return vanilla;
+            }
+            case SEEDED -> {
+                // The same salts as the fixed seeds, so the two sources differ for every world seed
+                LOTRMod.LOGGER.info("Using the table-driven terrain noise, seeded from the world seed");
+                return build(worldSeed ^ TERRAIN_SEED, worldSeed ^ COAST_SEED, SimplexOctaves::new);
+            }
+            default -> {
+                return vanilla();
+            }
+        }
+    }
+
+    private static TerrainNoise build(long terrainSeed, long coastSeed, BiFunction<RandomSource, List<Integer>, Noise2D> factory) {
+        RandomSource random = RandomSource.create(terrainSeed);
+        Noise2D coastline = factory.apply(random, List.of(0, 1, 2, 3));
+        Noise2D terrain = factory.apply(random, List.of(0, 1, 2));
+        Noise2D detail = factory.apply(random, List.of(0, 1));
+
+        RandomSource coastRandom = RandomSource.create(coastSeed);
+        Noise2D largeCoast = factory.apply(coastRandom, List.of(0, 1, 2, 3, 4));
+        Noise2D mediumCoast = factory.apply(coastRandom, List.of(0, 1, 2, 3));
+        Noise2D smallCoast = factory.apply(coastRandom, List.of(0, 1, 2));
+        return new TerrainNoise(coastline, terrain, detail, largeCoast, mediumCoast, smallCoast);
+    }
+
+    private Noise2D[] fields() {
+        return new Noise2D[]{coastline, terrain, detail, largeCoast, mediumCoast, smallCoast};
+    }
+
+    /**
+     * Sample both sets of fields on random chunk-sized grids, through the batch path the
+     * generator uses, at the scales it uses, and require bit-identical values
+     */
+    private static boolean matches(TerrainNoise candidate, TerrainNoise reference) {
+        SplittableRandom random = new SplittableRandom(0x4C4F5452L);
+        Noise2D[] candidates = candidate.fields();
+        Noise2D[] references = reference.fields();
+        double[] actual = new double[256];
+        double[] expected = new double[256];
+
+        for (int i = 0; i < PARITY_GRIDS; i++) {
+            // Both signs, near the origin and towards the far edges of the map
+            int worldX = random.nextInt(-1 << (4 + i), 1 << (4 + i));
+            int worldZ = random.nextInt(-1 << (4 + i), 1 << (4 + i));
+            for (double scale : PARITY_SCALES) {
+                for (int field = 0; field < candidates.length; field++) {
+                    candidates[field].fill(actual, 0, worldX, worldZ, 16, 16, scale);
+                    references[field].fill(expected, 0, worldX, worldZ, 16, 16, scale);
+                    for (int column = 0; column < 256; column++) {
+                        if (Double.doubleToLongBits(actual[column]) != Double.doubleToLongBits(expected[column])) {
+                            LOTRMod.LOGGER.warn("Terrain noise mismatch in field {} at {}, {}: {} != {}",
+                                    field, worldX + (column >> 4), worldZ + (column & 15), actual[column], expected[column]);
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package com.lotrmod.worldgen.raster;
+
+import java.util.Arrays;
+
+/**
+ * A small raster held on the heap, one byte or short per pixel.
+ * Used for fallback maps and as the decoded form of single tiles.
+ */
+public final class HeapRaster implements Raster {
+    private final int width;
+    private final int height;
+    private final byte[] bytes;
+    private final short[] shorts;
+
+    private HeapRaster(int width, int height, byte[] bytes, short[] shorts) {
+        this.width = width;
+        this.height = height;
+        this.bytes = bytes;
+        this.shorts = shorts;
+    }
+
+    public static HeapRaster ofBytes(int width, int height, byte[] samples) {
+        return new HeapRaster(width, height, samples, null);
+    }
+
+    public static HeapRaster ofShorts(int width, int height, short[] samples) {
+        return new HeapRaster(width, height, null, samples);
+    }
+
+    /**
+     * A raster with every pixel set to the same sample
+     */
+    public static HeapRaster filled(int width, int height, int sampleBytes, int value) {
+        if (sampleBytes == 1) {
+            byte[] samples = new byte[width * height];
+            Arrays.fill(samples, (byte) value);
+            return ofBytes(width, height, samples);
+        }
+        short[] samples = new short[width * height];
+        Arrays.fill(samples, (short) value);
+        return ofShorts(width, height, samples);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int get(int pixelX, int pixelZ) {
+        int index = pixelZ * width + pixelX;
+        return bytes != null ? bytes[index] & 0xFF : shorts[index] & 0xFFFF;
+    }
+
+    @Override
+    public long getResidentBytes() {
+        return bytes != null ? bytes.length : shorts.length * 2L;
+    }
+}
@@ -0,0 +1,113 @@
+package com.lotrmod.worldgen.raster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A raster backed by a memory-mapped file, so the samples live off-heap and the OS page
+ * cache only holds the parts of the map that are actually read.
+ *
+ * The file is mapped in 1 GiB segments (a single mapping is limited to 2 GiB).
+ * Sample sizes are powers of two, so a sample never straddles two segments.
+ *
+ * File layout (big-endian): int magic, int version, int width, int height, int sampleBytes,
+ * padding up to {@link #HEADER_BYTES}, then the samples row by row.
+ */
+public final class MappedRaster implements Raster {
+    public static final int MAGIC = 0x4C525331; // "LRS1"
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final int width;
+    private final int height;
+    private final int sampleBytes;
+    private final MappedByteBuffer[] segments;
+    private final long sourceHash;
+
+    private MappedRaster(int width, int height, int sampleBytes, MappedByteBuffer[] segments, long sourceHash) {
+        this.width = width;
+        this.height = height;
+        this.sampleBytes = sampleBytes;
+        this.segments = segments;
+        this.sourceHash = sourceHash;
+    }
+
+    /**
+     * Map a raster file
+     *
+     * @return The raster, or null if the file is not a valid raster with the given sample size
+     */
+    public static MappedRaster open(Path file, int expectedSampleBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            int width = header.getInt();
+            int height = header.getInt();
+            int sampleBytes = header.getInt();
+            long dataBytes = (long) width * height * sampleBytes;
+            if (sampleBytes != expectedSampleBytes || channel.size() != HEADER_BYTES + dataBytes) {
+                return null;
+            }
+
+            // Mappings stay valid after the channel is closed
+            int segmentCount = (int) ((dataBytes + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                long size = Math.min(1L << SEGMENT_SHIFT, dataBytes - start);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + start, size);
+            }
+
+            return new MappedRaster(width, height, sampleBytes, segments, 0L);
+        }
+    }
+
+    /**
+     * The same mapping, recording the checksum of the image it was converted from
+     */
+    MappedRaster withSourceHash(long hash) {
+        return new MappedRaster(width, height, sampleBytes, segments, hash);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int get(int pixelX, int pixelZ) {
+        long offset = ((long) pixelZ * width + pixelX) * sampleBytes;
+        MappedByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)];
+        int index = (int) (offset & SEGMENT_MASK);
+        // Absolute reads do not touch the buffer's position, so they are thread-safe
+        return sampleBytes == 1 ? segment.get(index) & 0xFF : segment.getShort(index) & 0xFFFF;
+    }
+
+    @Override
+    public long getResidentBytes() {
+        return (long) width * height * sampleBytes;
+    }
+
+    @Override
+    public long getSourceHash() {
+        return sourceHash;
+    }
+}
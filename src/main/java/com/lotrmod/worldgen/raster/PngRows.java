@@ -0,0 +1,237 @@
+package com.lotrmod.worldgen.raster;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes a PNG one row at a time, in a single pass over the file, so converting a map never
+ * holds more than two rows of it.
+ *
+ * Only non-interlaced 8-bit RGB, RGBA and palette images are handled - the formats maps are
+ * saved in, and the ones whose pixels ImageIO hands back unchanged. Anything else is left to
+ * ImageIO.
+ */
+final class PngRows {
+    private static final long SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int IDAT = 0x49444154;
+
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_PALETTE = 3;
+    private static final int COLOR_RGBA = 6;
+
+    private final int width;
+    private final int height;
+    private final int colorType;
+    private final int bitDepth;
+    private final int[] palette;
+    // Bytes per complete pixel, at least one; the distance filters look back over
+    private final int filterStride;
+    private final InputStream data;
+    private byte[] previous;
+    private byte[] current;
+
+    private PngRows(int width, int height, int colorType, int bitDepth, int[] palette, InputStream data) {
+        this.width = width;
+        this.height = height;
+        this.colorType = colorType;
+        this.bitDepth = bitDepth;
+        this.palette = palette;
+        this.data = data;
+        int bitsPerPixel = bitDepth * (colorType == COLOR_RGB ? 3 : colorType == COLOR_RGBA ? 4 : 1);
+        this.filterStride = Math.max(1, bitsPerPixel / 8);
+        int rowBytes = (int) (((long) width * bitsPerPixel + 7) / 8);
+        this.previous = new byte[rowBytes];
+        this.current = new byte[rowBytes];
+    }
+
+    /**
+     * Read the header of a PNG, or return null if the stream is not a PNG this class can decode.
+     * The stream is positioned at the image data afterwards and must stay open while rows are read.
+     */
+    @Nullable
+    static PngRows open(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readLong() != SIGNATURE) {
+            return null;
+        }
+
+        int width = 0;
+        int height = 0;
+        int bitDepth = 0;
+        int colorType = -1;
+        int[] palette = null;
+        while (true) {
+            int length = in.readInt();
+            int type = in.readInt();
+            if (type == IHDR) {
+                width = in.readInt();
+                height = in.readInt();
+                bitDepth = in.readUnsignedByte();
+                colorType = in.readUnsignedByte();
+                in.skipNBytes(2); // compression and filter method, both always 0
+                int interlace = in.readUnsignedByte();
+                in.skipNBytes(length - 13 + 4);
+                boolean supported = interlace == 0 && (colorType == COLOR_PALETTE
+                        ? bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8
+                        : (colorType == COLOR_RGB || colorType == COLOR_RGBA) && bitDepth == 8);
+                if (!supported || width <= 0 || height <= 0) {
+                    return null;
+                }
+            } else if (type == PLTE) {
+                palette = new int[256];
+                for (int i = 0; i < length / 3; i++) {
+                    palette[i] = (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+                }
+                in.skipNBytes(length % 3 + 4);
+            } else if (type == IDAT) {
+                if (colorType < 0 || (colorType == COLOR_PALETTE && palette == null)) {
+                    throw new IOException("PNG image data before its header or palette");
+                }
+                return new PngRows(width, height, colorType, bitDepth, palette,
+                        new InflaterInputStream(new ImageData(in, length)));
+            } else {
+                in.skipNBytes(length + 4L);
+            }
+        }
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Decode the next row into {@code rgb[offset .. offset + width)} as packed 0xRRGGBB
+     */
+    void readRow(int[] rgb, int offset) throws IOException {
+        byte[] swap = previous;
+        previous = current;
+        current = swap;
+
+        int filter = data.read();
+        if (filter < 0 || data.readNBytes(current, 0, current.length) != current.length) {
+            throw new EOFException("PNG image data ends early");
+        }
+        unfilter(filter);
+
+        byte[] row = current;
+        switch (colorType) {
+            case COLOR_RGB -> {
+                for (int x = 0, i = 0; x < width; x++, i += 3) {
+                    rgb[offset + x] = ((row[i] & 0xFF) << 16) | ((row[i + 1] & 0xFF) << 8) | (row[i + 2] & 0xFF);
+                }
+            }
+            case COLOR_RGBA -> {
+                for (int x = 0, i = 0; x < width; x++, i += 4) {
+                    rgb[offset + x] = ((row[i] & 0xFF) << 16) | ((row[i + 1] & 0xFF) << 8) | (row[i + 2] & 0xFF);
+                }
+            }
+            default -> {
+                int pixelsPerByte = 8 / bitDepth;
+                int mask = (1 << bitDepth) - 1;
+                for (int x = 0; x < width; x++) {
+                    int shift = 8 - bitDepth * (x % pixelsPerByte + 1);
+                    rgb[offset + x] = palette[((row[x / pixelsPerByte] & 0xFF) >> shift) & mask];
+                }
+            }
+        }
+    }
+
+    private void unfilter(int filter) throws IOException {
+        byte[] row = current;
+        byte[] above = previous;
+        int stride = filterStride;
+        switch (filter) {
+            case 0 -> {
+            }
+            case 1 -> {
+                for (int i = stride; i < row.length; i++) {
+                    row[i] += row[i - stride];
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] += above[i];
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < row.length; i++) {
+                    int left = i >= stride ? row[i - stride] & 0xFF : 0;
+                    row[i] += (byte) ((left + (above[i] & 0xFF)) >> 1);
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < row.length; i++) {
+                    int left = i >= stride ? row[i - stride] & 0xFF : 0;
+                    int up = above[i] & 0xFF;
+                    int upLeft = i >= stride ? above[i - stride] & 0xFF : 0;
+                    row[i] += (byte) paeth(left, up, upLeft);
+                }
+            }
+            default -> throw new IOException("Unknown PNG filter type " + filter);
+        }
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int toLeft = Math.abs(estimate - left);
+        int toUp = Math.abs(estimate - up);
+        int toUpLeft = Math.abs(estimate - upLeft);
+        if (toLeft <= toUp && toLeft <= toUpLeft) {
+            return left;
+        }
+        return toUp <= toUpLeft ? up : upLeft;
+    }
+
+    /**
+     * The contents of consecutive IDAT chunks as one stream
+     */
+    private static final class ImageData extends InputStream {
+        private final DataInputStream in;
+        // Bytes left in the current chunk, or -1 once the chunks have ended
+        private int remaining;
+
+        ImageData(DataInputStream in, int firstLength) {
+            this.in = in;
+            this.remaining = firstLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            while (remaining == 0) {
+                in.skipNBytes(4); // CRC
+                int next = in.readInt();
+                if (in.readInt() != IDAT) {
+                    remaining = -1;
+                    break;
+                }
+                remaining = next;
+            }
+            if (remaining < 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, Math.min(length, remaining));
+            if (read < 0) {
+                throw new EOFException("PNG image data ends early");
+            }
+            remaining -= read;
+            return read;
+        }
+    }
+}
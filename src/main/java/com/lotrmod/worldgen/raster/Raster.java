@@ -0,0 +1,72 @@
+package com.lotrmod.worldgen.raster;
+
+/**
+ * A read-only grid of unsigned integer samples (one per map pixel).
+ *
+ * Implementations must be safe to read from several worldgen threads at once.
+ * Callers are responsible for bounds checking.
+ */
+public interface Raster {
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Get the sample at a pixel. The pixel must be inside the raster.
+     */
+    int get(int pixelX, int pixelZ);
+
+    /**
+     * Bytes of sample data this raster currently holds, on the heap or mapped from disk
+     */
+    long getResidentBytes();
+
+    /**
+     * Checksum of the image files the samples were converted from, for naming caches of data
+     * computed from the map; 0 if the raster did not come from files
+     */
+    default long getSourceHash() {
+        return 0L;
+    }
+
+    /**
+     * Side of the square blocks the samples are stored in, or 0 if every access pattern is
+     * equally cheap
+     */
+    default int getBlockSize() {
+        return 0;
+    }
+
+    /**
+     * Visit a rectangle of the raster one storage block at a time, finishing each block before
+     * starting the next. Whole-map passes go through this so a tiled raster decodes each tile
+     * once and stays within its memory budget, where a row-by-row scan would cycle a whole row
+     * of tiles through the cache for every row of pixels.
+     *
+     * Blocks are visited in order on the calling thread; the visitor may split a block across
+     * threads itself.
+     *
+     * @param visitor Called with the bounds of each block, clipped to the rectangle; max is exclusive
+     */
+    default void forEachBlock(int minX, int minZ, int maxX, int maxZ, BlockVisitor visitor) {
+        int blockSize = getBlockSize();
+        if (blockSize <= 0) {
+            if (minX < maxX && minZ < maxZ) {
+                visitor.visit(minX, minZ, maxX, maxZ);
+            }
+            return;
+        }
+
+        for (int blockZ = Math.floorDiv(minZ, blockSize) * blockSize; blockZ < maxZ; blockZ += blockSize) {
+            for (int blockX = Math.floorDiv(minX, blockSize) * blockSize; blockX < maxX; blockX += blockSize) {
+                visitor.visit(Math.max(minX, blockX), Math.max(minZ, blockZ),
+                        Math.min(maxX, blockX + blockSize), Math.min(maxZ, blockZ + blockSize));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface BlockVisitor {
+        void visit(int minX, int minZ, int maxX, int maxZ);
+    }
+}
@@ -0,0 +1,273 @@
+package com.lotrmod.worldgen.raster;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.lotrmod.LOTRMod;
+import net.minecraft.server.packs.resources.IoSupplier;
+import net.minecraft.util.GsonHelper;
+import net.neoforged.fml.loading.FMLPaths;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Converts map images into memory-mapped raster files, cached under the game directory's
+ * lotrmod/cache/maps so each image is only decoded once.
+ *
+ * PNG maps are decoded row by row in a single pass and written out in strips, so converting
+ * even a very large map never needs more than a few megabytes of heap. Other images are
+ * decoded whole, once.
+ */
+public final class RasterFiles {
+    // Pixels decoded per strip
+    private static final int STRIP_PIXELS = 1 << 22;
+
+    /**
+     * How image pixels are turned into raster samples
+     *
+     * @param name Part of the cache file name; change it when the conversion changes
+     * @param sampleBytes 1 or 2
+     * @param fromRgb Converts a packed 0xRRGGBB pixel to a sample
+     */
+    public record Format(String name, int sampleBytes, IntUnaryOperator fromRgb) {
+    }
+
+    private RasterFiles() {
+    }
+
+    public static Path getCacheDirectory() {
+        return getCacheDirectory("maps");
+    }
+
+    /**
+     * Get a directory under lotrmod/cache in the game directory
+     */
+    public static Path getCacheDirectory(String name) {
+        return FMLPaths.GAMEDIR.get().resolve(LOTRMod.MODID).resolve("cache").resolve(name);
+    }
+
+    /**
+     * Get a mapped raster for an image, converting it first if there is no up-to-date cached copy
+     *
+     * @param mapName Name of the map, used for the cache file
+     * @param image Opens the source image; called once to hash it and once more if it must be converted
+     */
+    public static Raster load(String mapName, IoSupplier<InputStream> image, Format format) throws IOException {
+        long hash = hash(image);
+        String prefix = mapName + "-" + format.name() + "-";
+        Path cacheDir = getCacheDirectory();
+        Path file = cacheDir.resolve(prefix + Long.toHexString(hash) + ".raster");
+
+        if (Files.isRegularFile(file)) {
+            MappedRaster raster = MappedRaster.open(file, format.sampleBytes());
+            if (raster != null) {
+                LOTRMod.LOGGER.info("Using cached raster {}", file);
+                return raster.withSourceHash(hash);
+            }
+        }
+
+        try {
+            Files.createDirectories(cacheDir);
+            deleteStale(cacheDir, prefix);
+        } catch (IOException e) {
+            // Not fatal, we fall back to a temporary file below
+            LOTRMod.LOGGER.warn("Could not prepare raster cache directory {}: {}", cacheDir, e.getMessage());
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            convert(image, format, file);
+        } catch (IOException e) {
+            LOTRMod.LOGGER.warn("Could not write raster cache {}, using a temporary file: {}", file, e.getMessage());
+            file = Files.createTempFile(prefix, ".raster");
+            file.toFile().deleteOnExit();
+            convert(image, format, file);
+        }
+        LOTRMod.LOGGER.info("Converted {} to raster in {} ms", mapName, (System.nanoTime() - startTime) / 1_000_000L);
+
+        MappedRaster raster = MappedRaster.open(file, format.sampleBytes());
+        if (raster == null) {
+            throw new IOException("Converted raster " + file + " is invalid");
+        }
+        return raster.withSourceHash(hash);
+    }
+
+    /**
+     * Read the blocks-per-pixel scale from a map's sidecar JSON ({"blocks_per_pixel": 16})
+     */
+    public static int readBlocksPerPixel(IoSupplier<InputStream> sidecar, int defaultValue) {
+        try (Reader reader = new InputStreamReader(sidecar.get(), StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            int blocksPerPixel = GsonHelper.getAsInt(json, "blocks_per_pixel", defaultValue);
+            if (blocksPerPixel < 1) {
+                LOTRMod.LOGGER.error("blocks_per_pixel must be at least 1, using {}", defaultValue);
+                return defaultValue;
+            }
+            return blocksPerPixel;
+        } catch (Exception e) {
+            LOTRMod.LOGGER.error("Failed to read map settings, using {} blocks per pixel", defaultValue, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Write 16-bit samples to a raster file and map it. Like image conversion, the file is
+     * written to a temporary file first and moved into place.
+     */
+    public static MappedRaster writeShorts(Path file, int width, int height, short[] samples) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(MappedRaster.HEADER_BYTES);
+            header.putInt(MappedRaster.MAGIC).putInt(MappedRaster.FORMAT_VERSION)
+                    .putInt(width).putInt(height).putInt(2);
+            header.position(MappedRaster.HEADER_BYTES).flip();
+            writeFully(out, header);
+
+            long count = (long) width * height;
+            if (count > samples.length) {
+                throw new IllegalArgumentException("A " + width + "x" + height + " raster needs more than " + samples.length + " samples");
+            }
+            ByteBuffer strip = ByteBuffer.allocate((int) Math.min(count, STRIP_PIXELS) * 2);
+            for (long start = 0; start < count; start += STRIP_PIXELS) {
+                int length = (int) Math.min(STRIP_PIXELS, count - start);
+                strip.clear();
+                strip.asShortBuffer().put(samples, (int) start, length);
+                strip.limit(length * 2);
+                writeFully(out, strip);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        MappedRaster raster = MappedRaster.open(file, 2);
+        if (raster == null) {
+            throw new IOException("Written raster " + file + " is invalid");
+        }
+        return raster;
+    }
+
+    /**
+     * Delete the cached rasters whose names start with a prefix
+     */
+    public static void deleteStale(Path cacheDir, String prefix) throws IOException {
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(cacheDir, prefix + "*.raster")) {
+            for (Path path : stale) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static long hash(IoSupplier<InputStream> image) throws IOException {
+        CRC32 crc = new CRC32();
+        update(crc, image);
+        return crc.getValue();
+    }
+
+    /**
+     * Add the bytes of a file to a checksum, without decoding it
+     */
+    static void update(CRC32 crc, IoSupplier<InputStream> file) throws IOException {
+        try (InputStream stream = new CheckedInputStream(file.get(), crc)) {
+            stream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Decode an image into a raster file. Writes to a temporary file first and moves it into
+     * place, so a crash never leaves a half-written raster behind.
+     */
+    private static void convert(IoSupplier<InputStream> image, Format format, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            boolean streamed;
+            try (InputStream stream = new BufferedInputStream(image.get())) {
+                PngRows png = PngRows.open(stream);
+                streamed = png != null;
+                if (streamed) {
+                    writeRaster(out, format, png.getWidth(), png.getHeight(), (rgb, rows) -> {
+                        for (int row = 0; row < rows; row++) {
+                            png.readRow(rgb, row * png.getWidth());
+                        }
+                    });
+                }
+            }
+
+            if (!streamed) {
+                BufferedImage decoded;
+                try (InputStream stream = image.get()) {
+                    decoded = ImageIO.read(stream);
+                }
+                if (decoded == null) {
+                    throw new IOException("Unsupported image format");
+                }
+                int width = decoded.getWidth();
+                int[] nextRow = {0};
+                writeRaster(out, format, width, decoded.getHeight(), (rgb, rows) -> {
+                    decoded.getRGB(0, nextRow[0], width, rows, rgb, 0, width);
+                    nextRow[0] += rows;
+                });
+            }
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Fills a strip with the next rows of an image, as packed RGB
+     */
+    private interface RowSource {
+        void read(int[] rgb, int rows) throws IOException;
+    }
+
+    private static void writeRaster(FileChannel out, Format format, int width, int height, RowSource source) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(MappedRaster.HEADER_BYTES);
+        header.putInt(MappedRaster.MAGIC).putInt(MappedRaster.FORMAT_VERSION)
+                .putInt(width).putInt(height).putInt(format.sampleBytes());
+        header.position(MappedRaster.HEADER_BYTES).flip();
+        writeFully(out, header);
+
+        int stripRows = Math.max(1, STRIP_PIXELS / width);
+        int[] rgb = new int[width * stripRows];
+        ByteBuffer samples = ByteBuffer.allocate(width * stripRows * format.sampleBytes());
+
+        for (int row = 0; row < height; row += stripRows) {
+            int rows = Math.min(stripRows, height - row);
+            source.read(rgb, rows);
+
+            samples.clear();
+            for (int i = 0; i < width * rows; i++) {
+                int sample = format.fromRgb().applyAsInt(rgb[i] & 0xFFFFFF);
+                if (format.sampleBytes() == 1) {
+                    samples.put((byte) sample);
+                } else {
+                    samples.putShort((short) sample);
+                }
+            }
+            samples.flip();
+            writeFully(out, samples);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
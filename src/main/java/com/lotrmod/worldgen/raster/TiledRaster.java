@@ -0,0 +1,373 @@
+package com.lotrmod.worldgen.raster;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.lotrmod.LOTRMod;
+import net.minecraft.server.packs.resources.IoSupplier;
+import net.minecraft.util.GsonHelper;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+/**
+ * A raster split into square tiles (one image file each) that are decoded the first time they
+ * are sampled, and evicted least-recently-used first once the decoded tiles exceed a memory budget.
+ *
+ * Each tile slot holds at most one future, so concurrent readers of a cold tile all wait on the
+ * same decode instead of decoding it twice. Decoding runs on a small dedicated pool rather than
+ * on the calling thread's executor: worldgen threads block on the future, and blocking the
+ * shared background executor on its own tasks could starve it.
+ *
+ * A tile whose decode fails is read as missing, but not cached, so a transient failure does not
+ * leave a permanent hole in the map.
+ *
+ * Recency is tracked per load rather than per read: a read only stamps its tile with the number
+ * of loads so far, which keeps the hot path to a couple of plain loads.
+ */
+public final class TiledRaster implements Raster {
+    private static final int LOADER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final ThreadPoolExecutor LOADER = new ThreadPoolExecutor(
+            LOADER_THREADS, LOADER_THREADS, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("LOTR Map Tile Loader #%d").setDaemon(true).build());
+
+    /**
+     * Size and scale of a tiled map, read from its tiles.json
+     * ({"width": 10240, "height": 8192, "tile_size": 256, "blocks_per_pixel": 16})
+     */
+    public record Layout(int width, int height, int tileSize, int blocksPerPixel) {
+    }
+
+    /**
+     * Opens the image of one tile
+     */
+    @FunctionalInterface
+    public interface TileSource {
+        /**
+         * @return The tile image, or null if the map has no file for this tile
+         */
+        @Nullable
+        IoSupplier<InputStream> open(int tileX, int tileZ);
+    }
+
+    private final String name;
+    private final int width;
+    private final int height;
+    private final int tileShift;
+    private final int tileMask;
+    private final int tilesX;
+    private final RasterFiles.Format format;
+    private final int missingSample;
+    private final TileSource source;
+    private final long tileBytes;
+    private volatile long budgetBytes;
+
+    private final AtomicReferenceArray<CompletableFuture<HeapRaster>> tiles;
+    private final AtomicLongArray lastUse;
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong residentBytes = new AtomicLong();
+    // Checksum of the tile files, read on first request
+    private volatile Long sourceHash;
+
+    /**
+     * @param missingSample Sample used for tiles without a file, and for reads of tiles that fail to decode
+     * @param budgetBytes Decoded tiles are evicted once they take more than this
+     */
+    public TiledRaster(String name, Layout layout, RasterFiles.Format format, int missingSample,
+                       TileSource source, long budgetBytes) {
+        this.name = name;
+        this.width = layout.width();
+        this.height = layout.height();
+        this.tileShift = Integer.numberOfTrailingZeros(layout.tileSize());
+        this.tileMask = layout.tileSize() - 1;
+        this.tilesX = (width + tileMask) >> tileShift;
+        int tilesZ = (height + tileMask) >> tileShift;
+        this.format = format;
+        this.missingSample = missingSample;
+        this.source = source;
+        this.tileBytes = (long) layout.tileSize() * layout.tileSize() * format.sampleBytes();
+        // Always keep at least two tiles, so a read straddling a tile edge cannot thrash
+        this.budgetBytes = Math.max(budgetBytes, 2 * tileBytes);
+        this.tiles = new AtomicReferenceArray<>(tilesX * tilesZ);
+        this.lastUse = new AtomicLongArray(tilesX * tilesZ);
+    }
+
+    /**
+     * Read a tiled map's tiles.json
+     *
+     * @throws IOException If the file is malformed or the tile size is not a power of two
+     */
+    public static Layout readLayout(IoSupplier<InputStream> manifest, int defaultBlocksPerPixel) throws IOException {
+        try (Reader reader = new InputStreamReader(manifest.get(), StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            int width = GsonHelper.getAsInt(json, "width");
+            int height = GsonHelper.getAsInt(json, "height");
+            int tileSize = GsonHelper.getAsInt(json, "tile_size", 256);
+            int blocksPerPixel = GsonHelper.getAsInt(json, "blocks_per_pixel", defaultBlocksPerPixel);
+
+            if (width < 1 || height < 1 || blocksPerPixel < 1) {
+                throw new IOException("width, height and blocks_per_pixel must be at least 1");
+            }
+            if (tileSize < 16 || tileSize > 4096 || Integer.bitCount(tileSize) != 1) {
+                throw new IOException("tile_size must be a power of two between 16 and 4096, got " + tileSize);
+            }
+            return new Layout(width, height, tileSize, blocksPerPixel);
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid tiles.json: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    @Override
+    public int getBlockSize() {
+        return tileMask + 1;
+    }
+
+    /**
+     * Checksum of the layout and of every tile file's bytes. The first call reads all the tiles
+     * through once, without decoding them, so it belongs on a background thread.
+     */
+    @Override
+    public long getSourceHash() {
+        Long hash = sourceHash;
+        if (hash == null) {
+            CRC32 crc = new CRC32();
+            ByteBuffer layout = ByteBuffer.allocate(3 * Integer.BYTES);
+            layout.putInt(width).putInt(height).putInt(tileMask + 1);
+            crc.update(layout.flip());
+            crc.update(format.name().getBytes(StandardCharsets.UTF_8));
+
+            int tilesZ = tiles.length() / tilesX;
+            for (int tileZ = 0; tileZ < tilesZ; tileZ++) {
+                for (int tileX = 0; tileX < tilesX; tileX++) {
+                    IoSupplier<InputStream> file = source.open(tileX, tileZ);
+                    crc.update(file != null ? 1 : 0);
+                    if (file == null) {
+                        continue;
+                    }
+                    try {
+                        RasterFiles.update(crc, file);
+                    } catch (IOException e) {
+                        // Such a tile reads as missing, and is hashed like one
+                        LOTRMod.LOGGER.warn("Could not read tile {},{} of {}: {}", tileX, tileZ, name, e.getMessage());
+                        crc.update(0);
+                    }
+                }
+            }
+            hash = crc.getValue();
+            sourceHash = hash;
+        }
+        return hash;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Change the memory budget, evicting tiles right away if it shrank
+     */
+    public void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = Math.max(budgetBytes, 2 * tileBytes);
+        evict(-1);
+    }
+
+    /**
+     * Drop every decoded tile; they are decoded again as they are sampled
+     */
+    public synchronized void evictAll() {
+        for (int i = 0; i < tiles.length(); i++) {
+            CompletableFuture<HeapRaster> future = tiles.get(i);
+            if (future != null && future.isDone() && tiles.compareAndSet(i, future, null)) {
+                residentBytes.addAndGet(-tileBytes);
+            }
+        }
+    }
+
+    /**
+     * Threads of the shared tile decoding pool that are decoding right now
+     */
+    public static int getLoaderActiveThreads() {
+        return LOADER.getActiveCount();
+    }
+
+    public static int getLoaderThreads() {
+        return LOADER_THREADS;
+    }
+
+    /**
+     * Tile decodes waiting for a thread of the shared pool
+     */
+    public static int getLoaderQueuedTasks() {
+        return LOADER.getQueue().size();
+    }
+
+    @Override
+    public int get(int pixelX, int pixelZ) {
+        int index = (pixelZ >> tileShift) * tilesX + (pixelX >> tileShift);
+
+        CompletableFuture<HeapRaster> future = tiles.get(index);
+        HeapRaster tile = future != null ? future.getNow(null) : null;
+        if (tile == null) {
+            tile = load(index);
+        }
+
+        long now = loads.get();
+        if (lastUse.get(index) != now) {
+            lastUse.set(index, now);
+        }
+        return tile.get(pixelX & tileMask, pixelZ & tileMask);
+    }
+
+    private HeapRaster load(int index) {
+        CompletableFuture<HeapRaster> future = tiles.get(index);
+        if (future == null) {
+            CompletableFuture<HeapRaster> created = new CompletableFuture<>();
+            if (tiles.compareAndSet(index, null, created)) {
+                // We own the slot: decode once, everyone else waits on the same future
+                try {
+                    LOADER.execute(() -> loadTile(index, created));
+                } catch (Throwable t) {
+                    tiles.compareAndSet(index, created, null);
+                    created.completeExceptionally(t);
+                }
+                future = created;
+            } else {
+                future = tiles.get(index);
+                if (future == null) {
+                    // Evicted between the two reads, start over
+                    return load(index);
+                }
+            }
+        }
+        return future.join();
+    }
+
+    /**
+     * Decode a tile into the future that owns its slot. The future is always completed, so
+     * readers never wait forever; a tile that fails to decode is read as missing this once, and
+     * its slot is emptied so the next read tries the file again.
+     */
+    private void loadTile(int index, CompletableFuture<HeapRaster> created) {
+        HeapRaster tile;
+        try {
+            tile = decode(index);
+        } catch (Throwable t) {
+            LOTRMod.LOGGER.error("Failed to decode tile {},{} of {}", index % tilesX, index / tilesX, name, t);
+            int tileSize = tileMask + 1;
+            try {
+                tiles.compareAndSet(index, created, null);
+                created.complete(HeapRaster.filled(tileSize, tileSize, format.sampleBytes(), missingSample));
+            } catch (Throwable fillFailure) {
+                created.completeExceptionally(fillFailure);
+            }
+            return;
+        }
+        created.complete(tile);
+        onLoaded(index);
+    }
+
+    private HeapRaster decode(int index) throws IOException {
+        int tileX = index % tilesX;
+        int tileZ = index / tilesX;
+        int tileSize = tileMask + 1;
+
+        IoSupplier<InputStream> tileImage = source.open(tileX, tileZ);
+        if (tileImage == null) {
+            return HeapRaster.filled(tileSize, tileSize, format.sampleBytes(), missingSample);
+        }
+
+        try (InputStream stream = tileImage.get()) {
+            BufferedImage image = ImageIO.read(stream);
+            if (image == null) {
+                throw new IOException("Unsupported image format");
+            }
+
+            // Edge tiles may be smaller than the tile size; the rest of the tile stays "missing"
+            int w = Math.min(image.getWidth(), Math.min(tileSize, width - (tileX << tileShift)));
+            int h = Math.min(image.getHeight(), Math.min(tileSize, height - (tileZ << tileShift)));
+            int[] rgb = image.getRGB(0, 0, w, h, null, 0, w);
+
+            if (format.sampleBytes() == 1) {
+                byte[] samples = new byte[tileSize * tileSize];
+                Arrays.fill(samples, (byte) missingSample);
+                for (int z = 0; z < h; z++) {
+                    for (int x = 0; x < w; x++) {
+                        samples[z * tileSize + x] = (byte) format.fromRgb().applyAsInt(rgb[z * w + x] & 0xFFFFFF);
+                    }
+                }
+                return HeapRaster.ofBytes(tileSize, tileSize, samples);
+            }
+
+            short[] samples = new short[tileSize * tileSize];
+            Arrays.fill(samples, (short) missingSample);
+            for (int z = 0; z < h; z++) {
+                for (int x = 0; x < w; x++) {
+                    samples[z * tileSize + x] = (short) format.fromRgb().applyAsInt(rgb[z * w + x] & 0xFFFFFF);
+                }
+            }
+            return HeapRaster.ofShorts(tileSize, tileSize, samples);
+        }
+    }
+
+    private void onLoaded(int index) {
+        lastUse.set(index, loads.incrementAndGet());
+        if (residentBytes.addAndGet(tileBytes) > budgetBytes) {
+            evict(index);
+        }
+    }
+
+    /**
+     * Drop the least recently used decoded tiles until we are back under budget
+     */
+    private synchronized void evict(int keep) {
+        while (residentBytes.get() > budgetBytes) {
+            int oldest = -1;
+            long oldestUse = Long.MAX_VALUE;
+            for (int i = 0; i < tiles.length(); i++) {
+                CompletableFuture<HeapRaster> future = tiles.get(i);
+                if (i != keep && future != null && future.isDone() && lastUse.get(i) < oldestUse) {
+                    oldest = i;
+                    oldestUse = lastUse.get(i);
+                }
+            }
+            if (oldest < 0) {
+                return;
+            }
+
+            // Readers already holding the tile keep using it; new readers decode it again
+            tiles.set(oldest, null);
+            residentBytes.addAndGet(-tileBytes);
+        }
+    }
+}
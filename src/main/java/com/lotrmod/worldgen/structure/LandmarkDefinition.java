@@ -0,0 +1,53 @@
+package com.lotrmod.worldgen.structure;
+
+import com.lotrmod.worldgen.Region;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.DataResult;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A large handcrafted template placed once, at a fixed point of a region.
+ * Loaded from data/<namespace>/worldgen/landmark/<name>.json:
+ *
+ * <pre>
+ * {
+ *   "template": "lotrmod:landmark/minas_tirith",
+ *   "region": "gondor",
+ *   "offset": [120, -40],
+ *   "y_offset": -4
+ * }
+ * </pre>
+ *
+ * The template is centred on the region's most interior point plus the offset (in blocks),
+ * with its lowest layer at the terrain height there plus y_offset.
+ */
+public record LandmarkDefinition(ResourceLocation template, Region region, int offsetX, int offsetZ, int yOffset) {
+    private static final Codec<Region> REGION_CODEC = Codec.STRING.comapFlatMap(name -> {
+        try {
+            return DataResult.success(Region.valueOf(name.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return DataResult.error(() -> "Unknown region: " + name);
+        }
+    }, region -> region.name().toLowerCase(Locale.ROOT));
+
+    private static final Codec<List<Integer>> OFFSET_CODEC = Codec.INT.listOf()
+            .validate(list -> list.size() == 2 ? DataResult.success(list) : DataResult.error(() -> "Offset must be [x, z]"));
+
+    public static final Codec<LandmarkDefinition> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+            ResourceLocation.CODEC.fieldOf("template").forGetter(LandmarkDefinition::template),
+            REGION_CODEC.fieldOf("region").forGetter(LandmarkDefinition::region),
+            OFFSET_CODEC.optionalFieldOf("offset", List.of(0, 0)).forGetter(definition -> List.of(definition.offsetX(), definition.offsetZ())),
+            Codec.INT.optionalFieldOf("y_offset", 0).forGetter(LandmarkDefinition::yOffset)
+    ).apply(instance, (template, region, offset, yOffset) -> new LandmarkDefinition(template, region, offset.get(0), offset.get(1), yOffset)));
+
+    /**
+     * Location of the template's .nbt file
+     */
+    public ResourceLocation getTemplateFile() {
+        return template.withPath(path -> "structure/" + path + ".nbt");
+    }
+}
@@ -0,0 +1,351 @@
+package com.lotrmod.worldgen.structure;
+
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A landmark template preprocessed into 16x16 column slices, one per chunk it covers.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * int magic, int version, long sourceHash
+ * int sizeX, sizeY, sizeZ
+ * int paletteLength, byte[paletteLength]      - NBT compound {palette: [block states]}
+ * (long offset, int length)[slicesX * slicesZ] - slice table, x-major
+ * slices...
+ * </pre>
+ *
+ * Each slice holds its own small palette (indices into the global one), its blocks sorted
+ * by Y, then its block entities. Only the slice table and global palette are kept in memory;
+ * slices are read on demand with positional reads, so memory use does not grow with the
+ * size of the landmark.
+ */
+public final class LandmarkSlices implements Closeable {
+    private static final int MAGIC = 0x4C4D4B31; // "LMK1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int FIXED_HEADER_BYTES = 4 + 4 + 8 + 4 * 3 + 4;
+    private static final int TABLE_ENTRY_BYTES = 8 + 4;
+
+    private final FileChannel channel;
+    // One reference for the owner, until close(), plus one per read in flight; the channel
+    // closes when the count reaches zero
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final BlockState[] palette;
+    private final long[] sliceOffsets;
+    private final int[] sliceLengths;
+    public final int sizeX;
+    public final int sizeY;
+    public final int sizeZ;
+    public final int slicesX;
+    public final int slicesZ;
+
+    /**
+     * One decoded slice. Blocks are sorted by template-local Y.
+     */
+    public record Slice(short[] y, byte[] xz, BlockState[] states, List<BlockEntityData> blockEntities) {
+        public int size() {
+            return y.length;
+        }
+    }
+
+    public record BlockEntityData(int x, int y, int z, CompoundTag tag) {
+    }
+
+    private LandmarkSlices(FileChannel channel, BlockState[] palette, long[] sliceOffsets, int[] sliceLengths,
+                           int sizeX, int sizeY, int sizeZ) {
+        this.channel = channel;
+        this.palette = palette;
+        this.sliceOffsets = sliceOffsets;
+        this.sliceLengths = sliceLengths;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.slicesX = slicesFor(sizeX);
+        this.slicesZ = slicesFor(sizeZ);
+    }
+
+    private static int slicesFor(int size) {
+        return (size + 15) >> 4;
+    }
+
+    /**
+     * Open a preprocessed file if it exists and was built from a template with the given hash
+     *
+     * @return The opened slices, or null if the file is missing or stale
+     */
+    public static LandmarkSlices open(Path file, long sourceHash) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer fixed = readFully(channel, 0, FIXED_HEADER_BYTES);
+            if (fixed.getInt() != MAGIC || fixed.getInt() != FORMAT_VERSION || fixed.getLong() != sourceHash) {
+                channel.close();
+                return null;
+            }
+            int sizeX = fixed.getInt();
+            int sizeY = fixed.getInt();
+            int sizeZ = fixed.getInt();
+            int paletteLength = fixed.getInt();
+
+            ByteBuffer paletteBytes = readFully(channel, FIXED_HEADER_BYTES, paletteLength);
+            CompoundTag paletteTag = NbtIo.read(new DataInputStream(new ByteArrayInputStream(paletteBytes.array())));
+            ListTag paletteList = paletteTag.getList("palette", Tag.TAG_COMPOUND);
+            BlockState[] palette = new BlockState[paletteList.size()];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = NbtUtils.readBlockState(BuiltInRegistries.BLOCK.asLookup(), paletteList.getCompound(i));
+            }
+
+            int sliceCount = slicesFor(sizeX) * slicesFor(sizeZ);
+            ByteBuffer table = readFully(channel, FIXED_HEADER_BYTES + paletteLength, sliceCount * TABLE_ENTRY_BYTES);
+            long[] offsets = new long[sliceCount];
+            int[] lengths = new int[sliceCount];
+            for (int i = 0; i < sliceCount; i++) {
+                offsets[i] = table.getLong();
+                lengths[i] = table.getInt();
+            }
+
+            return new LandmarkSlices(channel, palette, offsets, lengths, sizeX, sizeY, sizeZ);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read and decode the slice covering template-local columns [sliceX * 16, sliceX * 16 + 15]
+     * by [sliceZ * 16, sliceZ * 16 + 15]. Safe to call from several threads at once, and
+     * concurrently with {@link #close}: a read that started first still completes.
+     *
+     * @throws ClosedChannelException If the slices were closed before the read started
+     */
+    public Slice readSlice(int sliceX, int sliceZ) throws IOException {
+        if (!retain()) {
+            throw new ClosedChannelException();
+        }
+        ByteBuffer buffer;
+        try {
+            int index = sliceX * slicesZ + sliceZ;
+            buffer = readFully(channel, sliceOffsets[index], sliceLengths[index]);
+        } finally {
+            release();
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+
+        int localPaletteSize = in.readUnsignedShort();
+        BlockState[] localPalette = new BlockState[localPaletteSize];
+        for (int i = 0; i < localPaletteSize; i++) {
+            localPalette[i] = palette[in.readInt()];
+        }
+
+        int blockCount = in.readInt();
+        short[] y = new short[blockCount];
+        byte[] xz = new byte[blockCount];
+        BlockState[] states = new BlockState[blockCount];
+        boolean wideIndices = localPaletteSize > 256;
+        for (int i = 0; i < blockCount; i++) {
+            y[i] = in.readShort();
+            xz[i] = in.readByte();
+            states[i] = localPalette[wideIndices ? in.readUnsignedShort() : in.readUnsignedByte()];
+        }
+
+        int blockEntityCount = in.readInt();
+        List<BlockEntityData> blockEntities = new ArrayList<>(blockEntityCount);
+        for (int i = 0; i < blockEntityCount; i++) {
+            int entityY = in.readShort();
+            int entityXZ = in.readUnsignedByte();
+            blockEntities.add(new BlockEntityData(entityXZ >> 4, entityY, entityXZ & 15, NbtIo.read(in)));
+        }
+
+        return new Slice(y, xz, states, blockEntities);
+    }
+
+    private boolean retain() {
+        while (true) {
+            int count = references.get();
+            if (count == 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() throws IOException {
+        if (references.decrementAndGet() == 0) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Release the owner's reference. The file is closed once reads still in flight finish;
+     * reads started afterwards fail with {@link ClosedChannelException}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    /**
+     * Preprocess a template .nbt into a sliced file. Writes to a temporary file first and moves
+     * it into place, so a crash never leaves a half-written file behind.
+     */
+    public static void preprocess(InputStream templateStream, long sourceHash, Path file) throws IOException {
+        CompoundTag template = NbtIo.readCompressed(templateStream, NbtAccounter.unlimitedHeap());
+
+        ListTag size = template.getList("size", Tag.TAG_INT);
+        int sizeX = size.getInt(0);
+        int sizeY = size.getInt(1);
+        int sizeZ = size.getInt(2);
+        if (sizeY > Short.MAX_VALUE) {
+            throw new IOException("Template is too tall: " + sizeY);
+        }
+
+        ListTag paletteTag = template.contains("palette", Tag.TAG_LIST)
+                ? template.getList("palette", Tag.TAG_COMPOUND)
+                : template.getList("palettes", Tag.TAG_LIST).getList(0);
+
+        // Bucket block indices per slice
+        int slicesX = slicesFor(sizeX);
+        int slicesZ = slicesFor(sizeZ);
+        ListTag blocks = template.getList("blocks", Tag.TAG_COMPOUND);
+        List<List<CompoundTag>> sliceBlocks = new ArrayList<>(slicesX * slicesZ);
+        for (int i = 0; i < slicesX * slicesZ; i++) {
+            sliceBlocks.add(new ArrayList<>());
+        }
+        for (int i = 0; i < blocks.size(); i++) {
+            CompoundTag block = blocks.getCompound(i);
+            ListTag pos = block.getList("pos", Tag.TAG_INT);
+            sliceBlocks.get((pos.getInt(0) >> 4) * slicesZ + (pos.getInt(2) >> 4)).add(block);
+        }
+
+        ByteArrayOutputStream paletteBytes = new ByteArrayOutputStream();
+        CompoundTag paletteWrapper = new CompoundTag();
+        paletteWrapper.put("palette", paletteTag);
+        NbtIo.write(paletteWrapper, new DataOutputStream(paletteBytes));
+
+        long dataStart = FIXED_HEADER_BYTES + paletteBytes.size() + (long) slicesX * slicesZ * TABLE_ENTRY_BYTES;
+        long[] offsets = new long[slicesX * slicesZ];
+        int[] lengths = new int[slicesX * slicesZ];
+
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = dataStart;
+            for (int i = 0; i < sliceBlocks.size(); i++) {
+                byte[] slice = encodeSlice(sliceBlocks.get(i));
+                // Free the parsed blocks as we go
+                sliceBlocks.set(i, null);
+                offsets[i] = position;
+                lengths[i] = slice.length;
+                writeFully(out, position, ByteBuffer.wrap(slice));
+                position += slice.length;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate((int) dataStart);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(sourceHash);
+            header.putInt(sizeX).putInt(sizeY).putInt(sizeZ);
+            header.putInt(paletteBytes.size()).put(paletteBytes.toByteArray());
+            for (int i = 0; i < offsets.length; i++) {
+                header.putLong(offsets[i]).putInt(lengths[i]);
+            }
+            header.flip();
+            writeFully(out, 0, header);
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] encodeSlice(List<CompoundTag> blocks) throws IOException {
+        blocks.sort((a, b) -> Integer.compare(a.getList("pos", Tag.TAG_INT).getInt(1), b.getList("pos", Tag.TAG_INT).getInt(1)));
+
+        // Local palette: global index -> local index
+        int[] globalIndices = blocks.stream().mapToInt(block -> block.getInt("state")).distinct().sorted().toArray();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(globalIndices.length);
+        for (int globalIndex : globalIndices) {
+            out.writeInt(globalIndex);
+        }
+
+        boolean wideIndices = globalIndices.length > 256;
+        List<CompoundTag> blockEntities = new ArrayList<>();
+        out.writeInt(blocks.size());
+        for (CompoundTag block : blocks) {
+            ListTag pos = block.getList("pos", Tag.TAG_INT);
+            out.writeShort(pos.getInt(1));
+            out.writeByte(((pos.getInt(0) & 15) << 4) | (pos.getInt(2) & 15));
+            int localIndex = Arrays.binarySearch(globalIndices, block.getInt("state"));
+            if (wideIndices) {
+                out.writeShort(localIndex);
+            } else {
+                out.writeByte(localIndex);
+            }
+            if (block.contains("nbt", Tag.TAG_COMPOUND)) {
+                blockEntities.add(block);
+            }
+        }
+
+        out.writeInt(blockEntities.size());
+        for (CompoundTag block : blockEntities) {
+            ListTag pos = block.getList("pos", Tag.TAG_INT);
+            out.writeShort(pos.getInt(1));
+            out.writeByte(((pos.getInt(0) & 15) << 4) | (pos.getInt(2) & 15));
+            NbtIo.write(block.getCompound("nbt"), out);
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of landmark file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
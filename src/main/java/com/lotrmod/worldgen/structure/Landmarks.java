@@ -0,0 +1,316 @@
+package com.lotrmod.worldgen.structure;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.lotrmod.LOTRMod;
+import com.lotrmod.worldgen.RegionIndex;
+import com.mojang.serialization.JsonOps;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.FileToIdConverter;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.SimplePreparableReloadListener;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.neoforged.fml.loading.FMLPaths;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Large handcrafted landmarks (cities, fortresses) defined in data/<namespace>/worldgen/landmark.
+ *
+ * On (re)load each landmark's template is preprocessed once into a chunk-sliced file under
+ * the game directory's lotrmod/cache/landmarks, reused as long as the template is unchanged.
+ * During generation each chunk reads only its own slice, so a landmark of any size costs
+ * one slice of memory per chunk being generated.
+ */
+public class Landmarks extends SimplePreparableReloadListener<List<Landmarks.Landmark>> {
+    public static final String DIRECTORY = "worldgen/landmark";
+
+    private static final FileToIdConverter LISTER = FileToIdConverter.json(DIRECTORY);
+
+    private static volatile List<Landmark> landmarks = List.of();
+
+    /**
+     * A loaded landmark and its sliced template
+     */
+    public static final class Landmark {
+        private final ResourceLocation id;
+        private final LandmarkDefinition definition;
+        private final LandmarkSlices slices;
+
+        // Resolved lazily, since the region index may be rebuilt after landmarks load
+        private volatile Placement placement;
+
+        private Landmark(ResourceLocation id, LandmarkDefinition definition, LandmarkSlices slices) {
+            this.id = id;
+            this.definition = definition;
+            this.slices = slices;
+        }
+
+        public ResourceLocation getId() {
+            return id;
+        }
+
+        /**
+         * Where the landmark sits: its minimum corner is snapped to the chunk grid so each
+         * slice lines up with exactly one chunk
+         */
+        private record Placement(RegionIndex.Entry anchor, int minChunkX, int minChunkZ, int baseY) {
+        }
+
+        private Placement getPlacement(IntBinaryOperator surfaceHeight) {
+            RegionIndex.Entry anchor = RegionIndex.get(definition.region());
+            if (anchor == null) {
+                return null;
+            }
+
+            Placement current = placement;
+            if (current != null && current.anchor() == anchor) {
+                return current;
+            }
+
+            int centreX = anchor.interiorX() + definition.offsetX();
+            int centreZ = anchor.interiorZ() + definition.offsetZ();
+            int minChunkX = SectionPos.blockToSectionCoord(centreX - slices.sizeX / 2);
+            int minChunkZ = SectionPos.blockToSectionCoord(centreZ - slices.sizeZ / 2);
+            int baseY = surfaceHeight.applyAsInt(
+                    SectionPos.sectionToBlockCoord(minChunkX) + slices.sizeX / 2,
+                    SectionPos.sectionToBlockCoord(minChunkZ) + slices.sizeZ / 2) + definition.yOffset();
+
+            current = new Placement(anchor, minChunkX, minChunkZ, baseY);
+            placement = current;
+            return current;
+        }
+
+        private boolean covers(Placement placement, int chunkX, int chunkZ, int margin) {
+            int sliceX = chunkX - placement.minChunkX();
+            int sliceZ = chunkZ - placement.minChunkZ();
+            return sliceX >= -margin && sliceX < slices.slicesX + margin
+                    && sliceZ >= -margin && sliceZ < slices.slicesZ + margin;
+        }
+    }
+
+    /**
+     * Check whether a chunk is within margin chunks of any landmark's footprint
+     */
+    public static boolean isNearLandmark(ChunkPos chunkPos, int margin, IntBinaryOperator surfaceHeight) {
+        for (Landmark landmark : landmarks) {
+            Landmark.Placement placement = landmark.getPlacement(surfaceHeight);
+            if (placement != null && landmark.covers(placement, chunkPos.x, chunkPos.z, margin)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the slices of any landmarks covering this chunk
+     *
+     * @param surfaceHeight Deterministic terrain height for a world column (no erosion), used to seat each landmark
+     */
+    public static void place(ChunkAccess chunk, IntBinaryOperator surfaceHeight) {
+        ChunkPos chunkPos = chunk.getPos();
+        for (Landmark landmark : landmarks) {
+            Landmark.Placement placement = landmark.getPlacement(surfaceHeight);
+            if (placement == null || !landmark.covers(placement, chunkPos.x, chunkPos.z, 0)) {
+                continue;
+            }
+
+            try {
+                LandmarkSlices.Slice slice = readSlice(landmark, placement, chunkPos, surfaceHeight);
+                if (slice != null) {
+                    writeSlice(chunk, slice, placement.baseY());
+                }
+            } catch (IOException e) {
+                LOTRMod.LOGGER.error("Failed to read landmark {} slice for chunk {}", landmark.getId(), chunkPos, e);
+            }
+        }
+    }
+
+    /**
+     * Read a landmark's slice for a chunk. If the landmarks were reloaded since this landmark was
+     * looked up and its file is closed already, the slice is read from its reloaded version.
+     *
+     * @return The slice, or null if the landmark is gone or moved off the chunk after a reload
+     */
+    private static LandmarkSlices.Slice readSlice(Landmark landmark, Landmark.Placement placement, ChunkPos chunkPos,
+                                                  IntBinaryOperator surfaceHeight) throws IOException {
+        try {
+            return landmark.slices.readSlice(chunkPos.x - placement.minChunkX(), chunkPos.z - placement.minChunkZ());
+        } catch (ClosedChannelException e) {
+            // apply() publishes the new list before closing the old one
+            for (Landmark reloaded : landmarks) {
+                if (reloaded != landmark && reloaded.getId().equals(landmark.getId())) {
+                    Landmark.Placement reloadedPlacement = reloaded.getPlacement(surfaceHeight);
+                    if (reloadedPlacement == null || !reloaded.covers(reloadedPlacement, chunkPos.x, chunkPos.z, 0)) {
+                        return null;
+                    }
+                    return reloaded.slices.readSlice(chunkPos.x - reloadedPlacement.minChunkX(), chunkPos.z - reloadedPlacement.minChunkZ());
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void writeSlice(ChunkAccess chunk, LandmarkSlices.Slice slice, int baseY) {
+        int minY = chunk.getMinBuildHeight();
+        int maxY = chunk.getMaxBuildHeight() - 1;
+        Collection<Map.Entry<Heightmap.Types, Heightmap>> heightmaps = chunk.getHeightmaps();
+        LevelChunkSection section = null;
+        int sectionIndex = -1;
+        int sectionMinY = 0;
+
+        // Blocks are sorted by Y, so each section is locked once
+        try {
+            for (int i = 0; i < slice.size(); i++) {
+                int y = baseY + slice.y()[i];
+                if (y < minY || y > maxY) {
+                    continue;
+                }
+                int x = (slice.xz()[i] >> 4) & 15;
+                int z = slice.xz()[i] & 15;
+                BlockState state = slice.states()[i];
+
+                int index = chunk.getSectionIndex(y);
+                if (index != sectionIndex) {
+                    if (section != null) {
+                        section.release();
+                    }
+                    sectionIndex = index;
+                    section = chunk.getSection(index);
+                    sectionMinY = SectionPos.sectionToBlockCoord(chunk.getSectionYFromSectionIndex(index));
+                    section.acquire();
+                }
+
+                section.setBlockState(x, y - sectionMinY, z, state, false);
+                for (Map.Entry<Heightmap.Types, Heightmap> heightmap : heightmaps) {
+                    heightmap.getValue().update(x, y, z, state);
+                }
+            }
+        } finally {
+            if (section != null) {
+                section.release();
+            }
+        }
+
+        ChunkPos chunkPos = chunk.getPos();
+        for (LandmarkSlices.BlockEntityData blockEntity : slice.blockEntities()) {
+            int y = baseY + blockEntity.y();
+            if (y < minY || y > maxY) {
+                continue;
+            }
+            CompoundTag tag = blockEntity.tag().copy();
+            BlockPos pos = chunkPos.getBlockAt(blockEntity.x(), y, blockEntity.z());
+            tag.putInt("x", pos.getX());
+            tag.putInt("y", pos.getY());
+            tag.putInt("z", pos.getZ());
+            chunk.setBlockEntityNbt(tag);
+        }
+
+        chunk.setUnsaved(true);
+    }
+
+    @Override
+    protected List<Landmark> prepare(ResourceManager resourceManager, ProfilerFiller profiler) {
+        Path cacheDir = FMLPaths.GAMEDIR.get().resolve(LOTRMod.MODID).resolve("cache").resolve("landmarks");
+        List<Landmark> loaded = new ArrayList<>();
+
+        for (Map.Entry<ResourceLocation, Resource> entry : LISTER.listMatchingResources(resourceManager).entrySet()) {
+            ResourceLocation id = LISTER.fileToId(entry.getKey());
+
+            LandmarkDefinition definition;
+            try (Reader reader = entry.getValue().openAsReader()) {
+                JsonElement json = JsonParser.parseReader(reader);
+                definition = LandmarkDefinition.CODEC.parse(JsonOps.INSTANCE, json)
+                        .resultOrPartial(error -> LOTRMod.LOGGER.error("Invalid landmark {}: {}", id, error))
+                        .orElse(null);
+            } catch (Exception e) {
+                LOTRMod.LOGGER.error("Failed to read landmark {}", id, e);
+                continue;
+            }
+            if (definition == null) {
+                continue;
+            }
+
+            try {
+                LandmarkSlices slices = loadSlices(resourceManager, definition, cacheDir.resolve(id.getNamespace() + "_" + id.getPath().replace('/', '_') + ".lmk"));
+                if (slices != null) {
+                    loaded.add(new Landmark(id, definition, slices));
+                }
+            } catch (Exception e) {
+                LOTRMod.LOGGER.error("Failed to prepare landmark {}", id, e);
+            }
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Open the sliced file for a landmark, preprocessing the template first if the cached file
+     * is missing or was built from a different version of it
+     */
+    private static LandmarkSlices loadSlices(ResourceManager resourceManager, LandmarkDefinition definition, Path file) throws IOException {
+        ResourceLocation templateFile = definition.getTemplateFile();
+        Resource resource = resourceManager.getResource(templateFile).orElse(null);
+        if (resource == null) {
+            LOTRMod.LOGGER.error("Landmark template {} not found", templateFile);
+            return null;
+        }
+
+        // Hash the compressed template without parsing it
+        CRC32 crc = new CRC32();
+        try (InputStream stream = new CheckedInputStream(resource.open(), crc)) {
+            stream.transferTo(OutputStream.nullOutputStream());
+        }
+        long sourceHash = crc.getValue();
+
+        LandmarkSlices slices = LandmarkSlices.open(file, sourceHash);
+        if (slices != null) {
+            return slices;
+        }
+
+        LOTRMod.LOGGER.info("Preprocessing landmark template {}", templateFile);
+        try (InputStream stream = resource.open()) {
+            LandmarkSlices.preprocess(stream, sourceHash, file);
+        }
+        return LandmarkSlices.open(file, sourceHash);
+    }
+
+    @Override
+    protected void apply(List<Landmark> loaded, ResourceManager resourceManager, ProfilerFiller profiler) {
+        List<Landmark> previous = landmarks;
+        landmarks = List.copyOf(loaded);
+
+        // Generation threads may still be reading the previous slices; each file stays open
+        // until its last read in flight finishes
+        for (Landmark landmark : previous) {
+            try {
+                landmark.slices.close();
+            } catch (IOException e) {
+                LOTRMod.LOGGER.warn("Failed to close landmark {}", landmark.getId(), e);
+            }
+        }
+
+        LOTRMod.LOGGER.info("Loaded {} landmarks", loaded.size());
+    }
+}
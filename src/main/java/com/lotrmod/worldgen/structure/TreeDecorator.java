@@ -0,0 +1,314 @@
+package com.lotrmod.worldgen.structure;
+
+import com.lotrmod.worldgen.ChunkColumnCache;
+import com.lotrmod.worldgen.MiddleEarthBiomeSource;
+import com.lotrmod.worldgen.biome.LOTRBiome;
+import com.lotrmod.worldgen.structure.TreeTemplates.TreeType;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.QuartPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.WorldGenLevel;
+import net.minecraft.world.level.block.Rotation;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.levelgen.WorldgenRandom;
+import net.minecraft.world.level.levelgen.XoroshiroRandomSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Places the medium tree templates during the decoration stage, using per-biome density tables.
+ *
+ * Trunks are always inside the chunk being decorated and canopies never reach further than
+ * the neighbouring chunks, so decoration stays inside the 3x3 write window vanilla gives
+ * the features stage. A tree needs level ground under its whole bottom row (trunk base and
+ * roots), and no two trees of a chunk stand inside each other's crowns. Writes are grouped per chunk and section so each section is locked once.
+ */
+public final class TreeDecorator {
+    // Candidate columns per chunk; a biome's density is the expected number of trees out of these
+    private static final int ATTEMPTS_PER_CHUNK = 8;
+
+    // A tree is skipped if the ground under its bottom row is further than this from the trunk's ground
+    private static final int GROUND_TOLERANCE = 2;
+
+    private static final int SEA_LEVEL = 63;
+
+    private static final TreeDensity[] DENSITIES = new TreeDensity[LOTRBiome.values().length];
+
+    static {
+        for (LOTRBiome biome : LOTRBiome.values()) {
+            DENSITIES[biome.ordinal()] = densityFor(biome);
+        }
+    }
+
+    /**
+     * Expected trees per chunk and the tree types to choose from (uniformly)
+     */
+    private record TreeDensity(float treesPerChunk, TreeType... types) {
+        static final TreeDensity NONE = new TreeDensity(0.0f);
+    }
+
+    private TreeDecorator() {
+    }
+
+    private static TreeDensity densityFor(LOTRBiome biome) {
+        return switch (biome) {
+            // Forests
+            case LINDON_BEECH_FOREST, LOTHLORIEN -> new TreeDensity(6.0f, TreeType.ASH, TreeType.ELM);
+            case ERIADOR_MIXED_FOREST, DALE_MIXED_FOREST -> new TreeDensity(5.0f, TreeType.ASH, TreeType.ELM, TreeType.ROWAN, TreeType.PINE);
+            case ERIADOR_OLD_FOREST, FANGORN_FOREST -> new TreeDensity(8.0f, TreeType.ELM, TreeType.YEW, TreeType.ASH);
+            case ARNOR_OLD_FOREST -> new TreeDensity(7.0f, TreeType.ELM, TreeType.YEW, TreeType.ASH);
+            case MIRKWOOD -> new TreeDensity(8.0f, TreeType.YEW, TreeType.ELM, TreeType.PINE);
+            case GONDOR_OLIVE_FOREST -> new TreeDensity(4.0f, TreeType.ASH, TreeType.ELM);
+            case HARAD_JUNGLE -> new TreeDensity(6.0f, TreeType.ELM, TreeType.ASH);
+            case RIVENDELL -> new TreeDensity(3.0f, TreeType.ASH, TreeType.ELM, TreeType.PINE);
+
+            // Sparse woodland
+            case THE_SHIRE -> new TreeDensity(1.5f, TreeType.ASH, TreeType.ELM, TreeType.ROWAN);
+            case VALE_OF_ANDUIN_FLOODPLAINS -> new TreeDensity(1.0f, TreeType.ELM, TreeType.ASH);
+            case ERIADOR_ROLLING_HILLS, GONDOR_ROLLING_HILLS -> new TreeDensity(0.8f, TreeType.ASH, TreeType.ELM, TreeType.ROWAN);
+            case LINDON_LIMESTONE_HILLS, ARNOR_ROCKY_HILLS, DALE_ROCKY_HILLS -> new TreeDensity(0.5f, TreeType.ROWAN, TreeType.PINE);
+            case ARNOR_MARSH -> new TreeDensity(0.5f, TreeType.ELM);
+            case RHUN_SHRUBLANDS, EASTERN_RHOVANIAN_SHRUBLANDS -> new TreeDensity(0.4f, TreeType.ASH, TreeType.ROWAN);
+            case ROHAN_ROCKY_HILLS -> new TreeDensity(0.3f, TreeType.ROWAN);
+
+            // Plains
+            case LINDON_MEADOW, ERIADOR_PLAINS, ARNOR_PLAINS, GONDOR_PLAINS, DALE_PLAINS -> new TreeDensity(0.3f, TreeType.ASH, TreeType.ELM);
+            case HARAD_SAVANNA -> new TreeDensity(0.2f, TreeType.ASH);
+            case ROHAN_GRASSLAND, RHUN_GRASSLAND, EASTERN_RHOVANIAN_GRASSLAND -> new TreeDensity(0.1f, TreeType.ASH);
+
+            // Mountains and cold lands
+            case BLUE_MOUNTAINS, MISTY_MOUNTAINS, GREY_MOUNTAINS, WHITE_MOUNTAINS -> new TreeDensity(0.5f, TreeType.PINE);
+            case IRON_HILLS -> new TreeDensity(0.3f, TreeType.PINE);
+            case FORODWAITH_TUNDRA -> new TreeDensity(0.2f, TreeType.PINE);
+
+            // Deserts, wastelands, rivers and lakes
+            default -> TreeDensity.NONE;
+        };
+    }
+
+    /**
+     * Decorate a chunk with trees. Must be called from the features stage, with the neighbouring
+     * chunks available through the level.
+     *
+     * @param columns The chunk's cached terrain heights, or null to read them from the heightmap
+     */
+    public static void decorate(WorldGenLevel level, ChunkAccess chunk, ChunkColumnCache.ColumnData columns, MiddleEarthBiomeSource biomeSource) {
+        ChunkPos chunkPos = chunk.getPos();
+        int minX = chunkPos.getMinBlockX();
+        int minZ = chunkPos.getMinBlockZ();
+        int maxY = chunk.getMaxBuildHeight() - 1;
+
+        WorldgenRandom random = new WorldgenRandom(new XoroshiroRandomSource(level.getSeed()));
+        random.setDecorationSeed(level.getSeed(), minX, minZ);
+
+        // Pick trunk positions first, so templates are only looked at for chunks that get trees
+        List<int[]> trunks = new ArrayList<>();
+        List<TreeTemplate.Variant> variants = new ArrayList<>();
+
+        for (int attempt = 0; attempt < ATTEMPTS_PER_CHUNK; attempt++) {
+            int x = random.nextInt(16);
+            int z = random.nextInt(16);
+            float roll = random.nextFloat();
+            int typeRoll = random.nextInt(Integer.MAX_VALUE);
+            Rotation rotation = Rotation.getRandom(random);
+
+            LOTRBiome biome = biomeSource.getLOTRBiome(chunk.getNoiseBiome(
+                    QuartPos.fromBlock(minX + x), QuartPos.fromBlock(SEA_LEVEL), QuartPos.fromBlock(minZ + z)));
+            TreeDensity density = biome == null ? TreeDensity.NONE : DENSITIES[biome.ordinal()];
+            if (roll * ATTEMPTS_PER_CHUNK >= density.treesPerChunk()) {
+                continue;
+            }
+
+            int height = columns != null
+                    ? columns.heights[ChunkColumnCache.ColumnData.index(x, z)]
+                    : chunk.getHeight(Heightmap.Types.OCEAN_FLOOR_WG, x, z);
+            if (height < SEA_LEVEL || height >= maxY) {
+                continue;
+            }
+
+            // Only on soil with nothing already standing on it
+            int worldX = minX + x;
+            int worldZ = minZ + z;
+            if (!chunk.getBlockState(new BlockPos(worldX, height, worldZ)).is(BlockTags.DIRT)
+                    || !chunk.getBlockState(new BlockPos(worldX, height + 1, worldZ)).isAir()) {
+                continue;
+            }
+
+            TreeTemplate template = TreeTemplates.get(density.types()[typeRoll % density.types().length]);
+            if (template == null) {
+                continue;
+            }
+            TreeTemplate.Variant variant = template.getVariant(rotation);
+
+            // Keep the canopy inside the write window
+            if (x + variant.minDx < -16 || x + variant.maxDx > 31 || z + variant.minDz < -16 || z + variant.maxDz > 31) {
+                continue;
+            }
+
+            // No trunk inside another tree's crown, and no roots hanging over a slope or a cliff edge
+            if (!isClearOfTrees(trunks, variants, x, z, variant) || !isOnLevelGround(level, chunk, columns, x, z, height, variant)) {
+                continue;
+            }
+
+            trunks.add(new int[]{x, height + 1, z});
+            variants.add(variant);
+        }
+
+        if (trunks.isEmpty()) {
+            return;
+        }
+
+        // Bucket every block into the 3x3 chunks it lands in, packed as (y, state, local x/z)
+        int minBuildY = chunk.getMinBuildHeight();
+        LongArrayList[] writes = new LongArrayList[9];
+        List<BlockState> palette = new ArrayList<>();
+        Map<BlockState, Integer> paletteIndex = new IdentityHashMap<>();
+
+        for (int tree = 0; tree < trunks.size(); tree++) {
+            int[] trunk = trunks.get(tree);
+            TreeTemplate.Variant variant = variants.get(tree);
+
+            int[] localPalette = new int[variant.palette.length];
+            for (int i = 0; i < variant.palette.length; i++) {
+                BlockState state = variant.palette[i];
+                Integer index = paletteIndex.get(state);
+                if (index == null) {
+                    index = palette.size();
+                    paletteIndex.put(state, index);
+                    palette.add(state);
+                }
+                localPalette[i] = index;
+            }
+
+            int blockCount = variant.rowStart[Math.min(variant.height, maxY - trunk[1] + 1)];
+            for (int i = 0; i < blockCount; i++) {
+                int x = trunk[0] + variant.dx[i];
+                int z = trunk[2] + variant.dz[i];
+                int y = trunk[1] + variant.dy[i];
+                int slot = ((x >> 4) + 1) * 3 + ((z >> 4) + 1);
+
+                if (writes[slot] == null) {
+                    writes[slot] = new LongArrayList();
+                }
+                writes[slot].add(((long) (y - minBuildY) << 32)
+                        | ((long) localPalette[variant.stateIndex[i]] << 8)
+                        | ((x & 15) << 4) | (z & 15));
+            }
+        }
+
+        for (int slot = 0; slot < 9; slot++) {
+            if (writes[slot] != null) {
+                ChunkAccess target = slot == 4 ? chunk
+                        : level.getChunk(chunkPos.x + slot / 3 - 1, chunkPos.z + slot % 3 - 1);
+                writeBlocks(target, writes[slot], palette);
+            }
+        }
+    }
+
+    /**
+     * Check that a trunk is outside the crowns of the trees already placed, and they outside its crown
+     */
+    private static boolean isClearOfTrees(List<int[]> trunks, List<TreeTemplate.Variant> variants, int x, int z, TreeTemplate.Variant variant) {
+        for (int tree = 0; tree < trunks.size(); tree++) {
+            int[] trunk = trunks.get(tree);
+            int spacing = Math.max(variant.radius, variants.get(tree).radius);
+            if (Math.abs(trunk[0] - x) <= spacing && Math.abs(trunk[2] - z) <= spacing) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that the ground under every column of a template's bottom row is within
+     * {@link #GROUND_TOLERANCE} of the ground at the trunk. Columns in the neighbouring chunks
+     * are read from their worldgen heightmaps.
+     */
+    private static boolean isOnLevelGround(WorldGenLevel level, ChunkAccess chunk, ChunkColumnCache.ColumnData columns,
+                                           int x, int z, int height, TreeTemplate.Variant variant) {
+        ChunkPos chunkPos = chunk.getPos();
+        for (int column = 0; column < variant.footprintDx.length; column++) {
+            int groundX = x + variant.footprintDx[column];
+            int groundZ = z + variant.footprintDz[column];
+
+            int ground;
+            if ((groundX & ~15) == 0 && (groundZ & ~15) == 0) {
+                ground = columns != null
+                        ? columns.heights[ChunkColumnCache.ColumnData.index(groundX, groundZ)]
+                        : chunk.getHeight(Heightmap.Types.OCEAN_FLOOR_WG, groundX, groundZ);
+            } else {
+                ground = level.getChunk(chunkPos.x + (groundX >> 4), chunkPos.z + (groundZ >> 4))
+                        .getHeight(Heightmap.Types.OCEAN_FLOOR_WG, groundX & 15, groundZ & 15);
+            }
+            if (Math.abs(ground - height) > GROUND_TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write packed blocks into one chunk, a section at a time. Trees only grow into air,
+     * except that logs may replace leaves where two canopies meet a trunk.
+     */
+    private static void writeBlocks(ChunkAccess chunk, LongArrayList packed, List<BlockState> palette) {
+        // Sorting by the packed value groups the writes by Y, and so by section
+        long[] values = packed.toLongArray();
+        Arrays.sort(values);
+
+        int minBuildY = chunk.getMinBuildHeight();
+        Collection<Map.Entry<Heightmap.Types, Heightmap>> heightmaps = chunk.getHeightmaps();
+        LevelChunkSection section = null;
+        int sectionIndex = -1;
+        int sectionMinY = 0;
+
+        try {
+            for (long value : values) {
+                int y = (int) (value >>> 32) + minBuildY;
+                BlockState state = palette.get((int) ((value >>> 8) & 0xFFFFFF));
+                int x = (int) ((value >>> 4) & 15);
+                int z = (int) (value & 15);
+
+                int index = chunk.getSectionIndex(y);
+                if (index != sectionIndex) {
+                    if (section != null) {
+                        section.release();
+                    }
+                    sectionIndex = index;
+                    section = chunk.getSection(index);
+                    sectionMinY = SectionPos.sectionToBlockCoord(chunk.getSectionYFromSectionIndex(index));
+                    section.acquire();
+                }
+
+                BlockState existing = section.getBlockState(x, y - sectionMinY, z);
+                boolean replace = existing.isAir()
+                        || (existing.is(BlockTags.LEAVES) && state.is(BlockTags.LOGS));
+                if (!replace) {
+                    continue;
+                }
+
+                section.setBlockState(x, y - sectionMinY, z, state, false);
+                for (Map.Entry<Heightmap.Types, Heightmap> heightmap : heightmaps) {
+                    heightmap.getValue().update(x, y, z, state);
+                }
+            }
+        } finally {
+            if (section != null) {
+                section.release();
+            }
+        }
+
+        chunk.setUnsaved(true);
+    }
+}
@@ -0,0 +1,163 @@
+package com.lotrmod.worldgen.structure;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Rotation;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A tree template parsed once into compact, pre-rotated block lists.
+ *
+ * Offsets are relative to the centre of the trunk base, and blocks are sorted by height
+ * so a placement can write one chunk section at a time.
+ */
+public final class TreeTemplate {
+    private final Variant[] variants = new Variant[Rotation.values().length];
+
+    /**
+     * One non-air block of the source template, relative to the template origin
+     */
+    public record TemplateBlock(int x, int y, int z, BlockState state) {
+    }
+
+    public TreeTemplate(List<TemplateBlock> blocks) {
+        // Anchor on the centre of the lowest layer (the trunk base)
+        int baseY = blocks.stream().mapToInt(TemplateBlock::y).min().orElse(0);
+        double anchorX = blocks.stream().filter(block -> block.y() == baseY).mapToInt(TemplateBlock::x).average().orElse(0);
+        double anchorZ = blocks.stream().filter(block -> block.y() == baseY).mapToInt(TemplateBlock::z).average().orElse(0);
+        int originX = (int) Math.round(anchorX);
+        int originZ = (int) Math.round(anchorZ);
+
+        for (Rotation rotation : Rotation.values()) {
+            variants[rotation.ordinal()] = new Variant(blocks, originX, baseY, originZ, rotation);
+        }
+    }
+
+    public Variant getVariant(Rotation rotation) {
+        return variants[rotation.ordinal()];
+    }
+
+    /**
+     * The template under one rotation
+     */
+    public static final class Variant {
+        // Per block, sorted by dy
+        final byte[] dx;
+        final byte[] dy;
+        final byte[] dz;
+        final byte[] stateIndex;
+        final BlockState[] palette;
+
+        // rowStart[y] is the index of the first block with dy >= y; length is height + 1
+        final int[] rowStart;
+        final int height;
+
+        final int minDx;
+        final int maxDx;
+        final int minDz;
+        final int maxDz;
+
+        // Horizontal reach of the widest block from the trunk, on either axis
+        final int radius;
+
+        // Distinct columns of the bottom row, which has to rest on the ground
+        final byte[] footprintDx;
+        final byte[] footprintDz;
+
+        Variant(List<TemplateBlock> blocks, int originX, int originY, int originZ, Rotation rotation) {
+            List<TemplateBlock> sorted = new ArrayList<>(blocks);
+            sorted.sort(Comparator.comparingInt(TemplateBlock::y));
+
+            int count = sorted.size();
+            this.dx = new byte[count];
+            this.dy = new byte[count];
+            this.dz = new byte[count];
+            this.stateIndex = new byte[count];
+
+            Map<BlockState, Integer> paletteIndex = new IdentityHashMap<>();
+            List<BlockState> paletteList = new ArrayList<>();
+            int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+            int minZ = Integer.MAX_VALUE, maxZ = Integer.MIN_VALUE;
+            int maxY = 0;
+
+            for (int i = 0; i < count; i++) {
+                TemplateBlock block = sorted.get(i);
+                int x = block.x() - originX;
+                int z = block.z() - originZ;
+
+                // Same convention as StructureTemplate.transform with a zero pivot
+                int rotatedX = switch (rotation) {
+                    case NONE -> x;
+                    case CLOCKWISE_90 -> -z;
+                    case CLOCKWISE_180 -> -x;
+                    case COUNTERCLOCKWISE_90 -> z;
+                };
+                int rotatedZ = switch (rotation) {
+                    case NONE -> z;
+                    case CLOCKWISE_90 -> x;
+                    case CLOCKWISE_180 -> -z;
+                    case COUNTERCLOCKWISE_90 -> -x;
+                };
+                int y = block.y() - originY;
+
+                BlockState state = block.state().rotate(rotation);
+                Integer index = paletteIndex.get(state);
+                if (index == null) {
+                    index = paletteList.size();
+                    paletteIndex.put(state, index);
+                    paletteList.add(state);
+                }
+
+                dx[i] = (byte) rotatedX;
+                dy[i] = (byte) y;
+                dz[i] = (byte) rotatedZ;
+                stateIndex[i] = (byte) (int) index;
+
+                minX = Math.min(minX, rotatedX);
+                maxX = Math.max(maxX, rotatedX);
+                minZ = Math.min(minZ, rotatedZ);
+                maxZ = Math.max(maxZ, rotatedZ);
+                maxY = Math.max(maxY, y);
+            }
+
+            this.palette = paletteList.toArray(new BlockState[0]);
+            this.height = count == 0 ? 0 : maxY + 1;
+            this.minDx = count == 0 ? 0 : minX;
+            this.maxDx = count == 0 ? 0 : maxX;
+            this.minDz = count == 0 ? 0 : minZ;
+            this.maxDz = count == 0 ? 0 : maxZ;
+
+            this.radius = Math.max(Math.max(-minDx, maxDx), Math.max(-minDz, maxDz));
+
+            this.rowStart = new int[height + 1];
+            int i = 0;
+            for (int y = 0; y <= height; y++) {
+                while (i < count && dy[i] < y) {
+                    i++;
+                }
+                rowStart[y] = i;
+            }
+
+            // Blocks are sorted by dy, so the bottom row comes first
+            LongOpenHashSet footprint = new LongOpenHashSet();
+            for (int j = 0; j < rowStart[Math.min(1, height)]; j++) {
+                footprint.add(ChunkPos.asLong(dx[j], dz[j]));
+            }
+            this.footprintDx = new byte[footprint.size()];
+            this.footprintDz = new byte[footprint.size()];
+            int column = 0;
+            for (LongIterator iterator = footprint.iterator(); iterator.hasNext(); column++) {
+                long packed = iterator.nextLong();
+                footprintDx[column] = (byte) ChunkPos.getX(packed);
+                footprintDz[column] = (byte) ChunkPos.getZ(packed);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.lotrmod.worldgen.structure;
+
+import com.lotrmod.LOTRMod;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.SimplePreparableReloadListener;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Loads the tree .nbt templates from data/lotrmod/structure once per datapack (re)load
+ * and keeps them as compact {@link TreeTemplate}s for the tree decorator.
+ */
+public class TreeTemplates extends SimplePreparableReloadListener<Map<TreeTemplates.TreeType, TreeTemplate>> {
+    // Offsets are stored as bytes
+    private static final int MAX_TEMPLATE_SIZE = 127;
+
+    private static volatile Map<TreeType, TreeTemplate> templates = new EnumMap<>(TreeType.class);
+
+    public enum TreeType {
+        ASH("ash_tree_medium"),
+        ELM("elm_tree_medium"),
+        PINE("pine_tree_medium"),
+        ROWAN("rowan_tree_medium"),
+        YEW("yew_tree_medium");
+
+        private final String templateName;
+
+        TreeType(String templateName) {
+            this.templateName = templateName;
+        }
+
+        public ResourceLocation getFileLocation() {
+            return ResourceLocation.fromNamespaceAndPath(LOTRMod.MODID, "structure/" + templateName + ".nbt");
+        }
+    }
+
+    /**
+     * Get the parsed template for a tree type, or null if it failed to load
+     */
+    public static TreeTemplate get(TreeType type) {
+        return templates.get(type);
+    }
+
+    @Override
+    protected Map<TreeType, TreeTemplate> prepare(ResourceManager resourceManager, ProfilerFiller profiler) {
+        Map<TreeType, TreeTemplate> loaded = new EnumMap<>(TreeType.class);
+
+        for (TreeType type : TreeType.values()) {
+            ResourceLocation location = type.getFileLocation();
+            Optional<Resource> resource = resourceManager.getResource(location);
+            if (resource.isEmpty()) {
+                LOTRMod.LOGGER.warn("Tree template {} not found", location);
+                continue;
+            }
+
+            try (InputStream stream = resource.get().open()) {
+                CompoundTag tag = NbtIo.readCompressed(stream, NbtAccounter.unlimitedHeap());
+                TreeTemplate template = parse(tag, location);
+                if (template != null) {
+                    loaded.put(type, template);
+                }
+            } catch (Exception e) {
+                LOTRMod.LOGGER.error("Failed to load tree template {}", location, e);
+            }
+        }
+
+        return loaded;
+    }
+
+    @Override
+    protected void apply(Map<TreeType, TreeTemplate> loaded, ResourceManager resourceManager, ProfilerFiller profiler) {
+        templates = loaded;
+        LOTRMod.LOGGER.info("Loaded {} tree templates", loaded.size());
+    }
+
+    private static TreeTemplate parse(CompoundTag tag, ResourceLocation location) {
+        ListTag size = tag.getList("size", Tag.TAG_INT);
+        if (size.size() == 3 && (size.getInt(0) > MAX_TEMPLATE_SIZE || size.getInt(1) > MAX_TEMPLATE_SIZE || size.getInt(2) > MAX_TEMPLATE_SIZE)) {
+            LOTRMod.LOGGER.error("Tree template {} is larger than {} blocks, skipping", location, MAX_TEMPLATE_SIZE);
+            return null;
+        }
+
+        ListTag paletteTag = tag.contains("palette", Tag.TAG_LIST)
+                ? tag.getList("palette", Tag.TAG_COMPOUND)
+                : tag.getList("palettes", Tag.TAG_LIST).getList(0);
+
+        BlockState[] palette = new BlockState[paletteTag.size()];
+        for (int i = 0; i < paletteTag.size(); i++) {
+            palette[i] = NbtUtils.readBlockState(BuiltInRegistries.BLOCK.asLookup(), paletteTag.getCompound(i));
+        }
+
+        ListTag blocksTag = tag.getList("blocks", Tag.TAG_COMPOUND);
+        List<TreeTemplate.TemplateBlock> blocks = new ArrayList<>(blocksTag.size());
+        for (int i = 0; i < blocksTag.size(); i++) {
+            CompoundTag blockTag = blocksTag.getCompound(i);
+            BlockState state = palette[blockTag.getInt("state")];
+            // Air in a template would carve into neighbouring trees and terrain, so skip it
+            if (state.isAir()) {
+                continue;
+            }
+            ListTag pos = blockTag.getList("pos", Tag.TAG_INT);
+            blocks.add(new TreeTemplate.TemplateBlock(pos.getInt(0), pos.getInt(1), pos.getInt(2), state));
+        }
+
+        return new TreeTemplate(blocks);
+    }
+}
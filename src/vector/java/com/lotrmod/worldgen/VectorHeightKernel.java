@@ -0,0 +1,118 @@
+package com.lotrmod.worldgen;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.lotrmod.worldgen.MiddleEarthChunkGenerator.*;
+
+/**
+ * Height composition over whole rows of a chunk plane with SIMD lanes (jdk.incubator.vector).
+ *
+ * Every step mirrors {@link ScalarHeightKernel} operation for operation (Java never fuses
+ * multiply-adds), so results are bit-identical. The coastal transition's branches are all
+ * computed and then selected per lane with masks.
+ *
+ * Lives in its own source set, the only code compiled against the incubator module, and is
+ * loaded by name only when the JVM was started with --add-modules jdk.incubator.vector; see
+ * {@link HeightKernels}.
+ */
+final class VectorHeightKernel implements HeightKernel {
+    // A chunk row is 16 columns, so wider species (e.g. long SVE registers) fall back to 512 bits
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED.length() <= 16
+            ? DoubleVector.SPECIES_PREFERRED
+            : DoubleVector.SPECIES_512;
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public String toString() {
+        return "vector height kernel (" + lanes() + " lanes)";
+    }
+
+    @Override
+    public void compose(HeightPlane plane) {
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+
+        for (int x = 0; x < 16; x++) {
+            double fx = plane.weightX[x];
+
+            for (int z = 0; z < 16; z += SPECIES.length()) {
+                int column = ChunkColumnCache.ColumnData.index(x, z);
+                DoubleVector large = DoubleVector.fromArray(SPECIES, plane.large, column);
+                DoubleVector medium = DoubleVector.fromArray(SPECIES, plane.medium, column);
+                DoubleVector small = DoubleVector.fromArray(SPECIES, plane.small, column);
+                DoubleVector detail = DoubleVector.fromArray(SPECIES, plane.detail, column);
+                DoubleVector mountain = DoubleVector.fromArray(SPECIES, plane.mountain, column);
+                DoubleVector hill = DoubleVector.fromArray(SPECIES, plane.hill, column);
+
+                DoubleVector height00 = cornerHeight(plane, 0, large, medium, small, detail, mountain, hill);
+                DoubleVector height10 = cornerHeight(plane, 1, large, medium, small, detail, mountain, hill);
+                DoubleVector height01 = cornerHeight(plane, 2, large, medium, small, detail, mountain, hill);
+                DoubleVector height11 = cornerHeight(plane, 3, large, medium, small, detail, mountain, hill);
+
+                DoubleVector fz = DoubleVector.fromArray(SPECIES, plane.weightZ, z);
+                DoubleVector v0 = height00.mul(1.0 - fx).add(height10.mul(fx));
+                DoubleVector v1 = height01.mul(1.0 - fx).add(height11.mul(fx));
+                DoubleVector baseTerrainHeight = v0.mul(one.sub(fz)).add(v1.mul(fz));
+
+                DoubleVector height;
+                if (plane.landmaskLoaded) {
+                    DoubleVector brightness = DoubleVector.fromArray(SPECIES, plane.brightness, column);
+                    height = applyLandmask(baseTerrainHeight, brightness, one);
+                } else {
+                    // The scalar path adds a zero bias here
+                    height = baseTerrainHeight.add(0.0);
+                }
+                height.intoArray(plane.heights, column);
+            }
+        }
+    }
+
+    private static DoubleVector cornerHeight(HeightPlane plane, int corner,
+                                             DoubleVector large, DoubleVector medium, DoubleVector small,
+                                             DoubleVector detail, DoubleVector mountain, DoubleVector hill) {
+        double variationScale = plane.variationScale[corner];
+
+        DoubleVector baseHeight = large.mul(LARGE_SCALE_AMPLITUDE).mul(variationScale).add(SEA_LEVEL)
+                .add(medium.mul(MEDIUM_SCALE_AMPLITUDE).mul(variationScale))
+                .add(small.mul(SMALL_SCALE_AMPLITUDE).mul(variationScale).mul(0.8))
+                .add(detail.mul(DETAIL_SCALE_AMPLITUDE).mul(variationScale).mul(0.6));
+
+        return baseHeight
+                .add(mountain.mul(plane.mountainHeight[corner]))
+                .add(hill.mul(plane.hillFactor[corner]))
+                .add(plane.heightOffset[corner]);
+    }
+
+    private static DoubleVector applyLandmask(DoubleVector height, DoubleVector brightness, DoubleVector one) {
+        DoubleVector landmaskBias = one.sub(brightness.div(127.5)).mul(LANDMASK_HEIGHT_BIAS);
+        DoubleVector finalHeight = height.add(landmaskBias.mul(LANDMASK_INFLUENCE_STRENGTH));
+
+        // Transition band: smoothstep down to the ocean floor
+        DoubleVector blendFactor = brightness.sub(COAST_TRANSITION_START)
+                .div(OCEAN_BRIGHTNESS_THRESHOLD - COAST_TRANSITION_START);
+        blendFactor = blendFactor.mul(blendFactor).mul(DoubleVector.broadcast(SPECIES, 3.0).sub(blendFactor.mul(2.0)));
+        DoubleVector transition = finalHeight.mul(one.sub(blendFactor)).add(blendFactor.mul(OCEAN_FLOOR_HEIGHT));
+
+        // Near the coast: gently flatten ground above the cap
+        DoubleVector gentleFactor = brightness.sub(COAST_LAND_THRESHOLD)
+                .div(COAST_TRANSITION_START - COAST_LAND_THRESHOLD);
+        gentleFactor = gentleFactor.mul(gentleFactor);
+        DoubleVector flattened = finalHeight.sub(COAST_HEIGHT_CAP).mul(one.sub(gentleFactor.mul(0.5))).add(COAST_HEIGHT_CAP);
+
+        VectorMask<Double> ocean = brightness.compare(VectorOperators.GE, OCEAN_BRIGHTNESS_THRESHOLD);
+        VectorMask<Double> inTransition = brightness.compare(VectorOperators.GE, COAST_TRANSITION_START).andNot(ocean);
+        VectorMask<Double> nearCoast = brightness.compare(VectorOperators.GT, COAST_LAND_THRESHOLD)
+                .andNot(brightness.compare(VectorOperators.GE, COAST_TRANSITION_START))
+                .and(finalHeight.compare(VectorOperators.GT, COAST_HEIGHT_CAP));
+
+        return finalHeight
+                .blend(flattened, nearCoast)
+                .blend(transition, inTransition)
+                .blend(OCEAN_FLOOR_HEIGHT, ocean);
+    }
+}